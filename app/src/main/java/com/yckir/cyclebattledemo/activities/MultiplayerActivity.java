@@ -21,7 +21,7 @@ import com.yckir.cyclebattledemo.utility.FileUtility;
 import com.yckir.cyclebattledemo.utility.GameResultsData;
 import com.yckir.cyclebattledemo.views.gameSurfaceView.GameSurfaceView;
 import com.yckir.cyclebattledemo.R;
-import com.yckir.cyclebattledemo.utility.ClassStateString;
+import com.yckir.cyclebattledemo.engine.ClassStateString;
 import com.yckir.cyclebattledemo.utility.SoundManager;
 
 import java.util.HashMap;
@@ -0,0 +1,16 @@
+package com.yckir.cyclebattledemo.utility;
+
+import android.util.Log;
+
+import com.yckir.cyclebattledemo.engine.EngineLog;
+
+/**
+ * Forwards the engine log messages to the Android log.
+ */
+public class AndroidEngineLogger implements EngineLog.Logger {
+
+    @Override
+    public void log(int priority, String tag, String msg) {
+        Log.println(priority, tag, msg);
+    }
+}
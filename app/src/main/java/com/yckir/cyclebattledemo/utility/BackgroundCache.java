@@ -0,0 +1,113 @@
+package com.yckir.cyclebattledemo.utility;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the background images of the game so they do not have to be drawn again. The most
+ * recently used images are kept in memory, and every image is also stored as raw pixels in the
+ * background directory of internal private storage, see
+ * {@link FileUtility#writeBitmapPixels(Bitmap, File)}. Images are keyed by
+ * {@link FileUtility#getBackgroundFileName(int, int, int, int)}.
+ * <p>
+ * The memory cache is shared by the whole process and can be used from any thread.
+ */
+public class BackgroundCache {
+    public  static final String     TAG                     =   "BACKGROUND_CACHE";
+
+    //one image for each orientation
+    private static final int        MAX_MEMORY_ENTRIES      =   2;
+
+    private static final LinkedHashMap<String, Bitmap> sMemoryCache =
+            new LinkedHashMap<String, Bitmap>(MAX_MEMORY_ENTRIES + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bitmap> eldest) {
+                    return size() > MAX_MEMORY_ENTRIES;
+                }
+            };
+
+
+    private BackgroundCache(){}
+
+
+    /**
+     * Get an image from memory without touching storage.
+     *
+     * @param fileName the name of the image
+     * @return the image, null if it is not in memory
+     */
+    public static Bitmap getFromMemory(String fileName){
+        synchronized (sMemoryCache) {
+            return sMemoryCache.get(fileName);
+        }
+    }
+
+
+    /**
+     * Get an image from memory, or read it from storage if it is not in memory. An image that is
+     * read is put in memory.
+     *
+     * @param fileName the name of the image
+     * @param context app context
+     * @return the image, null if it is not cached
+     */
+    public static Bitmap get(String fileName, Context context){
+        Bitmap bitmap = getFromMemory(fileName);
+        if(bitmap != null)
+            return bitmap;
+
+        if(!FileUtility.backgroundFileExists(fileName, context))
+            return null;
+        File file = FileUtility.getBackgroundFile(fileName, context);
+        if(file == null)
+            return null;
+
+        bitmap = FileUtility.readBitmapPixels(file);
+        if(bitmap != null)
+            putInMemory(fileName, bitmap);
+        return bitmap;
+    }
+
+
+    /**
+     * Put an image in memory.
+     *
+     * @param fileName the name of the image
+     * @param bitmap the image
+     */
+    public static void putInMemory(String fileName, Bitmap bitmap){
+        synchronized (sMemoryCache) {
+            sMemoryCache.put(fileName, bitmap);
+        }
+    }
+
+
+    /**
+     * Put an image in memory and write it to storage. Writing blocks, so this should not be
+     * called on the ui thread, see {@link WriteFileTask}.
+     *
+     * @param fileName the name of the image
+     * @param bitmap the image
+     * @param context app context
+     * @return true if the image was written to storage
+     */
+    public static boolean put(String fileName, Bitmap bitmap, Context context){
+        putInMemory(fileName, bitmap);
+
+        File file = FileUtility.getBackgroundFile(fileName, context);
+        if(file == null){
+            Log.e(TAG, "put: could not get file " + fileName);
+            return false;
+        }
+        if(!FileUtility.writeBitmapPixels(bitmap, file)){
+            FileUtility.deleteBackgroundFile(fileName, context);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package com.yckir.cyclebattledemo.utility;
+
+import android.os.Bundle;
+
+import com.yckir.cyclebattledemo.engine.StateBundle;
+
+/**
+ * Lets the engine save and restore its state onto a Bundle.
+ */
+public class BundleState implements StateBundle {
+    private final Bundle mBundle;
+
+
+    /**
+     * @param bundle the bundle that values will be written to and read from
+     */
+    public BundleState(Bundle bundle){
+        mBundle = bundle;
+    }
+
+
+    @Override
+    public void putInt(String key, int value) {
+        mBundle.putInt(key, value);
+    }
+
+
+    @Override
+    public void putLong(String key, long value) {
+        mBundle.putLong(key, value);
+    }
+
+
+    @Override
+    public void putDouble(String key, double value) {
+        mBundle.putDouble(key, value);
+    }
+
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        mBundle.putBoolean(key, value);
+    }
+
+
+    @Override
+    public void putString(String key, String value) {
+        mBundle.putString(key, value);
+    }
+
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        return mBundle.getInt(key, defaultValue);
+    }
+
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return mBundle.getLong(key, defaultValue);
+    }
+
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        return mBundle.getDouble(key, defaultValue);
+    }
+
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return mBundle.getBoolean(key, defaultValue);
+    }
+
+
+    @Override
+    public String getString(String key) {
+        return mBundle.getString(key);
+    }
+}
@@ -5,14 +5,27 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.Log;
 
+import com.yckir.cyclebattledemo.engine.InputLatencyTracker;
+
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class FileUtility {
 
     private static final String TAG = "FILE_UTILITY";
     private static final String BACKGROUND_PATH = "background/";
+    private static final String LATENCY_REPORT_NAME = "latency_report.csv";
+
+    //"CBPX", marks a file written by writeBitmapPixels
+    private static final int PIXEL_FILE_MAGIC = 0x43425058;
+    private static final int PIXEL_HEADER_SIZE = 16;
 
 
     /**
@@ -30,24 +43,98 @@ public class FileUtility {
 
 
     /**
-     * Writes the bitmap onto the given file in PNG format.
+     * Writes the pixels of the bitmap onto the given file without compressing them. The file
+     * starts with a header holding the size and config of the bitmap, followed by the pixels in
+     * the format of {@link Bitmap#copyPixelsToBuffer(java.nio.Buffer)}. The file can only be read
+     * on the device that wrote it.
      *
      * @param bitmap the bitmap that contains the image.
      * @param file the file where the image will be created.
      * @return true if the image file was successfully created, false otherwise.
      */
-    public static boolean writeBitmapToPNG(Bitmap bitmap, File file){
-        Log.v(TAG, "writing image file " + file.getName());
+    public static boolean writeBitmapPixels(Bitmap bitmap, File file){
+        Log.v(TAG, "writing pixel file " + file.getName());
+        if(bitmap.getConfig() == null)
+            return false;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(
+                PIXEL_HEADER_SIZE + bitmap.getRowBytes() * bitmap.getHeight());
+        buffer.putInt(PIXEL_FILE_MAGIC);
+        buffer.putInt(bitmap.getWidth());
+        buffer.putInt(bitmap.getHeight());
+        buffer.putInt(bitmap.getConfig().ordinal());
+        bitmap.copyPixelsToBuffer(buffer);
+        buffer.flip();
 
-        FileOutputStream outputStream;
+        FileOutputStream outputStream = null;
         try {
             outputStream = new FileOutputStream(file);
-            bitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
-            outputStream.close();
+            FileChannel channel = outputStream.getChannel();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
             return true;
         } catch (IOException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            close(outputStream);
+        }
+    }
+
+
+    /**
+     * Reads a bitmap from a file written by {@link #writeBitmapPixels(Bitmap, File)}. The file is
+     * memory mapped and its pixels are copied straight into the bitmap, nothing is decoded.
+     *
+     * @param file the file that contains the image.
+     * @return the image, null if the file could not be read
+     */
+    public static Bitmap readBitmapPixels(File file){
+        Log.v(TAG, "reading pixel file " + file.getName());
+
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            FileChannel channel = inputStream.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            Bitmap.Config[] configs = Bitmap.Config.values();
+            if(buffer.remaining() < PIXEL_HEADER_SIZE || buffer.getInt() != PIXEL_FILE_MAGIC) {
+                Log.e(TAG, "readBitmapPixels: " + file.getName() + " is not a pixel file");
+                return null;
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int config = buffer.getInt();
+            if(width <= 0 || height <= 0 || config < 0 || config >= configs.length) {
+                Log.e(TAG, "readBitmapPixels: " + file.getName() + " has an invalid header");
+                return null;
+            }
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, configs[config]);
+            if(buffer.remaining() < bitmap.getRowBytes() * height){
+                Log.e(TAG, "readBitmapPixels: " + file.getName() + " is incomplete");
+                bitmap.recycle();
+                return null;
+            }
+            bitmap.copyPixelsFromBuffer(buffer);
+            return bitmap;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            close(inputStream);
+        }
+    }
+
+
+    private static void close(Closeable closeable){
+        if(closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
@@ -61,8 +148,9 @@ public class FileUtility {
     public static void deleteBackgroundFile(String fileName, Context context){
         fileName = BACKGROUND_PATH + fileName;
         Log.v(TAG, "dbf:" + fileName + " is being deleted");
-        if(context.getFilesDir().exists())
-            if( !context.getFilesDir().delete())
+        File file = new File(context.getFilesDir(), fileName);
+        if(file.exists())
+            if( !file.delete())
                 Log.e(TAG,"deleteBackgroundFile: error could not delete the file " + fileName);
     }
 
@@ -92,7 +180,7 @@ public class FileUtility {
      * @return the file name of the background image.
      */
     public static String getBackgroundFileName(int width, int height, int numTilesX, int numTilesY){
-        return "MultiplayerBackgroundImage_" + width + "x" + height + "_" + numTilesX +"x" +numTilesY + ".png";
+        return "MultiplayerBackgroundImage_" + width + "x" + height + "_" + numTilesX +"x" +numTilesY + ".pixels";
     }
 
 
@@ -113,4 +201,28 @@ public class FileUtility {
 
         return b;
     }
+
+
+    /**
+     * Write the report of an input latency tracker into internal private storage, replacing the
+     * report of the previous game.
+     *
+     * @param tracker the tracker whose report is written
+     * @param context app context
+     * @return the file that was written, null if it could not be written
+     */
+    public static File writeLatencyReport(InputLatencyTracker tracker, Context context){
+        File file = new File(context.getFilesDir(), LATENCY_REPORT_NAME);
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(file);
+            tracker.writeReport(writer);
+        } catch (IOException e) {
+            Log.e(TAG, "writeLatencyReport: could not write " + file.getPath());
+            return null;
+        } finally {
+            close(writer);
+        }
+        return file;
+    }
 }
@@ -5,13 +5,17 @@ import android.content.SharedPreferences;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.preference.PreferenceManager;
+import android.os.SystemClock;
 import android.support.v4.view.MotionEventCompat;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.MotionEvent;
 
 import com.yckir.cyclebattledemo.R;
+import com.yckir.cyclebattledemo.engine.Compass;
+import com.yckir.cyclebattledemo.engine.Point;
 
 import java.util.ArrayList;
 
@@ -20,20 +24,45 @@ import java.util.ArrayList;
  * into 4 regions. Divide the Rectangle in half vertically and into four pieces horizontally resulting in 8 total.
  * Number the pieces clockwise starting at top left piece 0-7. Region 0 = (0,1), Region 1 = (4,5),
  * Region 2 = (6,7), and Region 3 = (2,3).
+ * <p>
+ * By default a swipe is reported when the finger is lifted. With early commit, a swipe is reported
+ * while the finger is still moving, as soon as it has moved {@link #EARLY_COMMIT_DISTANCE} or has
+ * moved {@link #EARLY_COMMIT_MIN_DISTANCE} faster than {@link #EARLY_COMMIT_VELOCITY}. The batched
+ * historical samples of each move event are checked in order, so the swipe time is when the
+ * threshold was crossed and not when the batch was delivered. Lifting a finger after its swipe was
+ * reported does not report it again.
  */
 public class FourRegionSwipeDetector {
     public static final String TAG = "4_REGION_SWIPE_DETECTOR";
     public static final int MAX_NUM_FINGERS = 5;
 
+    private static final long NANOS_PER_MILLI = 1000000;
+
     private final static double MIN_SWIPE_DISTANCE = 0;
+
+    /**
+     * distances are in density pixels (dp), and velocity is in dp per millisecond
+     */
+    public  static final double     EARLY_COMMIT_DISTANCE       =   32;
+    public  static final double     EARLY_COMMIT_MIN_DISTANCE   =   12;
+    public  static final double     EARLY_COMMIT_VELOCITY       =   1;
     private ArrayList<SwipeMotionEvent> mEvents;
     private OnRegionSwipeListener mListener;
     private DisplayMetrics mDisplayMetrics;
 
     private boolean mDisabled;
     private boolean mBoundariesDisabled;
+    private boolean mEarlyCommit;
     private int mNumRegions;
 
+    /**
+     * the touch feedback is drawn on every frame, so what it needs is made once
+     */
+    private final Paint mCirclePaint;
+    private final Paint mLinePaint;
+    private final Paint mRegionPaint;
+    private final float[] mTouchPoints;
+
     /**
      * Create a swipe detector that determines what region on the device a swipe gesture occurred in.
      *
@@ -49,9 +78,28 @@ public class FourRegionSwipeDetector {
 
         mBoundariesDisabled = pref.getBoolean(
                 context.getResources().getString(R.string.pref_touch_indicators_key) , false);
+        mEarlyCommit = pref.getBoolean(
+                context.getResources().getString(R.string.pref_early_swipe_key), false);
 
         mDisplayMetrics = metrics;
 
+        mCirclePaint = new Paint();
+        mCirclePaint.setColor(Color.GRAY);
+        mCirclePaint.setAlpha(100);
+        mCirclePaint.setStyle(Paint.Style.STROKE);
+
+        mLinePaint = new Paint();
+        mLinePaint.setColor(Color.GRAY);
+        mLinePaint.setAlpha(100);
+        mLinePaint.setStrokeWidth(5 * mDisplayMetrics.density);
+
+        mRegionPaint = new Paint();
+        mRegionPaint.setColor(Color.GRAY);
+        mRegionPaint.setAlpha(100);
+        mRegionPaint.setStrokeWidth(5 * mDisplayMetrics.density);
+
+        mTouchPoints = new float[4];
+
         mEvents = new ArrayList<>(MAX_NUM_FINGERS);
         for (int i = 0; i < MAX_NUM_FINGERS; i++){
             mEvents.add(i,new SwipeMotionEvent());
@@ -88,7 +136,7 @@ public class FourRegionSwipeDetector {
 
         SwipeMotionEvent sme = mEvents.get(id);
 
-        sme.startSwipe(x,y);
+        sme.startSwipe(x, y, event.getEventTime());
     }
 
 
@@ -98,11 +146,15 @@ public class FourRegionSwipeDetector {
      * in the motion event.
      * The SwipeMotionEvent was created and saved in method downAction.
      * The SwipeMotionEvent uses the id of the MotionEvent.
+     * <p>
+     * With early commit, the samples of each pointer that has not been reported yet are checked
+     * oldest first, and the swipe is reported at the first sample that passes a threshold.
      *
      * @param event the event to have its position stored.
      */
     private void moveAction(MotionEvent event){
         int pointerCount = event.getPointerCount();
+        int historySize = event.getHistorySize();
 
         for(int p = 0; p < pointerCount; p++){
             int id = MotionEventCompat.getPointerId(event,p);
@@ -112,16 +164,48 @@ public class FourRegionSwipeDetector {
             if(id >= MAX_NUM_FINGERS)
                 continue;
 
-            mEvents.get(id).moveSwipe(x, y);
+            SwipeMotionEvent sme = mEvents.get(id);
+            if(mEarlyCommit && sme.isSwiping() && !sme.isCommitted()){
+                for(int h = 0; h < historySize && !sme.isCommitted(); h++){
+                    checkEarlyCommit(sme, event.getHistoricalX(p, h), event.getHistoricalY(p, h),
+                            event.getHistoricalEventTime(h));
+                }
+                if(!sme.isCommitted())
+                    checkEarlyCommit(sme, event.getX(p), event.getY(p), event.getEventTime());
+            }
+            sme.moveSwipe(x, y);
         }
     }
 
 
+    /**
+     * Report a swipe if a sample of its pointer passed a threshold of early commit.
+     *
+     * @param sme the swipe of the pointer
+     * @param x the x coordinate of the sample
+     * @param y the y coordinate of the sample
+     * @param time the time of the sample on the {@link SystemClock#uptimeMillis()} clock
+     */
+    private void checkEarlyCommit(SwipeMotionEvent sme, float x, float y, long time){
+        long commitTime = sme.addSample(x, y, time);
+        if(commitTime == SwipeMotionEvent.NO_COMMIT)
+            return;
+        if(sme.getSwipedRegion() >= mNumRegions || mListener == null)
+            return;
+        notifySwipe(sme.getSwipedRegion(), sme.getCommitDirection(), commitTime);
+    }
+
+
     /**
      * Triggered as a result of ACTION_UP of ACTION_POINTER_UP on a motion event.
      * The SwipeMotionEvent for the MotionEvent's id considered valid if
      * the swipe is was greater than MIN_SWIPE_DISTANCE and if a valid region was swiped.
-     * If valid, the listeners onRegionSwipe method is called.
+     * If valid, the listeners onRegionSwipe method is called, unless the swipe was already
+     * reported by early commit.
+     * <p>
+     * The swipe time is when the finger was lifted according to the event, not when the event
+     * was handled. Event times are on the {@link SystemClock#uptimeMillis()} clock, so the time is
+     * moved onto the {@link System#currentTimeMillis()} clock that the game is timed with.
      *
      * @param event event with an ACTION_DOWN
      */
@@ -131,12 +215,34 @@ public class FourRegionSwipeDetector {
 
         SwipeMotionEvent sme = mEvents.get(id);
 
+        //the turn was already made while the finger was moving
+        if(sme.isCommitted())
+            return;
+
         //if distance between the points is too small or an invalid region was swiped, do nothing
         if(sme.getSwipeDistance() < MIN_SWIPE_DISTANCE || sme.getSwipedRegion() >= mNumRegions)
             return;
 
-        if(mListener!=null)
-            mListener.onRegionSwipe(sme.getSwipedRegion(), sme.getSwipeDirection(), System.currentTimeMillis());
+        if(mListener == null)
+            return;
+
+        notifySwipe(sme.getSwipedRegion(), sme.getSwipeDirection(), event.getEventTime());
+    }
+
+
+    /**
+     * Tell the listener about a swipe.
+     *
+     * @param region the region that was swiped
+     * @param direction the direction of the swipe
+     * @param eventTime when the swipe happened on the {@link SystemClock#uptimeMillis()} clock
+     */
+    private void notifySwipe(int region, Compass direction, long eventTime){
+        //uptimeMillis and nanoTime are both read from the monotonic clock
+        long recognizeTime = System.nanoTime();
+        long swipeTime = System.currentTimeMillis() - (SystemClock.uptimeMillis() - eventTime);
+        mListener.onRegionSwipe(region, direction, swipeTime, eventTime * NANOS_PER_MILLI,
+                recognizeTime);
     }
 
 
@@ -185,6 +291,24 @@ public class FourRegionSwipeDetector {
     }
 
 
+    /**
+     * Report swipes while the finger is still moving instead of when it is lifted.
+     *
+     * @param earlyCommit true to report a swipe as soon as it passes a threshold
+     */
+    public void setEarlyCommit(boolean earlyCommit){
+        mEarlyCommit = earlyCommit;
+    }
+
+
+    /**
+     * @return true if swipes are reported while the finger is still moving
+     */
+    public boolean isEarlyCommit(){
+        return mEarlyCommit;
+    }
+
+
     /**
      * @return the number of regions in the rectangle.
      */
@@ -257,7 +381,8 @@ public class FourRegionSwipeDetector {
 
     /**
      * Draw the current swipes on the canvas.
-     * This method can be safely called in separate threads
+     * This method can be called on a different thread than the touch events, but only one thread
+     * should draw at a time.
      *
      * @param canvas Canvas to be draw. The canvas should be the size of the device.
      */
@@ -265,40 +390,27 @@ public class FourRegionSwipeDetector {
         float x1,x2,y1,y2;
         float circleRadius = 15 *mDisplayMetrics.density;
 
-        Paint circlePaint = new Paint();
-        circlePaint.setColor(Color.GRAY);
-        circlePaint.setAlpha(100);
-        circlePaint.setStyle(Paint.Style.STROKE);
-
-        Paint linePaint = new Paint();
-        linePaint.setColor(Color.GRAY);
-        linePaint.setAlpha(100);
-        linePaint.setStrokeWidth(5 * mDisplayMetrics.density);
-
         for(int i = 0; i< mEvents.size(); i++){
             SwipeMotionEvent event = mEvents.get(i);
-            if(event != null && event.isSwiping()) {
-                Point startPoint = event.getStartPoint();
-                Point endPoint = event.getLastPoint();
-
-                x1 = (float) startPoint.getPositionX();
-                y1 = (float) startPoint.getPositionY();
-                x2 = (float) endPoint.getPositionX();
-                y2 = (float) endPoint.getPositionY();
+            if(event != null && event.getPoints(mTouchPoints)) {
+                x1 = mTouchPoints[0];
+                y1 = mTouchPoints[1];
+                x2 = mTouchPoints[2];
+                y2 = mTouchPoints[3];
 
                 Compass direction = Compass.getDirection(x1,y1,x2,y2);
 
-                canvas.drawCircle(x1, y1, circleRadius, circlePaint);
-                canvas.drawCircle(x2, y2, circleRadius, circlePaint);
+                canvas.drawCircle(x1, y1, circleRadius, mCirclePaint);
+                canvas.drawCircle(x2, y2, circleRadius, mCirclePaint);
 
                 switch (direction) {
                     case NORTH:
                     case SOUTH:
-                        canvas.drawLine(x1, y1, x1, y2, linePaint);
+                        canvas.drawLine(x1, y1, x1, y2, mLinePaint);
                         break;
                     case EAST:
                     case WEST:
-                        canvas.drawLine(x1, y1, x2, y1, linePaint);
+                        canvas.drawLine(x1, y1, x2, y1, mLinePaint);
                         break;
                 }
             }
@@ -306,6 +418,21 @@ public class FourRegionSwipeDetector {
     }
 
 
+    /**
+     * Add the area covered by the swipes drawn in {@link #drawTouch(Canvas)} to a rectangle.
+     * This method can be safely called in separate threads
+     *
+     * @param bounds the area of every active swipe is added to this rectangle
+     */
+    public void addTouchBounds(Rect bounds){
+        //the circles are larger than half the width of the lines
+        int margin = (int) Math.ceil(15 * mDisplayMetrics.density) + 2;
+
+        for(int i = 0; i< mEvents.size(); i++)
+            mEvents.get(i).addBounds(bounds, margin);
+    }
+
+
     /**
      * Draw the boundaries for touch region. This method will do nothing if the preference
      * pref_touch_indicators_key is true;
@@ -316,33 +443,27 @@ public class FourRegionSwipeDetector {
         if(mBoundariesDisabled)
             return;
 
-        float lineWidth = 5 * mDisplayMetrics.density;
         int width = mDisplayMetrics.widthPixels;
         int height = mDisplayMetrics.heightPixels;
 
-        Paint regionPaint = new Paint();
-        regionPaint.setColor(Color.GRAY);
-        regionPaint.setAlpha(100);
-        regionPaint.setStrokeWidth( lineWidth );
-
         canvas.drawLine(
                 0,
                 height / 4,
                 width,
                 height / 4,
-                regionPaint);
+                mRegionPaint);
         canvas.drawLine(
                 0,
                 height * 3 / 4,
                 width,
                 height * 3 / 4,
-                regionPaint);
+                mRegionPaint);
         canvas.drawLine(
                 width  / 2,
                 height / 4,
                 width  / 2,
                 height * 3 / 4,
-                regionPaint);
+                mRegionPaint);
 
     }
 
@@ -358,10 +479,6 @@ public class FourRegionSwipeDetector {
         int width = mDisplayMetrics.widthPixels;
         int height = mDisplayMetrics.heightPixels;
 
-        Paint gray = new Paint();
-        gray.setColor(Color.GRAY);
-        gray.setAlpha(100);
-
         for(int i = 0; i< mEvents.size(); i++){
             SwipeMotionEvent event = mEvents.get(i);
             if(event != null && event.isSwiping()) {
@@ -373,7 +490,7 @@ public class FourRegionSwipeDetector {
                                 0,
                                 width      - margins,
                                 height / 4 - margins,
-                                gray);
+                                mRegionPaint);
 
                         break;
 
@@ -383,7 +500,7 @@ public class FourRegionSwipeDetector {
                                 height * 3/4 + margins,
                                 width        - margins,
                                 height       - margins,
-                                gray);
+                                mRegionPaint);
 
                         break;
 
@@ -393,7 +510,7 @@ public class FourRegionSwipeDetector {
                                 height / 4    + margins,
                                 width  / 2    - margins,
                                 height * 3/4  - margins,
-                                gray);
+                                mRegionPaint);
                         break;
 
                     case 3:
@@ -402,7 +519,7 @@ public class FourRegionSwipeDetector {
                                 height / 4    + margins,
                                 width         - margins,
                                 height * 3/4  - margins,
-                                gray);
+                                mRegionPaint);
                         break;
                 }
 
@@ -420,9 +537,16 @@ public class FourRegionSwipeDetector {
          *
          * @param regionNumber the region that was swiped
          * @param direction the direction of the swipe
-         * @param swipeTime the time that the swipe occurred. This is when the finger was released.
+         * @param swipeTime the time that the swipe occurred. This is when the finger was released,
+         *                  or when the swipe passed a threshold with early commit, in
+         *                  milliseconds on the {@link System#currentTimeMillis()} clock.
+         * @param eventTime the time of the input event that finished the swipe, in nanoseconds on
+         *                  the {@link System#nanoTime()} clock
+         * @param recognizeTime the time the swipe was recognized, in nanoseconds on the
+         *                      {@link System#nanoTime()} clock
          */
-        void onRegionSwipe(int regionNumber, Compass direction, long swipeTime);
+        void onRegionSwipe(int regionNumber, Compass direction, long swipeTime, long eventTime,
+                           long recognizeTime);
     }
 
 
@@ -434,12 +558,27 @@ public class FourRegionSwipeDetector {
      *
      */
     private class SwipeMotionEvent{
+        static final long NO_COMMIT = -1;
 
         private Point mStartPoint;
         private Point mEndPoint;
         private boolean mActive;
         private int mRegion;
 
+        /**
+         * the previous sample checked for early commit, its distance from the start in dp, and its
+         * time in milliseconds on the {@link SystemClock#uptimeMillis()} clock
+         */
+        private double mSampleDistance;
+        private long mSampleTime;
+
+        /**
+         * if the swipe was reported before the finger was lifted, and the direction it was
+         * reported with
+         */
+        private boolean mCommitted;
+        private Compass mCommitDirection;
+
         /**
          * Create an inactive SwipeMotionEvent.
          */
@@ -482,15 +621,73 @@ public class FourRegionSwipeDetector {
          *
          * @param x x coordinate
          * @param y y coordinate
+         * @param time the time of the down event on the {@link SystemClock#uptimeMillis()} clock
          */
-        public synchronized void startSwipe(int x, int y){
+        public synchronized void startSwipe(int x, int y, long time){
             mStartPoint.setPosition(x,y);
             mEndPoint.setPosition(x,y);
             mActive = true;
+            mSampleDistance = 0;
+            mSampleTime = time;
+            mCommitted = false;
             determineRegion();
         }
 
 
+        /**
+         * Check a sample of the pointer against the thresholds of early commit. When the
+         * distance threshold is crossed between two samples, the time of the crossing is found
+         * by assuming the pointer moved at a constant speed between them.
+         *
+         * @param x the x coordinate of the sample
+         * @param y the y coordinate of the sample
+         * @param time the time of the sample on the {@link SystemClock#uptimeMillis()} clock
+         * @return the time the swipe passed a threshold, or NO_COMMIT if it did not pass one
+         *         with this sample
+         */
+        public synchronized long addSample(float x, float y, long time){
+            if(!mActive || mCommitted)
+                return NO_COMMIT;
+
+            double dx = x - mStartPoint.getPositionX();
+            double dy = y - mStartPoint.getPositionY();
+            double distance = Math.sqrt(dx * dx + dy * dy) / mDisplayMetrics.density;
+            double previousDistance = mSampleDistance;
+            long previousTime = mSampleTime;
+            mSampleDistance = distance;
+            mSampleTime = time;
+
+            long commitTime;
+            if(distance >= EARLY_COMMIT_DISTANCE){
+                double fraction = (EARLY_COMMIT_DISTANCE - previousDistance) /
+                        (distance - previousDistance);
+                commitTime = previousTime + Math.round(Math.max(0, fraction) * (time - previousTime));
+            } else if(distance >= EARLY_COMMIT_MIN_DISTANCE && time > previousTime &&
+                    (distance - previousDistance) / (time - previousTime) >= EARLY_COMMIT_VELOCITY){
+                commitTime = time;
+            } else {
+                return NO_COMMIT;
+            }
+
+            mCommitted = true;
+            mCommitDirection = Compass.getDirection(mStartPoint.getPositionX(),
+                    mStartPoint.getPositionY(), x, y);
+            return commitTime;
+        }
+
+
+        /**
+         * @return true if the swipe was reported before the finger was lifted
+         */
+        public synchronized boolean isCommitted(){ return mCommitted; }
+
+
+        /**
+         * @return the direction the swipe was reported with by early commit
+         */
+        public synchronized Compass getCommitDirection(){ return mCommitDirection; }
+
+
         /**
          * Move the swipe to the specified direction.
          *
@@ -511,6 +708,27 @@ public class FourRegionSwipeDetector {
         }
 
 
+        /**
+         * Add the area between the start and end of an active swipe to a rectangle.
+         *
+         * @param bounds the rectangle to add to, nothing is added if the swipe is not active
+         * @param margin how far the area extends past the start and end of the swipe
+         */
+        public synchronized void addBounds(Rect bounds, int margin){
+            if(!mActive)
+                return;
+            int x1 = (int) mStartPoint.getPositionX();
+            int y1 = (int) mStartPoint.getPositionY();
+            int x2 = (int) mEndPoint.getPositionX();
+            int y2 = (int) mEndPoint.getPositionY();
+            bounds.union(
+                    Math.min(x1, x2) - margin,
+                    Math.min(y1, y2) - margin,
+                    Math.max(x1, x2) + margin,
+                    Math.max(y1, y2) + margin);
+        }
+
+
         /**
          * Get the distance between the start and end position of the swipe.
          *
@@ -538,6 +756,23 @@ public class FourRegionSwipeDetector {
         }
 
 
+        /**
+         * Copy the start and last position of an active swipe without creating new points.
+         *
+         * @param out receives the start x, start y, last x, and last y of the swipe
+         * @return true if the swipe is active, out is not changed otherwise
+         */
+        public synchronized boolean getPoints(float[] out){
+            if(!mActive)
+                return false;
+            out[0] = (float) mStartPoint.getPositionX();
+            out[1] = (float) mStartPoint.getPositionY();
+            out[2] = (float) mEndPoint.getPositionX();
+            out[3] = (float) mEndPoint.getPositionY();
+            return true;
+        }
+
+
         /**
          * get the starting position of the swipe
          *
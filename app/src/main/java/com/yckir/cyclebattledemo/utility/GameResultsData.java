@@ -3,7 +3,7 @@ package com.yckir.cyclebattledemo.utility;
 
 import android.util.Log;
 
-import com.yckir.cyclebattledemo.views.gameSurfaceView.Cycle;
+import com.yckir.cyclebattledemo.engine.Cycle;
 
 import java.util.HashMap;
 
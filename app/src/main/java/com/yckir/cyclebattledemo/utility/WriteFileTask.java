@@ -2,7 +2,6 @@ package com.yckir.cyclebattledemo.utility;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.drawable.BitmapDrawable;
 import android.support.annotation.NonNull;
@@ -12,12 +11,11 @@ import android.util.Log;
 
 import com.yckir.cyclebattledemo.views.gameSurfaceView.SurfaceDrawingTask;
 
-import java.io.File;
 
 /**
  * Creates and retrieves files from internal private storage. A listener can be set to get the bitmap
  * of the file once the task finished. If the file exists, then the file returns the bitmap of that
- * file, if not it creates the file.
+ * file, if not it creates the file. Files are read and written through {@link BackgroundCache}.
  */
 public class WriteFileTask extends AsyncTask<Void,Void,Integer>{
 
@@ -58,37 +56,19 @@ public class WriteFileTask extends AsyncTask<Void,Void,Integer>{
     protected Integer doInBackground(Void[] params) {
             Log.v(TAG, "doInBackground for WriteFileTask");
 
-            if(FileUtility.backgroundFileExists(mFileName, mContext)){
-                File file = FileUtility.getBackgroundFile(mFileName, mContext);
-
-                if(file == null) {
-                    Log.v(TAG, "file exists but could not getBackgroundFile");
-                    return FILE_ERROR;
-                }
-                mBitmap = BitmapFactory.decodeFile(file.getPath());
-
+            Bitmap cached = BackgroundCache.get(mFileName, mContext);
+            if(cached != null){
+                mBitmap = cached;
                 Log.v(TAG, "file exists");
                 return FILE_READY;
             }
 
-            File file = FileUtility.getBackgroundFile(mFileName, mContext);
-
-            //if cant make the file
-            if(file == null){
-                Log.v(TAG, "could not getBackgroundFile");
-                return FILE_ERROR;
-            }
-
-
-            // if cant write image to file
-            if( !FileUtility.writeBitmapToPNG(mBitmap, file )){
-                FileUtility.deleteBackgroundFile(mFileName, mContext);
-                Log.v(TAG, "could not writeBitmapToPNG");
+            //the given bitmap is already the image, it does not need to be read back
+            if( !BackgroundCache.put(mFileName, mBitmap, mContext)){
+                Log.v(TAG, "could not writeBitmapPixels");
                 return FILE_ERROR;
             }
 
-            mBitmap = BitmapFactory.decodeFile(file.getPath());
-
             Log.v(TAG, "file created");
             return  FILE_READY;
 
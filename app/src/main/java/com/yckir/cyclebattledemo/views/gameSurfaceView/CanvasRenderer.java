@@ -0,0 +1,96 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.Compass;
+import com.yckir.cyclebattledemo.engine.Cycle;
+import com.yckir.cyclebattledemo.engine.Renderer;
+
+/**
+ * A {@link Renderer} that draws onto an Android Canvas. The canvas is translated so that the
+ * renderer can use coordinates measured from the top left corner of the animation frame. Cycles
+ * are drawn with the images of their {@link CycleDrawer}.
+ */
+public class CanvasRenderer implements Renderer {
+    public static final String TAG = "CANVAS_RENDERER";
+
+    private final Paint mPaint;
+    private Canvas mCanvas;
+    private CycleDrawer[] mCycleDrawers;
+
+
+    /**
+     * @param paint used for every rectangle and line, its color is changed by each draw call
+     */
+    public CanvasRenderer(Paint paint){
+        mPaint = paint;
+        mCycleDrawers = new CycleDrawer[0];
+    }
+
+
+    /**
+     * @param drawers the drawer of each cycle, indexed by the id of the cycle
+     */
+    public void setCycleDrawers(CycleDrawer[] drawers){
+        mCycleDrawers = drawers;
+    }
+
+
+    /**
+     * Start drawing on a canvas. {@link #end()} must be called when done.
+     *
+     * @param canvas the canvas to draw on
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
+     */
+    public void begin(Canvas canvas, int frameLeft, int frameTop){
+        mCanvas = canvas;
+        mCanvas.save();
+        mCanvas.translate(frameLeft, frameTop);
+    }
+
+
+    /**
+     * Stop drawing on the canvas given to {@link #begin(Canvas, int, int)}.
+     */
+    public void end(){
+        mCanvas.restore();
+        mCanvas = null;
+    }
+
+
+    @Override
+    public void clear(int color){
+        mCanvas.drawColor(color);
+    }
+
+
+    @Override
+    public void fillRect(int left, int top, int right, int bottom, int color){
+        mPaint.setColor(color);
+        mCanvas.drawRect(left, top, right, bottom, mPaint);
+    }
+
+
+    @Override
+    public void drawLines(float[] lines, int count, int color){
+        mPaint.setColor(color);
+        mCanvas.drawLines(lines, 0, count, mPaint);
+    }
+
+
+    @Override
+    public void drawCycle(Cycle cycle, Compass direction, int left, int top, int right, int bottom){
+        mCycleDrawers[cycle.getId()].drawCycle(mCanvas, direction, left, top);
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("numCycleDrawers", mCycleDrawers.length);
+        return description.getString();
+    }
+}
@@ -0,0 +1,176 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+import com.yckir.cyclebattledemo.engine.Compass;
+import com.yckir.cyclebattledemo.engine.Cycle;
+import com.yckir.cyclebattledemo.engine.GameRenderer;
+import com.yckir.cyclebattledemo.engine.ScreenTransform;
+
+/**
+ * Draws a {@link Cycle} and its path. The images and color used are determined by the id of
+ * the cycle.
+ */
+public class CycleDrawer {
+    public static final String TAG = "CYCLE_DRAWER";
+
+    /**
+     * the image for each direction, in the order of {@link Compass#values()}
+     */
+    private final Bitmap[] mSprites;
+    private final Resources mResources;
+    private final int mColor;
+
+    /**
+     *  paint for the cycle path
+     */
+    private Paint mLinePaint;
+
+    /**
+     * paints and clip bounds for {@link #drawCycleRetro}, kept so that drawing does not allocate
+     */
+    private final Paint mInsidePaint;
+    private final Paint mBorderPaint;
+    private final Rect mClipBounds = new Rect();
+
+
+    /**
+     * Sets the color for a cycle. The images can not be drawn until {@link #setTransform} is
+     * called.
+     *
+     * @param context app context
+     * @param cycleId the id of the cycle. 0-3 are red, green, yellow, and purple. Any other ID is
+     *                blue.
+     */
+    public CycleDrawer(Context context, int cycleId){
+        mLinePaint = new Paint();
+        mResources = context.getResources();
+        mColor = CycleSprites.getColor(cycleId);
+        mSprites = new Bitmap[Compass.values().length];
+        mLinePaint.setColor(GameRenderer.getPathColor(cycleId));
+
+        mInsidePaint = new Paint();
+        mInsidePaint.setColor(Color.BLUE);
+        mBorderPaint = new Paint();
+        mBorderPaint.setColor(Color.GRAY);
+    }
+
+
+    /**
+     * Get the images that are the size of the cycle on the animation frame. This must be called
+     * whenever the transform changes.
+     *
+     * @param transform maps the grid onto the animation frame
+     */
+    public void setTransform(ScreenTransform transform){
+        CycleSprites.getSprites(mResources, mColor, transform, mSprites);
+    }
+
+
+    /**
+     * Draw the cycle that fills the given canvas. The cycle is drawn using only rectangles.
+     *
+     * @param canvas the canvas where the cycle will be drawn on
+     * @param cycle the cycle to be drawn
+     * @param transform maps the grid onto the canvas
+     */
+    public void drawCycleRetro(Canvas canvas, Cycle cycle, ScreenTransform transform){
+        canvas.getClipBounds(mClipBounds);
+        int paddingX = mClipBounds.left;
+        int paddingY = mClipBounds.top;
+
+        float w = (float) transform.scale(cycle.getWidth());
+        float h = (float) transform.scale(cycle.getHeight());
+
+        //draw edge of cycle
+        canvas.drawColor(mBorderPaint.getColor());
+        //draw inside of cycle
+        canvas.drawRect(
+                paddingX + w / 10,
+                paddingY + h / 10,
+                paddingX + w * 9 / 10,
+                paddingY + h * 9 / 10,
+                mInsidePaint
+        );
+
+        //draw Line "engine" based on position
+        switch (cycle.getDirection()){
+            case SOUTH:
+                canvas.drawRect(
+                        paddingX + w/4,
+                        paddingY,
+                        paddingX + w*3/4 ,
+                        paddingY + h/2, mLinePaint);
+                break;
+            case NORTH:
+                canvas.drawRect(
+                        paddingX + w/4,
+                        paddingY + h/2,
+                        paddingX + w*3/4 ,
+                        paddingY + h, mLinePaint);
+                break;
+            case WEST:
+                canvas.drawRect(
+                        paddingX + w/2,
+                        paddingY + h/4,
+                        paddingX + w ,
+                        paddingY + h*3/4, mLinePaint);
+                break;
+            case EAST:
+                canvas.drawRect(
+                        paddingX,
+                        paddingY + h/4,
+                        paddingX + w/2 ,
+                        paddingY + h*3/4, mLinePaint);
+                break;
+        }
+    }
+
+
+    /**
+     * Draw the cycle image with its top left corner at the given position. The image is already
+     * the size of the cycle, so it is not scaled.
+     *
+     * @param canvas the canvas where the cycle will be drawn on
+     * @param direction the direction the cycle is facing
+     * @param left the x coordinate of the left edge of the cycle on the canvas
+     * @param top the y coordinate of the top edge of the cycle on the canvas
+     */
+    public void drawCycle(Canvas canvas, Compass direction, int left, int top){
+        Bitmap sprite = mSprites[direction.ordinal()];
+        if(sprite != null)
+            canvas.drawBitmap(sprite, left, top, null);
+    }
+
+
+    /**
+     * Adds part of a line of a path to a batch of rectangles. Nothing is drawn until
+     * {@link #drawPathBatch(Canvas, Path)} is called.
+     *
+     * @param batch the rectangles that will be drawn together, measured from the top left
+     *              corner of the animation frame
+     * @param segment the left, top, right, and bottom of the part, from
+     *                {@link GameRenderer#getSegmentBounds}
+     */
+    public static void addPathSegment(Path batch, int[] segment){
+        batch.addRect(segment[0], segment[1], segment[2], segment[3], Path.Direction.CW);
+    }
+
+
+    /**
+     * Draw a batch of path rectangles with the cycles color using a single draw call.
+     *
+     * @param canvas the canvas that the path should be drawn on
+     * @param batch rectangles from {@link #addPathSegment}
+     */
+    public void drawPathBatch(Canvas canvas, Path batch){
+        canvas.drawPath(batch, mLinePaint);
+    }
+}
@@ -0,0 +1,122 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.res.ResourcesCompat;
+
+import com.yckir.cyclebattledemo.R;
+import com.yckir.cyclebattledemo.engine.Compass;
+import com.yckir.cyclebattledemo.engine.GameEngine;
+import com.yckir.cyclebattledemo.engine.ScreenTransform;
+
+import java.util.HashMap;
+
+/**
+ * Process wide cache of the cycle images, keyed by color, direction, and the length of a grid
+ * tile on the screen. Each image is rasterized once at the exact size a cycle has on the screen,
+ * so drawing a cycle is a single unscaled bitmap draw. The images are kept across matches and
+ * are only made again when the screen tile length changes to a length that is not cached.
+ * <p>
+ * Every game view in the process shares the cache, so access to it is synchronized.
+ */
+public final class CycleSprites {
+    public  static final String     TAG                     =   "CYCLE_SPRITES";
+    public  static final int        NUM_COLORS              =   5;
+
+    //only a few screen sizes are expected, such as portrait and landscape
+    private static final int        MAX_CACHED_LENGTHS      =   2;
+
+    /**
+     * the image of each color for each direction, in the order of {@link Compass#values()}
+     */
+    private static final int[][] IMAGE_IDS = {
+            {R.drawable.red_cycle_n, R.drawable.red_cycle_s,
+                    R.drawable.red_cycle_e, R.drawable.red_cycle_w},
+            {R.drawable.green_cycle_n, R.drawable.green_cycle_s,
+                    R.drawable.green_cycle_e, R.drawable.green_cycle_w},
+            {R.drawable.yellow_cycle_n, R.drawable.yellow_cycle_s,
+                    R.drawable.yellow_cycle_e, R.drawable.yellow_cycle_w},
+            {R.drawable.purple_cycle_n, R.drawable.purple_cycle_s,
+                    R.drawable.purple_cycle_e, R.drawable.purple_cycle_w},
+            {R.drawable.blue_cycle_n, R.drawable.blue_cycle_s,
+                    R.drawable.blue_cycle_e, R.drawable.blue_cycle_w}
+    };
+
+    private static final int NUM_DIRECTIONS = Compass.values().length;
+
+    /**
+     * maps a screen tile length to the images for that length, indexed by
+     * color * NUM_DIRECTIONS + direction
+     */
+    private static final HashMap<Integer, Bitmap[]> sCache = new HashMap<>();
+
+
+    private CycleSprites(){}
+
+
+    /**
+     * @param cycleId the id of a cycle
+     * @return the color of the cycle. 0-3 are red, green, yellow, and purple. Any other id is blue.
+     */
+    public static int getColor(int cycleId){
+        return Math.min(Math.max(cycleId, 0), NUM_COLORS - 1);
+    }
+
+
+    /**
+     * Get the images of a color, making them if they are not cached.
+     *
+     * @param resources used to load the images
+     * @param color the color from {@link #getColor(int)}
+     * @param transform maps the grid onto the animation frame, its tile length is the key
+     * @param out receives one image for each direction, in the order of {@link Compass#values()}
+     */
+    public static synchronized void getSprites(Resources resources, int color,
+                                               ScreenTransform transform, Bitmap[] out){
+        Bitmap[] sprites = sCache.get(transform.getTileLength());
+        if(sprites == null){
+            if(sCache.size() >= MAX_CACHED_LENGTHS)
+                sCache.clear();
+            sprites = new Bitmap[NUM_COLORS * NUM_DIRECTIONS];
+            sCache.put(transform.getTileLength(), sprites);
+        }
+
+        for(int d = 0; d < NUM_DIRECTIONS; d++){
+            int index = color * NUM_DIRECTIONS + d;
+            if(sprites[index] == null)
+                sprites[index] = rasterize(resources, IMAGE_IDS[color][d], Compass.values()[d],
+                        transform);
+            out[d] = sprites[index];
+        }
+    }
+
+
+    /**
+     * Draw a cycle image into a bitmap that is as large as the cycle is on the screen.
+     */
+    private static Bitmap rasterize(Resources resources, int imageId, Compass direction,
+                                    ScreenTransform transform){
+        int width = pixels(transform, GameEngine.CYCLE_WIDTH);
+        int height = pixels(transform, GameEngine.CYCLE_HEIGHT);
+        if(direction == Compass.EAST || direction == Compass.WEST){
+            int temp = width;
+            width = height;
+            height = temp;
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Drawable image = ResourcesCompat.getDrawable(resources, imageId, null);
+        if(image != null) {
+            image.setBounds(0, 0, width, height);
+            image.draw(new Canvas(bitmap));
+        }
+        return bitmap;
+    }
+
+
+    private static int pixels(ScreenTransform transform, double length){
+        return Math.max(1, (int) Math.round(transform.scale(length)));
+    }
+}
@@ -0,0 +1,188 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.FramePacer;
+import com.yckir.cyclebattledemo.engine.FrameStats;
+
+/**
+ * Tells the drawing thread when to start a frame. On Jelly Bean and later, frames follow the
+ * display refresh signal from {@link Choreographer}, and a {@link FramePacer} drops refreshes to
+ * stay under the frame rate cap. On older versions, the drawing thread sleeps until the next
+ * frame time given by the pacer.
+ * <p>
+ * Choreographer callbacks run on the ui thread, while {@link #awaitFrame()} is called by the
+ * drawing thread. The newest accepted refresh is handed over under a lock. If the drawing thread
+ * is still busy when a refresh arrives, the older refresh is replaced, so frames are dropped
+ * instead of queued.
+ */
+public class FrameScheduler {
+    public  static final String     TAG                     =   "FRAME_SCHEDULER";
+    private static final long       NO_FRAME                =   -1;
+    private static final long       NANOS_PER_MILLI         =   1000000;
+
+    private final FramePacer mPacer;
+    private final FrameStats mStats;
+    private final Object mLock = new Object();
+
+    private volatile RefreshSource mRefreshSource;
+    private long mPendingFrameTime;
+    private boolean mRunning;
+
+
+    /**
+     * @param refreshRate the refresh rate of the display in hertz
+     * @param frameRateCap the highest number of frames per second, or
+     *                     {@link FramePacer#NATIVE_FRAME_RATE} to draw on every refresh
+     * @param lowPower true if the frame rate should be at most
+     *                 {@link FramePacer#LOW_POWER_FRAME_RATE}
+     */
+    public FrameScheduler(float refreshRate, int frameRateCap, boolean lowPower){
+        mPacer = new FramePacer(refreshRate, frameRateCap, lowPower);
+        mStats = new FrameStats(mPacer.getFrameInterval());
+        mPendingFrameTime = NO_FRAME;
+        mRunning = false;
+    }
+
+
+    /**
+     * Start producing frames. Called by the drawing thread before its first frame.
+     */
+    public void start(){
+        synchronized (mLock) {
+            mRunning = true;
+            mPendingFrameTime = NO_FRAME;
+        }
+        mPacer.reset();
+        mStats.pause();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mRefreshSource = new RefreshSource(this);
+            mRefreshSource.start();
+        }
+    }
+
+
+    /**
+     * Stop producing frames, a thread waiting in {@link #awaitFrame()} returns right away. Can be
+     * called from any thread.
+     */
+    public void stop(){
+        synchronized (mLock) {
+            mRunning = false;
+            mLock.notifyAll();
+        }
+        RefreshSource source = mRefreshSource;
+        if (source != null) {
+            source.stop();
+            mRefreshSource = null;
+        }
+    }
+
+
+    /**
+     * Block until the next frame should start.
+     *
+     * @return the time of the frame in nanoseconds, on the {@link System#nanoTime()} clock
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public long awaitFrame() throws InterruptedException {
+        long frameTime;
+        if (mRefreshSource == null) {
+            frameTime = mPacer.getNextFrameTime(System.nanoTime());
+            long delay = frameTime - System.nanoTime();
+            if (delay > 0)
+                Thread.sleep(delay / NANOS_PER_MILLI, (int) (delay % NANOS_PER_MILLI));
+        }
+        else {
+            synchronized (mLock) {
+                while (mRunning && mPendingFrameTime == NO_FRAME)
+                    mLock.wait();
+                frameTime = mRunning ? mPendingFrameTime : System.nanoTime();
+                mPendingFrameTime = NO_FRAME;
+            }
+        }
+        mStats.recordFrame(frameTime);
+        return frameTime;
+    }
+
+
+    /**
+     * Called on the ui thread for each display refresh.
+     */
+    private void onRefresh(long frameTime){
+        if (!mPacer.shouldDraw(frameTime))
+            return;
+        synchronized (mLock) {
+            mPendingFrameTime = frameTime;
+            mLock.notifyAll();
+        }
+    }
+
+
+    /**
+     * @return the number of frames per second that are drawn when nothing is late
+     */
+    public int getFrameRate(){return mPacer.getFrameRate();}
+
+
+    /**
+     * @return statistics of the time between frames. They are written by the drawing thread, so
+     *         they should be read once the game has paused or ended.
+     */
+    public FrameStats getStats(){return mStats;}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addClassMember("mPacer", mPacer);
+        description.addClassMember("mStats", mStats);
+        return description.getString();
+    }
+
+
+    /**
+     * Posts a Choreographer frame callback on the ui thread for every refresh until stopped.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class RefreshSource implements Choreographer.FrameCallback, Runnable {
+        private final FrameScheduler mScheduler;
+        private final Handler mHandler;
+        private volatile boolean mActive;
+
+        RefreshSource(FrameScheduler scheduler){
+            mScheduler = scheduler;
+            mHandler = new Handler(Looper.getMainLooper());
+        }
+
+        void start(){
+            mActive = true;
+            mHandler.post(this);
+        }
+
+        void stop(){
+            mActive = false;
+            mHandler.removeCallbacks(this);
+        }
+
+        //Choreographer.getInstance() has to be called on the thread whose refreshes are wanted
+        @Override
+        public void run() {
+            if (mActive)
+                Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mActive)
+                return;
+            mScheduler.onRefresh(frameTimeNanos);
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.os.Process;
+import android.util.Log;
+
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Owns a thread that runs a {@link Task} for the game, such as drawing it with a
+ * {@link SurfaceDrawingTask} or simulating it with a {@link SimulationTask}. The thread is made
+ * once and lives as long as the view, so starting or resuming a game does not wait for a thread to
+ * be made, or behind other background work such as a
+ * {@link com.yckir.cyclebattledemo.utility.WriteFileTask}. It runs at
+ * {@link Process#THREAD_PRIORITY_DISPLAY}, the priority the system uses for drawing the ui.
+ * <p>
+ * The loop is in one of three states. While {@link #STATE_RUNNING} the task runs until the game
+ * ends or the loop is paused. While {@link #STATE_PAUSED} the thread waits on a lock. Once
+ * {@link #STATE_STOPPED} the thread ends and the loop can not be used again. The ui thread changes
+ * the state under the lock, and the state is volatile so that the task sees a pause on its next
+ * frame or tick without taking the lock.
+ */
+public class GameLoop implements Runnable {
+    public  static final String     TAG                     =   "GAME_LOOP";
+    public  static final int        STATE_PAUSED            =   0;
+    public  static final int        STATE_RUNNING           =   1;
+    public  static final int        STATE_STOPPED           =   2;
+
+    private final Task mTask;
+    private final Thread mThread;
+    private final Object mLock = new Object();
+
+    private volatile int mState;
+    private volatile long mStartTime;
+
+    /**
+     * true while the task is not running, guarded by mLock
+     */
+    private boolean mIdle;
+
+
+    /**
+     * Creates a paused loop, its thread is not started until {@link #start()} is called.
+     *
+     * @param task the work that is run on the thread
+     * @param name the name of the thread
+     */
+    public GameLoop(Task task, String name){
+        mTask = task;
+        mThread = new Thread(this, name);
+        mState = STATE_PAUSED;
+        mStartTime = 0;
+        mIdle = true;
+    }
+
+
+    /**
+     * Start the thread of the loop. It waits until {@link #play(long)} is called.
+     */
+    public void start(){
+        mThread.start();
+    }
+
+
+    /**
+     * Start running the game, or continue a paused game. Returns right away.
+     *
+     * @param startTime the time in milliseconds the game started at, moved forward by the time it
+     *                  was paused
+     */
+    public void play(long startTime){
+        synchronized (mLock) {
+            if (mState == STATE_STOPPED)
+                return;
+            mStartTime = startTime;
+            mState = STATE_RUNNING;
+            mIdle = false;
+            mLock.notifyAll();
+        }
+    }
+
+
+    /**
+     * Stop the task after its current frame or tick. Returns right away, use {@link #awaitIdle()}
+     * to wait for the task to stop.
+     */
+    public void pause(){
+        synchronized (mLock) {
+            if (mState != STATE_RUNNING)
+                return;
+            mState = STATE_PAUSED;
+        }
+        wake();
+    }
+
+
+    /**
+     * End the thread after the current frame or tick. The loop can not be played again.
+     */
+    public void quit(){
+        synchronized (mLock) {
+            mState = STATE_STOPPED;
+            mLock.notifyAll();
+        }
+        wake();
+    }
+
+
+    /**
+     * Wake the thread so that it sees the new state. A task that parks its thread is unparked.
+     */
+    private void wake(){
+        mTask.wake();
+        LockSupport.unpark(mThread);
+    }
+
+
+    /**
+     * Wait until the thread finishes the frame or tick it was running when the loop was paused or
+     * the game ended. After this returns the game can be used by the calling thread until the
+     * loop is played again. The loop must be paused first, if it is running an error is logged and
+     * this returns right away without waiting.
+     */
+    public void awaitIdle(){
+        synchronized (mLock) {
+            if (mState == STATE_RUNNING) {
+                Log.e(TAG, "awaitIdle called on a running loop, it must be paused first");
+                return;
+            }
+            try {
+                while (!mIdle && mState != STATE_RUNNING)
+                    mLock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * Checked by the task on every frame or tick.
+     *
+     * @param startTime the time the game that is being run started at
+     * @return true if the loop is running and has not been played again with a new start time
+     */
+    public boolean isRunning(long startTime){
+        return mState == STATE_RUNNING && mStartTime == startTime;
+    }
+
+
+    /**
+     * @return {@link #STATE_PAUSED}, {@link #STATE_RUNNING}, or {@link #STATE_STOPPED}
+     */
+    public int getState(){return mState;}
+
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+        try {
+            while (true) {
+                long startTime;
+                synchronized (mLock) {
+                    while (mState == STATE_PAUSED) {
+                        mIdle = true;
+                        mLock.notifyAll();
+                        mLock.wait();
+                    }
+                    if (mState == STATE_STOPPED)
+                        return;
+                    startTime = mStartTime;
+                }
+
+                if (!mTask.runGame(startTime, this))
+                    continue;
+
+                //the game ended on its own, the ui is told once the loop is paused
+                synchronized (mLock) {
+                    if (mState == STATE_RUNNING && mStartTime == startTime)
+                        mState = STATE_PAUSED;
+                }
+                mTask.gameEnded();
+            }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "interrupted while paused");
+        } finally {
+            synchronized (mLock) {
+                mState = STATE_STOPPED;
+                mIdle = true;
+                mLock.notifyAll();
+            }
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mState", mState);
+        description.addMember("mStartTime", mStartTime);
+        description.addClassMember("mTask", mTask);
+        return description.getString();
+    }
+
+
+    /**
+     * The work that a loop runs on its thread.
+     */
+    public interface Task {
+
+        /**
+         * Run the game until it ends or the loop is paused. Called on the thread of the loop.
+         *
+         * @param startTime the time in milliseconds the game started at, moved forward by the
+         *                  time it was paused
+         * @param loop the loop that runs the task, see {@link GameLoop#isRunning(long)}
+         * @return true if the game ended, false if the loop was paused
+         */
+        boolean runGame(long startTime, GameLoop loop);
+
+        /**
+         * Wake the thread of the loop if the task is waiting for something other than being
+         * unparked. Can be called from any thread.
+         */
+        void wake();
+
+        /**
+         * Called on the thread of the loop once the game ended on its own and the loop paused.
+         */
+        void gameEnded();
+    }
+}
@@ -1,108 +1,113 @@
 package com.yckir.cyclebattledemo.views.gameSurfaceView;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.os.Bundle;
-import android.util.Log;
-
-import com.yckir.cyclebattledemo.utility.ClassStateString;
-import com.yckir.cyclebattledemo.utility.Compass;
+import android.preference.PreferenceManager;
+
+import com.yckir.cyclebattledemo.R;
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.Compass;
+import com.yckir.cyclebattledemo.engine.Cycle;
+import com.yckir.cyclebattledemo.engine.FrameInterpolator;
+import com.yckir.cyclebattledemo.engine.FrameSnapshot;
+import com.yckir.cyclebattledemo.engine.GameEngine;
+import com.yckir.cyclebattledemo.engine.GameRenderer;
+import com.yckir.cyclebattledemo.engine.Grid;
+import com.yckir.cyclebattledemo.engine.InputLatencyTracker;
+import com.yckir.cyclebattledemo.engine.ScreenTransform;
+import com.yckir.cyclebattledemo.engine.SnapshotBuffer;
+import com.yckir.cyclebattledemo.utility.BundleState;
+import com.yckir.cyclebattledemo.utility.FileUtility;
 import com.yckir.cyclebattledemo.utility.GameResultsData;
-import com.yckir.cyclebattledemo.utility.Tile;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.concurrent.ArrayBlockingQueue;
 
 /**
- * Maintains the Cycles, Grid, and Path for a cycle Game and translates this data into
- * the animation frames.
+ * Translates the state of a {@link GameEngine} into the animation frames. The engine maintains
+ * the Cycles, Grid, and Path while this class fits them onto the users device screen.
+ * <p>
+ * While a game runs, the engine is advanced on one thread and drawn on another. The thread that
+ * advances it publishes a snapshot after every tick through a {@link SnapshotBuffer}, and the
+ * thread that draws takes the newest one with {@link #prepareFrame(long)}. When no game is being
+ * run, the cycles of the engine are drawn directly after {@link #prepareIdleFrame()}.
+ * <p>
+ * Everything else that reads or changes the engine, such as saving its state or resizing the
+ * frame, must only be called while the game loop is idle, see {@link GameLoop#awaitIdle()}.
+ * Pausing the loop does not wait for the game to stop.
  */
 public class GameManager {
     public  static final String     TAG                     =   "GAME_FRAME";
-    private static final String     REMAINING_CYCLES_KEY    =   TAG + ":REMAINING_CYCLES";
     private static final int        DEFAULT_FRAME_WIDTH     =   300;
     private static final int        DEFAULT_FRAME_HEIGHT    =   300;
-    private static final int        GAME_GRID_TILE_LENGTH   =   1;
+    private static final int        DAMAGE_MARGIN           =   2;
 
-    // This grid will be the same for each player in the same game. All movement, collision
-    // detection, etc will be done on this grid and later drawn to fit the users device screen.
-    private Grid mGameGrid;
+    // All movement, collision detection, etc will be done by the engine on its grid and later
+    // drawn to fit the users device screen.
+    private GameEngine mEngine;
 
     /**
-     * queue that holds requests to change the direction
+     * maps the grid onto the animation frame, this will depend upon the users device screen
      */
-    private ArrayBlockingQueue<DirectionChangeRequest> mDirectionChanges;
+    private ScreenTransform mTransform;
 
     /**
-     * records all requests to change directions
+     * draws the grid and cycles through mCanvasRenderer
      */
-    private ArrayList<DirectionChangeRequest> mRecorder;
+    private GameRenderer mGameRenderer;
+    private CanvasRenderer mCanvasRenderer;
 
     /**
-     * data for a tile that appears on the animation frame, this will depend upon the
-     * users device screen
+     * places the cycles between ticks on every frame
      */
-    public static Tile<Integer> SCREEN_GRID_TILE = new Tile<>(100);
-
-    private Paint mGridLinePaint;
-
-    private Cycle[] mCycles;
-    private boolean mRunning;
-    private int mNumCycles;
-    private int mRemainingCycles;
+    private final FrameInterpolator mInterpolator = new FrameInterpolator();
 
     /**
-     *     the width and height that the Game must fit into
+     * hands the state of the engine after each tick to the thread that draws it
      */
-    private int mFrameWidth;
-    private int mFrameHeight;
+    private final SnapshotBuffer mSnapshots = new SnapshotBuffer();
 
     /**
-     *     the height and width of the Grid when displayed on the animation frame
+     * the cycles that are drawn, the copies in a snapshot or the cycles of the engine
      */
-    private int mFrameGridWidth;
-    private int mFrameGridHeight;
+    private Cycle[] mDrawnCycles;
 
     /**
-     *     the spacing between the left and top edges of the animation frame and the grid
+     * true once the trail layer was updated for where the cycles were last placed, so that a
+     * frame whose damage was found does not update it again while drawing
      */
-    private int mGridPaddingX;
-    private int mGridPaddingY;
-
-    private Context mContext;
+    private boolean mTrailUpdated;
 
+    private CycleDrawer[] mCycleDrawers;
 
+    /**
+     * holds the paths that have already been drawn
+     */
+    private TrailLayer mTrailLayer;
 
     /**
-     * Initializes the Grid, animation frame size, and Cycles.
-     *
-     * @param width the width of an animation frame
-     * @param height the height of an animation frame
-     * @param numTilesX the number of tiles in the x direction
-     * @param numTilesY the number of tiles in the y direction
-     * @param numCycles the number of cycles that will be drawn
+     * the area of the animation frame that changed, used while finding the damage of a frame
      */
-    public GameManager(int width, int height, int numTilesX, int numTilesY, int numCycles){
-        mFrameWidth =width;
-        mFrameHeight =height;
-        mNumCycles=numCycles;
-        mGameGrid = new Grid(numTilesX,numTilesY,1);
+    private final Rect mFrameDamage = new Rect();
+    private final int[] mCycleBounds = new int[4];
 
-        mDirectionChanges = new ArrayBlockingQueue<>(15);
-        mRecorder = new ArrayList<>();
-        mRemainingCycles =numCycles;
-        mRunning = false;
+    /**
+     *     the width and height that the Game must fit into
+     */
+    private int mFrameWidth;
+    private int mFrameHeight;
 
-        mGridLinePaint =new Paint();
-        mGridLinePaint.setColor(Color.BLUE);
+    /**
+     *     the height and width of the Grid when displayed on the animation frame
+     */
+    private int mFrameGridWidth;
+    private int mFrameGridHeight;
 
-        initFrameSize();
-        createCycles();
-    }
+    private Context mContext;
 
 
     /**
@@ -116,23 +121,23 @@ public class GameManager {
     public GameManager(Context context, int numTilesX, int numTilesY, int numCycles){
         mContext = context;
 
-        //construct grid
-        mGameGrid = new Grid(numTilesX,numTilesY, GAME_GRID_TILE_LENGTH);
-        mNumCycles=numCycles;
+        SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
+
+        String speed = pref.getString(
+                context.getResources().getString(R.string.pref_speed_key) ,
+                context.getResources().getString(R.string.pref_speed_default));
+
+        mEngine = new GameEngine(numTilesX, numTilesY, numCycles, Integer.parseInt(speed));
 
         mFrameWidth = DEFAULT_FRAME_WIDTH;
         mFrameHeight = DEFAULT_FRAME_HEIGHT;
 
-        mDirectionChanges = new ArrayBlockingQueue<>(15);
-        mRecorder = new ArrayList<>();
-        mRemainingCycles =numCycles;
-        mRunning = false;
-
-        mGridLinePaint =new Paint();
-        mGridLinePaint.setColor(Color.BLUE);
+        mCanvasRenderer = new CanvasRenderer(new Paint());
+        mTrailLayer = new TrailLayer();
 
         initFrameSize();
-        createCycles();
+        createCycleDrawers();
+        mDrawnCycles = mEngine.getCycles();
     }
 
 
@@ -140,12 +145,14 @@ public class GameManager {
      * For JUnit testing with mock objects,
      */
     public GameManager(Grid grid, int width, int height, Paint p1) {
-        mGridLinePaint =p1;
-        mGameGrid =grid;
+        mCanvasRenderer = new CanvasRenderer(p1);
+        mEngine = new GameEngine(grid, 0, GameEngine.DEFAULT_SPEED);
         mFrameWidth =width;
         mFrameHeight =height;
-        mRunning = false;
+        mCycleDrawers = new CycleDrawer[0];
+        mTrailLayer = new TrailLayer();
         initFrameSize();
+        mDrawnCycles = mEngine.getCycles();
     }
 
 
@@ -155,8 +162,8 @@ public class GameManager {
      */
     private void initFrameSize(){
 
-        int numTilesX= mGameGrid.getNumTilesX();
-        int numTilesY= mGameGrid.getNumTilesY();
+        int numTilesX= mEngine.getGrid().getNumTilesX();
+        int numTilesY= mEngine.getGrid().getNumTilesY();
 
         //since the screen is always in portrait mode, the largest possible grid that will
         //fit on the animation frame can be achieved by making the height of the grid as large as possible
@@ -165,109 +172,65 @@ public class GameManager {
         double height1 =  (mFrameWidth * numTilesY) / (double) numTilesX;
         double height=Math.min( height1, mFrameHeight);
 
-        SCREEN_GRID_TILE = new Tile<>((int)(height / numTilesY));
-
-        mFrameGridWidth = SCREEN_GRID_TILE.getLength() * numTilesX;
-        mFrameGridHeight = SCREEN_GRID_TILE.getLength() * numTilesY;
-
-        mGridPaddingX = ( mFrameWidth - mFrameGridWidth ) / 2;
-        mGridPaddingY = ( mFrameHeight - mFrameGridHeight ) / 2;
-    }
+        int tileLength = (int)(height / numTilesY);
 
+        mFrameGridWidth = tileLength * numTilesX;
+        mFrameGridHeight = tileLength * numTilesY;
 
-    /**
-     * Creates cycles with default positions.
-     */
-    private void createCycles() {
-        Log.v(TAG,"creating " + mNumCycles + " cycles");
-        mCycles= new Cycle[mNumCycles];
-        double w = Tile.convert(SCREEN_GRID_TILE,Grid.GAME_GRID_TILE,mFrameGridWidth);
-        double h = Tile.convert(SCREEN_GRID_TILE, Grid.GAME_GRID_TILE, mFrameGridHeight);
-
-
-
-        if(mNumCycles>=1) {
-            mCycles[0] = new Cycle(mContext,
-                    w/2,
-                    1.5,
-                    0.25,
-                    0.5,
-                    0);
+        mTransform = new ScreenTransform(tileLength, mEngine.getGrid().getTileLength(),
+                ( mFrameWidth - mFrameGridWidth ) / 2, ( mFrameHeight - mFrameGridHeight ) / 2);
+        if(mGameRenderer == null) {
+            mGameRenderer = new GameRenderer(mEngine.getGrid(), mTransform);
+            mGameRenderer.setInterpolator(mInterpolator);
         }
-        if(mNumCycles>=2) {
-            mCycles[1] = new Cycle(mContext,
-                    w/2,
-                    h - 1.5,
-                    0.25,
-                    0.5,
-                    1);
-        }
-        if(mNumCycles>=3) {
-            mCycles[2] = new Cycle(mContext,
-                    1.5,
-                    h/2,
-                    0.25,
-                    0.5,
-                    2);
-        }
-        if(mNumCycles>=4) {
-            mCycles[3] = new Cycle(mContext,
-                    w - 1.5,
-                    h/2,
-                    0.25,
-                    0.5,
-                    3);
+        else
+            mGameRenderer.setTransform(mEngine.getGrid(), mTransform);
+        mTrailLayer.setSize(mFrameWidth, mFrameHeight);
+        mTrailUpdated = false;
+
+        if(mCycleDrawers != null) {
+            for (int i = 0; i < mCycleDrawers.length; i++)
+                mCycleDrawers[i].setTransform(mTransform);
         }
+        mCanvasRenderer.setCycleDrawers(mCycleDrawers);
     }
 
 
     /**
-     * Draws the Grid onto the supplied canvas centered at the GamesFrames width and height.
-     *
-     * @param canvas the canvas that will be drawn on
+     * Creates the objects that draw each of the engines cycles. Their images come from
+     * {@link CycleSprites}, so only images for a new screen size are made.
      */
-    private void drawGrid(Canvas canvas){
-        Rect rect = canvas.getClipBounds();
-        int numTilesX = mGameGrid.getNumTilesX();
-        int numTilesY = mGameGrid.getNumTilesY();
-        int left = mGridPaddingX + rect.left;
-        int top = mGridPaddingY + rect.top;
-        int bottom = top+ mFrameGridHeight - 1;
-        int right = left+ mFrameGridWidth - 1;
-
-        //draw vertical lines
-        int offset=left;
-        for (int tile = 0; tile < numTilesX; tile++) {
-            canvas.drawLine(offset, top, offset, bottom, mGridLinePaint);
-            offset += SCREEN_GRID_TILE.getLength();
-            canvas.drawLine(offset - 1, top, offset - 1, bottom, mGridLinePaint);
-        }
-
-        //draw horizontal lines
-        offset=top;
-        for (int tile = 0; tile < numTilesY; tile++) {
-            canvas.drawLine(left, offset, right, offset, mGridLinePaint);
-            offset += SCREEN_GRID_TILE.getLength();
-            canvas.drawLine(left, offset - 1, right, offset - 1, mGridLinePaint);
+    private void createCycleDrawers(){
+        int numCycles = mEngine.getNumCycles();
+        mCycleDrawers = new CycleDrawer[numCycles];
+        for(int i = 0; i < numCycles; i++) {
+            mCycleDrawers[i] = new CycleDrawer(mContext, i);
+            mCycleDrawers[i].setTransform(mTransform);
         }
+        mCanvasRenderer.setCycleDrawers(mCycleDrawers);
     }
 
 
     /**
-     * Draws the cycle paths onto the supplied canvas
+     * Draws the cycle paths onto the supplied canvas. Only what the paths grew since the previous
+     * frame is painted, see {@link TrailLayer}. If the damage of the frame was found, the paths
+     * were already painted then.
      *
      * @param canvas the canvas that will be drawn on
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
      */
-    private void drawPath(Canvas canvas){
-        Rect r =canvas.getClipBounds();
-        int paddingX=mGridPaddingX+r.left;
-        int paddingY=mGridPaddingY+r.top;
+    private void drawPath(Canvas canvas, int frameLeft, int frameTop){
+        int paddingX=mTransform.getPaddingX()+frameLeft;
+        int paddingY=mTransform.getPaddingY()+frameTop;
 
+        if(!mTrailUpdated) {
+            mTrailLayer.update(mDrawnCycles, mCycleDrawers, mTransform, mInterpolator, null);
+            mTrailUpdated = true;
+        }
         canvas.save();
         canvas.clipRect(paddingX,paddingY,paddingX+mFrameGridWidth,paddingY+mFrameGridHeight);
-        for (int i=0; i < mNumCycles; i++){
-            mCycles[i].drawPath(canvas);
-        }
+        mTrailLayer.draw(canvas, frameLeft, frameTop);
         canvas.restore();
     }
 
@@ -276,29 +239,42 @@ public class GameManager {
      * Draws the cycles onto the supplied canvas
      *
      * @param canvas the canvas that will be drawn on
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
      */
-    private void drawCycles(Canvas canvas){
-        Rect r =canvas.getClipBounds();
-        int paddingX=mGridPaddingX+r.left;
-        int paddingY=mGridPaddingY+r.top;
-        int left,right,top,bottom;
-        Cycle cycle;
-        for(int i=0;i<mNumCycles;i++) {
-            cycle=mCycles[i];
-            left = paddingX +
-                    (int) Tile.convert(Grid.GAME_GRID_TILE, SCREEN_GRID_TILE, cycle.getLeft());
-            right = paddingX +
-                    (int) Tile.convert(Grid.GAME_GRID_TILE, SCREEN_GRID_TILE, cycle.getRight());
-            top = paddingY +
-                    (int) Tile.convert(Grid.GAME_GRID_TILE, SCREEN_GRID_TILE ,cycle.getTop());
-            bottom = paddingY +
-                    (int) Tile.convert(Grid.GAME_GRID_TILE, SCREEN_GRID_TILE, cycle.getBottom());
-
-            canvas.save();
-            canvas.clipRect(left, top, right, bottom);
-            mCycles[i].drawCycle(canvas);
-            canvas.restore();
+    private void drawCycles(Canvas canvas, int frameLeft, int frameTop){
+        mCanvasRenderer.begin(canvas, frameLeft, frameTop);
+        mGameRenderer.drawCycles(mCanvasRenderer, mDrawnCycles);
+        mCanvasRenderer.end();
+    }
+
+
+    /**
+     * Bring the paths up to date and find the area of the canvas that will look different when
+     * the animation is drawn. This is where the paths grew and where the cycles are now. Where
+     * the cycles were on the previous frame is not included, the caller has to remember it.
+     *
+     * @param damage the changed area is added to this rectangle
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
+     */
+    public void addAnimationDamage(Rect damage, int frameLeft, int frameTop){
+        Cycle[] cycles = mDrawnCycles;
+
+        mFrameDamage.setEmpty();
+        mTrailLayer.update(cycles, mCycleDrawers, mTransform, mInterpolator, mFrameDamage);
+        mTrailUpdated = true;
+        for(int i = 0; i < cycles.length; i++) {
+            mGameRenderer.getCycleBounds(i, cycles[i], mCycleBounds);
+            mFrameDamage.union(mCycleBounds[0], mCycleBounds[1], mCycleBounds[2], mCycleBounds[3]);
         }
+        if(mFrameDamage.isEmpty())
+            return;
+
+        //the cycle images and path edges are rounded to whole pixels
+        mFrameDamage.inset(-DAMAGE_MARGIN, -DAMAGE_MARGIN);
+        mFrameDamage.offset(frameLeft, frameTop);
+        damage.union(mFrameDamage);
     }
 
 
@@ -306,12 +282,13 @@ public class GameManager {
      * Draws a black background, grid, cycles, and path together onto a canvas.
      *
      * @param canvas the canvas to be drawn to.
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
      */
-    public void drawFull(Canvas canvas){
-        canvas.drawColor(Color.BLACK);
-        drawGrid(canvas);
-        drawPath(canvas);
-        drawCycles(canvas);
+    public void drawFull(Canvas canvas, int frameLeft, int frameTop){
+        drawBackground(canvas, frameLeft, frameTop);
+        drawPath(canvas, frameLeft, frameTop);
+        drawCycles(canvas, frameLeft, frameTop);
     }
 
 
@@ -319,10 +296,13 @@ public class GameManager {
      * Draw the background Image on a canvas. This includes a black canvas with the grid.
      *
      * @param canvas the canvas to be drawn to.
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
      */
-    public void drawBackground(Canvas canvas){
-        canvas.drawColor(Color.BLACK);
-        drawGrid(canvas);
+    public void drawBackground(Canvas canvas, int frameLeft, int frameTop){
+        mCanvasRenderer.begin(canvas, frameLeft, frameTop);
+        mGameRenderer.drawBackground(mCanvasRenderer);
+        mCanvasRenderer.end();
     }
 
 
@@ -330,10 +310,12 @@ public class GameManager {
      * Draw the animation onto a canvas. This draws the path and cycles.
      *
      * @param canvas the canvas to be drawn to.
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
      */
-    public void drawAnimation(Canvas canvas){
-        drawPath(canvas);
-        drawCycles(canvas);
+    public void drawAnimation(Canvas canvas, int frameLeft, int frameTop){
+        drawPath(canvas, frameLeft, frameTop);
+        drawCycles(canvas, frameLeft, frameTop);
     }
 
 
@@ -342,151 +324,177 @@ public class GameManager {
      * currently running.
      */
     public void newGame(){
-        if( mRunning )
-            return;
+        mEngine.newGame();
+        mTrailLayer.invalidate();
+        mTrailUpdated = false;
+    }
 
-        mRemainingCycles = mNumCycles;
-        mRunning=false;
-        mDirectionChanges.clear();
-        mRecorder= new ArrayList<>();
-        createCycles();
+
+    /**
+     * Run every game tick that is due by the given time, see {@link GameEngine#advance(long)}, and
+     * publish a snapshot of the game if a tick was run. Only the thread that runs the game may
+     * call this.
+     *
+     * @param elapsedTime the time in milliseconds since the game started, not counting pauses
+     * @return {@link GameEngine#NO_EVENT} or a combination of {@link GameEngine#TURN_EVENT} and
+     *         {@link GameEngine#CRASH_EVENT}
+     */
+    public int advance(long elapsedTime){
+        long tick = mEngine.getScheduler().getTick();
+        int events = mEngine.advance(elapsedTime);
+        if(mEngine.getScheduler().getTick() != tick)
+            mSnapshots.publish(mEngine);
+        return events;
     }
 
 
     /**
-     * move all the cycles. This method will fail if a game is not currently running.
-     * @param time the time in milliseconds since the game started
+     * Publish a snapshot of the game as it is now. This is done before a game is run, so that the
+     * first frame does not show an older game. Must not be called while another thread runs the
+     * game.
      */
-    public void move(long time){
-        if( !mRunning )
-            return;
+    public void publishSnapshot(){
+        mSnapshots.publish(mEngine);
+    }
 
-        for(int i=0;i<mNumCycles;i++){
-            mCycles[i].move(time);
-        }
+
+    /**
+     * Take the newest snapshot of the game and place its cycles for a frame. Only the thread that
+     * draws the running game may call this.
+     *
+     * @param elapsedTime the time in milliseconds of the frame since the game started, not
+     *                    counting pauses
+     * @return true if the game was still running in the snapshot, false if the frame shows the
+     *         end of the game
+     */
+    public boolean prepareFrame(long elapsedTime){
+        FrameSnapshot snapshot = mSnapshots.acquire();
+        mInterpolator.update(snapshot, elapsedTime);
+        mDrawnCycles = snapshot.getCycles();
+        mTrailUpdated = false;
+        return snapshot.isRunning();
     }
 
 
     /**
-     * Creates a request to change the direction. The request is valid, it be applied on the next
-     * animation frame. This method will fail if a game is not currently running.
+     * Place the cycles of the engine for drawing while no game is being run, such as before it
+     * starts, while it is paused, or after it ended.
+     */
+    public void prepareIdleFrame(){
+        mInterpolator.update(mEngine);
+        mDrawnCycles = mEngine.getCycles();
+        mTrailUpdated = false;
+    }
+
+
+    /**
+     * Draw the cycles ahead of the last tick, where they will be when the frame is displayed,
+     * instead of one tick behind the time of the frame. See {@link FrameInterpolator}.
+     *
+     * @param extrapolate true if the cycles should be drawn ahead of the last tick
+     * @param leadTime the time in milliseconds from the start of a frame until it is displayed
+     */
+    public void setExtrapolation(boolean extrapolate, double leadTime){
+        mInterpolator.setExtrapolation(extrapolate, leadTime);
+    }
+
+
+    /**
+     * Creates a request to change the direction. The request is valid, it be applied on the first
+     * game tick at or after the given time. This method will fail if a game is not currently
+     * running.
      *
      * @param cycleNum the id for the cycle
      * @param newDirection the new direction for the cycle
      * @param time the time in milliseconds when the cycle will change directions
      */
     public void requestDirectionChange(int cycleNum, Compass newDirection, long time){
-        //so that buffer isn't full of messages before the game starts
-        if( !mRunning )
-            return;
+        mEngine.requestDirectionChange(cycleNum, newDirection, time);
+    }
+
 
-        DirectionChangeRequest node = new DirectionChangeRequest(newDirection,time,cycleNum);
-        DirectionChangeRequest copyNode = node.makeCopy();
-        mDirectionChanges.add(node);
-        mRecorder.add(copyNode);
+    /**
+     * Creates a request to change the direction whose latency is measured if latency tracking is
+     * enabled. See {@link GameEngine#requestDirectionChange(int, Compass, long, long, long)}.
+     *
+     * @param cycleNum the id for the cycle
+     * @param newDirection the new direction for the cycle
+     * @param time the time in milliseconds when the cycle will change directions
+     * @param eventTime the time of the input event in nanoseconds on the {@link System#nanoTime()}
+     *                  clock
+     * @param recognizeTime the time the input was recognized in nanoseconds on the
+     *                      {@link System#nanoTime()} clock
+     */
+    public void requestDirectionChange(int cycleNum, Compass newDirection, long time,
+                                       long eventTime, long recognizeTime){
+        mEngine.requestDirectionChange(cycleNum, newDirection, time, eventTime, recognizeTime);
     }
 
 
     /**
-     * Checks to see if their are any requests to change directions and apply them they are valid.
-     * This method will fail if a game is not currently running.
+     * Measure how long direction changes take to be displayed. See {@link InputLatencyTracker}.
      *
-     * @return true if at least one direction changed, false otherwise.
+     * @param enabled true to measure the latency with a new tracker, false to stop measuring
      */
-    public boolean checkDirectionChangeRequests(){
-        if( !mRunning )
-            return false;
-
-        DirectionChangeRequest node = mDirectionChanges.poll();
+    public void setLatencyTracking(boolean enabled){
+        mEngine.setLatencyTracker(enabled ? new InputLatencyTracker() : null);
+    }
 
-        boolean change = false;
-        boolean temp;
-        while(node!=null){
 
-            temp = mCycles[node.getCycleNum()].changeDirection(node.getDirection(), node.getTime());
-            change = temp || change;
-            node = mDirectionChanges.poll();
-        }
-        return change;
-    }
+    /**
+     * @return the tracker that measures the latency of direction changes, null if latency
+     *         tracking is disabled
+     */
+    public InputLatencyTracker getLatencyTracker(){return mEngine.getLatencyTracker();}
 
 
     /**
-     * Detects if any of cycles have collided and sets them to crashed status preventing them from
-     * moving. This method will fail if a game is not currently running.
+     * Let the latency tracker know that a frame was posted. It shows the cycles as they were
+     * placed by the last call to {@link #prepareFrame(long)}.
      *
-     * @param currentTime the current time in milliseconds.
-     * @return true if a cycle crashed, false otherwise.
-     */
-    public boolean collisionDetection(long currentTime){
-        if( !mRunning )
-            return false;
-
-        int initialCycles = mRemainingCycles;
-
-        for( int currentCycle = 0; currentCycle < mNumCycles; currentCycle++ ){
-            //don't check if already crashed
-            if( mCycles[currentCycle].hasCrashed() )
-                continue;
-            //check if cycle out of bounds,
-            if( mGameGrid.OutOfBounds(mCycles[currentCycle])) {
-                Log.v(TAG, "Player " + currentCycle + " is out of bounds");
-                mCycles[currentCycle].crashed(currentTime);
-                mRemainingCycles--;
-                continue;
-            }
-            //check to see if cycle crashed with its own path
-            if(mCycles[currentCycle].selfCrashed()) {
-                Log.v(TAG, "Player " + currentCycle + " crashed with itself");
-                mCycles[currentCycle].crashed(currentTime);
-                mRemainingCycles--;
-                continue;
-            }
-
-            //check to see if cycle crashed with its another cycle or their path
-            for(int otherCycles = 0; otherCycles < mNumCycles; otherCycles++){
-                if(otherCycles == currentCycle )
-                    continue;
-                if(mCycles[otherCycles].intersectsWithPath(mCycles[currentCycle])){
-                    Log.v(TAG,"Player " + currentCycle + " crashed with cycle " + otherCycles);
-                    mCycles[currentCycle].crashed(currentTime);
-                    mRemainingCycles--;
-                    break;
-                }
-
-            }
-        }
+     * @param postTime the time the frame was posted in nanoseconds on the
+     *                 {@link System#nanoTime()} clock
+     */
+    public void framePosted(long postTime){
+        InputLatencyTracker tracker = mEngine.getLatencyTracker();
+        if(tracker != null)
+            tracker.framePosted(mInterpolator.getDisplayTime(), postTime);
+    }
 
-        //determine the places for cycles now that all collisions have been detected.
-        if( initialCycles != mRemainingCycles ){
-            for( Cycle cycle:mCycles ){
-               if(cycle.hasCrashed() && cycle.getPlace() == Cycle.DEFAULT_PLACE)
-                   cycle.setPlace(mRemainingCycles + 1);
-            }
-        }
 
-        if( mRemainingCycles <= 1 ) {
-            //set place 1 for the uncrashed cycles.
-            for (Cycle cycle:mCycles) {
-                if( !cycle.hasCrashed() )
-                    cycle.setPlace(1);
-            }
-            mRunning = false;
-        }
-
-        return  initialCycles != mRemainingCycles ;
+    /**
+     * Write the latency report into internal private storage if latency tracking is enabled.
+     *
+     * @return the file that was written, null if nothing was written
+     */
+    public File exportLatencyReport(){
+        InputLatencyTracker tracker = mEngine.getLatencyTracker();
+        if(tracker == null || mContext == null)
+            return null;
+        tracker.clearPending();
+        return FileUtility.writeLatencyReport(tracker, mContext);
     }
 
 
+    /**
+     * Recreate the cycles for a new number of players. Must not be called while the game loop is
+     * running, see {@link GameLoop#awaitIdle()}.
+     *
+     * @param numPlayers the new number of players
+     */
     public void updateNumPlayers(int numPlayers){
-        mNumCycles=numPlayers;
-        mRemainingCycles=numPlayers;
-        createCycles();
+        mEngine.updateNumPlayers(numPlayers);
+        createCycleDrawers();
+        mTrailLayer.invalidate();
+        mTrailUpdated = false;
     }
 
 
     /**
-     * Set the animation frame dimensions.
+     * Set the animation frame dimensions. The cycles are placed at their starting positions again
+     * unless a game is in progress, which keeps its cycles and is only drawn at the new size. The
+     * drawing thread uses the frame size, so this must not be called while the game loop is
+     * running, see {@link GameLoop#awaitIdle()}.
      * @param width The new width of the animation frame.
      * @param height The new height of the animation frame.
      */
@@ -494,7 +502,8 @@ public class GameManager {
         mFrameWidth =width;
         mFrameHeight =height;
         initFrameSize();
-        createCycles();
+        if(!mEngine.isRunning())
+            mEngine.resetCycles();
     }
 
 
@@ -504,14 +513,14 @@ public class GameManager {
      * @param running true if the game is active, false otherwise
      */
     public void setRunning(boolean running){
-        mRunning = running;
+        mEngine.setRunning(running);
     }
 
 
     /**
      * @return true if the game is active, false otherwise
      */
-    public boolean isRunning(){return mRunning;}
+    public boolean isRunning(){return mEngine.isRunning();}
 
 
     /**
@@ -520,9 +529,17 @@ public class GameManager {
      * @return an instance of GameResultsData, null if the game is still running.
      */
     public GameResultsData generateResults(){
-        if(mRunning)
+        if(mEngine.isRunning())
             return null;
-        return new GameResultsData(mCycles);
+        return new GameResultsData(mEngine.getCycles());
+    }
+
+
+    /**
+     * @return the engine that runs the game
+     */
+    public GameEngine getEngine(){
+        return mEngine;
     }
 
 
@@ -530,7 +547,7 @@ public class GameManager {
      * @return the padding from the frame edge to the grid edge in x direction
      */
     public int getGridPaddingX() {
-        return mGridPaddingX;
+        return mTransform.getPaddingX();
     }
 
 
@@ -538,7 +555,24 @@ public class GameManager {
      * @return the padding from the frame edge to the grid edge in y direction
      */
     public int getGridPaddingY() {
-        return mGridPaddingY;
+        return mTransform.getPaddingY();
+    }
+
+
+    /**
+     * @return draws the game onto any {@link com.yckir.cyclebattledemo.engine.Renderer}
+     */
+    public GameRenderer getGameRenderer(){
+        return mGameRenderer;
+    }
+
+
+    /**
+     * @return the transform that maps the grid onto the animation frame, replaced whenever the
+     *          frame size changes
+     */
+    public ScreenTransform getTransform(){
+        return mTransform;
     }
 
 
@@ -579,123 +613,50 @@ public class GameManager {
     /**
      * @return the number of cycles
      */
-    public int getNumCycles(){return mNumCycles;}
+    public int getNumCycles(){return mEngine.getNumCycles();}
 
 
-    public ArrayList<DirectionChangeRequest> getReplay(){
-        return mRecorder;
+    public ArrayList<GameEngine.DirectionChangeRequest> getReplay(){
+        return mEngine.getReplay();
     }
 
 
     /**
-     * Save the state of the GameManager onto a bundle.
+     * Save the state of the GameManager onto a bundle. The paths are copied, so this must not be
+     * called while the game loop is running, see {@link GameLoop#awaitIdle()}.
      *
      * @param bundle the bundle to save the state onto
      */
     public void saveState(Bundle bundle){
-        bundle.putInt(REMAINING_CYCLES_KEY,mRemainingCycles);
-        for(int i = 0; i < mNumCycles; i++){
-            mCycles[i].saveState(bundle);
-        }
+        mEngine.saveState(new BundleState(bundle));
     }
 
 
     /**
-     * Restore the previous state of the GameManager from a bundle.
+     * Restore the previous state of the GameManager from a bundle. Must not be called while the
+     * game loop is running, see {@link GameLoop#awaitIdle()}.
      *
      * @param bundle the bundle that has the previous state saved
      */
     public void restoreState(Bundle bundle){
-        mRemainingCycles = bundle.getInt(REMAINING_CYCLES_KEY,mNumCycles);
-        for(int i = 0; i < mNumCycles; i++){
-            mCycles[i].restoreState(bundle);
-        }
+        mEngine.restoreState(new BundleState(bundle));
+        mTrailLayer.invalidate();
+        mTrailUpdated = false;
     }
 
 
     @Override
     public String toString() {
         ClassStateString description = new ClassStateString(TAG);
-        description.addMember("mNumCycles",mNumCycles );
-        description.addMember("mRemainingCycles", mRemainingCycles);
         description.addMember("mFrameWidth", mFrameWidth);
         description.addMember("mFrameHeight", mFrameHeight);
         description.addMember("mFrameGridWidth", mFrameGridWidth);
         description.addMember("mFrameGridHeight", mFrameGridHeight);
-        description.addMember("mGridPaddingX", mGridPaddingX);
-        description.addMember("mGridPaddingY", mGridPaddingY);
-        description.addMember("mRunning", mRunning);
-        description.addClassMember("mGameGrid", mGameGrid);
-        description.addClassMember("SCREEN_GRID_TILE", SCREEN_GRID_TILE);
-
-        for(int i = 0; i <mNumCycles;i++)
-            description.addClassMember("mCycle[" + i + "}", mCycles[i]);
-
+        description.addClassMember("mTransform", mTransform);
+        description.addClassMember("mTrailLayer", mTrailLayer);
+        description.addClassMember("mEngine", mEngine);
 
         return description.getString();
 
     }
-
-
-    /**
-     * An information node that keeps track of the details for when a cycle wants to changes its direction.
-     */
-    public final class DirectionChangeRequest {
-        private final Compass mDirection;
-        private final long mTime;
-        private final int mCycleNum;
-
-
-        /**
-         * Constructs a node keeps track of the details for when a cycle changes direction.
-         * @param direction the direction that the cycle should change directions to
-         * @param time When the request was made. The time the milliseconds since thee start
-         *             of the animation.
-         * @param cycleNum the cycle that should change its direction.
-         */
-        public DirectionChangeRequest(Compass direction, long time, int cycleNum){
-            mDirection=direction;
-            mTime=time;
-            mCycleNum=cycleNum;
-        }
-
-
-        /**
-         * @return the cycle for this direction change request
-         */
-        public int getCycleNum() {
-            return mCycleNum;
-        }
-
-
-        /**
-         * @return the direction for this direction change request
-         */
-        public Compass getDirection() {
-            return mDirection;
-        }
-
-
-        /**
-         * @return the time for this direction change request.
-         */
-        public long getTime() {
-            return mTime;
-        }
-
-
-        /**
-         * @return a copy of the current instance
-         */
-        public DirectionChangeRequest makeCopy(){
-            return new DirectionChangeRequest(mDirection,mTime,mCycleNum);
-        }
-
-
-        @Override
-        public String toString() {
-            return "Direction Change Request: player " + mCycleNum +
-                    ", direction " + mDirection + ", at time " + mTime;
-        }
-    }
 }
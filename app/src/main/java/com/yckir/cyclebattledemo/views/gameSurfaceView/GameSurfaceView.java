@@ -11,22 +11,34 @@ import android.os.Bundle;
 import android.os.Parcelable;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
+import android.support.v4.os.AsyncTaskCompat;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
+import android.view.WindowManager;
 
 import com.yckir.cyclebattledemo.R;
-import com.yckir.cyclebattledemo.utility.ClassStateString;
-import com.yckir.cyclebattledemo.utility.Compass;
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.Compass;
+import com.yckir.cyclebattledemo.engine.EngineLog;
+import com.yckir.cyclebattledemo.engine.FrameStats;
+import com.yckir.cyclebattledemo.engine.GameEngine;
+import com.yckir.cyclebattledemo.engine.Grid;
+import com.yckir.cyclebattledemo.utility.AndroidEngineLogger;
+import com.yckir.cyclebattledemo.utility.BackgroundCache;
+import com.yckir.cyclebattledemo.utility.FileUtility;
 import com.yckir.cyclebattledemo.utility.FourRegionSwipeDetector;
 import com.yckir.cyclebattledemo.utility.GameResultsData;
+import com.yckir.cyclebattledemo.utility.WriteFileTask;
 
 import java.util.ArrayList;
 
 /**
- * View that displays the cycle game. Drawing is done on an AsyncTask.
+ * View that displays the cycle game. The game is simulated on the thread of one
+ * {@link GameLoop} and drawn on the thread of another. The threads are started when the view is
+ * attached to a window and end when it is detached, they are never started in edit mode.
  */
 public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callback,
         SurfaceDrawingTask.DrawingTaskListener, FourRegionSwipeDetector.OnRegionSwipeListener {
@@ -54,9 +66,14 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     private ReplayManager mReplayManager;
     private RectangleContainer mRectangleContainer;
     private SurfaceDrawingTask mSurfaceDrawingTask;
+    private GameLoop mGameLoop;
+    private SimulationTask mSimulationTask;
+    private GameLoop mSimulationLoop;
     private GameEventListener mGameEventListener = null;
     private SurfaceHolder mHolder;
     private FourRegionSwipeDetector mSwipeListener;
+    private FrameScheduler mFrameScheduler;
+    private LatencyOverlay mLatencyOverlay;
 
     private int mWidth;
     private int mHeight;
@@ -99,6 +116,8 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
 
         a.recycle();
 
+        EngineLog.setLogger(new AndroidEngineLogger());
+
         mHolder = getHolder();
         mHolder.addCallback(this);
 
@@ -112,8 +131,27 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
                 context.getResources().getString(R.string.pref_grid_height_key) ,
                 context.getResources().getString(R.string.pref_grid_height_default));
 
+        String frameRate = pref.getString(
+                context.getResources().getString(R.string.pref_frame_rate_key) ,
+                context.getResources().getString(R.string.pref_frame_rate_default));
+
+        boolean lowPower = pref.getBoolean(
+                context.getResources().getString(R.string.pref_low_power_key) , false);
+
+        boolean extrapolate = pref.getBoolean(
+                context.getResources().getString(R.string.pref_extrapolate_key) , false);
+
+        boolean latencyOverlay = pref.getBoolean(
+                context.getResources().getString(R.string.pref_latency_overlay_key) , false);
+
+        float refreshRate = ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE))
+                .getDefaultDisplay().getRefreshRate();
+        mFrameScheduler = new FrameScheduler(refreshRate, Integer.parseInt(frameRate), lowPower);
+
         //width and height are unknown so the default size for frame and container is used
         mGameManager = new GameManager(getContext(), Integer.parseInt(mNumTilesX), Integer.parseInt(mNumTilesY), numCycles);
+        //a frame is displayed about one frame interval after it starts
+        mGameManager.setExtrapolation(extrapolate, 1000.0 / mFrameScheduler.getFrameRate());
         mRectangleContainer = new RectangleContainer(boarderColor, paddingColor, textColor, borderSize);
         mRectangleContainer.setVerticalPadding(TEXT_AREA_PERCENTAGE);
 
@@ -123,8 +161,80 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
 
         mSurfaceDrawingTask=new SurfaceDrawingTask(mHolder, mGameManager, mRectangleContainer, SurfaceDrawingTask.FULL_DRAW);
         mSurfaceDrawingTask.addDrawingEventListener(this);
-        mSurfaceDrawingTask.addGameEventListener(mGameEventListener);
         mSurfaceDrawingTask.setSwipeDetector(mSwipeListener);
+        mSurfaceDrawingTask.setFrameScheduler(mFrameScheduler);
+        if (latencyOverlay) {
+            mGameManager.setLatencyTracking(true);
+            mLatencyOverlay = new LatencyOverlay(mGameManager.getLatencyTracker(),
+                    context.getResources().getDisplayMetrics());
+            mSurfaceDrawingTask.setLatencyOverlay(mLatencyOverlay);
+        }
+        mSimulationTask = new SimulationTask(mGameManager);
+        mSimulationTask.setGameEventListener(mGameEventListener);
+    }
+
+
+    /**
+     * Pause the threads that simulate and draw the game if they are running, and wait until they
+     * are idle, see {@link GameLoop#awaitIdle()}. Afterwards the game can be read or changed on
+     * the ui thread. Returns right away if the threads are not started.
+     *
+     * @return true if a game was being run, it can be continued with
+     *         {@link #resumeLoops(boolean)}
+     */
+    private boolean pauseLoops(){
+        if (mGameLoop == null)
+            return false;
+        boolean running = mGameLoop.getState() == GameLoop.STATE_RUNNING;
+        if (running)
+            mGameLoop.pause();
+        mGameLoop.awaitIdle();
+        return running;
+    }
+
+
+    /**
+     * Continue running the game after {@link #pauseLoops()}, unless it ended in the meantime. The
+     * time it was paused for is not taken out of the game.
+     *
+     * @param running the result of pauseLoops
+     */
+    private void resumeLoops(boolean running){
+        if (running && mGameManager.isRunning())
+            mGameLoop.play(mStartTime + mTotalPauseDelay);
+    }
+
+
+    /**
+     * Make and start the threads that simulate and draw the game.
+     */
+    private void startLoops(){
+        mSimulationLoop = new GameLoop(mSimulationTask, SimulationTask.TAG);
+        mSimulationLoop.start();
+        mSurfaceDrawingTask.setSimulation(mSimulationLoop);
+        mGameLoop = new GameLoop(mSurfaceDrawingTask, GameLoop.TAG);
+        mGameLoop.start();
+    }
+
+
+    /**
+     * Get the background image for the current size from {@link BackgroundCache}. If it is not
+     * cached, it is drawn and then written to storage on another thread.
+     *
+     * @return bitmap of the background image.
+     */
+    private Bitmap loadBackground(){
+        Grid grid = mGameManager.getEngine().getGrid();
+        String fileName = FileUtility.getBackgroundFileName(mWidth, mHeight,
+                grid.getNumTilesX(), grid.getNumTilesY());
+
+        Bitmap bitmap = BackgroundCache.get(fileName, getContext());
+        if(bitmap != null)
+            return bitmap;
+
+        bitmap = createBackground();
+        AsyncTaskCompat.executeParallel(new WriteFileTask(getContext(), fileName, bitmap));
+        return bitmap;
     }
 
 
@@ -150,7 +260,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
      */
     public void setGameEventListener(GameEventListener listener){
         mGameEventListener = listener;
-        mSurfaceDrawingTask.addGameEventListener(mGameEventListener);
+        mSimulationTask.setGameEventListener(mGameEventListener);
     }
 
 
@@ -165,13 +275,17 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         mState=RUNNING;
         mStartTime=startTime;
         mGameManager.setRunning(true);
-        mSurfaceDrawingTask.setSwipeDetector(mSwipeListener);
-        mSurfaceDrawingTask.execute(startTime);
+        if (mGameLoop != null)
+            mGameLoop.play(startTime);
     }
 
 
     /**
-     * Pause the animation.
+     * Pause the animation. This returns before the game stops, the engine is not stopped here and
+     * the drawing thread may still be finishing a frame while the simulation thread keeps running
+     * ticks until the drawing thread pauses it. Anything that reads or changes the
+     * {@link GameManager} afterwards must call {@link #pauseLoops()} first, which waits for both
+     * threads.
      *
      * @param pauseTime current time in milliseconds
      */
@@ -180,7 +294,8 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         mSwipeListener.disable();
         mState=PAUSED;
         mPauseTime=pauseTime;
-        mGameManager.setRunning(false);
+        if (mGameLoop != null)
+            mGameLoop.pause();
     }
 
 
@@ -198,12 +313,8 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         Log.v(TAG,"pause delay was " + pauseDelay);
 
         mGameManager.setRunning(true);
-        mSurfaceDrawingTask = new SurfaceDrawingTask(mHolder, mGameManager,mRectangleContainer,
-                mSurfaceDrawingTask.getDrawMode());
-        mSurfaceDrawingTask.addDrawingEventListener(this);
-        mSurfaceDrawingTask.addGameEventListener(mGameEventListener);
-        mSurfaceDrawingTask.setSwipeDetector(mSwipeListener);
-        mSurfaceDrawingTask.execute(mStartTime + mTotalPauseDelay);
+        if (mGameLoop != null)
+            mGameLoop.play(mStartTime + mTotalPauseDelay);
     }
 
 
@@ -217,12 +328,9 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         mPauseTime=0;
         mTotalPauseDelay=0;
 
+        pauseLoops();
         mGameManager.newGame();
-        mSurfaceDrawingTask = new SurfaceDrawingTask(mHolder, mGameManager,mRectangleContainer,
-                mSurfaceDrawingTask.getDrawMode());
-        mSurfaceDrawingTask.addDrawingEventListener(this);
-        mSurfaceDrawingTask.addGameEventListener(mGameEventListener);
-        mSurfaceDrawingTask.setSwipeDetector(mSwipeListener);
+        mFrameScheduler.getStats().reset();
         redrawView();
     }
 
@@ -243,6 +351,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
      */
     public void setNumPlayers(int numPlayers){
         if(numPlayers != mGameManager.getNumCycles()) {
+            pauseLoops();
             mGameManager.updateNumPlayers(numPlayers);
             mSwipeListener.setNumRegions(numPlayers);
         }
@@ -290,6 +399,15 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     }
 
 
+    /**
+     * Get the time between the frames of the current game. The statistics are updated while the
+     * game is running, so they should be read while it is paused or finished.
+     *
+     * @return the frame time statistics
+     */
+    public FrameStats getFrameStats(){return mFrameScheduler.getStats();}
+
+
     /**
      * Gets state int value for the current state of the game.
      *
@@ -317,11 +435,14 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     /**
      * Causes the GameSurfaceView to redraw itself with the touchBoundaries
      * if they are enabled and any text that has been set. This method will do nothing if in
-     * RUNNING state because the drawing thread is constantly redrawing.
+     * RUNNING state because the drawing thread is constantly redrawing. If the game was just
+     * paused, this waits for the drawing thread to finish its frame.
      */
     public void redrawView(){
         if(mState == RUNNING)
             return;
+        pauseLoops();
+        mGameManager.prepareIdleFrame();
         Canvas canvas = mHolder.lockCanvas();
         canvas.drawColor(0, PorterDuff.Mode.CLEAR);
         mSurfaceDrawingTask.draw(canvas);
@@ -344,6 +465,25 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     }
 
 
+    /**
+     * Change the direction of the cycle if the input is valid, and measure how long the change
+     * takes to be displayed if the latency overlay is enabled.
+     *
+     * @param cycleNum the id for the cycle
+     * @param newDirection the new direction for the cycle
+     * @param currentTime current time in milliseconds
+     * @param eventTime the time of the input event in nanoseconds on the {@link System#nanoTime()}
+     *                  clock
+     * @param recognizeTime the time the input was recognized in nanoseconds on the
+     *                      {@link System#nanoTime()} clock
+     */
+    public void requestDirectionChange(int cycleNum, Compass newDirection, long currentTime,
+                                       long eventTime, long recognizeTime){
+        mGameManager.requestDirectionChange(cycleNum, newDirection, currentTime -
+                (mStartTime + mTotalPauseDelay), eventTime, recognizeTime);
+    }
+
+
     @Override
     public void surfaceCreated(SurfaceHolder holder) {}
 
@@ -358,13 +498,15 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
 
         if( width != mWidth || height != mHeight ) {
 
+            //the drawing thread uses the frame size and draw mode, a running game is paused
+            //while they change, for example when a window in multi-window mode is resized
+            boolean running = pauseLoops();
             mWidth = width;
             mHeight = height;
             mRectangleContainer.setContainerSize(width, height);
-
             mGameManager.setFrameSize(mRectangleContainer.getRectangleWidth(), mRectangleContainer.getRectangleHeight());
 
-            Bitmap bitmap = createBackground();
+            Bitmap bitmap = loadBackground();
             if (mGameEventListener.backgroundReady(bitmap))
                 mSurfaceDrawingTask.setDrawMode(SurfaceDrawingTask.ANIMATION_DRAW);
             else
@@ -372,6 +514,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
 
             if (mState == LOADING)
                 mState = WAITING;
+            resumeLoops(running);
         }
         redrawView();
 
@@ -382,18 +525,45 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     public void surfaceDestroyed(SurfaceHolder holder) {}
 
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        //the layout editor only draws the view, the game is never run
+        if (isInEditMode() || mGameLoop != null)
+            return;
+        startLoops();
+        //a game that was started or resumed before the view was attached
+        if (mState == RUNNING)
+            mGameLoop.play(mStartTime + mTotalPauseDelay);
+    }
+
+
+    @Override
+    protected void onDetachedFromWindow() {
+        if (mGameLoop != null) {
+            mGameLoop.quit();
+            mSimulationLoop.quit();
+            mGameLoop = null;
+            mSimulationLoop = null;
+        }
+        super.onDetachedFromWindow();
+    }
+
+
     //this method is used so that android studio can render the view
     @Override
     protected void onDraw(Canvas canvas) {
         mRectangleContainer.setContainerSize(getWidth(), getHeight());
+        pauseLoops();
         mGameManager.setFrameSize(mRectangleContainer.getRectangleWidth(), mRectangleContainer.getRectangleHeight());
         //mSurfaceDrawingTask.doDraw(canvas);
+        mGameManager.prepareIdleFrame();
         mRectangleContainer.drawBorder(canvas);
         canvas.save();
         canvas.clipRect(mRectangleContainer.getLeft(), mRectangleContainer.getTop(),
                 mRectangleContainer.getRight(), mRectangleContainer.getBottom());
 
-        mGameManager.drawFull(canvas);
+        mGameManager.drawFull(canvas, mRectangleContainer.getLeft(), mRectangleContainer.getTop());
         //draw path
         canvas.restore();
     }
@@ -411,7 +581,9 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         bundle.putLong(START_TIME_KEY, mStartTime);
         bundle.putLong(PAUSE_TIME_KEY, mPauseTime);
         bundle.putLong(TOTAL_PAUSE_DELAY_KEY, mTotalPauseDelay);
+        boolean running = pauseLoops();
         mGameManager.saveState(bundle);
+        resumeLoops(running);
         return bundle;
     }
 
@@ -431,6 +603,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
             mTotalPauseDelay = bundle.getLong(TOTAL_PAUSE_DELAY_KEY, 0);
             state = bundle.getParcelable("instanceState");
             mRectangleContainer.setContainerSize(mWidth, mHeight);
+            pauseLoops();
             mGameManager.setFrameSize(mRectangleContainer.getRectangleWidth(), mRectangleContainer.getRectangleHeight());
 
             mGameManager.restoreState(bundle);
@@ -450,7 +623,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
 
 
     @Override
-    public void taskEnded(ArrayList<GameManager.DirectionChangeRequest> list) {
+    public void taskEnded(ArrayList<GameEngine.DirectionChangeRequest> list) {
         //redraw the canvas without the swipe indicators
         redrawView();
         mSwipeListener.disable();
@@ -464,10 +637,11 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
 
 
     @Override
-    public void onRegionSwipe(int playerNumber, Compass direction, long swipeTime) {
+    public void onRegionSwipe(int playerNumber, Compass direction, long swipeTime, long eventTime,
+                              long recognizeTime) {
             if( mState != RUNNING )
                 return;
-            requestDirectionChange(playerNumber, direction, swipeTime);
+            requestDirectionChange(playerNumber, direction, swipeTime, eventTime, recognizeTime);
     }
 
 
@@ -480,7 +654,9 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         description.addMember("mTotalPauseDelay", mTotalPauseDelay);
 
         description.addClassMember("mRectangleContainer", mRectangleContainer);
-        description.addClassMember("mSurfaceDrawingTask", mSurfaceDrawingTask);
+        description.addClassMember("mGameLoop", mGameLoop);
+        description.addClassMember("mSimulationLoop", mSimulationLoop);
+        description.addClassMember("mFrameScheduler", mFrameScheduler);
         description.addClassMember("mGameManager", mGameManager);
 
         return description.getString();
@@ -0,0 +1,119 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.util.DisplayMetrics;
+
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.InputLatencyTracker;
+import com.yckir.cyclebattledemo.engine.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * Debug overlay that shows the percentiles of every stage of an {@link InputLatencyTracker} in
+ * the top left corner of the surface. Formatting the text allocates, so it is only done every
+ * {@link #REFRESH_INTERVAL} milliseconds, in between the same text is drawn again.
+ */
+public class LatencyOverlay {
+    public  static final String     TAG                     =   "LATENCY_OVERLAY";
+    private static final long       REFRESH_INTERVAL        =   500;
+    private static final long       NANOS_PER_MILLI         =   1000000;
+    private static final float      TEXT_SIZE_DP            =   12;
+    private static final float      MARGIN_DP               =   4;
+
+    private final InputLatencyTracker mTracker;
+    private final Paint mTextPaint;
+    private final Paint mBackgroundPaint;
+    private final String[] mLines;
+    private final float mLineHeight;
+    private final float mMargin;
+    private final Rect mBounds = new Rect();
+    private long mLastRefresh;
+
+
+    /**
+     * @param tracker the tracker whose histograms are shown
+     * @param metrics used to size the text
+     */
+    public LatencyOverlay(InputLatencyTracker tracker, DisplayMetrics metrics){
+        mTracker = tracker;
+
+        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setColor(Color.WHITE);
+        mTextPaint.setTextSize(TEXT_SIZE_DP * metrics.density);
+        mTextPaint.setTypeface(Typeface.MONOSPACE);
+
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setColor(Color.BLACK);
+        mBackgroundPaint.setAlpha(160);
+
+        mLineHeight = mTextPaint.getFontSpacing();
+        mMargin = MARGIN_DP * metrics.density;
+        mLines = new String[InputLatencyTracker.NUM_STAGES + 1];
+        mLastRefresh = System.nanoTime();
+        refresh();
+    }
+
+
+    /**
+     * Format the text again from the current histograms.
+     */
+    private void refresh(){
+        mLines[0] = String.format(Locale.US, "%-9s %6s %6s %6s %5s", "ms", "p50", "p90", "p99", "n");
+        float width = mTextPaint.measureText(mLines[0]);
+        for(int i = 0; i < InputLatencyTracker.NUM_STAGES; i++){
+            LatencyHistogram histogram = mTracker.getHistogram(i);
+            mLines[i + 1] = String.format(Locale.US, "%-9s %6.1f %6.1f %6.1f %5d",
+                    InputLatencyTracker.getStageName(i),
+                    (double) histogram.getPercentile(50) / NANOS_PER_MILLI,
+                    (double) histogram.getPercentile(90) / NANOS_PER_MILLI,
+                    (double) histogram.getPercentile(99) / NANOS_PER_MILLI,
+                    histogram.getCount());
+            width = Math.max(width, mTextPaint.measureText(mLines[i + 1]));
+        }
+        mBounds.set(0, 0, (int) Math.ceil(width + 2 * mMargin),
+                (int) Math.ceil(mLines.length * mLineHeight + 2 * mMargin));
+    }
+
+
+    /**
+     * Add the area of the overlay to the damage of a frame. The overlay is drawn on every frame,
+     * so it is always part of the damage.
+     *
+     * @param damage the damage of the frame
+     */
+    public void addBounds(Rect damage){
+        damage.union(mBounds);
+    }
+
+
+    /**
+     * Draw the overlay, refreshing the text first if it is old enough.
+     *
+     * @param canvas the canvas of the surface
+     * @param frameTime the time of the frame in nanoseconds on the {@link System#nanoTime()} clock
+     */
+    public void draw(Canvas canvas, long frameTime){
+        if(frameTime - mLastRefresh >= REFRESH_INTERVAL * NANOS_PER_MILLI){
+            mLastRefresh = frameTime;
+            refresh();
+        }
+        canvas.drawRect(mBounds, mBackgroundPaint);
+        float baseline = mMargin - mTextPaint.ascent();
+        for(int i = 0; i < mLines.length; i++)
+            canvas.drawText(mLines[i], mMargin, baseline + i * mLineHeight, mTextPaint);
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mLastRefresh", mLastRefresh);
+        description.addClassMember("mTracker", mTracker);
+        return description.getString();
+    }
+}
@@ -5,7 +5,7 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.util.Log;
 
-import com.yckir.cyclebattledemo.utility.ClassStateString;
+import com.yckir.cyclebattledemo.engine.ClassStateString;
 
 /**
  * Given a canvas, you can specify a rectangle at its center and this class will draw a colored
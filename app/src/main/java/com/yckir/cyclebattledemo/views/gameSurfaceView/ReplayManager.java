@@ -5,26 +5,26 @@ import android.os.Handler;
 import android.os.Message;
 import android.util.Log;
 
-import com.yckir.cyclebattledemo.utility.Compass;
-import com.yckir.cyclebattledemo.views.gameSurfaceView.GameManager;
+import com.yckir.cyclebattledemo.engine.Compass;
+import com.yckir.cyclebattledemo.engine.GameEngine;
 import com.yckir.cyclebattledemo.views.gameSurfaceView.GameSurfaceView;
 
 import java.util.ArrayList;
 
 public class ReplayManager {
     public static final String TAG = "GAME_REPLAY";
-    private ArrayList<GameManager.DirectionChangeRequest> mList;
+    private ArrayList<GameEngine.DirectionChangeRequest> mList;
     private GameSurfaceView mGameSurfaceView;
     private MyHandler mHandler;
 
-    public ReplayManager(ArrayList<GameManager.DirectionChangeRequest> list, GameSurfaceView gameSurfaceView){
+    public ReplayManager(ArrayList<GameEngine.DirectionChangeRequest> list, GameSurfaceView gameSurfaceView){
         mList = list;
         mGameSurfaceView=gameSurfaceView;
         mHandler = new MyHandler();
     }
 
     public void play(){
-        GameManager.DirectionChangeRequest request;
+        GameEngine.DirectionChangeRequest request;
         long startTime = System.currentTimeMillis();
         Bundle bundle;
         Message message;
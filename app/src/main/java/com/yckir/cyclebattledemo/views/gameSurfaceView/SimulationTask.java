@@ -0,0 +1,119 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.GameEngine;
+import com.yckir.cyclebattledemo.engine.TickScheduler;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates the game on the thread of its own {@link GameLoop}, apart from the thread that draws
+ * it. Every tick is run once it is due, and the state of the game after it is published for the
+ * drawing thread, see {@link GameManager#advance(long)}. A slow frame does not hold back the game
+ * and a slow tick does not hold back drawing, so on a device with more than one core the two
+ * overlap. Turns and crashes are posted to the listener on the ui thread.
+ * <p>
+ * Between ticks the thread is parked, pausing the loop unparks it so that it stops right away.
+ */
+public class SimulationTask implements GameLoop.Task {
+    public  static final String     TAG                     =   "SIMULATION_TASK";
+    private static final long       NANOS_PER_MILLI         =   1000000;
+
+    private final GameManager mGameManager;
+    private GameSurfaceView.GameEventListener mGameEventListener = null;
+
+    /**
+     * posts the events of the game to the ui thread, the runnables are reused so that a tick with
+     * an event does not make one
+     */
+    private final Handler mUiHandler;
+    private final Runnable mTurnNotifier;
+    private final Runnable mCrashNotifier;
+
+
+    /**
+     * Constructs a task that simulates the game of a manager. It must be constructed on the ui
+     * thread.
+     *
+     * @param gameManager holds the game, its snapshots are published by this task
+     */
+    public SimulationTask(GameManager gameManager){
+        mGameManager = gameManager;
+        mUiHandler = new Handler(Looper.getMainLooper());
+        mTurnNotifier = new Runnable() {
+            @Override
+            public void run() {
+                if (mGameEventListener != null)
+                    mGameEventListener.directionChange();
+            }
+        };
+        mCrashNotifier = new Runnable() {
+            @Override
+            public void run() {
+                if (mGameEventListener != null)
+                    mGameEventListener.crash();
+            }
+        };
+    }
+
+
+    /**
+     * Set the listener that is told about turns and crashes. Must be called on the ui thread.
+     *
+     * @param listener the listener, null to not notify one
+     */
+    public void setGameEventListener(GameSurfaceView.GameEventListener listener){
+        mGameEventListener = listener;
+    }
+
+
+    /**
+     * Runs every tick as it becomes due until all but one cycle crash.
+     */
+    @Override
+    public boolean runGame(long startTime, GameLoop loop) {
+        TickScheduler scheduler = mGameManager.getEngine().getScheduler();
+        while (loop.isRunning(startTime) && mGameManager.isRunning()) {
+            int events = mGameManager.advance(System.currentTimeMillis() - startTime);
+            if ((events & GameEngine.TURN_EVENT) != 0)
+                mUiHandler.post(mTurnNotifier);
+            if ((events & GameEngine.CRASH_EVENT) != 0)
+                mUiHandler.post(mCrashNotifier);
+            if (!mGameManager.isRunning())
+                break;
+
+            //the tick times are rounded down to whole milliseconds, parking for at least one
+            //keeps the thread from spinning until a tick that is almost due
+            long nextTick = scheduler.getTickTime(scheduler.getTick() + 1) +
+                    scheduler.getDroppedTime();
+            long delay = nextTick - (System.currentTimeMillis() - startTime);
+            LockSupport.parkNanos(this, Math.max(1, delay) * NANOS_PER_MILLI);
+        }
+        return !mGameManager.isRunning();
+    }
+
+
+    /**
+     * Nothing to do, the thread only waits by parking.
+     */
+    @Override
+    public void wake() {}
+
+
+    /**
+     * Nothing to do, the drawing task tells the ui once it has drawn the end of the game.
+     */
+    @Override
+    public void gameEnded() {}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("tick", mGameManager.getEngine().getScheduler().getTick());
+        return description.getString();
+    }
+}
@@ -4,24 +4,39 @@ package com.yckir.cyclebattledemo.views.gameSurfaceView;
 import android.graphics.Canvas;
 
 import android.graphics.PorterDuff;
-import android.os.AsyncTask;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.IntDef;
 import android.util.Log;
 import android.view.SurfaceHolder;
 
-import com.yckir.cyclebattledemo.utility.ClassStateString;
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.GameEngine;
 import com.yckir.cyclebattledemo.utility.FourRegionSwipeDetector;
 
+import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 
 /**
- * Draws on a canvas supplied by a SurfaceHolder and runs on separate thread.
- * What gets drawn is based on the current
- * {@link com.yckir.cyclebattledemo.views.gameSurfaceView.SurfaceDrawingTask.Draw_Mode}.
+ * Draws on a canvas supplied by a SurfaceHolder. The game is drawn by the thread of a
+ * {@link GameLoop}, and the listener is notified on the ui thread. What gets drawn is based on the
+ * current {@link com.yckir.cyclebattledemo.views.gameSurfaceView.SurfaceDrawingTask.Draw_Mode}.
+ * <p>
+ * The game is simulated by a {@link SimulationTask} on a second loop, which is played and paused
+ * with this one. Each frame draws the newest snapshot of the game that the simulation published,
+ * see {@link GameManager#prepareFrame(long)}, so drawing never waits for a tick or the other way
+ * around.
+ * <p>
+ * While the game is running only the damaged part of the surface is locked and redrawn. The
+ * damage of a frame is where the paths grew, where the cycles and touch indicators are, and where
+ * the cycles and touch indicators were on the previous frame. The rest of the surface keeps what
+ * was posted before. The whole surface is redrawn on the first frame, after the draw mode
+ * changes, and whenever the damage covers more than {@link #MAX_DAMAGE_FRACTION} of it.
  */
-public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
+public class SurfaceDrawingTask implements GameLoop.Task {
 
     /**
      * Id's that are used to determine what will be drawn in the {@link #draw(Canvas)} method.<p>
@@ -49,25 +64,46 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
 
     public static String TAG="SURFACE_DRAWING_TASK";
 
-    private static final int TURN_ID = 0;
-    private static final int CRASH_ID = 1;
+    /**
+     * if more than this much of the surface is damaged, the whole surface is redrawn
+     */
+    private static final double MAX_DAMAGE_FRACTION = 0.5;
 
     private final SurfaceHolder mSurfaceHolder;
     private final GameManager mGameManager;
     private final RectangleContainer mRectangleContainer;
     private DrawingTaskListener mDrawingEventListener;
     private FourRegionSwipeDetector mDetector = null;
-    private GameSurfaceView.GameEventListener mGameEventListener = null;
+    private FrameScheduler mFrameScheduler = null;
+    private LatencyOverlay mLatencyOverlay = null;
+    private GameLoop mSimulation = null;
+
+    /**
+     * posts the end of the game to the ui thread
+     */
+    private final Handler mUiHandler;
+    private final Runnable mEndNotifier;
 
     private long mTotalTaskDelay;
     private long mTotalUpdatePositionDelay;
     private long mTotalDrawDelay;
     private int mDrawingMode;
     private int mFrames = 0 ;
+    private int mPartialFrames = 0;
+
+    /**
+     * the damage of the current frame, the damage of the previous frame without where it was
+     * redrawn, and the area that was locked
+     */
+    private final Rect mDamage = new Rect();
+    private final Rect mPreviousDamage = new Rect();
+    private final Rect mDirty = new Rect();
+    private volatile boolean mFullRedraw = true;
 
 
     /**
-     * Constructs drawing task that draws on the canvas provided by a surface holder.
+     * Constructs drawing task that draws on the canvas provided by a surface holder. It must be
+     * constructed on the ui thread.
      *
      * @param holder used to retrieve canvas to draw on
      * @param gameManager holds the game information and knows how to draw the game into a canvas
@@ -84,11 +120,21 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
         mRectangleContainer = rectangleContainer;
         mDrawingEventListener = null;
         mDrawingMode = drawMode;
+
+        mUiHandler = new Handler(Looper.getMainLooper());
+        mEndNotifier = new Runnable() {
+            @Override
+            public void run() {
+                ArrayList<GameEngine.DirectionChangeRequest> list = mGameManager.getReplay();
+                if (mDrawingEventListener != null)
+                    mDrawingEventListener.taskEnded(list);
+            }
+        };
     }
 
 
     /**
-     * Add a listener that will be notified when the task ends.
+     * Add a listener that will be notified when a game ends.
      *
      * @param listener the listener that will be notified
      */
@@ -97,8 +143,14 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
     }
 
 
-    public void addGameEventListener(GameSurfaceView.GameEventListener listener){
-        mGameEventListener = listener;
+    /**
+     * Set the loop that simulates the game while it is drawn. It is played when this task starts
+     * drawing, and paused when this task stops.
+     *
+     * @param simulation a loop that runs a {@link SimulationTask} for the same game
+     */
+    public void setSimulation(GameLoop simulation){
+        mSimulation = simulation;
     }
 
 
@@ -112,6 +164,28 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
     }
 
 
+    /**
+     * Set the scheduler that paces the frames. Without one, frames are drawn as fast as the
+     * surface can be locked.
+     *
+     * @param scheduler decides when each frame starts
+     */
+    public void setFrameScheduler(FrameScheduler scheduler){
+        mFrameScheduler = scheduler;
+    }
+
+
+    /**
+     * Set the overlay that shows the input latency. The latency report is exported when the task
+     * ends if there is one.
+     *
+     * @param overlay the overlay to draw over every frame, null to not draw one
+     */
+    public void setLatencyOverlay(LatencyOverlay overlay){
+        mLatencyOverlay = overlay;
+    }
+
+
     /**
      * Set the behavior for draw behavior.
      * See {@link com.yckir.cyclebattledemo.views.gameSurfaceView.SurfaceDrawingTask.Draw_Mode}
@@ -121,6 +195,7 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
      */
     public void setDrawMode(@Draw_Mode int mode){
         mDrawingMode = mode;
+        mFullRedraw = true;
 
         // the rectangle color is changed so that the modes can be distinguished while debugging
         //if(mode == FULL_DRAW)
@@ -145,70 +220,137 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
 
 
     /**
-     * Runs until all but one cycle crash.
-     *
-     * @param params the start time of the animation
-     * @return null
+     * Draws frames until the end of the game was drawn or the loop is paused. The simulation is
+     * played while frames are drawn, and is idle again when this returns.
      */
     @Override
-    protected Void doInBackground(Long... params) {
-        long start =params[0];
+    public boolean runGame(long start, GameLoop loop) {
         long frameStartTime = 1;
         Log.v(TAG, "starting at time " + start);
-        while (mGameManager.isRunning()) {
-            mFrames ++;
-            frameStartTime = System.currentTimeMillis() - start;
-
-            if(mGameManager.checkDirectionChangeRequests()){
-                publishProgress(TURN_ID);
+        mFrames = 0;
+        mPartialFrames = 0;
+        mPreviousDamage.setEmpty();
+        mFullRedraw = true;
+
+        //the simulation is idle, so this thread can publish the state the game is continued from
+        mGameManager.publishSnapshot();
+        if (mSimulation != null)
+            mSimulation.play(start);
+        if (mFrameScheduler != null)
+            mFrameScheduler.start();
+        boolean running = true;
+        try {
+            while (running && loop.isRunning(start)) {
+                if (mFrameScheduler != null)
+                    mFrameScheduler.awaitFrame();
+                if (!loop.isRunning(start))
+                    break;
+                mFrames++;
+                frameStartTime = System.currentTimeMillis() - start;
+
+                //the game is only simulated on whole ticks, frames can be drawn at any rate
+                running = mGameManager.prepareFrame(frameStartTime);
+
+                Canvas canvas = lockDamage();
+                if (canvas == null)
+                    continue;
+                canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+                draw(canvas);
+                if (mDetector != null) {
+                    mDetector.drawTouch(canvas);
+                    mDetector.drawTouchBoundaries(canvas);
+                }
+                if (mLatencyOverlay != null)
+                    mLatencyOverlay.draw(canvas, System.nanoTime());
+                mSurfaceHolder.unlockCanvasAndPost(canvas);
+                mGameManager.framePosted(System.nanoTime());
             }
-
-            mGameManager.move(frameStartTime);
-            if( mGameManager.collisionDetection(frameStartTime) ){
-                publishProgress(CRASH_ID);
+        } catch (InterruptedException e) {
+            Log.e(TAG, "interrupted while waiting for a frame");
+        } finally {
+            if (mSimulation != null) {
+                mSimulation.pause();
+                mSimulation.awaitIdle();
             }
-
-            Canvas canvas = mSurfaceHolder.lockCanvas();
-            canvas.drawColor(0, PorterDuff.Mode.CLEAR);
-            draw(canvas);
-            if (mDetector != null) {
-                mDetector.drawTouch(canvas);
-                mDetector.drawTouchBoundaries(canvas);
+            if (mFrameScheduler != null) {
+                mFrameScheduler.stop();
+                Log.v(TAG, mFrameScheduler.getStats().toString());
             }
-            mSurfaceHolder.unlockCanvasAndPost(canvas);
         }
+        boolean ended = !mGameManager.isRunning();
         double time = frameStartTime /1000.0;
-        Log.v(TAG,"Done with task" +
+        Log.v(TAG,(ended ? "Game ended" : "Paused") +
                 ", frames = " + mFrames +
+                ", ticks = " + mGameManager.getEngine().getScheduler().getTick() +
                 ", time = " +time +
-                ", fps = " + ((double)mFrames/time));
-        return null;
+                ", fps = " + ((double)mFrames/time) +
+                ", partial frames = " + mPartialFrames);
+        if (ended && mLatencyOverlay != null) {
+            File report = mGameManager.exportLatencyReport();
+            Log.v(TAG, "latency report written to " + report);
+        }
+        return ended;
     }
 
 
-
+    /**
+     * Let the listener know on the ui thread that the game ended.
+     */
     @Override
-    protected void onProgressUpdate(Integer... values) {
-       if(mGameEventListener == null || values == null)
-           return;
-        if(values[0] == TURN_ID)
-           mGameEventListener.directionChange();
-        if(values[0] == CRASH_ID)
-            mGameEventListener.crash();
+    public void gameEnded() {
+        mUiHandler.post(mEndNotifier);
     }
 
 
+    /**
+     * Wake the drawing thread if it is waiting for a frame, so that it sees that the loop was
+     * paused or stopped.
+     */
     @Override
-    protected void onPostExecute(Void aVoid) {
-        ArrayList<GameManager.DirectionChangeRequest> list = mGameManager.getReplay();
-        //for(int i = 0; i < list.size(); i++)
-        //    Log.v(TAG,list.get(i).toString());
-        if(mDrawingEventListener !=null){
-            mDrawingEventListener.taskEnded(list);
+    public void wake() {
+        if (mFrameScheduler != null)
+            mFrameScheduler.stop();
+    }
+
+
+    /**
+     * Find the damage of the frame and lock the part of the surface that needs to be redrawn.
+     * The paths are brought up to date while the damage is found.
+     *
+     * @return the canvas to draw the frame on, it is clipped to the locked area. Null if the
+     *          surface could not be locked.
+     */
+    private Canvas lockDamage(){
+        int left = mRectangleContainer.getLeft();
+        int top = mRectangleContainer.getTop();
+
+        mDamage.setEmpty();
+        mGameManager.addAnimationDamage(mDamage, left, top);
+        if (mDetector != null)
+            mDetector.addTouchBounds(mDamage);
+        if (mLatencyOverlay != null)
+            mLatencyOverlay.addBounds(mDamage);
+
+        //what was drawn last frame has to be erased
+        mDirty.set(mDamage);
+        mDirty.union(mPreviousDamage);
+        mPreviousDamage.set(mDamage);
+
+        Rect surface = mSurfaceHolder.getSurfaceFrame();
+        double surfaceArea = (double) surface.width() * surface.height();
+        double damageArea = (double) mDirty.width() * mDirty.height();
+
+        if (mFullRedraw || mDirty.isEmpty() || damageArea > surfaceArea * MAX_DAMAGE_FRACTION) {
+            mFullRedraw = false;
+            return mSurfaceHolder.lockCanvas();
         }
+        mPartialFrames++;
+        //the surface may lock a larger area than requested, mDirty is updated to that area
+        return mSurfaceHolder.lockCanvas(mDirty);
     }
 
 
+
     /**
      * draw onto the given canvas. What will be drawn will depend on the current
      * {@link com.yckir.cyclebattledemo.views.gameSurfaceView.SurfaceDrawingTask.Draw_Mode} value.
@@ -225,7 +367,8 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
                 canvas.clipRect(mRectangleContainer.getLeft(), mRectangleContainer.getTop(),
                         mRectangleContainer.getRight(), mRectangleContainer.getBottom());
 
-                mGameManager.drawFull(canvas);
+                mGameManager.drawFull(canvas, mRectangleContainer.getLeft(),
+                        mRectangleContainer.getTop());
                 canvas.restore();
                 break;
 
@@ -234,7 +377,8 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
                 canvas.clipRect(mRectangleContainer.getLeft(), mRectangleContainer.getTop(),
                         mRectangleContainer.getRight(), mRectangleContainer.getBottom());
 
-                mGameManager.drawAnimation( canvas );
+                mGameManager.drawAnimation(canvas, mRectangleContainer.getLeft(),
+                        mRectangleContainer.getTop());
                 canvas.restore();
                 break;
 
@@ -244,7 +388,8 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
                 canvas.clipRect(mRectangleContainer.getLeft(), mRectangleContainer.getTop(),
                         mRectangleContainer.getRight(), mRectangleContainer.getBottom());
 
-                mGameManager.drawBackground(canvas);
+                mGameManager.drawBackground(canvas, mRectangleContainer.getLeft(),
+                        mRectangleContainer.getTop());
                 canvas.restore();
                 break;
         }
@@ -295,19 +440,20 @@ public class SurfaceDrawingTask extends AsyncTask<Long, Integer, Void>{
         description.addMember("mTotalTaskDelay", mTotalTaskDelay);
         description.addMember("mTotalUpdatePositionDelay", mTotalUpdatePositionDelay);
         description.addMember("mTotalDrawDelay", mTotalDrawDelay);
+        description.addMember("mPartialFrames", mPartialFrames);
         return description.getString();
     }
 
 
     /**
-     * Interface that responds when the task finishes execution.
+     * Interface that responds when a game ends.
      */
     public interface DrawingTaskListener {
 
         /**
-         * called when the task finishes execution.
+         * called on the ui thread when all but one cycle crashed.
          * @param replay a replay of the match that ended.
          */
-        void taskEnded(ArrayList<GameManager.DirectionChangeRequest> replay);
+        void taskEnded(ArrayList<GameEngine.DirectionChangeRequest> replay);
     }
 }
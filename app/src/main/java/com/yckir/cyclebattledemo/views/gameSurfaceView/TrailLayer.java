@@ -0,0 +1,233 @@
+package com.yckir.cyclebattledemo.views.gameSurfaceView;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+import com.yckir.cyclebattledemo.engine.ClassStateString;
+import com.yckir.cyclebattledemo.engine.Cycle;
+import com.yckir.cyclebattledemo.engine.FrameInterpolator;
+import com.yckir.cyclebattledemo.engine.GameRenderer;
+import com.yckir.cyclebattledemo.engine.LinePath;
+import com.yckir.cyclebattledemo.engine.ScreenTransform;
+
+import java.util.Arrays;
+
+/**
+ * An off-screen bitmap that holds the paths of every cycle in a match. Paths only grow, so each
+ * frame only the part of a path that was added since the previous frame is painted onto the
+ * bitmap, and the bitmap is put on the animation frame with a single draw call. The cost of a
+ * frame no longer depends on how long the paths are.
+ * <p>
+ * With a {@link FrameInterpolator}, a path is only painted up to where the interpolator ends it,
+ * the extension of a path that is drawn ahead of the last tick is never painted. If a path got
+ * shorter, which happens when a late direction change bends its last line, the match is replaced,
+ * or extrapolation is turned off, the bitmap is cleared and every path is painted again.
+ * <p>
+ * Painting and drawing are separate steps so that the area that was painted can be known before
+ * the surface is locked, see
+ * {@link #update(Cycle[], CycleDrawer[], ScreenTransform, FrameInterpolator, Rect)}.
+ */
+public class TrailLayer {
+    public static final String TAG = "TRAIL_LAYER";
+
+    //the end of an interpolated path can come out a little shorter because of rounding
+    private static final double SHRINK_TOLERANCE = 1e-6;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private int mWidth;
+    private int mHeight;
+
+    /**
+     * the last line of each path that was painted and how much of that line was painted
+     */
+    private int[] mPaintedLines;
+    private double[] mPaintedLengths;
+
+    private volatile boolean mInvalid;
+
+    /**
+     * left, top, right, and bottom of the last path segment added to the batch
+     */
+    private final int[] mSegment;
+
+    /**
+     * the segments of one path that are painted together, reused for every path and frame
+     */
+    private final Path mBatch;
+
+
+    /**
+     * Creates an empty layer. The bitmap is created the first time the layer is drawn.
+     */
+    public TrailLayer(){
+        mPaintedLines = new int[0];
+        mPaintedLengths = new double[0];
+        mInvalid = true;
+        mSegment = new int[4];
+        mBatch = new Path();
+    }
+
+
+    /**
+     * Set the size of the bitmap, it should be the size of the animation frame. The paths are
+     * painted again on the next draw.
+     *
+     * @param width the width of the animation frame
+     * @param height the height of the animation frame
+     */
+    public void setSize(int width, int height){
+        mWidth = width;
+        mHeight = height;
+        mInvalid = true;
+    }
+
+
+    /**
+     * Clear the bitmap and paint every path again on the next draw. This must be called when the
+     * cycles are replaced or restored.
+     */
+    public void invalidate(){
+        mInvalid = true;
+    }
+
+
+    /**
+     * Paint what the paths grew since the previous call onto the bitmap.
+     *
+     * @param cycles the cycles whose paths are painted
+     * @param drawers the drawer of each cycle
+     * @param transform maps the grid onto the animation frame
+     * @param interpolator where each path ends on this frame, null to paint the whole paths
+     * @param damage if not null, the area of the bitmap that was painted is added to it. This is
+     *               measured from the top left corner of the animation frame.
+     * @return true if the bitmap was cleared and every path was painted again, the damage is then
+     *         the whole bitmap
+     */
+    public boolean update(Cycle[] cycles, CycleDrawer[] drawers, ScreenTransform transform,
+                          FrameInterpolator interpolator, Rect damage){
+        if(mWidth <= 0 || mHeight <= 0)
+            return false;
+
+        boolean cleared = false;
+        if(mBitmap == null || mBitmap.getWidth() != mWidth || mBitmap.getHeight() != mHeight){
+            if(mBitmap != null)
+                mBitmap.recycle();
+            mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+            mInvalid = true;
+        }
+        if(mPaintedLines.length != cycles.length){
+            mPaintedLines = new int[cycles.length];
+            mPaintedLengths = new double[cycles.length];
+            mInvalid = true;
+        }
+        if(mInvalid || pathShrunk(cycles, interpolator)) {
+            clear();
+            cleared = true;
+        }
+
+        for(int i = 0; i < cycles.length; i++) {
+            LinePath path = cycles[i].getPath();
+            if(interpolator == null)
+                paintGrowth(i, path, path.getNumLines(), path.getLineLength(path.getNumLines()),
+                        drawers[i], transform, damage);
+            else
+                paintGrowth(i, path, interpolator.getHeadLine(i), interpolator.getHeadLength(i),
+                        drawers[i], transform, damage);
+        }
+
+        if(cleared && damage != null)
+            damage.union(0, 0, mWidth, mHeight);
+        return cleared;
+    }
+
+
+    /**
+     * Draw the bitmap. Paths are only up to date after calling
+     * {@link #update(Cycle[], CycleDrawer[], ScreenTransform, FrameInterpolator, Rect)}.
+     *
+     * @param canvas the canvas to draw on
+     * @param frameLeft the x coordinate of the left edge of the animation frame on the canvas
+     * @param frameTop the y coordinate of the top edge of the animation frame on the canvas
+     */
+    public void draw(Canvas canvas, int frameLeft, int frameTop){
+        if(mBitmap != null)
+            canvas.drawBitmap(mBitmap, frameLeft, frameTop, null);
+    }
+
+
+    /**
+     * @return true if a path no longer covers something that was painted
+     */
+    private boolean pathShrunk(Cycle[] cycles, FrameInterpolator interpolator){
+        for(int i = 0; i < cycles.length; i++){
+            LinePath path = cycles[i].getPath();
+            int lastLine = interpolator == null ? path.getNumLines() : interpolator.getHeadLine(i);
+            if(lastLine < mPaintedLines[i])
+                return true;
+            double length = path.getLineLength(mPaintedLines[i]);
+            if(interpolator != null && lastLine == mPaintedLines[i])
+                length = interpolator.getHeadLength(i);
+            if(length < mPaintedLengths[i] - SHRINK_TOLERANCE)
+                return true;
+        }
+        return false;
+    }
+
+
+    private void clear(){
+        mInvalid = false;
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        Arrays.fill(mPaintedLines, 1);
+        Arrays.fill(mPaintedLengths, 0);
+    }
+
+
+    /**
+     * Paint the part of a path that was not painted yet, starting with the rest of the last line
+     * that was painted and ending part way along the given line. Every segment is added to one
+     * batch so that the whole part is painted with a single draw call, even when every path is
+     * painted again.
+     */
+    private void paintGrowth(int cycle, LinePath path, int lastLine, double lastLength,
+                             CycleDrawer drawer, ScreenTransform transform, Rect damage){
+        int line = mPaintedLines[cycle];
+        double painted = mPaintedLengths[cycle];
+        double length;
+        boolean empty = true;
+
+        mBatch.rewind();
+        while(true){
+            length = line == lastLine ? Math.max(lastLength, painted) : path.getLineLength(line);
+            if(length > painted) {
+                GameRenderer.getSegmentBounds(path, line, painted, length, transform, mSegment);
+                CycleDrawer.addPathSegment(mBatch, mSegment);
+                empty = false;
+                if(damage != null)
+                    damage.union(mSegment[0], mSegment[1], mSegment[2], mSegment[3]);
+            }
+            if(line == lastLine)
+                break;
+            line++;
+            painted = 0;
+        }
+        if(!empty)
+            drawer.drawPathBatch(mCanvas, mBatch);
+        mPaintedLines[cycle] = line;
+        mPaintedLengths[cycle] = length;
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mWidth", mWidth);
+        description.addMember("mHeight", mHeight);
+        description.addMember("mInvalid", mInvalid);
+        return description.getString();
+    }
+}
@@ -2,8 +2,8 @@ package com.yckir.cyclebattledemo;
 
 import android.graphics.Paint;
 
+import com.yckir.cyclebattledemo.engine.Grid;
 import com.yckir.cyclebattledemo.views.gameSurfaceView.GameManager;
-import com.yckir.cyclebattledemo.views.gameSurfaceView.Grid;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,7 +42,7 @@ public class GameManagerTest {
         assertEquals(mGameManager1.getFrameWidth(), mGameManager1.getFrameGridWidth());
         assertEquals(mGameManager1.getFrameHeight(), mGameManager1.getFrameGridHeight());
 
-        assertEquals(100, (int) GameManager.SCREEN_GRID_TILE.getLength());
+        assertEquals(100, mGameManager1.getTransform().getTileLength());
 
         assertEquals(0, mGameManager1.getGridPaddingX()*2 );
         assertEquals(0, mGameManager1.getGridPaddingY() * 2);
@@ -55,7 +55,7 @@ public class GameManagerTest {
         assertEquals(333, mGameManager2.getGridPaddingX()*2+ mGameManager2.getFrameGridWidth());
         assertEquals(899, mGameManager2.getGridPaddingY() * 2 + mGameManager2.getFrameGridHeight());
 
-        assertEquals(47, (int) GameManager.SCREEN_GRID_TILE.getLength());
+        assertEquals(47, mGameManager2.getTransform().getTileLength());
 
         assertEquals(329, mGameManager2.getFrameGridWidth());
         assertEquals(517, mGameManager2.getFrameGridHeight());
@@ -75,7 +75,11 @@ public class GameManagerTest {
         assertEquals(180, mGameManager3.getFrameGridWidth());
         assertEquals(990, mGameManager3.getFrameGridHeight());
 
-        assertEquals(90,(int) GameManager.SCREEN_GRID_TILE.getLength());
+        assertEquals(90, mGameManager3.getTransform().getTileLength());
+
+        //each manager keeps its own transform
+        assertEquals(100, mGameManager1.getTransform().getTileLength());
+        assertEquals(47, mGameManager2.getTransform().getTileLength());
 
         assertEquals(120, 2* mGameManager3.getGridPaddingX());
         assertEquals(8, mGameManager3.getGridPaddingY() * 2);
@@ -0,0 +1,202 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.util.Arrays;
+
+/**
+ * Finds the cycles that could have collided with each other during a step using sort and sweep.
+ * Each cycle is given a box that covers its rectangle and every area its path grew into since the
+ * growth was last committed, which includes everything the cycle swept through during the step.
+ * The boxes are sorted by their left side and swept from left to right. Only cycles whose boxes
+ * overlap become candidates for the exact tests in {@link GameEngine#collisionDetection(long)}.
+ * <p>
+ * The order of the boxes is kept between steps. Cycles only move a short distance each step, so
+ * the order barely changes and the insertion sort is close to linear. No memory is allocated
+ * once the candidate arrays are large enough.
+ */
+public class BroadPhase {
+    public  static final String     TAG     =   "BROAD_PHASE";
+
+    private final int mNumCycles;
+
+    /**
+     * left, bottom, right, and top of the box of each cycle
+     */
+    private final double[] mBounds;
+
+    /**
+     * the cycles ordered by the left side of their boxes
+     */
+    private final int[] mOrder;
+
+    /**
+     * the candidates of cycle i are stored in mCandidates from mStart[i] up to mStart[i + 1]
+     */
+    private final int[] mStart;
+    private final int[] mFill;
+    private int[] mCandidates;
+
+    /**
+     * the two cycles of each overlapping pair found by the sweep
+     */
+    private int[] mPairs;
+    private int mNumPairs;
+
+
+    /**
+     * @param numCycles the number of cycles that will be tested
+     */
+    public BroadPhase(int numCycles){
+        mNumCycles = numCycles;
+        mBounds = new double[numCycles * 4];
+        mOrder = new int[numCycles];
+        mStart = new int[numCycles + 1];
+        mFill = new int[numCycles];
+        mCandidates = new int[numCycles * 2];
+        mPairs = new int[numCycles * 2];
+        mNumPairs = 0;
+        for( int i = 0; i < numCycles; i++ )
+            mOrder[i] = i;
+    }
+
+
+    /**
+     * Find the candidates of every cycle. This must be called after the cycles moved and before
+     * the growth of their paths is committed.
+     *
+     * @param cycles the cycles to test, the index of a cycle in this array is its id here
+     */
+    public void update(Cycle[] cycles){
+        for( int i = 0; i < mNumCycles; i++ ){
+            int index = i * 4;
+            mBounds[index] = cycles[i].getLeft();
+            mBounds[index + 1] = cycles[i].getBottom();
+            mBounds[index + 2] = cycles[i].getRight();
+            mBounds[index + 3] = cycles[i].getTop();
+            cycles[i].getPath().expandByGrowth(mBounds, index);
+        }
+
+        sortByLeft();
+        sweep();
+        buildCandidates();
+    }
+
+
+    /**
+     * Insertion sort of the cycles by the left side of their boxes.
+     */
+    private void sortByLeft(){
+        for( int i = 1; i < mNumCycles; i++ ){
+            int cycle = mOrder[i];
+            double left = mBounds[cycle * 4];
+            int j = i - 1;
+            while( j >= 0 && mBounds[mOrder[j] * 4] > left ){
+                mOrder[j + 1] = mOrder[j];
+                j--;
+            }
+            mOrder[j + 1] = cycle;
+        }
+    }
+
+
+    /**
+     * Walk the sorted boxes from left to right and record every pair that overlaps. A box only
+     * needs to be compared with the boxes that start before it ends.
+     */
+    private void sweep(){
+        mNumPairs = 0;
+        for( int i = 0; i < mNumCycles; i++ ){
+            int first = mOrder[i];
+            double right = mBounds[first * 4 + 2];
+            for( int j = i + 1; j < mNumCycles; j++ ){
+                int second = mOrder[j];
+                if( mBounds[second * 4] > right )
+                    break;
+                if( mBounds[first * 4 + 3] < mBounds[second * 4 + 1] ||
+                        mBounds[second * 4 + 3] < mBounds[first * 4 + 1] )
+                    continue;
+                addPair(first, second);
+            }
+        }
+    }
+
+
+    private void addPair(int first, int second){
+        if( mNumPairs * 2 == mPairs.length )
+            mPairs = Arrays.copyOf(mPairs, mPairs.length * 2);
+        mPairs[mNumPairs * 2] = first;
+        mPairs[mNumPairs * 2 + 1] = second;
+        mNumPairs++;
+    }
+
+
+    /**
+     * Turn the pairs into a list of candidates for each cycle, sorted by id so that the narrow
+     * phase tests cycles in the same order as a full pass would.
+     */
+    private void buildCandidates(){
+        Arrays.fill(mFill, 0);
+        for( int i = 0; i < mNumPairs * 2; i++ )
+            mFill[mPairs[i]]++;
+
+        mStart[0] = 0;
+        for( int i = 0; i < mNumCycles; i++ ){
+            mStart[i + 1] = mStart[i] + mFill[i];
+            mFill[i] = mStart[i];
+        }
+        if( mCandidates.length < mNumPairs * 2 )
+            mCandidates = new int[Math.max(mNumPairs * 2, mCandidates.length * 2)];
+
+        for( int i = 0; i < mNumPairs * 2; i += 2 ){
+            mCandidates[mFill[mPairs[i]]++] = mPairs[i + 1];
+            mCandidates[mFill[mPairs[i + 1]]++] = mPairs[i];
+        }
+
+        for( int cycle = 0; cycle < mNumCycles; cycle++ ){
+            for( int i = mStart[cycle] + 1; i < mStart[cycle + 1]; i++ ){
+                int candidate = mCandidates[i];
+                int j = i - 1;
+                while( j >= mStart[cycle] && mCandidates[j] > candidate ){
+                    mCandidates[j + 1] = mCandidates[j];
+                    j--;
+                }
+                mCandidates[j + 1] = candidate;
+            }
+        }
+    }
+
+
+    /**
+     * @param cycle the id of a cycle
+     * @return the number of cycles that could have collided with the cycle
+     */
+    public int getNumCandidates(int cycle){
+        return mStart[cycle + 1] - mStart[cycle];
+    }
+
+
+    /**
+     * @param cycle the id of a cycle
+     * @param n which candidate to get, candidates are sorted by id
+     * @return the id of a cycle that could have collided with the cycle
+     */
+    public int getCandidate(int cycle, int n){
+        return mCandidates[mStart[cycle] + n];
+    }
+
+
+    /**
+     * @return the number of pairs of cycles whose boxes overlapped during the last update
+     */
+    public int getNumPairs(){
+        return mNumPairs;
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mNumCycles", mNumCycles);
+        description.addMember("mNumPairs", mNumPairs);
+        return description.getString();
+    }
+}
@@ -1,4 +1,4 @@
-package com.yckir.cyclebattledemo.utility;
+package com.yckir.cyclebattledemo.engine;
 
 
 public class ClassStateString {
@@ -1,4 +1,4 @@
-package com.yckir.cyclebattledemo.utility;
+package com.yckir.cyclebattledemo.engine;
 
 /**
  * Used to identify the four compass directions. Java has the origin at the top left corner
@@ -64,6 +64,57 @@ public enum Compass {
     }
 
 
+    /**
+     * Moves a coordinate in the specified direction without creating a new point.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param distanceTraveled the distance to move
+     * @param direction the direction to move the coordinate. EAST and SOUTH are on the positive axis,
+     *                  WEST and NORTH are on the negative axis
+     * @param out the point that the moved coordinate is written into
+     */
+    public static void moveIndirection(double x, double y, double distanceTraveled,Compass direction,
+                                       Point out){
+        out.setPosition(moveX(x, distanceTraveled, direction), moveY(y, distanceTraveled, direction));
+    }
+
+
+    /**
+     * @param x the x coordinate
+     * @param distanceTraveled the distance to move
+     * @param direction the direction to move the coordinate.
+     * @return the x coordinate after moving in the specified direction
+     */
+    public static double moveX(double x, double distanceTraveled, Compass direction){
+        switch (direction) {
+            case EAST:
+                return x + distanceTraveled;
+            case WEST:
+                return x - distanceTraveled;
+            default:
+                return x;
+        }
+    }
+
+
+    /**
+     * @param y the y coordinate
+     * @param distanceTraveled the distance to move
+     * @param direction the direction to move the coordinate.
+     * @return the y coordinate after moving in the specified direction
+     */
+    public static double moveY(double y, double distanceTraveled, Compass direction){
+        switch (direction) {
+            case SOUTH:
+                return y + distanceTraveled;
+            case NORTH:
+                return y - distanceTraveled;
+            default:
+                return y;
+        }
+    }
+
+
     /**
      * Given two point p1 and p2, determines the direction that point p2 is relative to p1
      *
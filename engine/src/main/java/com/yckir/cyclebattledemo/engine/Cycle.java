@@ -1,28 +1,8 @@
-package com.yckir.cyclebattledemo.views.gameSurfaceView;
-
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Rect;
-import android.graphics.drawable.Drawable;
-import android.os.Bundle;
-import android.preference.PreferenceManager;
-import android.support.v4.content.res.ResourcesCompat;
-import android.util.Log;
-
-import com.yckir.cyclebattledemo.R;
-import com.yckir.cyclebattledemo.utility.ClassStateString;
-import com.yckir.cyclebattledemo.utility.Compass;
-import com.yckir.cyclebattledemo.utility.Point;
-import com.yckir.cyclebattledemo.utility.Tile;
-
+package com.yckir.cyclebattledemo.engine;
 
 /**
- *      A two dimensional rectangle that is capable of moving its position, recording its path,
- *      and being drawn. The with and height of the cycle will be swapped as the rectangular
- *      cycle rotates.
+ *      A two dimensional rectangle that is capable of moving its position and recording its path.
+ *      The with and height of the cycle will be swapped as the rectangular cycle rotates.
  *
  *      @author  Ricky Martinez
  */
@@ -40,22 +20,12 @@ public class Cycle extends GridRectangle {
     private static final String     WIDTH_KEY       =   TAG + ":WIDTH";
     private static final String     HEIGHT_KEY      =   TAG + ":HEIGHT";
     private final String TAG_ID;
-    private Drawable mCycleImageN;
-    private Drawable mCycleImageS;
-    private Drawable mCycleImageE;
-    private Drawable mCycleImageW;
 
     /**
      *  the id for this cycle
      */
     private int mCycleId;
 
-    /**
-     *  paint for this cycle
-     */
-    private Paint mLinePaint;
-
-
     /**
      * the name of the cycle, this is currently its color.
      */
@@ -94,37 +64,42 @@ public class Cycle extends GridRectangle {
      */
     private LinePath mPath;
 
+    /**
+     * the direction the cycle was traveling in when its area was last checked for collisions,
+     * null if it has not been checked since being created or restored.
+     */
+    private Compass mValidatedDirection;
+
+    /**
+     * the position of the front of the cycle along its direction of travel when its area was
+     * last checked for collisions. Everything behind this position has already been validated.
+     */
+    private double mValidatedFront;
+
 
     /**
      * Constructs a cycle with its center at the specified position.
-     * It is given a default color based on its Id.
+     * It is given a default name and direction based on its Id.
      *
      * @param centerX The center x position of the Cycle.
      * @param centerY The center y position of the Cycle.
      * @param width The vertical length of the cycle, length from front to rear.
      * @param height the horizontal length of the cycle, length from door to door.
-     * @param cycleId An Id for the cycle, this will also determine the color.
-     *                0-3 are red, yellow, green, and purple. Any other ID is blue.
+     * @param cycleId An Id for the cycle, this will also determine the name.
+     *                0-3 are red, green, yellow, and purple. Any other ID is blue.
+     * @param speed the speed of the cycle in tiles per second
      */
-    public Cycle(Context context, double centerX, double centerY, double width, double height, int cycleId) {
+    public Cycle(double centerX, double centerY, double width, double height, int cycleId, int speed) {
         super(centerX, centerY, width, height);
 
-        SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
-
-        String speed = pref.getString(
-                context.getResources().getString(R.string.pref_speed_key) ,
-                context.getResources().getString(R.string.pref_speed_default));
-
-        mSpeed = Integer.parseInt(speed);
-
+        mSpeed = speed;
         mCycleId = cycleId;
         TAG_ID = "-Cycle_" + mCycleId;
-        mLinePaint = new Paint();
         mDirection = Compass.SOUTH;
         mCrashed = false;
         mCrashTime = DEFAULT_TIME;
         mPlace = DEFAULT_PLACE;
-        setIdAttributes(context);
+        setIdAttributes();
         mPath=new LinePath(getRearX(), getRearY(), 0, mDirection);
     }
 
@@ -147,7 +122,7 @@ public class Cycle extends GridRectangle {
                 return getX() + getWidth() / 2;
 
             default:
-                Log.e(TAG, "could not determine direction");
+                EngineLog.e(TAG, "could not determine direction");
                 return 0;
         }
     }
@@ -171,7 +146,7 @@ public class Cycle extends GridRectangle {
                 return getY();
 
             default:
-                Log.e(TAG, "could not determine direction");
+                EngineLog.e(TAG, "could not determine direction");
                 return 0;
         }
     }
@@ -183,25 +158,36 @@ public class Cycle extends GridRectangle {
      * @param point a coordinate where the cycles rear will be placed
      */
     public void setRear(Point point){
+        setRear(point.getPositionX(), point.getPositionY());
+    }
+
+
+    /**
+     * Moves the cycles center coordinate so that its rear point is at the the given coordinate.
+     *
+     * @param rearX the x coordinate where the cycles rear will be placed
+     * @param rearY the y coordinate where the cycles rear will be placed
+     */
+    public void setRear(double rearX, double rearY){
         double x = 0;
         double y = 0;
 
         switch (mDirection) {
             case NORTH:
-                x = point.getPositionX();
-                y = point.getPositionY() - getHeight()/2;
+                x = rearX;
+                y = rearY - getHeight()/2;
                 break;
             case SOUTH:
-                x = point.getPositionX();
-                y = point.getPositionY() + getHeight()/2;
+                x = rearX;
+                y = rearY + getHeight()/2;
                 break;
             case EAST:
-                x = point.getPositionX() + getWidth()/2;
-                y = point.getPositionY();
+                x = rearX + getWidth()/2;
+                y = rearY;
                 break;
             case WEST:
-                x = point.getPositionX() - getWidth()/2;
-                y = point.getPositionY();
+                x = rearX - getWidth()/2;
+                y = rearY;
                 break;
         }
         setCenter(x,y);
@@ -223,62 +209,62 @@ public class Cycle extends GridRectangle {
 
 
     /**
-     * Determines the color and direction of the cycle based on its id.
+     * Determines the name and direction of the cycle based on its id. The directions repeat every
+     * four ids so that they match the side of the grid the cycle starts on, see
+     * {@link #getStartSide(int)}.
      */
-    private void setIdAttributes(Context context){
-        Log.v(TAG,"setting color for id = " +mCycleId);
+    private void setIdAttributes(){
+        EngineLog.v(TAG,"setting attributes for id = " +mCycleId);
         switch (mCycleId) {
             case 0:
-                mLinePaint.setColor(Color.RED);
                 mName = "Red";
-                mCycleImageN = ResourcesCompat.getDrawable(context.getResources(), R.drawable.red_cycle_n, null);
-                mCycleImageE = ResourcesCompat.getDrawable(context.getResources(), R.drawable.red_cycle_e, null);
-                mCycleImageS = ResourcesCompat.getDrawable(context.getResources(), R.drawable.red_cycle_s, null);
-                mCycleImageW = ResourcesCompat.getDrawable(context.getResources(), R.drawable.red_cycle_w, null);
-                mDirection=Compass.SOUTH;
                 break;
             case 1:
-                mLinePaint.setColor(Color.GREEN);
                 mName = "Green";
-                mCycleImageN = ResourcesCompat.getDrawable(context.getResources(), R.drawable.green_cycle_n, null);
-                mCycleImageE = ResourcesCompat.getDrawable(context.getResources(), R.drawable.green_cycle_e, null);
-                mCycleImageS = ResourcesCompat.getDrawable(context.getResources(), R.drawable.green_cycle_s, null);
-                mCycleImageW = ResourcesCompat.getDrawable(context.getResources(), R.drawable.green_cycle_w, null);
-                mDirection=Compass.NORTH;
                 break;
             case 2:
-                mLinePaint.setColor(Color.YELLOW);
                 mName = "Yellow";
-                mCycleImageN = ResourcesCompat.getDrawable(context.getResources(), R.drawable.yellow_cycle_n, null);
-                mCycleImageE = ResourcesCompat.getDrawable(context.getResources(), R.drawable.yellow_cycle_e, null);
-                mCycleImageS = ResourcesCompat.getDrawable(context.getResources(), R.drawable.yellow_cycle_s, null);
-                mCycleImageW = ResourcesCompat.getDrawable(context.getResources(), R.drawable.yellow_cycle_w, null);
-                mDirection=Compass.EAST;
-                rotateCycle();
                 break;
             case 3:
-                mLinePaint.setColor(Color.MAGENTA);
                 mName = "Purple";
-                mCycleImageN = ResourcesCompat.getDrawable(context.getResources(), R.drawable.purple_cycle_n, null);
-                mCycleImageE = ResourcesCompat.getDrawable(context.getResources(), R.drawable.purple_cycle_e, null);
-                mCycleImageS = ResourcesCompat.getDrawable(context.getResources(), R.drawable.purple_cycle_s, null);
-                mCycleImageW = ResourcesCompat.getDrawable(context.getResources(), R.drawable.purple_cycle_w, null);
-                mDirection=Compass.WEST;
-                rotateCycle();
                 break;
             default:
-                mLinePaint.setColor(Color.BLUE);
-                mCycleImageN = ResourcesCompat.getDrawable(context.getResources(), R.drawable.blue_cycle_n, null);
-                mCycleImageE = ResourcesCompat.getDrawable(context.getResources(), R.drawable.blue_cycle_e, null);
-                mCycleImageS = ResourcesCompat.getDrawable(context.getResources(), R.drawable.blue_cycle_s, null);
-                mCycleImageW = ResourcesCompat.getDrawable(context.getResources(), R.drawable.blue_cycle_w, null);
-                mName = "Blue";
+                mName = "Blue " + (mCycleId - 3);
+                break;
+        }
+
+        switch (getStartSide(mCycleId)){
+            case 0:
                 mDirection=Compass.SOUTH;
                 break;
+            case 1:
+                mDirection=Compass.NORTH;
+                break;
+            case 2:
+                mDirection=Compass.EAST;
+                rotateCycle();
+                break;
+            default:
+                mDirection=Compass.WEST;
+                rotateCycle();
+                break;
         }
     }
 
 
+    /**
+     * Cycles take turns starting on the four sides of the grid. 0 is the side where y is
+     * smallest, 1 is the side where y is largest, 2 is the side where x is smallest, and 3 is
+     * the side where x is largest. A cycle starts facing away from its side.
+     *
+     * @param cycleId the id of a cycle
+     * @return the side of the grid the cycle starts on
+     */
+    public static int getStartSide(int cycleId){
+        return cycleId % 4;
+    }
+
+
     /**
      * move the cycles position in the current direction with its current speed. Will not move
      * if crashed.
@@ -298,104 +284,7 @@ public class Cycle extends GridRectangle {
         //update the current position of the cycle on the path
          mPath.movePath(distance, currentTime);
 
-        setRear(mPath.getLastPoint());
-    }
-
-
-    /**
-     * Draw the cycle that fills the given canvas. The cycle is drawn using only rectangles.
-     *
-     * @param canvas the canvas where the cycle will be drawn on
-     */
-    public void drawCycleRetro(Canvas canvas){
-        // Log.v(TAG,"left is "+getLeft()+", top is "+getTop());
-
-        int paddingX = canvas.getClipBounds().left;
-        int paddingY = canvas.getClipBounds().top;
-
-        float w = (float) Tile.convert(Grid.GAME_GRID_TILE, GameManager.SCREEN_GRID_TILE, getWidth());
-        float h = (float) Tile.convert(Grid.GAME_GRID_TILE, GameManager.SCREEN_GRID_TILE,getHeight());
-
-        Paint insidePaint = new Paint();
-        insidePaint.setColor(Color.BLUE);
-        Paint boarderPaint = new Paint();
-        boarderPaint.setColor(Color.GRAY);
-
-        //draw edge of cycle
-        canvas.drawColor(boarderPaint.getColor());
-        //draw inside of cycle
-        canvas.drawRect(
-                paddingX + w / 10,
-                paddingY + h / 10,
-                paddingX + w * 9 / 10,
-                paddingY + h * 9 / 10,
-                insidePaint
-        );
-
-
-
-        //draw Line "engine" based on position
-        switch (mDirection){
-            case SOUTH:
-                canvas.drawRect(
-                        paddingX + w/4,
-                        paddingY,
-                        paddingX + w*3/4 ,
-                        paddingY + h/2, mLinePaint);
-                break;
-            case NORTH:
-                canvas.drawRect(
-                        paddingX + w/4,
-                        paddingY + h/2,
-                        paddingX + w*3/4 ,
-                        paddingY + h, mLinePaint);
-                break;
-            case WEST:
-                canvas.drawRect(
-                        paddingX + w/2,
-                        paddingY + h/4,
-                        paddingX + w ,
-                        paddingY + h*3/4, mLinePaint);
-                break;
-            case EAST:
-                canvas.drawRect(
-                        paddingX,
-                        paddingY + h/4,
-                        paddingX + w/2 ,
-                        paddingY + h*3/4, mLinePaint);
-                break;
-        }
-    }
-
-
-
-    /**
-     * Draw the cycle that fills the given canvas. The cycle are drawn from drawable resources.
-     *
-     * @param canvas the canvas where the cycle will be drawn on
-     */
-    public void drawCycle(Canvas canvas){
-
-        Rect imageBounds = canvas.getClipBounds();
-
-        switch (mDirection) {
-            case NORTH:
-                mCycleImageN.setBounds(imageBounds);
-                mCycleImageN.draw(canvas);
-                break;
-            case SOUTH:
-                mCycleImageS.setBounds(imageBounds);
-                mCycleImageS.draw(canvas);
-                break;
-            case EAST:
-                mCycleImageE.setBounds(imageBounds);
-                mCycleImageE.draw(canvas);
-                break;
-            case WEST:
-                mCycleImageW.setBounds(imageBounds);
-                mCycleImageW.draw(canvas);
-                break;
-        }
+        setRear(mPath.getLastX(), mPath.getLastY());
     }
 
 
@@ -490,17 +379,17 @@ public class Cycle extends GridRectangle {
         long lastTimeStartTime = mPath.getLineStartTime(mPath.getNumLines());
         double lineLength = (time - lastTimeStartTime )/1000.0*mSpeed;
         boolean success;
-        if( ( mPath.getLine( mPath.getNumLines( ) ) ).getEndTime() < time )
+        if( mPath.getLineEndTime( mPath.getNumLines( ) ) < time )
             success = mPath.moveAndChangeDirection(newDirection, time, lineLength);
         else
             success = mPath.bendLastLine(newDirection, time, lineLength);
 
         if(!success)
         {
-            Log.d(TAG, "direction change failed");
+            EngineLog.d(TAG, "direction change failed");
             return false;
         }
-        setRear(mPath.getLastPoint());
+        setRear(mPath.getLastX(), mPath.getLastY());
         mDirection=newDirection;
         rotateCycle();
         return true;
@@ -508,12 +397,10 @@ public class Cycle extends GridRectangle {
 
 
     /**
-     * Draws the path onto the canvas with the cycles color.
-     *
-     * @param canvas the canvas that the path should be drawn on
+     * @return the path that the cycle has traveled in
      */
-    public void drawPath(Canvas canvas){
-        mPath.drawPath(canvas, mLinePaint);
+    public LinePath getPath(){
+        return mPath;
     }
 
 
@@ -543,6 +430,151 @@ public class Cycle extends GridRectangle {
     public boolean hasCrashed(){return mCrashed;}
 
 
+    /**
+     * Set the bitmap that the path of the cycle will be marked on as it moves.
+     *
+     * @param occupancy the bitmap to mark
+     */
+    public void setOccupancyGrid(OccupancyGrid occupancy){
+        mPath.setOccupancyGrid(occupancy);
+    }
+
+
+    /**
+     * Determine if the front of the cycle ran into a path since the last time this method was
+     * called. Only the area between the previously validated front and the current front is
+     * checked, so the cycle can not jump over a path no matter how far it moved. When the cycle
+     * has just been created or has changed directions, the whole cycle is checked except for the
+     * area next to its rear where its own committed path ends.
+     * <p>
+     * The area is checked against the committed cells of the occupancy grid and against the
+     * uncommitted growth of the given paths. The growth of this cycles own path is ignored.
+     *
+     * @param occupancy the bitmap that the paths are marked on
+     * @param cycles the cycles whose paths could have grown into this cycle, may include this
+     *               cycle
+     * @param numCycles the number of cycles at the start of the cycles array to check
+     * @param previousTime the time in milliseconds of the previous check
+     * @param currentTime the current time in milliseconds
+     * @return the time in milliseconds when the front of the cycle reached the first path,
+     *          {@link #DEFAULT_TIME} if the cycle did not run into a path.
+     */
+    public long sweptCrashTime(OccupancyGrid occupancy, Cycle[] cycles, int numCycles,
+                               long previousTime, long currentTime){
+        //the path ends half its thickness behind the rear, leave an extra cell for rounding
+        double clearance = mPath.getThickness() / 2 + occupancy.getCellLength();
+        boolean continued = mValidatedDirection == mDirection;
+        double from;
+
+        double left = getLeft();
+        double bottom = getBottom();
+        double right = getRight();
+        double top = getTop();
+        double front = 0;
+        boolean increasing = true;
+
+        switch (mDirection){
+            case EAST:
+                from = continued ? mValidatedFront : getRearX() + clearance;
+                front = right;
+                left = from;
+                break;
+            case WEST:
+                from = continued ? mValidatedFront : getRearX() - clearance;
+                front = left;
+                right = from;
+                increasing = false;
+                break;
+            case SOUTH:
+                from = continued ? mValidatedFront : getRearY() + clearance;
+                front = top;
+                bottom = from;
+                break;
+            case NORTH:
+                from = continued ? mValidatedFront : getRearY() - clearance;
+                front = bottom;
+                top = from;
+                increasing = false;
+                break;
+        }
+
+        double entry = occupancy.firstOccupied(left, bottom, right, top, mDirection);
+        double growthEntry;
+        for( int i = 0; i < numCycles; i++ ){
+            if( cycles[i] == this )
+                continue;
+            growthEntry = cycles[i].mPath.firstGrowth(left, bottom, right, top, mDirection);
+            if( Double.isNaN(growthEntry) )
+                continue;
+            if( Double.isNaN(entry) || (increasing ? growthEntry < entry : growthEntry > entry) )
+                entry = growthEntry;
+        }
+        mValidatedFront = front;
+        mValidatedDirection = mDirection;
+
+        if( Double.isNaN(entry) )
+            return DEFAULT_TIME;
+        return getTimeBefore(Math.abs(front - entry), previousTime, currentTime);
+    }
+
+
+    /**
+     * Determine when the cycle was a distance behind its current position. The time is never
+     * before the given time or before the cycle last changed directions.
+     *
+     * @param distance how far back the cycle was
+     * @param earliestTime the earliest time in milliseconds that can be returned
+     * @param currentTime the current time in milliseconds
+     * @return the time in milliseconds when the cycle was the distance behind its position
+     */
+    public long getTimeBefore(double distance, long earliestTime, long currentTime){
+        long turnTime = mPath.getLineStartTime(mPath.getNumLines());
+        if( turnTime > earliestTime )
+            earliestTime = turnTime;
+
+        long time = currentTime;
+        if( mSpeed > 0 && !mCrashed )
+            time -= Math.round(distance * 1000 / mSpeed);
+        if( time < earliestTime )
+            time = earliestTime;
+        return Math.min(time, currentTime);
+    }
+
+
+    /**
+     * @return the speed of the cycle along the x axis in tiles per second, zero if crashed
+     */
+    public double getVelocityX(){
+        if( mCrashed )
+            return 0;
+        switch (mDirection){
+            case EAST:
+                return mSpeed;
+            case WEST:
+                return -mSpeed;
+            default:
+                return 0;
+        }
+    }
+
+
+    /**
+     * @return the speed of the cycle along the y axis in tiles per second, zero if crashed
+     */
+    public double getVelocityY(){
+        if( mCrashed )
+            return 0;
+        switch (mDirection){
+            case SOUTH:
+                return mSpeed;
+            case NORTH:
+                return -mSpeed;
+            default:
+                return 0;
+        }
+    }
+
+
     /**
      * Determine if the cycle crashed with its own path.
      *
@@ -550,7 +582,7 @@ public class Cycle extends GridRectangle {
      */
     public boolean selfCrashed(){
         for(int lineNumber  = 1; lineNumber <= mPath.getNumLines()-3; lineNumber++){
-            if(Grid.overlap(this, mPath.getLine(lineNumber))){
+            if(mPath.lineOverlaps(lineNumber, this)){
                 return true;
             }
         }
@@ -565,7 +597,7 @@ public class Cycle extends GridRectangle {
      */
     public boolean intersectsWithPath(Grid.GridObject rectangle){
         for(int lineNumber  = 1; lineNumber <= mPath.getNumLines(); lineNumber++){
-            if(Grid.overlap(rectangle, mPath.getLine(lineNumber))){
+            if(mPath.lineOverlaps(lineNumber, rectangle)){
                 return true;
             }
         }
@@ -578,11 +610,11 @@ public class Cycle extends GridRectangle {
      *
      * @param bundle the bundle to save the state onto
      */
-    public void saveState(Bundle bundle) {
+    public void saveState(StateBundle bundle) {
         bundle.putBoolean( CRASHED_KEY + TAG_ID, mCrashed );
         bundle.putLong( CRASH_TIME_KEY + TAG_ID, mCrashTime );
-        bundle.putLong( PLACE_KEY + TAG_ID, mPlace );
-        bundle.putSerializable( DIRECTION_KEY + TAG_ID, mDirection );
+        bundle.putInt( PLACE_KEY + TAG_ID, mPlace );
+        bundle.putString( DIRECTION_KEY + TAG_ID, mDirection.name() );
         bundle.putDouble( X_KEY + TAG_ID, getX() );
         bundle.putDouble( Y_KEY + TAG_ID, getY() );
         bundle.putDouble( WIDTH_KEY + TAG_ID, getWidth() );
@@ -596,17 +628,82 @@ public class Cycle extends GridRectangle {
      *
      * @param bundle the bundle that has the previous state saved
      */
-    public void restoreState(Bundle bundle){
+    public void restoreState(StateBundle bundle){
         mCrashed = bundle.getBoolean( CRASHED_KEY +TAG_ID, false );
         mCrashTime = bundle.getLong(CRASH_TIME_KEY + TAG_ID, 0);
         mPlace = bundle.getInt(PLACE_KEY + TAG_ID, 0);
-        mDirection = (Compass)bundle.getSerializable( DIRECTION_KEY+ TAG_ID );
+        mDirection = Compass.valueOf( bundle.getString( DIRECTION_KEY+ TAG_ID ) );
         double x = bundle.getDouble( X_KEY + TAG_ID, 0 );
         double y = bundle.getDouble( Y_KEY + TAG_ID, 0 );
-        setWidth( bundle.getDouble( WIDTH_KEY + TAG_ID) );
-        setHeight( bundle.getDouble( HEIGHT_KEY + TAG_ID) );
+        setWidth( bundle.getDouble( WIDTH_KEY + TAG_ID, 0 ) );
+        setHeight( bundle.getDouble( HEIGHT_KEY + TAG_ID, 0 ) );
         setCenter(x, y);
         mPath.restoreState( bundle, TAG_ID );
+        mValidatedDirection = null;
+    }
+
+
+    /**
+     * Save the parts of the cycle and its path that can change while the game is simulated,
+     * without allocating. Unlike {@link #saveState(StateBundle)}, the area that was last checked
+     * for collisions is saved too, so a restored cycle is checked exactly as it would have been.
+     *
+     * @param snapshot the snapshot to save the cycle into
+     */
+    public void saveSnapshot(Snapshot snapshot){
+        snapshot.mCrashed = mCrashed;
+        snapshot.mCrashTime = mCrashTime;
+        snapshot.mPlace = mPlace;
+        snapshot.mDirection = mDirection;
+        snapshot.mX = getX();
+        snapshot.mY = getY();
+        snapshot.mWidth = getWidth();
+        snapshot.mHeight = getHeight();
+        snapshot.mValidatedDirection = mValidatedDirection;
+        snapshot.mValidatedFront = mValidatedFront;
+        mPath.saveSnapshot(snapshot.mPath);
+    }
+
+
+    /**
+     * Put the cycle back to how it was when a snapshot was saved, see
+     * {@link LinePath#restoreSnapshot(LinePath.Snapshot)}.
+     *
+     * @param snapshot a snapshot saved by this cycle
+     */
+    public void restoreSnapshot(Snapshot snapshot){
+        mCrashed = snapshot.mCrashed;
+        mCrashTime = snapshot.mCrashTime;
+        mPlace = snapshot.mPlace;
+        mDirection = snapshot.mDirection;
+        setWidth(snapshot.mWidth);
+        setHeight(snapshot.mHeight);
+        setCenter(snapshot.mX, snapshot.mY);
+        mValidatedDirection = snapshot.mValidatedDirection;
+        mValidatedFront = snapshot.mValidatedFront;
+        mPath.restoreSnapshot(snapshot.mPath);
+    }
+
+
+    /**
+     * Make this cycle look the same as another cycle so that it can be drawn while the other one
+     * keeps moving. Only the lines of the path starting at the given line are copied, see
+     * {@link LinePath#copyFrom(LinePath, int)}. The area checked for collisions is not copied.
+     *
+     * @param source the cycle to copy, it should have the same id
+     * @param fromLine the number of the first line of the path to copy, 1 to copy every line
+     */
+    public void copyFrom(Cycle source, int fromLine){
+        mSpeed = source.mSpeed;
+        mCrashed = source.mCrashed;
+        mCrashTime = source.mCrashTime;
+        mPlace = source.mPlace;
+        mDirection = source.mDirection;
+        setWidth(source.getWidth());
+        setHeight(source.getHeight());
+        setCenter(source.getX(), source.getY());
+        mValidatedDirection = null;
+        mPath.copyFrom(source.mPath, fromLine);
     }
 
 
@@ -626,4 +723,23 @@ public class Cycle extends GridRectangle {
         description.addClassMember("mPath", mPath);
         return description.getString();
     }
+
+
+    /**
+     * The state of a cycle at one moment of the game, see {@link #saveSnapshot(Snapshot)}.
+     * Snapshots are made once and saved into many times.
+     */
+    public static final class Snapshot {
+        private final LinePath.Snapshot mPath = new LinePath.Snapshot();
+        private boolean mCrashed;
+        private long mCrashTime;
+        private int mPlace;
+        private Compass mDirection;
+        private double mX;
+        private double mY;
+        private double mWidth;
+        private double mHeight;
+        private Compass mValidatedDirection;
+        private double mValidatedFront;
+    }
 }
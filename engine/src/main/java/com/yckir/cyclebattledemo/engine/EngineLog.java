@@ -0,0 +1,92 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Logging used by the engine so that it does not depend on android.util.Log. Nothing is logged
+ * until a {@link Logger} is set, the app sets one that forwards messages to the Android log.
+ */
+public final class EngineLog {
+    public static final int VERBOSE =   2;
+    public static final int DEBUG   =   3;
+    public static final int WARN    =   5;
+    public static final int ERROR   =   6;
+
+    private static volatile Logger sLogger = null;
+
+
+    private EngineLog(){}
+
+
+    /**
+     * Set the logger that will receive all engine log messages.
+     *
+     * @param logger the logger, null if messages should be ignored
+     */
+    public static void setLogger(Logger logger){
+        sLogger = logger;
+    }
+
+
+    /**
+     * Send a verbose log message.
+     *
+     * @param tag identifies the source of the message
+     * @param msg the message
+     */
+    public static void v(String tag, String msg){
+        log(VERBOSE, tag, msg);
+    }
+
+
+    /**
+     * Send a debug log message.
+     *
+     * @param tag identifies the source of the message
+     * @param msg the message
+     */
+    public static void d(String tag, String msg){
+        log(DEBUG, tag, msg);
+    }
+
+
+    /**
+     * Send a warning log message.
+     *
+     * @param tag identifies the source of the message
+     * @param msg the message
+     */
+    public static void w(String tag, String msg){
+        log(WARN, tag, msg);
+    }
+
+
+    /**
+     * Send an error log message.
+     *
+     * @param tag identifies the source of the message
+     * @param msg the message
+     */
+    public static void e(String tag, String msg){
+        log(ERROR, tag, msg);
+    }
+
+
+    private static void log(int priority, String tag, String msg){
+        Logger logger = sLogger;
+        if(logger != null)
+            logger.log(priority, tag, msg);
+    }
+
+
+    /**
+     * Receives the log messages of the engine.
+     */
+    public interface Logger {
+
+        /**
+         * @param priority one of {@link #VERBOSE}, {@link #DEBUG}, {@link #WARN}, {@link #ERROR}
+         * @param tag identifies the source of the message
+         * @param msg the message
+         */
+        void log(int priority, String tag, String msg);
+    }
+}
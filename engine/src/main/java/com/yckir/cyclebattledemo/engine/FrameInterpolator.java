@@ -0,0 +1,272 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Decides where the cycles are drawn on a frame that does not start on a tick. The game is only
+ * simulated on ticks, see {@link TickScheduler}, so drawing the cycles where the last tick left
+ * them makes them move in steps whenever the frame rate and the tick rate differ.
+ * <p>
+ * By default the cycles are drawn as they were one tick before the time of the frame, which is
+ * always between the previous and the current tick. Instead of blending the two positions, the
+ * position is found by going back along the path, so a cycle that turned on the current tick is
+ * drawn on its old line facing its old direction. The end of each path is cut back to the same
+ * place.
+ * <p>
+ * With extrapolation the cycles are drawn ahead of the current tick, where they will be when the
+ * frame is expected to reach the display. The part of the path between the last tick and the
+ * cycle is the extension of the path. It is only drawn, nothing is simulated, and a crashed
+ * cycle is never drawn ahead of where it stopped.
+ * <p>
+ * The results are kept in arrays that are reused for every frame.
+ */
+public class FrameInterpolator {
+    public  static final String     TAG                     =   "FRAME_INTERPOLATOR";
+
+    private boolean mExtrapolate;
+    private double mLeadTime;
+
+    private int mNumCycles;
+    private double mDisplayTime;
+
+    /**
+     * the last line of each path that is drawn, how much of it is drawn, and where it ends
+     */
+    private int[] mHeadLines;
+    private double[] mHeadLengths;
+    private double[] mHeadX;
+    private double[] mHeadY;
+
+    /**
+     * how far each cycle is drawn ahead of the end of its path
+     */
+    private double[] mExtensions;
+    private Compass[] mDirections;
+
+    /**
+     * left, bottom, right, and top of each cycle where it is drawn
+     */
+    private double[] mBounds;
+
+
+    /**
+     * Creates an interpolator that draws the cycles one tick behind the time of the frame.
+     */
+    public FrameInterpolator(){
+        mExtrapolate = false;
+        mLeadTime = 0;
+        allocate(0);
+    }
+
+
+    private void allocate(int numCycles){
+        mNumCycles = numCycles;
+        mHeadLines = new int[numCycles];
+        mHeadLengths = new double[numCycles];
+        mHeadX = new double[numCycles];
+        mHeadY = new double[numCycles];
+        mExtensions = new double[numCycles];
+        mDirections = new Compass[numCycles];
+        mBounds = new double[numCycles * 4];
+    }
+
+
+    /**
+     * Draw the cycles ahead of the current tick instead of behind it.
+     *
+     * @param extrapolate true if the cycles should be drawn where they will be when the frame is
+     *                    displayed
+     * @param leadTime the time in milliseconds from the start of a frame until it is expected to
+     *                 be displayed, usually one frame interval
+     */
+    public void setExtrapolation(boolean extrapolate, double leadTime){
+        mExtrapolate = extrapolate;
+        mLeadTime = Math.max(0, leadTime);
+    }
+
+
+    /**
+     * @return true if the cycles are drawn ahead of the current tick
+     */
+    public boolean isExtrapolating(){return mExtrapolate;}
+
+
+    /**
+     * Place the cycles for a frame that starts at the time the game was last advanced to. When
+     * the game is not running the cycles are placed where they were simulated.
+     *
+     * @param engine the game
+     */
+    public void update(GameEngine engine){
+        TickScheduler scheduler = engine.getScheduler();
+        double displayTime = scheduler.getTime();
+        if( engine.isRunning() ){
+            if( mExtrapolate )
+                displayTime += scheduler.getPendingTime() + mLeadTime;
+            else
+                displayTime += scheduler.getPendingTime() - scheduler.getTickLength();
+        }
+        update(engine.getCycles(), displayTime);
+    }
+
+
+    /**
+     * Place the copied cycles of a snapshot for a frame that starts at the given time. The game
+     * keeps running while the frame is drawn, so the time since the tick of the snapshot is
+     * measured from the elapsed time of the frame instead of the engine. When not extrapolating,
+     * the cycles are never drawn past the tick of the snapshot, even if it is more than a tick
+     * old.
+     *
+     * @param snapshot the newest snapshot of the game
+     * @param elapsedTime the time in milliseconds of the frame since the game started, not
+     *                    counting pauses
+     */
+    public void update(FrameSnapshot snapshot, long elapsedTime){
+        double displayTime = snapshot.getTime();
+        if( snapshot.isRunning() ){
+            double tickLength = snapshot.getTickLength();
+            double pending = elapsedTime - snapshot.getDroppedTime() - displayTime;
+            pending = Math.max(0, pending);
+            if( mExtrapolate )
+                displayTime += pending + mLeadTime;
+            else
+                displayTime += Math.min(pending, tickLength) - tickLength;
+        }
+        update(snapshot.getCycles(), displayTime);
+    }
+
+
+    /**
+     * Place the cycles where they are at the given time.
+     *
+     * @param cycles the cycles of the game
+     * @param displayTime the time in milliseconds of the game that is drawn
+     */
+    public void update(Cycle[] cycles, double displayTime){
+        if( cycles.length != mNumCycles )
+            allocate(cycles.length);
+        mDisplayTime = displayTime;
+        for( int i = 0; i < cycles.length; i++ )
+            place(i, cycles[i], displayTime);
+    }
+
+
+    private void place(int index, Cycle cycle, double displayTime){
+        LinePath path = cycle.getPath();
+        int line = path.getNumLines();
+        double length = path.getLineLength(line);
+
+        //the path has been simulated up to the end time of its last line
+        double distance = (displayTime - path.getLineEndTime(line)) / 1000.0 * cycle.getSpeed();
+        if( cycle.hasCrashed() )
+            distance = Math.min(distance, 0);
+
+        double extension = 0;
+        if( distance >= 0 ) {
+            extension = distance;
+        }
+        else {
+            double trim = -distance;
+            while( trim > length && line > 1 ){
+                trim -= length;
+                line--;
+                length = path.getLineLength(line);
+            }
+            length = Math.max(0, length - trim);
+        }
+
+        Compass direction = path.getLineDirection(line);
+        double headX = Compass.moveX(path.getLineStartX(line), length, direction);
+        double headY = Compass.moveY(path.getLineStartY(line), length, direction);
+        mHeadLines[index] = line;
+        mHeadLengths[index] = length;
+        mHeadX[index] = headX;
+        mHeadY[index] = headY;
+        mExtensions[index] = extension;
+        mDirections[index] = direction;
+
+        //the rear of the cycle is at the end of what is drawn of the path
+        double rearX = Compass.moveX(headX, extension, direction);
+        double rearY = Compass.moveY(headY, extension, direction);
+        boolean vertical = isVertical(cycle.getDirection());
+        double along = vertical ? cycle.getHeight() : cycle.getWidth();
+        double side = vertical ? cycle.getWidth() : cycle.getHeight();
+        double centerX = Compass.moveX(rearX, along / 2, direction);
+        double centerY = Compass.moveY(rearY, along / 2, direction);
+        double halfX = isVertical(direction) ? side / 2 : along / 2;
+        double halfY = isVertical(direction) ? along / 2 : side / 2;
+
+        int b = index * 4;
+        mBounds[b] = centerX - halfX;
+        mBounds[b + 1] = centerY - halfY;
+        mBounds[b + 2] = centerX + halfX;
+        mBounds[b + 3] = centerY + halfY;
+    }
+
+
+    private static boolean isVertical(Compass direction){
+        return direction == Compass.NORTH || direction == Compass.SOUTH;
+    }
+
+
+    /**
+     * @return the time in milliseconds of the game that the cycles were last placed at
+     */
+    public double getDisplayTime(){return mDisplayTime;}
+
+
+    /**
+     * @return the number of the last line of the path of a cycle that is drawn
+     */
+    public int getHeadLine(int cycle){return mHeadLines[cycle];}
+
+
+    /**
+     * @return how much of the last drawn line of the path of a cycle is drawn
+     */
+    public double getHeadLength(int cycle){return mHeadLengths[cycle];}
+
+
+    /**
+     * @return the x coordinate where the drawn part of the path of a cycle ends
+     */
+    public double getHeadX(int cycle){return mHeadX[cycle];}
+
+
+    /**
+     * @return the y coordinate where the drawn part of the path of a cycle ends
+     */
+    public double getHeadY(int cycle){return mHeadY[cycle];}
+
+
+    /**
+     * @return how far a cycle is drawn past the end of its path, zero unless extrapolating
+     */
+    public double getExtension(int cycle){return mExtensions[cycle];}
+
+
+    /**
+     * @return the direction a cycle is drawn facing
+     */
+    public Compass getDirection(int cycle){return mDirections[cycle];}
+
+
+    public double getLeft(int cycle){return mBounds[cycle * 4];}
+
+
+    public double getBottom(int cycle){return mBounds[cycle * 4 + 1];}
+
+
+    public double getRight(int cycle){return mBounds[cycle * 4 + 2];}
+
+
+    public double getTop(int cycle){return mBounds[cycle * 4 + 3];}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mExtrapolate", mExtrapolate);
+        description.addMember("mLeadTime", mLeadTime);
+        description.addMember("mNumCycles", mNumCycles);
+        return description.getString();
+    }
+}
@@ -0,0 +1,149 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Decides which display refreshes should produce a frame so that an animation runs at no more
+ * than a chosen frame rate. Every refresh that is offered to {@link #shouldDraw(long)} is either
+ * accepted or skipped. A frame is due one frame interval after the previous due time, and a
+ * refresh is accepted if it is within half a refresh interval of being due. Keeping the due time
+ * instead of the time of the last frame lets caps that do not divide the refresh rate, such as 90
+ * frames per second on a 120Hz display, average out to the right rate.
+ * <p>
+ * When there is no display refresh signal, {@link #getNextFrameTime(long)} gives the time that
+ * a timer should wait for instead.
+ * <p>
+ * All times are in nanoseconds.
+ */
+public class FramePacer {
+    public  static final String     TAG                     =   "FRAME_PACER";
+
+    /**
+     * a frame rate cap of this value means every display refresh produces a frame
+     */
+    public  static final int        NATIVE_FRAME_RATE       =   0;
+
+    /**
+     * the highest frame rate in low power mode
+     */
+    public  static final int        LOW_POWER_FRAME_RATE    =   30;
+    public  static final float      DEFAULT_REFRESH_RATE    =   60;
+    public  static final long       NANOS_PER_SECOND        =   1000000000L;
+
+    private final long mRefreshInterval;
+    private final long mFrameInterval;
+    private final int mFrameRate;
+
+    private long mDueTime;
+    private boolean mStarted;
+    private long mSkippedRefreshes;
+
+
+    /**
+     * @param refreshRate the refresh rate of the display in hertz, if it is not positive
+     *                    {@link #DEFAULT_REFRESH_RATE} is used
+     * @param frameRateCap the highest number of frames per second, or {@link #NATIVE_FRAME_RATE}
+     *                     to draw on every refresh
+     * @param lowPower true if the frame rate should be at most {@link #LOW_POWER_FRAME_RATE}
+     */
+    public FramePacer(float refreshRate, int frameRateCap, boolean lowPower){
+        if( frameRateCap < 0 )
+            throw new IllegalArgumentException("frameRateCap must not be negative");
+        if( refreshRate <= 0 )
+            refreshRate = DEFAULT_REFRESH_RATE;
+
+        int frameRate = frameRateCap;
+        if( frameRate == NATIVE_FRAME_RATE || frameRate > refreshRate )
+            frameRate = Math.round(refreshRate);
+        if( lowPower )
+            frameRate = Math.min(frameRate, LOW_POWER_FRAME_RATE);
+
+        mFrameRate = frameRate;
+        mRefreshInterval = (long) (NANOS_PER_SECOND / refreshRate);
+        mFrameInterval = Math.max(NANOS_PER_SECOND / frameRate, mRefreshInterval);
+        reset();
+    }
+
+
+    /**
+     * Forget the previous frames, the next refresh will be accepted.
+     */
+    public void reset(){
+        mStarted = false;
+        mDueTime = 0;
+        mSkippedRefreshes = 0;
+    }
+
+
+    /**
+     * Offer a display refresh.
+     *
+     * @param refreshTime the time of the refresh
+     * @return true if a frame should be drawn for this refresh
+     */
+    public boolean shouldDraw(long refreshTime){
+        if( !mStarted ){
+            mStarted = true;
+            mDueTime = refreshTime + mFrameInterval;
+            return true;
+        }
+        if( refreshTime < mDueTime - mRefreshInterval / 2 ){
+            mSkippedRefreshes++;
+            return false;
+        }
+
+        mDueTime += mFrameInterval;
+        //after a stall the frames that were missed are not made up
+        if( mDueTime <= refreshTime )
+            mDueTime = refreshTime + mFrameInterval;
+        return true;
+    }
+
+
+    /**
+     * Get the time of the next frame without a display refresh signal. The frame is counted as
+     * drawn, so each call gives the frame after the previous one.
+     *
+     * @param currentTime the current time
+     * @return when the next frame should start, this is never before the current time
+     */
+    public long getNextFrameTime(long currentTime){
+        if( !mStarted ){
+            mStarted = true;
+            mDueTime = currentTime + mFrameInterval;
+            return currentTime;
+        }
+        long frameTime = mDueTime;
+        if( frameTime < currentTime )
+            frameTime = currentTime;
+        mDueTime = frameTime + mFrameInterval;
+        return frameTime;
+    }
+
+
+    /**
+     * @return the number of frames per second that are drawn when nothing is late
+     */
+    public int getFrameRate(){return mFrameRate;}
+
+
+    /**
+     * @return the time between frames
+     */
+    public long getFrameInterval(){return mFrameInterval;}
+
+
+    /**
+     * @return the number of refreshes that were skipped since the last reset
+     */
+    public long getSkippedRefreshes(){return mSkippedRefreshes;}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mFrameRate", mFrameRate);
+        description.addMember("mFrameInterval", mFrameInterval);
+        description.addMember("mRefreshInterval", mRefreshInterval);
+        description.addMember("mSkippedRefreshes", mSkippedRefreshes);
+        return description.getString();
+    }
+}
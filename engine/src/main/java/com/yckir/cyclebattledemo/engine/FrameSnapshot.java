@@ -0,0 +1,139 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * The state of a game after one tick, copied from a {@link GameEngine} so that it can be drawn on
+ * another thread while the engine keeps simulating. Snapshots are written by
+ * {@link SnapshotBuffer}, and must not be changed while a reader holds them.
+ * <p>
+ * The cycles of a snapshot are copies of the cycles of the engine, see
+ * {@link Cycle#copyFrom(Cycle, int)}, so they are drawn exactly like the cycles of the engine.
+ * They are made once per match and only the lines of the paths that changed are copied into
+ * them, so writing a snapshot does not allocate.
+ */
+public class FrameSnapshot {
+    public  static final String     TAG                     =   "FRAME_SNAPSHOT";
+
+    private Cycle[] mCycles;
+    private long mSequence;
+    private long mTick;
+    private long mTime;
+    private long mDroppedTime;
+    private double mTickLength;
+    private boolean mRunning;
+
+
+    /**
+     * Creates an empty snapshot without cycles.
+     */
+    public FrameSnapshot(){
+        mCycles = new Cycle[0];
+        mSequence = 0;
+        mTick = 0;
+        mTime = 0;
+        mDroppedTime = 0;
+        mTickLength = 0;
+        mRunning = false;
+    }
+
+
+    /**
+     * Make sure the snapshot has a copy for every cycle of the engine, with the same ids. Copies
+     * are only made when the cycles of the engine were replaced.
+     *
+     * @param cycles the cycles of the engine
+     * @return true if new copies were made, every line must then be copied into them
+     */
+    boolean match(Cycle[] cycles){
+        boolean matches = mCycles.length == cycles.length;
+        for( int i = 0; matches && i < cycles.length; i++ )
+            matches = mCycles[i].getId() == cycles[i].getId();
+        if( matches )
+            return false;
+
+        mCycles = new Cycle[cycles.length];
+        for( int i = 0; i < cycles.length; i++ ) {
+            Cycle cycle = cycles[i];
+            mCycles[i] = new Cycle(cycle.getX(), cycle.getY(), cycle.getWidth(), cycle.getHeight(),
+                    cycle.getId(), cycle.getSpeed());
+        }
+        return true;
+    }
+
+
+    /**
+     * Copy the engine into the snapshot.
+     *
+     * @param engine the game
+     * @param copyFrom for each cycle, the number of the first line of its path that has to be
+     *                 copied
+     * @param sequence the number of the snapshot, one more than the previous one
+     */
+    void write(GameEngine engine, int[] copyFrom, long sequence){
+        Cycle[] cycles = engine.getCycles();
+        for( int i = 0; i < cycles.length; i++ )
+            mCycles[i].copyFrom(cycles[i], copyFrom[i]);
+
+        TickScheduler scheduler = engine.getScheduler();
+        mSequence = sequence;
+        mTick = scheduler.getTick();
+        mTime = scheduler.getTime();
+        mDroppedTime = scheduler.getDroppedTime();
+        mTickLength = scheduler.getTickLength();
+        mRunning = engine.isRunning();
+    }
+
+
+    /**
+     * @return the copies of the cycles, they must not be changed
+     */
+    public Cycle[] getCycles(){return mCycles;}
+
+
+    /**
+     * @return the number of the snapshot, later snapshots have larger numbers
+     */
+    public long getSequence(){return mSequence;}
+
+
+    /**
+     * @return the number of ticks that had been simulated
+     */
+    public long getTick(){return mTick;}
+
+
+    /**
+     * @return the time in milliseconds of the last simulated tick
+     */
+    public long getTime(){return mTime;}
+
+
+    /**
+     * @return the time in milliseconds that the engine dropped because it fell behind, see
+     *         {@link TickScheduler#getDroppedTime()}
+     */
+    public long getDroppedTime(){return mDroppedTime;}
+
+
+    /**
+     * @return the length of a tick in milliseconds
+     */
+    public double getTickLength(){return mTickLength;}
+
+
+    /**
+     * @return true if the game was still running after the tick
+     */
+    public boolean isRunning(){return mRunning;}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mSequence", mSequence);
+        description.addMember("mTick", mTick);
+        description.addMember("mTime", mTime);
+        description.addMember("mRunning", mRunning);
+        description.addMember("numCycles", mCycles.length);
+        return description.getString();
+    }
+}
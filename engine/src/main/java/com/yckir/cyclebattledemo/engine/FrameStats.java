@@ -0,0 +1,159 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Collects the time between consecutive frames so that the pacing of an animation can be
+ * checked. The mean and standard deviation are updated with Welford's method, so no history is
+ * kept and recording a frame does not allocate memory.
+ */
+public class FrameStats {
+    public  static final String     TAG                     =   "FRAME_STATS";
+
+    //a frame that took this many target intervals or more counts as a late frame
+    private static final double     LATE_FRAME_FACTOR       =   1.5;
+
+    private long mTargetInterval;
+    private long mLastFrameTime;
+    private boolean mHasFrame;
+
+    private long mNumFrames;
+    private long mNumIntervals;
+    private long mNumLateFrames;
+    private long mMinInterval;
+    private long mMaxInterval;
+    private double mMean;
+    private double mSquaredDeviations;
+
+
+    /**
+     * @param targetInterval the expected time between frames in nanoseconds, used to count
+     *                       late frames
+     */
+    public FrameStats(long targetInterval){
+        mTargetInterval = targetInterval;
+        reset();
+    }
+
+
+    /**
+     * Forget every recorded frame.
+     */
+    public void reset(){
+        mHasFrame = false;
+        mLastFrameTime = 0;
+        mNumFrames = 0;
+        mNumIntervals = 0;
+        mNumLateFrames = 0;
+        mMinInterval = Long.MAX_VALUE;
+        mMaxInterval = 0;
+        mMean = 0;
+        mSquaredDeviations = 0;
+    }
+
+
+    /**
+     * Keep what was recorded, but do not measure the time between the last recorded frame and the
+     * next one. This should be called when the animation pauses.
+     */
+    public void pause(){
+        mHasFrame = false;
+    }
+
+
+    /**
+     * @param targetInterval the expected time between frames in nanoseconds
+     */
+    public void setTargetInterval(long targetInterval){
+        mTargetInterval = targetInterval;
+    }
+
+
+    /**
+     * Record that a frame started.
+     *
+     * @param frameTime the time the frame started in nanoseconds
+     */
+    public void recordFrame(long frameTime){
+        mNumFrames++;
+        if(!mHasFrame){
+            mHasFrame = true;
+            mLastFrameTime = frameTime;
+            return;
+        }
+        long interval = frameTime - mLastFrameTime;
+        mLastFrameTime = frameTime;
+
+        mNumIntervals++;
+        double delta = interval - mMean;
+        mMean += delta / mNumIntervals;
+        mSquaredDeviations += delta * (interval - mMean);
+
+        mMinInterval = Math.min(mMinInterval, interval);
+        mMaxInterval = Math.max(mMaxInterval, interval);
+        if(interval >= mTargetInterval * LATE_FRAME_FACTOR)
+            mNumLateFrames++;
+    }
+
+
+    /**
+     * @return the number of frames that were recorded
+     */
+    public long getNumFrames(){return mNumFrames;}
+
+
+    /**
+     * @return the number of frames that started at least one and a half target intervals after
+     *         the previous frame
+     */
+    public long getNumLateFrames(){return mNumLateFrames;}
+
+
+    /**
+     * @return the shortest time between two frames in nanoseconds, 0 if less than two frames
+     *         were recorded
+     */
+    public long getMinInterval(){
+        return mNumIntervals == 0 ? 0 : mMinInterval;
+    }
+
+
+    /**
+     * @return the longest time between two frames in nanoseconds
+     */
+    public long getMaxInterval(){return mMaxInterval;}
+
+
+    /**
+     * @return the mean time between frames in nanoseconds
+     */
+    public double getMeanInterval(){return mMean;}
+
+
+    /**
+     * @return the standard deviation of the time between frames in nanoseconds
+     */
+    public double getIntervalDeviation(){
+        return mNumIntervals < 2 ? 0 : Math.sqrt(mSquaredDeviations / (mNumIntervals - 1));
+    }
+
+
+    /**
+     * @return the average number of frames per second
+     */
+    public double getFramesPerSecond(){
+        return mMean == 0 ? 0 : 1000000000.0 / mMean;
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("numFrames", getNumFrames());
+        description.addMember("fps", getFramesPerSecond());
+        description.addMember("meanIntervalMs", mMean / 1000000.0);
+        description.addMember("deviationMs", getIntervalDeviation() / 1000000.0);
+        description.addMember("minIntervalMs", getMinInterval() / 1000000.0);
+        description.addMember("maxIntervalMs", mMaxInterval / 1000000.0);
+        description.addMember("mNumLateFrames", mNumLateFrames);
+        return description.getString();
+    }
+}
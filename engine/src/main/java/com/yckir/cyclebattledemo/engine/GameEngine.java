@@ -0,0 +1,1004 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.util.ArrayList;
+
+/**
+ * The rules of a cycle Game. Maintains the Grid and Cycles, applies direction changes, moves the
+ * cycles, and detects collisions. The engine has no knowledge of how the game is displayed, so a
+ * match can be run on any JVM by calling {@link #step(long)} with increasing times.
+ * <p>
+ * When driven by {@link #advance(long)} the game is only simulated on the fixed tick boundaries of
+ * a {@link TickScheduler}, and direction change times are quantized to those ticks. Two games with
+ * the same direction changes will then have identical results regardless of the frame rate.
+ * <p>
+ * The state after each of the steps in the last {@link #ROLLBACK_WINDOW} milliseconds is kept in
+ * a {@link RollbackBuffer}. A direction change that arrives after its time was already simulated
+ * rolls the game back to before that time and simulates the steps again, so late input is applied
+ * exactly without delaying the input that arrives on time.
+ */
+public class GameEngine {
+    public  static final String     TAG                     =   "GAME_ENGINE";
+    private static final String     REMAINING_CYCLES_KEY    =   TAG + ":REMAINING_CYCLES";
+    public  static final int        GAME_GRID_TILE_LENGTH   =   1;
+    public  static final int        DEFAULT_SPEED           =   3;
+    public  static final double     CYCLE_WIDTH             =   0.25;
+    public  static final double     CYCLE_HEIGHT            =   0.5;
+    public  static final double     SPAWN_DISTANCE          =   1.5;
+    private static final int        MIN_REQUEST_CAPACITY    =   15;
+    private static final int        REQUESTS_PER_CYCLE      =   4;
+    public  static final int        ROLLBACK_WINDOW         =   300;
+
+    /**
+     * returned by {@link #step(long)} when nothing happened
+     */
+    public static final int NO_EVENT = 0;
+    /**
+     * bit set by {@link #step(long)} when at least one cycle changed directions
+     */
+    public static final int TURN_EVENT = 1;
+    /**
+     * bit set by {@link #step(long)} when at least one cycle crashed
+     */
+    public static final int CRASH_EVENT = 2;
+
+    // This grid will be the same for each player in the same game. All movement, collision
+    // detection, etc will be done on this grid and later drawn to fit the users device screen.
+    private Grid mGameGrid;
+
+    /**
+     * requests to change the direction, packed with {@link DirectionChangeRequest#pack()}. They
+     * are added by the ui thread and removed by the thread that runs the game.
+     */
+    private InputRing mDirectionChanges;
+
+    /**
+     * the number of dropped direction changes that were already logged
+     */
+    private long mReportedDrops;
+
+    /**
+     * records every request to change directions once it is removed from the ring
+     */
+    private InputRecorder mRecorder;
+
+    /**
+     * the state after the most recent steps and the direction changes applied during them
+     */
+    private RollbackBuffer mRollback;
+
+    /**
+     * measures the latency of traced direction changes, null if they are not measured
+     */
+    private volatile InputLatencyTracker mLatencyTracker;
+
+    /**
+     * determines when the game is simulated
+     */
+    private TickScheduler mScheduler;
+
+    /**
+     * bitmap of the grid cells covered by the cycle paths
+     */
+    private OccupancyGrid mOccupancy;
+
+    /**
+     * the time in milliseconds of the previous collision detection
+     */
+    private long mLastCollisionTime;
+
+    /**
+     * finds the cycles that could have collided during a step, and the buffer the candidates of
+     * one cycle are copied into
+     */
+    private BroadPhase mBroadPhase;
+    private Cycle[] mCandidates;
+
+    private Cycle[] mCycles;
+
+    /**
+     * set by the ui thread and by the thread that runs the game when it ends
+     */
+    private volatile boolean mRunning;
+    private int mNumCycles;
+    private int mRemainingCycles;
+    private int mSpeed;
+
+
+    /**
+     * Initializes the Grid and Cycles.
+     *
+     * @param numTilesX the number of tiles in the x direction
+     * @param numTilesY the number of tiles in the y direction
+     * @param numCycles the number of cycles in the game
+     * @param speed the speed of the cycles in tiles per second
+     */
+    public GameEngine(int numTilesX, int numTilesY, int numCycles, int speed){
+        this(new Grid(numTilesX, numTilesY, GAME_GRID_TILE_LENGTH), numCycles, speed);
+    }
+
+
+    /**
+     * Initializes the Cycles on an existing Grid.
+     *
+     * @param grid the grid the game is played on
+     * @param numCycles the number of cycles in the game
+     * @param speed the speed of the cycles in tiles per second
+     */
+    public GameEngine(Grid grid, int numCycles, int speed){
+        this(grid, numCycles, speed, new TickScheduler());
+    }
+
+
+    /**
+     * Initializes the Cycles on an existing Grid that is simulated with the given scheduler.
+     *
+     * @param grid the grid the game is played on
+     * @param numCycles the number of cycles in the game
+     * @param speed the speed of the cycles in tiles per second
+     * @param scheduler determines the ticks that the game is simulated on
+     */
+    public GameEngine(Grid grid, int numCycles, int speed, TickScheduler scheduler){
+        mGameGrid = grid;
+        mScheduler = scheduler;
+        mOccupancy = new OccupancyGrid(grid, OccupancyGrid.DEFAULT_CELLS_PER_TILE);
+        mNumCycles = numCycles;
+        mSpeed = speed;
+
+        mRecorder = new InputRecorder();
+        mRemainingCycles = numCycles;
+        mRunning = false;
+
+        createCycles();
+    }
+
+
+    /**
+     * Creates cycles with default positions. Cycles take turns starting on the four sides of the
+     * grid, see {@link Cycle#getStartSide(int)}, and are spread out evenly along their side
+     * {@link #SPAWN_DISTANCE} away from the edge. With four or less cycles every cycle starts at
+     * the middle of its side.
+     */
+    private void createCycles() {
+        EngineLog.v(TAG,"creating " + mNumCycles + " cycles");
+        mCycles= new Cycle[mNumCycles];
+        mCandidates = new Cycle[mNumCycles];
+        mBroadPhase = new BroadPhase(mNumCycles);
+        mOccupancy.clear();
+        mLastCollisionTime = 0;
+        double w = mGameGrid.getWidth();
+        double h = mGameGrid.getHeight();
+
+        //leave room for a few pending requests from every cycle
+        int capacity = Math.max(MIN_REQUEST_CAPACITY, mNumCycles * REQUESTS_PER_CYCLE);
+        if( mDirectionChanges == null || mDirectionChanges.getCapacity() < capacity ) {
+            mDirectionChanges = new InputRing(capacity, InputRing.OverflowPolicy.DROP_NEWEST);
+            mReportedDrops = 0;
+        }
+
+        for(int i = 0; i < mNumCycles; i++){
+            int side = Cycle.getStartSide(i);
+            int cyclesOnSide = (mNumCycles - side + 3) / 4;
+            double position = (i / 4 + 1) / (double) (cyclesOnSide + 1);
+            double x, y;
+            switch (side){
+                case 0:
+                    x = w * position;
+                    y = SPAWN_DISTANCE;
+                    break;
+                case 1:
+                    x = w * position;
+                    y = h - SPAWN_DISTANCE;
+                    break;
+                case 2:
+                    x = SPAWN_DISTANCE;
+                    y = h * position;
+                    break;
+                default:
+                    x = w - SPAWN_DISTANCE;
+                    y = h * position;
+                    break;
+            }
+            mCycles[i] = new Cycle(x, y, CYCLE_WIDTH, CYCLE_HEIGHT, i, mSpeed);
+            mCycles[i].setOccupancyGrid(mOccupancy);
+        }
+        resetRollback();
+    }
+
+
+    /**
+     * Forget the saved steps and save the current state as the only one. The buffer is made
+     * again if the number of cycles changed.
+     */
+    private void resetRollback(){
+        int numSteps = Math.max(2, ROLLBACK_WINDOW * mScheduler.getTickRate() / 1000 + 1);
+        if( mRollback == null || mRollback.getCapacity() != numSteps ||
+                mRollback.getNumCycles() != mNumCycles )
+            mRollback = new RollbackBuffer(mNumCycles, numSteps);
+        mRollback.clear();
+        mRollback.save(mLastCollisionTime, mCycles, mRemainingCycles);
+    }
+
+
+    /**
+     * Clear the occupancy grid and mark the paths of every cycle on it again. This is needed when
+     * a path got shorter, since the cells it no longer covers are still marked.
+     */
+    private void rebuildOccupancy(){
+        EngineLog.d(TAG, "rebuilding occupancy grid");
+        mOccupancy.clear();
+        for(int i = 0; i < mNumCycles; i++){
+            mCycles[i].getPath().fillOccupancyGrid();
+        }
+    }
+
+
+    /**
+     * Mark the cells that were unmarked when the paths were rewound but are still covered by a
+     * path. Only the area the paths grew into since the step they were rewound to is filled
+     * again, so a rewind costs as much as the steps it undid and not as much as the paths are
+     * long.
+     */
+    private void repairOccupancy(){
+        for(int i = 0; i < mNumCycles; i++){
+            mCycles[i].getPath().refillOccupancyGrid();
+        }
+        mOccupancy.forgetUnmarked();
+    }
+
+
+    /**
+     * Creates a new game by initializing new cycles. This method will fail if a game is
+     * currently running.
+     */
+    public void newGame(){
+        if( mRunning )
+            return;
+
+        mRemainingCycles = mNumCycles;
+        mRunning=false;
+        mDirectionChanges.clear();
+        mRecorder = new InputRecorder();
+        mScheduler.reset();
+        createCycles();
+    }
+
+
+    /**
+     * Advance the game to the given elapsed time by running every tick that is due. This method
+     * will fail if a game is not currently running.
+     *
+     * @param elapsedTime the time in milliseconds since the game started, not counting pauses
+     * @return {@link #NO_EVENT} or a combination of {@link #TURN_EVENT} and {@link #CRASH_EVENT}
+     */
+    public int advance(long elapsedTime){
+        if( !mRunning )
+            return NO_EVENT;
+
+        int events = NO_EVENT;
+        int ticks = mScheduler.advance(elapsedTime);
+        for( int i = 0; i < ticks && mRunning; i++ ){
+            events |= step(mScheduler.nextTick());
+        }
+        return events;
+    }
+
+
+    /**
+     * Advance the game to the given time. Pending direction changes that are due by this time are
+     * applied, the cycles are moved, and collisions are detected. This method will fail if a game
+     * is not currently running.
+     * <p>
+     * If a direction change is for a time that was already simulated, the game is rolled back to
+     * the step before that time and the steps since then are simulated again with it. The events
+     * of those steps are included in the result. A direction change that is older than every
+     * saved step is applied on the earliest step that can still be simulated again.
+     *
+     * @param time the time in milliseconds since the game started
+     * @return {@link #NO_EVENT} or a combination of {@link #TURN_EVENT} and {@link #CRASH_EVENT}
+     */
+    public int step(long time){
+        if( !mRunning )
+            return NO_EVENT;
+
+        int events = NO_EVENT;
+        long lateTime = pollDirectionChangeRequests(time);
+        if( lateTime != RollbackBuffer.NO_TIME )
+            events |= rollBack(lateTime);
+
+        if( mRunning )
+            events |= simulate(time);
+        return events;
+    }
+
+
+    /**
+     * Apply the direction changes that are due, move the cycles, detect collisions, and save the
+     * state of the game.
+     */
+    private int simulate(long time){
+        int events = NO_EVENT;
+        if( checkDirectionChangeRequests(time) )
+            events |= TURN_EVENT;
+
+        move(time);
+
+        if( collisionDetection(time) )
+            events |= CRASH_EVENT;
+
+        mRollback.save(time, mCycles, mRemainingCycles);
+        return events;
+    }
+
+
+    /**
+     * Put the game back to the newest saved step before a time and simulate the steps after it
+     * again, stopping early if the game ends.
+     *
+     * @param lateTime the time of the earliest direction change that was not simulated
+     * @return the events of the steps that were simulated again
+     */
+    private int rollBack(long lateTime){
+        int undone = mRollback.rewind(lateTime, mCycles);
+        if( undone < 0 )
+            return NO_EVENT;
+        mRemainingCycles = mRollback.getRemainingCycles();
+        mLastCollisionTime = mRollback.getTime();
+        if( mOccupancy.isInvalid() )
+            rebuildOccupancy();
+        else
+            repairOccupancy();
+
+        //nothing is logged, most turns in the app are late and this runs on every one of them
+
+        int events = NO_EVENT;
+        for( int i = 0; i < undone && mRunning; i++ )
+            events |= simulate(mRollback.getUndoneTime(i));
+        return events;
+    }
+
+
+    /**
+     * move all the cycles. This method will fail if a game is not currently running.
+     * @param time the time in milliseconds since the game started
+     */
+    public void move(long time){
+        if( !mRunning )
+            return;
+
+        for(int i=0;i<mNumCycles;i++){
+            mCycles[i].move(time);
+        }
+    }
+
+
+    /**
+     * Creates a request to change the direction. The time is quantized to the first tick at or
+     * after it, and if the request is valid it will be applied on that tick. This method will fail
+     * if a game is not currently running.
+     * <p>
+     * The request is added to a lock free ring, so this never blocks or allocates. If the thread
+     * that runs the game has fallen so far behind that the ring is full, the request is dropped
+     * and counted, see {@link #getDirectionChanges()}. The count is logged by the thread that runs
+     * the game once the game ends.
+     *
+     * @param cycleNum the id for the cycle
+     * @param newDirection the new direction for the cycle
+     * @param time the time in milliseconds since the game started when the cycle will change
+     *             directions, not counting pauses
+     */
+    public void requestDirectionChange(int cycleNum, Compass newDirection, long time){
+        offerDirectionChange(cycleNum, newDirection, time, 0);
+    }
+
+
+    /**
+     * Creates a request to change the direction that is traced by the latency tracker, see
+     * {@link #setLatencyTracker(InputLatencyTracker)}. Without a tracker this is the same as
+     * {@link #requestDirectionChange(int, Compass, long)}.
+     *
+     * @param cycleNum the id for the cycle
+     * @param newDirection the new direction for the cycle
+     * @param time the time in milliseconds when the cycle will change directions
+     * @param eventTime when the input event that made the request happened, in nanoseconds on
+     *                  the {@link System#nanoTime()} clock
+     * @param recognizeTime when the input was recognized as a request, in nanoseconds on the
+     *                      {@link System#nanoTime()} clock
+     */
+    public void requestDirectionChange(int cycleNum, Compass newDirection, long time,
+                                       long eventTime, long recognizeTime){
+        InputLatencyTracker tracker = mLatencyTracker;
+        if( tracker == null || !mRunning ) {
+            requestDirectionChange(cycleNum, newDirection, time);
+            return;
+        }
+        offerDirectionChange(cycleNum, newDirection, time,
+                tracker.begin(eventTime, recognizeTime, System.nanoTime()));
+    }
+
+
+    private void offerDirectionChange(int cycleNum, Compass newDirection, long time, int trace){
+        //so that buffer isn't full of messages before the game starts
+        if( !mRunning )
+            return;
+
+        long tickTime = mScheduler.toTickTime(time);
+        long event = DirectionChangeRequest.pack(cycleNum, newDirection, tickTime, trace);
+        //a dropped request is only counted here, the count is logged when the game ends
+        mDirectionChanges.offer(event);
+    }
+
+
+    /**
+     * Remove the requests that are due by the given time from the queue and remember them in the
+     * rollback buffer. Every removed request is recorded, see {@link #getReplay()}. Requests for a
+     * later time are left in the queue. A request that is older than every step that can be
+     * simulated again is moved to the earliest one, and is recorded with that time.
+     *
+     * @param time the time in milliseconds of the step that is about to be simulated
+     * @return the time of the earliest request that was already simulated,
+     *          {@link RollbackBuffer#NO_TIME} if there is none
+     */
+    private long pollDirectionChangeRequests(long time){
+        long earliestTime = mRollback.getEarliestTime();
+        long lateTime = RollbackBuffer.NO_TIME;
+        long requestTime;
+        int trace;
+
+        long event = mDirectionChanges.peek();
+        while(event != InputRing.EMPTY && DirectionChangeRequest.getTime(event) <= time){
+            mDirectionChanges.poll();
+            requestTime = DirectionChangeRequest.getTime(event);
+            trace = DirectionChangeRequest.getTrace(event);
+            if( requestTime <= mLastCollisionTime ) {
+                if( earliestTime == RollbackBuffer.NO_TIME )
+                    requestTime = time;
+                else if( requestTime < earliestTime )
+                    requestTime = earliestTime;
+                event = DirectionChangeRequest.pack(DirectionChangeRequest.getCycleNum(event),
+                        DirectionChangeRequest.getDirection(event), requestTime, trace);
+                if( requestTime <= mLastCollisionTime &&
+                        (lateTime == RollbackBuffer.NO_TIME || requestTime < lateTime) )
+                    lateTime = requestTime;
+            }
+            mRecorder.append(event);
+            mRollback.addRequest(event);
+            if( trace != 0 && mLatencyTracker != null )
+                mLatencyTracker.applied(trace, requestTime, System.nanoTime());
+            event = mDirectionChanges.peek();
+        }
+        return lateTime;
+    }
+
+
+    /**
+     * Apply the requests to change directions that are after the previous step and due by the
+     * given time, if they are valid. The requests are taken from the rollback buffer, so the same
+     * requests are applied when a step is simulated again. This method will fail if a game is not
+     * currently running.
+     *
+     * @param time the current time in milliseconds
+     * @return true if at least one direction changed, false otherwise.
+     */
+    public boolean checkDirectionChangeRequests(long time){
+        if( !mRunning )
+            return false;
+
+        boolean change = false;
+        boolean temp;
+        long event;
+        long requestTime;
+        int numRequests = mRollback.getNumRequests();
+        for( int i = 0; i < numRequests; i++ ){
+            event = mRollback.getRequest(i);
+            requestTime = DirectionChangeRequest.getTime(event);
+            if( requestTime <= mLastCollisionTime )
+                continue;
+            if( requestTime > time )
+                break;
+            temp = mCycles[DirectionChangeRequest.getCycleNum(event)].changeDirection(
+                    DirectionChangeRequest.getDirection(event), requestTime);
+            change = temp || change;
+        }
+        return change;
+    }
+
+
+    /**
+     * Detects if any of cycles have collided and sets them to crashed status preventing them from
+     * moving. Only what changed since the previous call is tested. A cycle crashes with a path if
+     * its front swept into a cell of the occupancy grid or into what another path grew into this
+     * step, and crashes with another cycle if their rectangles overlap or the path of the other
+     * cycle grew into it. The growth is committed to the occupancy grid afterwards. The cost does
+     * not grow with the length of the paths.
+     * <p>
+     * Cycles are only tested against each other if the {@link BroadPhase} found that they could
+     * have collided, so the cost is close to linear in the number of cycles when they are spread
+     * out. Crashed cycles are given the time within the step when the collision actually
+     * happened. This method will fail if a game is not currently running.
+     *
+     * @param currentTime the current time in milliseconds.
+     * @return true if a cycle crashed, false otherwise.
+     */
+    public boolean collisionDetection(long currentTime){
+        if( !mRunning )
+            return false;
+
+        int initialCycles = mRemainingCycles;
+        long crashTime;
+        int numCandidates;
+        Cycle other;
+        mBroadPhase.update(mCycles);
+
+        for( int currentCycle = 0; currentCycle < mNumCycles; currentCycle++ ){
+            //don't check if already crashed
+            if( mCycles[currentCycle].hasCrashed() )
+                continue;
+            //check if cycle out of bounds,
+            if( mGameGrid.OutOfBounds(mCycles[currentCycle])) {
+                EngineLog.v(TAG, "Player " + currentCycle + " is out of bounds");
+                mCycles[currentCycle].crashed(boundaryCrashTime(mCycles[currentCycle], currentTime));
+                mRemainingCycles--;
+                continue;
+            }
+            numCandidates = mBroadPhase.getNumCandidates(currentCycle);
+            for(int n = 0; n < numCandidates; n++)
+                mCandidates[n] = mCycles[mBroadPhase.getCandidate(currentCycle, n)];
+
+            //check to see if cycle crashed with any path
+            crashTime = mCycles[currentCycle].sweptCrashTime(mOccupancy, mCandidates,
+                    numCandidates, mLastCollisionTime, currentTime);
+            if(crashTime != Cycle.DEFAULT_TIME) {
+                EngineLog.v(TAG, "Player " + currentCycle + " crashed with a path");
+                mCycles[currentCycle].crashed(crashTime);
+                mRemainingCycles--;
+                continue;
+            }
+
+            //check to see if cycle crashed with another cycle or the newest part of its path
+            for(int n = 0; n < numCandidates; n++){
+                other = mCandidates[n];
+                if(Grid.overlap(other, mCycles[currentCycle])){
+                    EngineLog.v(TAG,"Player " + currentCycle + " crashed with cycle " + other.getId());
+                    mCycles[currentCycle].crashed(contactTime(mCycles[currentCycle],
+                            other, currentTime));
+                    mRemainingCycles--;
+                    break;
+                }
+                if(other.getPath().grewInto(mCycles[currentCycle])){
+                    EngineLog.v(TAG,"Player " + currentCycle + " crashed with path of cycle " + other.getId());
+                    mCycles[currentCycle].crashed(currentTime);
+                    mRemainingCycles--;
+                    break;
+                }
+            }
+        }
+
+        //everything the paths grew into has now been validated
+        if( mOccupancy.isInvalid() ) {
+            rebuildOccupancy();
+        } else {
+            for (Cycle cycle : mCycles) {
+                cycle.getPath().commitGrowth();
+            }
+        }
+
+        //determine the places for cycles now that all collisions have been detected.
+        if( initialCycles != mRemainingCycles ){
+            for( Cycle cycle:mCycles ){
+               if(cycle.hasCrashed() && cycle.getPlace() == Cycle.DEFAULT_PLACE)
+                   cycle.setPlace(mRemainingCycles + 1);
+            }
+        }
+
+        mLastCollisionTime = currentTime;
+
+        if( mRemainingCycles <= 1 ) {
+            //set place 1 for the uncrashed cycles.
+            for (Cycle cycle:mCycles) {
+                if( !cycle.hasCrashed() )
+                    cycle.setPlace(1);
+            }
+            mRunning = false;
+            long dropped = mDirectionChanges.getNumDropped() - mReportedDrops;
+            if( dropped > 0 ) {
+                EngineLog.w(TAG, "dropped " + dropped + " direction changes, the queue was full");
+                mReportedDrops += dropped;
+            }
+        }
+
+        return  initialCycles != mRemainingCycles ;
+    }
+
+
+    /**
+     * Determine when a cycle that is out of bounds crossed the edge of the grid.
+     *
+     * @param cycle the cycle that is out of bounds
+     * @param currentTime the current time in milliseconds
+     * @return the time in milliseconds when the front of the cycle left the grid
+     */
+    private long boundaryCrashTime(Cycle cycle, long currentTime){
+        double distancePast;
+        switch (cycle.getDirection()){
+            case EAST:
+                distancePast = cycle.getRight() - mGameGrid.getWidth();
+                break;
+            case WEST:
+                distancePast = -cycle.getLeft();
+                break;
+            case SOUTH:
+                distancePast = cycle.getTop() - mGameGrid.getHeight();
+                break;
+            default:
+                distancePast = -cycle.getBottom();
+                break;
+        }
+        return cycle.getTimeBefore(distancePast, mLastCollisionTime, currentTime);
+    }
+
+
+    /**
+     * Determine when two overlapping cycles first touched by moving them back along their
+     * directions until their rectangles no longer overlap.
+     *
+     * @param cycle a cycle that overlaps the other cycle
+     * @param other the other cycle
+     * @param currentTime the current time in milliseconds
+     * @return the time in milliseconds when the cycles first touched
+     */
+    private long contactTime(Cycle cycle, Cycle other, long currentTime){
+        double overlapX = Math.min(cycle.getRight(), other.getRight()) -
+                Math.max(cycle.getLeft(), other.getLeft());
+        double overlapY = Math.min(cycle.getTop(), other.getTop()) -
+                Math.max(cycle.getBottom(), other.getBottom());
+        double speedX = Math.abs(cycle.getVelocityX() - other.getVelocityX());
+        double speedY = Math.abs(cycle.getVelocityY() - other.getVelocityY());
+
+        //going back in time, the rectangles separate as soon as one axis stops overlapping
+        double seconds = Double.POSITIVE_INFINITY;
+        if( speedX > 0 )
+            seconds = overlapX / speedX;
+        if( speedY > 0 )
+            seconds = Math.min(seconds, overlapY / speedY);
+        if( Double.isInfinite(seconds) )
+            seconds = 0;
+
+        long time = currentTime - Math.round(seconds * 1000);
+        long earliest = Math.max(mLastCollisionTime, Math.max(
+                cycle.getPath().getLineStartTime(cycle.getPath().getNumLines()),
+                other.getPath().getLineStartTime(other.getPath().getNumLines())));
+        return Math.min(currentTime, Math.max(time, earliest));
+    }
+
+
+    /**
+     * Set the number of cycles. All of the cycles are recreated.
+     *
+     * @param numPlayers the new number of cycles
+     */
+    public void updateNumPlayers(int numPlayers){
+        mNumCycles=numPlayers;
+        mRemainingCycles=numPlayers;
+        createCycles();
+    }
+
+
+    /**
+     * Recreate the cycles at their starting positions.
+     */
+    public void resetCycles(){
+        createCycles();
+    }
+
+
+    /**
+     * Set the game to be either running or not running.
+     *
+     * @param running true if the game is active, false otherwise
+     */
+    public void setRunning(boolean running){
+        mRunning = running;
+    }
+
+
+    /**
+     * @return true if the game is active, false otherwise
+     */
+    public boolean isRunning(){return mRunning;}
+
+
+    /**
+     * @return the grid the game is played on
+     */
+    public Grid getGrid(){
+        return mGameGrid;
+    }
+
+
+    /**
+     * @return the cycles in the game
+     */
+    public Cycle[] getCycles(){
+        return mCycles;
+    }
+
+
+    /**
+     * @return the number of cycles
+     */
+    public int getNumCycles(){return mNumCycles;}
+
+
+    /**
+     * @return the number of cycles that have not crashed
+     */
+    public int getRemainingCycles(){return mRemainingCycles;}
+
+
+    /**
+     * @return the speed of the cycles in tiles per second
+     */
+    public int getSpeed(){return mSpeed;}
+
+
+    /**
+     * @return the scheduler that determines the ticks the game is simulated on
+     */
+    public TickScheduler getScheduler(){return mScheduler;}
+
+
+    /**
+     * @return a copy of the direction change requests that were applied or rejected since the
+     *         game started, in the order they were made. This can be called from any thread.
+     */
+    public ArrayList<DirectionChangeRequest> getReplay(){
+        InputRecorder recorder = mRecorder;
+        int size = recorder.size();
+        ArrayList<DirectionChangeRequest> replay = new ArrayList<>(size);
+        for( int i = 0; i < size; i++ )
+            replay.add(new DirectionChangeRequest(recorder.get(i)));
+        return replay;
+    }
+
+
+    /**
+     * Measure the latency of the direction changes that are made with
+     * {@link #requestDirectionChange(int, Compass, long, long, long)}.
+     *
+     * @param tracker the tracker that measures the latency, null to stop measuring
+     */
+    public void setLatencyTracker(InputLatencyTracker tracker){
+        mLatencyTracker = tracker;
+    }
+
+
+    /**
+     * @return the tracker that measures the latency of direction changes, null if there is none
+     */
+    public InputLatencyTracker getLatencyTracker(){return mLatencyTracker;}
+
+
+    /**
+     * @return the ring that holds the direction changes that were not applied yet, and counts
+     *         the ones that were dropped
+     */
+    public InputRing getDirectionChanges(){return mDirectionChanges;}
+
+
+    /**
+     * @return the buffer that holds the state after the most recent steps
+     */
+    public RollbackBuffer getRollbackBuffer(){return mRollback;}
+
+
+    /**
+     * Save the state of the game onto a bundle.
+     *
+     * @param bundle the bundle to save the state onto
+     */
+    public void saveState(StateBundle bundle){
+        bundle.putInt(REMAINING_CYCLES_KEY,mRemainingCycles);
+        mScheduler.saveState(bundle);
+        for(int i = 0; i < mNumCycles; i++){
+            mCycles[i].saveState(bundle);
+        }
+    }
+
+
+    /**
+     * Restore the previous state of the game from a bundle.
+     *
+     * @param bundle the bundle that has the previous state saved
+     */
+    public void restoreState(StateBundle bundle){
+        mRemainingCycles = bundle.getInt(REMAINING_CYCLES_KEY,mNumCycles);
+        mScheduler.restoreState(bundle);
+        mLastCollisionTime = mScheduler.getTime();
+        for(int i = 0; i < mNumCycles; i++){
+            mCycles[i].restoreState(bundle);
+        }
+        rebuildOccupancy();
+        resetRollback();
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mNumCycles",mNumCycles );
+        description.addMember("mRemainingCycles", mRemainingCycles);
+        description.addMember("mSpeed", mSpeed);
+        description.addMember("mRunning", mRunning);
+        description.addClassMember("mGameGrid", mGameGrid);
+        description.addClassMember("mScheduler", mScheduler);
+        description.addClassMember("mDirectionChanges", mDirectionChanges);
+        description.addClassMember("mRollback", mRollback);
+
+        for(int i = 0; i <mNumCycles;i++)
+            description.addClassMember("mCycle[" + i + "}", mCycles[i]);
+
+        return description.getString();
+    }
+
+
+    /**
+     * An information node that keeps track of the details for when a cycle wants to changes its direction.
+     */
+    public static final class DirectionChangeRequest {
+        //a packed request has the time in the high bits, then the trace id, the direction, and
+        //the cycle
+        private static final int        CYCLE_BITS      =   16;
+        private static final int        DIRECTION_BITS  =   2;
+        private static final int        TRACE_BITS      =   8;
+        private static final int        TRACE_SHIFT     =   CYCLE_BITS + DIRECTION_BITS;
+        private static final int        TIME_SHIFT      =   TRACE_SHIFT + TRACE_BITS;
+        private static final long       CYCLE_MASK      =   (1L << CYCLE_BITS) - 1;
+        private static final long       DIRECTION_MASK  =   (1L << DIRECTION_BITS) - 1;
+        private static final long       TRACE_MASK      =   (1L << TRACE_BITS) - 1;
+        private static final long       MAX_TIME        =   Long.MAX_VALUE >>> TIME_SHIFT;
+        private static final Compass[]  DIRECTIONS      =   Compass.values();
+
+        private final Compass mDirection;
+        private final long mTime;
+        private final int mCycleNum;
+
+
+        /**
+         * Constructs a node keeps track of the details for when a cycle changes direction.
+         * @param direction the direction that the cycle should change directions to
+         * @param time When the request was made. The time the milliseconds since thee start
+         *             of the animation.
+         * @param cycleNum the cycle that should change its direction.
+         */
+        public DirectionChangeRequest(Compass direction, long time, int cycleNum){
+            mDirection=direction;
+            mTime=time;
+            mCycleNum=cycleNum;
+        }
+
+
+        /**
+         * Unpacks a request made with {@link #pack()}.
+         *
+         * @param packed the packed request
+         */
+        public DirectionChangeRequest(long packed){
+            this(getDirection(packed), getTime(packed), getCycleNum(packed));
+        }
+
+
+        /**
+         * Packs the parts of a request into a long that is never negative.
+         *
+         * @param cycleNum the cycle that should change its direction, less than 65536
+         * @param direction the direction that the cycle should change directions to
+         * @param time the time in milliseconds of the request, not negative
+         * @return the packed request
+         */
+        public static long pack(int cycleNum, Compass direction, long time){
+            return pack(cycleNum, direction, time, 0);
+        }
+
+
+        /**
+         * Packs the parts of a request and the id it is traced with into a long that is never
+         * negative.
+         *
+         * @param cycleNum the cycle that should change its direction, less than 65536
+         * @param direction the direction that the cycle should change directions to
+         * @param time the time in milliseconds of the request, not negative
+         * @param trace the id given by {@link InputLatencyTracker#begin(long, long, long)}, or
+         *              zero if the request is not traced
+         * @return the packed request
+         */
+        public static long pack(int cycleNum, Compass direction, long time, int trace){
+            if( cycleNum < 0 || cycleNum > CYCLE_MASK )
+                throw new IllegalArgumentException("cycleNum out of range: " + cycleNum);
+            if( time < 0 || time > MAX_TIME )
+                throw new IllegalArgumentException("time out of range: " + time);
+            if( trace < 0 || trace > TRACE_MASK )
+                throw new IllegalArgumentException("trace out of range: " + trace);
+            return (time << TIME_SHIFT) | ((long) trace << TRACE_SHIFT) |
+                    ((long) direction.ordinal() << CYCLE_BITS) | cycleNum;
+        }
+
+
+        /**
+         * @return this request packed into a long
+         */
+        public long pack(){
+            return pack(mCycleNum, mDirection, mTime);
+        }
+
+
+        /**
+         * @return the cycle of a packed request
+         */
+        public static int getCycleNum(long packed){
+            return (int) (packed & CYCLE_MASK);
+        }
+
+
+        /**
+         * @return the direction of a packed request
+         */
+        public static Compass getDirection(long packed){
+            return DIRECTIONS[(int) ((packed >>> CYCLE_BITS) & DIRECTION_MASK)];
+        }
+
+
+        /**
+         * @return the trace id of a packed request, zero if it is not traced
+         */
+        public static int getTrace(long packed){
+            return (int) ((packed >>> TRACE_SHIFT) & TRACE_MASK);
+        }
+
+
+        /**
+         * @return the time of a packed request
+         */
+        public static long getTime(long packed){
+            return packed >>> TIME_SHIFT;
+        }
+
+
+        /**
+         * @return the cycle for this direction change request
+         */
+        public int getCycleNum() {
+            return mCycleNum;
+        }
+
+
+        /**
+         * @return the direction for this direction change request
+         */
+        public Compass getDirection() {
+            return mDirection;
+        }
+
+
+        /**
+         * @return the time for this direction change request.
+         */
+        public long getTime() {
+            return mTime;
+        }
+
+
+        /**
+         * @return a copy of the current instance
+         */
+        public DirectionChangeRequest makeCopy(){
+            return new DirectionChangeRequest(mDirection,mTime,mCycleNum);
+        }
+
+
+        @Override
+        public String toString() {
+            return "Direction Change Request: player " + mCycleNum +
+                    ", direction " + mDirection + ", at time " + mTime;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Draws the state of a game onto a {@link Renderer}. Everything is placed with a
+ * {@link ScreenTransform}, so the same frame can be drawn on a device or into memory with a
+ * {@link RasterRenderer}. The grid lines are computed once when the transform is set.
+ * <p>
+ * A GameRenderer only reads the cycles, so several of them can draw copies of a game at the same
+ * time, each with its own renderer.
+ * <p>
+ * Without a {@link FrameInterpolator} the cycles and paths are drawn where the last tick left
+ * them. With one, they are drawn where the interpolator placed them for the frame.
+ */
+public class GameRenderer {
+    public  static final String     TAG                     =   "GAME_RENDERER";
+    public  static final int        BACKGROUND_COLOR        =   0xFF000000;
+    public  static final int        GRID_COLOR              =   0xFF0000FF;
+
+    /**
+     * red, green, yellow, and purple for the first four cycles, then blue
+     */
+    private static final int[]      PATH_COLORS             =   {
+            0xFFFF0000, 0xFF00FF00, 0xFFFFFF00, 0xFFFF00FF, 0xFF0000FF};
+
+    private ScreenTransform mTransform;
+
+    /**
+     * the start and end points of every grid line
+     */
+    private float[] mGridLines;
+
+    /**
+     * left, top, right, and bottom of the last path segment
+     */
+    private final int[] mSegment;
+
+    private FrameInterpolator mInterpolator;
+
+
+    /**
+     * @param grid the grid of the game
+     * @param transform maps the grid onto the animation frame
+     */
+    public GameRenderer(Grid grid, ScreenTransform transform){
+        mSegment = new int[4];
+        setTransform(grid, transform);
+    }
+
+
+    /**
+     * Change how the grid is placed on the animation frame.
+     *
+     * @param grid the grid of the game
+     * @param transform maps the grid onto the animation frame
+     */
+    public void setTransform(Grid grid, ScreenTransform transform){
+        mTransform = transform;
+        createGridLines(grid.getNumTilesX(), grid.getNumTilesY());
+    }
+
+
+    /**
+     * @param interpolator places the cycles on each frame, null to draw them where the last tick
+     *                     left them. It must be updated before each frame is drawn.
+     */
+    public void setInterpolator(FrameInterpolator interpolator){
+        mInterpolator = interpolator;
+    }
+
+
+    /**
+     * @return what places the cycles on each frame, may be null
+     */
+    public FrameInterpolator getInterpolator(){return mInterpolator;}
+
+
+    /**
+     * Fill mGridLines with the lines of the grid. Each tile has a line on both of its edges in
+     * each direction.
+     */
+    private void createGridLines(int numTilesX, int numTilesY){
+        int tileLength = mTransform.getTileLength();
+        int left = mTransform.getPaddingX();
+        int top = mTransform.getPaddingY();
+        int bottom = top + tileLength * numTilesY - 1;
+        int right = left + tileLength * numTilesX - 1;
+
+        int size = (numTilesX + numTilesY) * 2 * 4;
+        if( mGridLines == null || mGridLines.length != size )
+            mGridLines = new float[size];
+
+        int i = 0;
+        //vertical lines
+        int offset = left;
+        for( int tile = 0; tile < numTilesX; tile++ ){
+            i = putLine(i, offset, top, offset, bottom);
+            offset += tileLength;
+            i = putLine(i, offset - 1, top, offset - 1, bottom);
+        }
+
+        //horizontal lines
+        offset = top;
+        for( int tile = 0; tile < numTilesY; tile++ ){
+            i = putLine(i, left, offset, right, offset);
+            offset += tileLength;
+            i = putLine(i, left, offset - 1, right, offset - 1);
+        }
+    }
+
+
+    /**
+     * @return the index after the line that was put in mGridLines
+     */
+    private int putLine(int index, float x0, float y0, float x1, float y1){
+        mGridLines[index] = x0;
+        mGridLines[index + 1] = y0;
+        mGridLines[index + 2] = x1;
+        mGridLines[index + 3] = y1;
+        return index + 4;
+    }
+
+
+    /**
+     * @param cycleId the id of a cycle
+     * @return the color of the cycles path
+     */
+    public static int getPathColor(int cycleId){
+        return PATH_COLORS[Math.min(Math.max(cycleId, 0), PATH_COLORS.length - 1)];
+    }
+
+
+    /**
+     * Find the area that part of a line of a path covers on the animation frame. The part is
+     * measured from the start of the line and includes the thickness of the path.
+     *
+     * @param path the path of a cycle
+     * @param lineNumber the number of the line in the path
+     * @param from where the part starts along the line
+     * @param to where the part ends along the line
+     * @param transform maps the grid onto the animation frame
+     * @param out receives the left, top, right, and bottom of the area
+     */
+    public static void getSegmentBounds(LinePath path, int lineNumber, double from, double to,
+                                        ScreenTransform transform, int[] out){
+        getSegmentBounds(path.getLineStartX(lineNumber), path.getLineStartY(lineNumber),
+                path.getLineDirection(lineNumber), from, to, path.getThickness(), transform, out);
+    }
+
+
+    /**
+     * Find the area that part of a line covers on the animation frame.
+     *
+     * @param x the x coordinate of the start of the line
+     * @param y the y coordinate of the start of the line
+     * @param direction the direction of the line
+     * @param from where the part starts along the line
+     * @param to where the part ends along the line
+     * @param thickness the thickness of the line
+     * @param transform maps the grid onto the animation frame
+     * @param out receives the left, top, right, and bottom of the area
+     */
+    public static void getSegmentBounds(double x, double y, Compass direction, double from,
+                                        double to, double thickness, ScreenTransform transform,
+                                        int[] out){
+        double x0 = Compass.moveX(x, from, direction);
+        double y0 = Compass.moveY(y, from, direction);
+        double x1 = Compass.moveX(x, to, direction);
+        double y1 = Compass.moveY(y, to, direction);
+        double half = thickness / 2;
+
+        out[0] = transform.toFrameX(Math.min(x0, x1) - half);
+        out[1] = transform.toFrameY(Math.min(y0, y1) - half);
+        out[2] = transform.toFrameX(Math.max(x0, x1) + half);
+        out[3] = transform.toFrameY(Math.max(y0, y1) + half);
+    }
+
+
+    /**
+     * Find the area of the animation frame that a cycle is drawn on, including the extension of
+     * its path when the interpolator draws it ahead of its path.
+     *
+     * @param index the index of the cycle in the array of cycles
+     * @param cycle the cycle
+     * @param out receives the left, top, right, and bottom of the area
+     */
+    public void getCycleBounds(int index, Cycle cycle, int[] out){
+        if( mInterpolator == null ){
+            out[0] = mTransform.toFrameX(cycle.getLeft());
+            out[1] = mTransform.toFrameY(cycle.getBottom());
+            out[2] = mTransform.toFrameX(cycle.getRight());
+            out[3] = mTransform.toFrameY(cycle.getTop());
+            return;
+        }
+        int left = mTransform.toFrameX(mInterpolator.getLeft(index));
+        int top = mTransform.toFrameY(mInterpolator.getBottom(index));
+        int right = mTransform.toFrameX(mInterpolator.getRight(index));
+        int bottom = mTransform.toFrameY(mInterpolator.getTop(index));
+        if( getExtensionBounds(index, cycle, out) ){
+            left = Math.min(left, out[0]);
+            top = Math.min(top, out[1]);
+            right = Math.max(right, out[2]);
+            bottom = Math.max(bottom, out[3]);
+        }
+        out[0] = left;
+        out[1] = top;
+        out[2] = right;
+        out[3] = bottom;
+    }
+
+
+    /**
+     * @return true if the cycle is drawn ahead of its path, out then has the area of the
+     *         extension of the path
+     */
+    private boolean getExtensionBounds(int index, Cycle cycle, int[] out){
+        double extension = mInterpolator.getExtension(index);
+        if( extension <= 0 )
+            return false;
+        getSegmentBounds(mInterpolator.getHeadX(index), mInterpolator.getHeadY(index),
+                mInterpolator.getDirection(index), 0, extension,
+                cycle.getPath().getThickness(), mTransform, out);
+        return true;
+    }
+
+
+    /**
+     * Draw the background color and the grid.
+     */
+    public void drawBackground(Renderer renderer){
+        renderer.clear(BACKGROUND_COLOR);
+        renderer.drawLines(mGridLines, mGridLines.length, GRID_COLOR);
+    }
+
+
+    /**
+     * Draw every line of the path of every cycle. With an interpolator the paths end where it
+     * placed them, the extension of a path is drawn with its cycle.
+     */
+    public void drawPaths(Renderer renderer, Cycle[] cycles){
+        for( int i = 0; i < cycles.length; i++ ){
+            LinePath path = cycles[i].getPath();
+            int color = getPathColor(cycles[i].getId());
+            int lastLine = mInterpolator == null ? path.getNumLines() : mInterpolator.getHeadLine(i);
+            for( int line = 1; line <= lastLine; line++ ){
+                double length = path.getLineLength(line);
+                if( mInterpolator != null && line == lastLine )
+                    length = mInterpolator.getHeadLength(i);
+                getSegmentBounds(path, line, 0, length, mTransform, mSegment);
+                renderer.fillRect(mSegment[0], mSegment[1], mSegment[2], mSegment[3], color);
+            }
+        }
+    }
+
+
+    /**
+     * Draw every cycle, and the extension of its path if it is drawn ahead of its path.
+     */
+    public void drawCycles(Renderer renderer, Cycle[] cycles){
+        for( int i = 0; i < cycles.length; i++ ){
+            Cycle cycle = cycles[i];
+            if( mInterpolator == null ){
+                renderer.drawCycle(cycle, cycle.getDirection(),
+                        mTransform.toFrameX(cycle.getLeft()),
+                        mTransform.toFrameY(cycle.getBottom()),
+                        mTransform.toFrameX(cycle.getRight()),
+                        mTransform.toFrameY(cycle.getTop()));
+                continue;
+            }
+            if( getExtensionBounds(i, cycle, mSegment) )
+                renderer.fillRect(mSegment[0], mSegment[1], mSegment[2], mSegment[3],
+                        getPathColor(cycle.getId()));
+            renderer.drawCycle(cycle, mInterpolator.getDirection(i),
+                    mTransform.toFrameX(mInterpolator.getLeft(i)),
+                    mTransform.toFrameY(mInterpolator.getBottom(i)),
+                    mTransform.toFrameX(mInterpolator.getRight(i)),
+                    mTransform.toFrameY(mInterpolator.getTop(i)));
+        }
+    }
+
+
+    /**
+     * Draw the background, paths, and cycles.
+     */
+    public void drawFull(Renderer renderer, Cycle[] cycles){
+        drawBackground(renderer);
+        drawPaths(renderer, cycles);
+        drawCycles(renderer, cycles);
+    }
+
+
+    /**
+     * @return the transform that places the grid on the animation frame
+     */
+    public ScreenTransform getTransform(){return mTransform;}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addClassMember("mTransform", mTransform);
+        description.addClassMember("mInterpolator", mInterpolator);
+        description.addMember("numGridLines", mGridLines.length / 4);
+        return description.getString();
+    }
+}
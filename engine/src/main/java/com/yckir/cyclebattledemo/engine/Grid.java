@@ -1,8 +1,4 @@
-package com.yckir.cyclebattledemo.views.gameSurfaceView;
-
-import com.yckir.cyclebattledemo.utility.ClassStateString;
-import com.yckir.cyclebattledemo.utility.Point;
-import com.yckir.cyclebattledemo.utility.Tile;
+package com.yckir.cyclebattledemo.engine;
 
 /**
  * A 2D Grid composed of square Tiles. The origin is located
@@ -13,7 +9,7 @@ import com.yckir.cyclebattledemo.utility.Tile;
 public class Grid {
     public static final String TAG  =   "GRID";
 
-    public static Tile<Integer> GAME_GRID_TILE =new Tile<>(1);
+    private final Tile<Integer> mTile;
     private int mNumTilesX;
     private int mNumTilesY;
     private double mWidth;
@@ -32,7 +28,7 @@ public class Grid {
         mNumTilesY = numTilesY;
         mWidth=tileLength*numTilesX;
         mHeight=tileLength*numTilesY;
-        GAME_GRID_TILE =new Tile<>(tileLength);
+        mTile =new Tile<>(tileLength);
     }
 
 
@@ -69,14 +65,14 @@ public class Grid {
      * @return an immutable reference the Grids Tile
      */
     public Tile<Integer> getTile(){
-        return GAME_GRID_TILE;
+        return mTile;
     }
 
 
     /**
      * @return the length a Grid Tile
      */
-    public int getTileLength(){return GAME_GRID_TILE.getLength();}
+    public int getTileLength(){return mTile.getLength();}
 
 
     /**
@@ -140,7 +136,7 @@ public class Grid {
         description.addMember("mNumTilesY", mNumTilesY);
         description.addMember("mWidth", mWidth);
         description.addMember("mHeight", mHeight);
-        description.addClassMember("GAME_GRID_TILE", GAME_GRID_TILE);
+        description.addClassMember("mTile", mTile);
         return description.getString();
     }
 
@@ -194,5 +190,12 @@ public class Grid {
          * @return A newly created copy of the center of the rectangle.
          */
         Point getCenter();
+
+
+        /**
+         * Copies the center point of the rectangle without creating a new point.
+         * @param out the point that the center is written into
+         */
+        void getCenter(Point out);
     }
 }
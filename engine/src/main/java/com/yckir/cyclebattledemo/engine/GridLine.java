@@ -1,10 +1,4 @@
-package com.yckir.cyclebattledemo.views.gameSurfaceView;
-
-import android.os.Bundle;
-
-import com.yckir.cyclebattledemo.utility.ClassStateString;
-import com.yckir.cyclebattledemo.utility.Compass;
-import com.yckir.cyclebattledemo.utility.Point;
+package com.yckir.cyclebattledemo.engine;
 
 /**
  * A line that exists on a 2d grid. Records the time when this line was created. The line has a
@@ -87,8 +81,12 @@ public class GridLine implements Grid.GridObject {
      * coordinates of the line.
      */
     private void init(){
-        mEndPoint = Compass.moveIndirection(mStartPoint.getPositionX(), mStartPoint.getPositionY(), mLineLength, mDirection);
-        mCenterPoint = Compass.moveIndirection(mStartPoint.getPositionX(), mStartPoint.getPositionY(), mLineLength /2,mDirection);
+        if(mEndPoint == null){
+            mEndPoint = new Point(0, 0);
+            mCenterPoint = new Point(0, 0);
+        }
+        Compass.moveIndirection(mStartPoint.getPositionX(), mStartPoint.getPositionY(), mLineLength, mDirection, mEndPoint);
+        Compass.moveIndirection(mStartPoint.getPositionX(), mStartPoint.getPositionY(), mLineLength /2,mDirection, mCenterPoint);
         mWidth = Math.abs(mStartPoint.getPositionX() - mEndPoint.getPositionX()) + 2 * mLineThickness;
         mHeight = Math.abs(mStartPoint.getPositionY() - mEndPoint.getPositionY() ) + 2 * mLineThickness;
 
@@ -155,6 +153,12 @@ public class GridLine implements Grid.GridObject {
     }
 
 
+    @Override
+    public void getCenter(Point out) {
+        out.setPosition(mCenterPoint);
+    }
+
+
     /**
      * @return the time the line was created.
      */
@@ -186,6 +190,25 @@ public class GridLine implements Grid.GridObject {
     public Point getEndPoint(){return mEndPoint.makeCopy();}
 
 
+    /**
+     * Copies the point furthest away form the start point without creating a new point.
+     * @param out the point that the end point is written into
+     */
+    public void getEndPoint(Point out){out.setPosition(mEndPoint);}
+
+
+    /**
+     * @return the x coordinate of the point furthest away from the start point
+     */
+    public double getEndX(){return mEndPoint.getPositionX();}
+
+
+    /**
+     * @return the y coordinate of the point furthest away from the start point
+     */
+    public double getEndY(){return mEndPoint.getPositionY();}
+
+
     /**
      * Gets the start point of the line. this does not include thickness
      *
@@ -194,6 +217,25 @@ public class GridLine implements Grid.GridObject {
     public Point getStartPoint(){return mStartPoint.makeCopy();}
 
 
+    /**
+     * Copies the start point of the line without creating a new point.
+     * @param out the point that the start point is written into
+     */
+    public void getStartPoint(Point out){out.setPosition(mStartPoint);}
+
+
+    /**
+     * @return the x coordinate of the start point of the line
+     */
+    public double getStartX(){return mStartPoint.getPositionX();}
+
+
+    /**
+     * @return the y coordinate of the start point of the line
+     */
+    public double getStartY(){return mStartPoint.getPositionY();}
+
+
     /**
      * @param newDirection the new direction that the line will be facing
      */
@@ -274,8 +316,8 @@ public class GridLine implements Grid.GridObject {
      *
      * @param bundle the bundle to save the state onto
      */
-    public void saveState(Bundle bundle, String id) {
-        bundle.putSerializable(DIRECTION_KEY + id, mDirection);
+    public void saveState(StateBundle bundle, String id) {
+        bundle.putString(DIRECTION_KEY + id, mDirection.name());
         bundle.putDouble(LINE_LENGTH_KEY + id, mLineLength);
         bundle.putLong(END_TIME_KEY + id, mEndTime);
         bundle.putDouble(X_KEY + id, mStartPoint.getPositionX());
@@ -288,12 +330,12 @@ public class GridLine implements Grid.GridObject {
      *
      * @param bundle the bundle that has the previous state saved
      */
-    public static GridLine restoreState(Bundle bundle, String id, double thickness){
-        Compass direction = (Compass) bundle.getSerializable(DIRECTION_KEY + id);
-        double lineLength = bundle.getDouble(LINE_LENGTH_KEY + id);
-        long endTime = bundle.getLong(END_TIME_KEY + id);
-        double x = bundle.getDouble(X_KEY + id);
-        double y = bundle.getDouble(Y_KEY + id);
+    public static GridLine restoreState(StateBundle bundle, String id, double thickness){
+        Compass direction = Compass.valueOf(bundle.getString(DIRECTION_KEY + id));
+        double lineLength = bundle.getDouble(LINE_LENGTH_KEY + id, 0);
+        long endTime = bundle.getLong(END_TIME_KEY + id, 0);
+        double x = bundle.getDouble(X_KEY + id, 0);
+        double y = bundle.getDouble(Y_KEY + id, 0);
         return new GridLine(x,y,lineLength,thickness,endTime,direction);
     }
 
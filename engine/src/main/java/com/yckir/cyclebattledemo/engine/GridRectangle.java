@@ -1,9 +1,4 @@
-package com.yckir.cyclebattledemo.views.gameSurfaceView;
-
-
-import com.yckir.cyclebattledemo.utility.ClassStateString;
-import com.yckir.cyclebattledemo.utility.Point;
-import com.yckir.cyclebattledemo.views.gameSurfaceView.Grid;
+package com.yckir.cyclebattledemo.engine;
 
 /**
  *   A rectangle that exists on the xy plane.
@@ -52,6 +47,12 @@ public class GridRectangle implements Grid.GridObject{
     }
 
 
+    @Override
+    public void getCenter(Point out){
+        out.setPosition(mCenter);
+    }
+
+
     @Override
     public double getWidth() {
         return mWidth;
@@ -125,7 +126,7 @@ public class GridRectangle implements Grid.GridObject{
      * @param point the position that will be the center of the rectangle
      */
     public void setCenter(Point point){
-        mCenter=point.makeCopy();
+        mCenter.setPosition(point);
     }
 
 
@@ -0,0 +1,228 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Measures how long a direction change takes to get from the touch screen to the display. Each
+ * traced request is stamped when the input event happened, when the swipe was recognized, when
+ * the request was queued, when the game applied it, and when the first frame that shows it was
+ * posted. The time between each pair of stamps, and between the first and the last, is counted
+ * in a {@link LatencyHistogram} per stage.
+ * <p>
+ * All stamps are in nanoseconds on the {@link System#nanoTime()} clock. The first three are made
+ * by the ui thread in {@link #begin(long, long, long)}, which returns a trace id that travels with
+ * the request, see {@link GameEngine.DirectionChangeRequest#pack(int, Compass, long, int)}. The
+ * apply stamp is made by the thread that runs the game, and the post stamp by the thread that
+ * draws it, which may be a different thread. Queuing the request publishes the stamps of the ui
+ * thread to the game thread, so no locks are needed for them. The applied requests that wait for
+ * a frame are guarded by a lock that is only contended when a request is applied while a frame is
+ * posted. Nothing is allocated.
+ * <p>
+ * Trace ids are reused after {@link #MAX_TRACES} requests, far more than can be waiting in the
+ * queue of the engine. At most {@link #MAX_PENDING} applied requests can wait for a frame, any
+ * more are not measured past the apply stage.
+ */
+public class InputLatencyTracker {
+    public  static final String     TAG                     =   "INPUT_LATENCY_TRACKER";
+    public  static final int        MAX_TRACES              =   255;
+    public  static final int        MAX_PENDING             =   64;
+
+    /**
+     * from the input event to the swipe being recognized
+     */
+    public static final int STAGE_RECOGNIZE = 0;
+    /**
+     * from the swipe being recognized to the request being queued
+     */
+    public static final int STAGE_ENQUEUE = 1;
+    /**
+     * from the request being queued to the game applying it
+     */
+    public static final int STAGE_APPLY = 2;
+    /**
+     * from the game applying the request to the first frame that shows it being posted
+     */
+    public static final int STAGE_DISPLAY = 3;
+    /**
+     * from the input event to the first frame that shows it being posted
+     */
+    public static final int STAGE_TOTAL = 4;
+    public static final int NUM_STAGES = 5;
+
+    private static final String[] STAGE_NAMES = {"recognize", "enqueue", "apply", "display", "total"};
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final LatencyHistogram[] mHistograms;
+
+    /**
+     * stamps of the ui thread, indexed by trace id
+     */
+    private final long[] mEventTimes;
+    private final long[] mEnqueueTimes;
+    private int mNextTrace;
+
+    /**
+     * applied requests that are waiting for a frame that shows them, guarded by mPendingLock
+     */
+    private final Object mPendingLock = new Object();
+    private final long[] mPendingGameTimes;
+    private final long[] mPendingEventTimes;
+    private final long[] mPendingApplyTimes;
+    private int mNumPending;
+    private volatile long mNumLost;
+
+
+    /**
+     * Creates a tracker with empty histograms.
+     */
+    public InputLatencyTracker(){
+        mHistograms = new LatencyHistogram[NUM_STAGES];
+        for( int i = 0; i < NUM_STAGES; i++ )
+            mHistograms[i] = new LatencyHistogram();
+        mEventTimes = new long[MAX_TRACES + 1];
+        mEnqueueTimes = new long[MAX_TRACES + 1];
+        mPendingGameTimes = new long[MAX_PENDING];
+        mPendingEventTimes = new long[MAX_PENDING];
+        mPendingApplyTimes = new long[MAX_PENDING];
+        mNextTrace = 1;
+        mNumPending = 0;
+        mNumLost = 0;
+    }
+
+
+    /**
+     * Start tracing a request. Only the ui thread may call this, and the request must be queued
+     * after this returns.
+     *
+     * @param eventTime when the input event that finished the swipe happened
+     * @param recognizeTime when the swipe was recognized
+     * @param enqueueTime when the request is queued
+     * @return the trace id of the request, never zero
+     */
+    public int begin(long eventTime, long recognizeTime, long enqueueTime){
+        int trace = mNextTrace;
+        mNextTrace = trace == MAX_TRACES ? 1 : trace + 1;
+        mEventTimes[trace] = eventTime;
+        mEnqueueTimes[trace] = enqueueTime;
+        mHistograms[STAGE_RECOGNIZE].record(recognizeTime - eventTime);
+        mHistograms[STAGE_ENQUEUE].record(enqueueTime - recognizeTime);
+        return trace;
+    }
+
+
+    /**
+     * Stamp a traced request that was removed from the queue. Only the game thread may call this.
+     *
+     * @param trace the trace id given by {@link #begin(long, long, long)}
+     * @param gameTime the time in milliseconds of the game the request was applied at
+     * @param applyTime when the request was applied
+     */
+    public void applied(int trace, long gameTime, long applyTime){
+        if( trace <= 0 || trace > MAX_TRACES )
+            return;
+        mHistograms[STAGE_APPLY].record(applyTime - mEnqueueTimes[trace]);
+        synchronized (mPendingLock) {
+            if( mNumPending == MAX_PENDING ){
+                mNumLost++;
+                return;
+            }
+            mPendingGameTimes[mNumPending] = gameTime;
+            mPendingEventTimes[mNumPending] = mEventTimes[trace];
+            mPendingApplyTimes[mNumPending] = applyTime;
+            mNumPending++;
+        }
+    }
+
+
+    /**
+     * Stamp the requests that the posted frame is the first to show. Only the thread that draws the
+     * game may call this.
+     *
+     * @param displayTime the time in milliseconds of the game that the frame shows, see
+     *                    {@link FrameInterpolator#getDisplayTime()}
+     * @param postTime when the frame was posted
+     */
+    public void framePosted(double displayTime, long postTime){
+        synchronized (mPendingLock) {
+            int kept = 0;
+            for( int i = 0; i < mNumPending; i++ ){
+                if( mPendingGameTimes[i] <= displayTime ){
+                    mHistograms[STAGE_DISPLAY].record(postTime - mPendingApplyTimes[i]);
+                    mHistograms[STAGE_TOTAL].record(postTime - mPendingEventTimes[i]);
+                    continue;
+                }
+                mPendingGameTimes[kept] = mPendingGameTimes[i];
+                mPendingEventTimes[kept] = mPendingEventTimes[i];
+                mPendingApplyTimes[kept] = mPendingApplyTimes[i];
+                kept++;
+            }
+            mNumPending = kept;
+        }
+    }
+
+
+    /**
+     * Forget the requests that are waiting for a frame. This should be called when a game ends,
+     * the histograms are kept.
+     */
+    public void clearPending(){
+        synchronized (mPendingLock) {
+            mNumPending = 0;
+        }
+    }
+
+
+    /**
+     * @param stage one of the stage constants, such as {@link #STAGE_TOTAL}
+     * @return the histogram of the stage
+     */
+    public LatencyHistogram getHistogram(int stage){return mHistograms[stage];}
+
+
+    /**
+     * @param stage one of the stage constants, such as {@link #STAGE_TOTAL}
+     * @return a short name of the stage
+     */
+    public static String getStageName(int stage){return STAGE_NAMES[stage];}
+
+
+    /**
+     * @return the number of applied requests that were not measured because too many were waiting
+     *         for a frame
+     */
+    public long getNumLost(){return mNumLost;}
+
+
+    /**
+     * Write the count, mean, percentiles, and maximum of every stage in milliseconds as comma
+     * separated values, one stage per line after a header line.
+     *
+     * @param out where the report is written
+     * @throws IOException if out could not be written to
+     */
+    public void writeReport(Appendable out) throws IOException {
+        out.append("stage,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms\n");
+        for( int i = 0; i < NUM_STAGES; i++ ){
+            LatencyHistogram histogram = mHistograms[i];
+            out.append(String.format(Locale.US, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                    STAGE_NAMES[i], histogram.getCount(),
+                    histogram.getMean() / NANOS_PER_MILLI,
+                    histogram.getPercentile(50) / NANOS_PER_MILLI,
+                    histogram.getPercentile(90) / NANOS_PER_MILLI,
+                    histogram.getPercentile(99) / NANOS_PER_MILLI,
+                    histogram.getMax() / NANOS_PER_MILLI));
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mNumPending", mNumPending);
+        description.addMember("mNumLost", mNumLost);
+        for( int i = 0; i < NUM_STAGES; i++ )
+            description.addClassMember(STAGE_NAMES[i], mHistograms[i]);
+        return description.getString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * An append only list of events packed into longs that can be read by any thread while it is
+ * being written. Events are stored in fixed size chunks that are never moved, and the size is
+ * published after the event it counts, so a reader sees every event below the size it read.
+ * <p>
+ * Appending is synchronized so any number of threads may append, but in practice only the game
+ * thread does and the lock is never contended. Appending only allocates when a chunk is full.
+ */
+public class InputRecorder {
+    public  static final String     TAG                     =   "INPUT_RECORDER";
+
+    private static final int        CHUNK_SHIFT             =   8;
+    private static final int        CHUNK_SIZE              =   1 << CHUNK_SHIFT;
+    private static final int        CHUNK_MASK              =   CHUNK_SIZE - 1;
+    private static final int        INITIAL_CHUNKS          =   4;
+
+    private volatile long[][] mChunks;
+    private volatile int mSize;
+
+
+    /**
+     * Creates an empty recorder with room for one chunk of events.
+     */
+    public InputRecorder(){
+        long[][] chunks = new long[INITIAL_CHUNKS][];
+        chunks[0] = new long[CHUNK_SIZE];
+        mChunks = chunks;
+        mSize = 0;
+    }
+
+
+    /**
+     * Add an event to the end of the recording.
+     *
+     * @param event the event
+     */
+    public synchronized void append(long event){
+        int size = mSize;
+        int chunk = size >>> CHUNK_SHIFT;
+        long[][] chunks = mChunks;
+        if( chunk == chunks.length ){
+            long[][] larger = new long[chunks.length * 2][];
+            System.arraycopy(chunks, 0, larger, 0, chunks.length);
+            chunks = larger;
+            mChunks = chunks;
+        }
+        if( chunks[chunk] == null )
+            chunks[chunk] = new long[CHUNK_SIZE];
+        chunks[chunk][size & CHUNK_MASK] = event;
+        mSize = size + 1;
+    }
+
+
+    /**
+     * @return the number of recorded events
+     */
+    public int size(){return mSize;}
+
+
+    /**
+     * @param index the position of an event, zero is the first event that was recorded
+     * @return the event at the position
+     */
+    public long get(int index){
+        if( index < 0 || index >= mSize )
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        return mChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mSize", mSize);
+        description.addMember("chunks", mChunks.length);
+        return description.getString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size queue of events packed into longs, for exactly one thread that adds events and one
+ * thread that removes them. Neither side takes a lock or allocates, so the thread that adds
+ * events can never be blocked by the thread that removes them.
+ * <p>
+ * The capacity is rounded up to a power of two. When the ring is full the {@link OverflowPolicy}
+ * decides which event is lost, and every lost event is counted. Events must not be negative,
+ * {@link #EMPTY} is returned when there is nothing to remove.
+ */
+public class InputRing {
+    public  static final String     TAG                     =   "INPUT_RING";
+    public  static final long       EMPTY                   =   -1;
+
+    /**
+     * What happens to an event that is added to a full ring.
+     */
+    public enum OverflowPolicy {
+        /**
+         * the new event is not added
+         */
+        DROP_NEWEST,
+        /**
+         * the oldest event is removed to make room for the new event
+         */
+        DROP_OLDEST
+    }
+
+    private final long[] mEvents;
+    private final int mMask;
+    private final OverflowPolicy mPolicy;
+
+    /**
+     * the number of events that have been removed, only changed by the thread that removes
+     * events, or by the thread that adds them when the oldest event is dropped
+     */
+    private final AtomicLong mHead;
+
+    /**
+     * the number of events that have been added, only changed by the thread that adds events
+     */
+    private final AtomicLong mTail;
+
+    /**
+     * counters that are only changed by the thread that adds events
+     */
+    private volatile long mNumOffered;
+    private volatile long mNumDropped;
+    private volatile int mMaxSize;
+
+
+    /**
+     * @param minCapacity the smallest number of events the ring must hold
+     * @param policy what to do when an event is added to a full ring
+     */
+    public InputRing(int minCapacity, OverflowPolicy policy){
+        if( minCapacity <= 0 || minCapacity > 1 << 30 )
+            throw new IllegalArgumentException("minCapacity must be positive and at most 2^30");
+        int capacity = Integer.highestOneBit(minCapacity);
+        if( capacity < minCapacity )
+            capacity <<= 1;
+        mEvents = new long[capacity];
+        mMask = capacity - 1;
+        mPolicy = policy;
+        mHead = new AtomicLong(0);
+        mTail = new AtomicLong(0);
+        mNumOffered = 0;
+        mNumDropped = 0;
+        mMaxSize = 0;
+    }
+
+
+    /**
+     * Add an event. Only the thread that adds events may call this.
+     *
+     * @param event the event, it must not be negative
+     * @return false if the event was dropped because the ring is full
+     */
+    public boolean offer(long event){
+        if( event < 0 )
+            throw new IllegalArgumentException("event must not be negative");
+        mNumOffered++;
+        long tail = mTail.get();
+        long head = mHead.get();
+        if( tail - head > mMask ){
+            if( mPolicy == OverflowPolicy.DROP_NEWEST ){
+                mNumDropped++;
+                return false;
+            }
+            //if this fails the oldest event was removed in the meantime, so there is room anyway
+            if( mHead.compareAndSet(head, head + 1) )
+                mNumDropped++;
+        }
+
+        mEvents[(int) (tail & mMask)] = event;
+        //publishes the event to the thread that removes it
+        mTail.lazySet(tail + 1);
+
+        int size = (int) (tail + 1 - mHead.get());
+        if( size > mMaxSize )
+            mMaxSize = size;
+        return true;
+    }
+
+
+    /**
+     * Look at the oldest event without removing it. Only the thread that removes events may call
+     * this. With {@link OverflowPolicy#DROP_OLDEST} the event can be dropped before the next
+     * call to {@link #poll()}.
+     *
+     * @return the oldest event, or {@link #EMPTY}
+     */
+    public long peek(){
+        long head = mHead.get();
+        if( head == mTail.get() )
+            return EMPTY;
+        return mEvents[(int) (head & mMask)];
+    }
+
+
+    /**
+     * Remove the oldest event. Only the thread that removes events may call this.
+     *
+     * @return the oldest event, or {@link #EMPTY}
+     */
+    public long poll(){
+        while( true ){
+            long head = mHead.get();
+            if( head == mTail.get() )
+                return EMPTY;
+            long event = mEvents[(int) (head & mMask)];
+            //fails only if the event was dropped, and maybe overwritten, while it was read
+            if( mHead.compareAndSet(head, head + 1) )
+                return event;
+        }
+    }
+
+
+    /**
+     * Remove every event. Only the thread that removes events may call this.
+     */
+    public void clear(){
+        while( poll() != EMPTY );
+    }
+
+
+    /**
+     * @return the number of events waiting to be removed
+     */
+    public int size(){
+        long head = mHead.get();
+        return (int) Math.max(0, mTail.get() - head);
+    }
+
+
+    /**
+     * @return true if no event is waiting to be removed
+     */
+    public boolean isEmpty(){return size() == 0;}
+
+
+    /**
+     * @return the number of events the ring holds
+     */
+    public int getCapacity(){return mEvents.length;}
+
+
+    public OverflowPolicy getPolicy(){return mPolicy;}
+
+
+    /**
+     * @return the number of events that were given to {@link #offer(long)}
+     */
+    public long getNumOffered(){return mNumOffered;}
+
+
+    /**
+     * @return the number of events that were lost because the ring was full
+     */
+    public long getNumDropped(){return mNumDropped;}
+
+
+    /**
+     * @return the most events that were waiting to be removed at once
+     */
+    public int getMaxSize(){return mMaxSize;}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("capacity", mEvents.length);
+        description.addMember("mPolicy", mPolicy);
+        description.addMember("size", size());
+        description.addMember("mNumOffered", mNumOffered);
+        description.addMember("mNumDropped", mNumDropped);
+        description.addMember("mMaxSize", mMaxSize);
+        return description.getString();
+    }
+}
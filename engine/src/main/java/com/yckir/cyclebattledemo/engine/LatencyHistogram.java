@@ -0,0 +1,159 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Counts latencies in buckets whose width grows with the latency, so percentiles can be read
+ * with a small relative error and recording never allocates. Latencies are given in nanoseconds
+ * and counted in microseconds. Below 16 microseconds every microsecond has its own bucket, above
+ * that every power of two is split into 16 buckets, which keeps the error of a percentile under
+ * 1/16 of its value. Latencies longer than about 50 days are counted in the last bucket.
+ * <p>
+ * A histogram must only be recorded into by one thread. Other threads may read it while it is
+ * being recorded into, but the values they read can be off by the latencies that are being
+ * recorded at the time.
+ */
+public class LatencyHistogram {
+    public  static final String     TAG                     =   "LATENCY_HISTOGRAM";
+
+    private static final int        SUB_BUCKET_BITS         =   4;
+    private static final int        SUB_BUCKETS             =   1 << SUB_BUCKET_BITS;
+    private static final int        MAX_SHIFT               =   37;
+    private static final int        NUM_BUCKETS             =   SUB_BUCKETS * (MAX_SHIFT + 2);
+    private static final long       NANOS_PER_MICRO         =   1000;
+
+    private final long[] mCounts;
+    private volatile long mCount;
+    private long mSum;
+    private long mMin;
+    private long mMax;
+
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram(){
+        mCounts = new long[NUM_BUCKETS];
+        reset();
+    }
+
+
+    /**
+     * Forget every recorded latency.
+     */
+    public void reset(){
+        for( int i = 0; i < mCounts.length; i++ )
+            mCounts[i] = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = 0;
+        mCount = 0;
+    }
+
+
+    /**
+     * Count a latency.
+     *
+     * @param latency the latency in nanoseconds, negative latencies are counted as zero
+     */
+    public void record(long latency){
+        if( latency < 0 )
+            latency = 0;
+        mCounts[getBucket(latency / NANOS_PER_MICRO)]++;
+        mSum += latency;
+        if( latency < mMin )
+            mMin = latency;
+        if( latency > mMax )
+            mMax = latency;
+        mCount++;
+    }
+
+
+    /**
+     * @param micros a latency in microseconds
+     * @return the bucket the latency is counted in
+     */
+    private static int getBucket(long micros){
+        if( micros < SUB_BUCKETS )
+            return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        if( shift > MAX_SHIFT )
+            return NUM_BUCKETS - 1;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+
+    /**
+     * @param bucket a bucket
+     * @return the largest latency in microseconds that is counted in the bucket
+     */
+    private static long getBucketEnd(int bucket){
+        if( bucket < SUB_BUCKETS )
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long start = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return start + (1L << shift) - 1;
+    }
+
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in nanoseconds that the given percent of the recorded latencies are at
+     *         or below, zero if nothing was recorded
+     */
+    public long getPercentile(double percentile){
+        long count = mCount;
+        if( count == 0 )
+            return 0;
+        long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count);
+        rank = Math.max(1, rank);
+
+        long seen = 0;
+        for( int i = 0; i < mCounts.length; i++ ){
+            seen += mCounts[i];
+            if( seen >= rank ) {
+                long latency = (getBucketEnd(i) + 1) * NANOS_PER_MICRO - 1;
+                return Math.max(mMin, Math.min(latency, mMax));
+            }
+        }
+        return mMax;
+    }
+
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long getCount(){return mCount;}
+
+
+    /**
+     * @return the shortest recorded latency in nanoseconds, zero if nothing was recorded
+     */
+    public long getMin(){return mCount == 0 ? 0 : mMin;}
+
+
+    /**
+     * @return the longest recorded latency in nanoseconds
+     */
+    public long getMax(){return mMax;}
+
+
+    /**
+     * @return the mean of the recorded latencies in nanoseconds, zero if nothing was recorded
+     */
+    public double getMean(){
+        long count = mCount;
+        return count == 0 ? 0 : (double) mSum / count;
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mCount", mCount);
+        description.addMember("mMin", getMin());
+        description.addMember("mMax", mMax);
+        description.addMember("p50", getPercentile(50));
+        description.addMember("p99", getPercentile(99));
+        return description.getString();
+    }
+}
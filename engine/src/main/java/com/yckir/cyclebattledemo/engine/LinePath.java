@@ -0,0 +1,847 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of an object moving in 2d space. The moving object can only move parallel to the x
+ * or y axis. The path is recorded by keeping track of the lines along the path. No two connected
+ * lines can be parallel to each other. Time must increase as the path adds more lines.
+ * Each line has a start time and an end time. The end time is the time in milliseconds when the
+ * path was at the last point on the line. The start time is the time in milliseconds when the
+ * path was at the first point on the line.
+ * <p>
+ * If the path is given an {@link OccupancyGrid}, the area covered by each line is marked on the
+ * grid as the path grows. Areas the path grew into are held back until {@link #commitGrowth()}
+ * is called, so they can be checked separately from the rest of the grid.
+ */
+public class LinePath {
+    public  static final String     TAG                     =    "LINE_PATH";
+    private static final String     LAST_INDEX_KEY          =    TAG + ":LAST_INDEX";
+    private static final String     DIRECTION_CHANGED_KEY   =    TAG + ":DIRECTION_CHANGED";
+    private static final String     START_TIME_KEY          =    TAG + ":START_TIME";
+    private static final String     X_KEY                   =    TAG + ":X";
+    private static final String     Y_KEY                   =    TAG + ":Y";
+    private static final String     LENGTH_KEY              =    TAG + ":LENGTH";
+    private static final String     END_TIME_KEY            =    TAG + ":END_TIME";
+    private static final String     DIRECTION_KEY           =    TAG + ":DIRECTION";
+    private static final double     DEFAULT_THICKNESS       =    0.1;
+    private static final int        MAX_GROWTH_AREAS        =    8;
+    private static final int        INITIAL_CAPACITY        =    16;
+
+    //Compass.values() makes a new array on every call
+    private static final Compass[]  DIRECTIONS              =    Compass.values();
+
+    /**
+     * the lines of the path stored by field, the n'th line of the path is at index n - 1.
+     * Bounds and end points are derived from these when asked for.
+     */
+    private double[] mStartX;
+    private double[] mStartY;
+    private double[] mLength;
+    private long[] mEndTime;
+    private byte[] mDirection;
+
+    private boolean mDirectionChanged;
+    private int mLastLineIndex;
+    private long mStartTime;
+
+    /**
+     * the index of the first line that may have changed since {@link #clearChanges()} was called
+     */
+    private int mFirstChangedIndex;
+
+    /**
+     * the bitmap that the path marks as it grows, may be null
+     */
+    private OccupancyGrid mOccupancy;
+
+    /**
+     * left, bottom, right, and top of each area the path grew into since the growth was last
+     * committed
+     */
+    private double[] mGrowth;
+    private int mGrowthCount;
+
+
+    /**
+     * Constructs a line with length zero at the specified position.
+     *
+     * @param x the x position of the start of the line
+     * @param y the y position of the start of the line
+     * @param startTime the start and end time of the line
+     * @param direction the direction where the path will move towards
+     */
+    public LinePath(double x, double y,int startTime, Compass direction){
+        allocate(INITIAL_CAPACITY);
+        mGrowth = new double[MAX_GROWTH_AREAS * 4];
+        mGrowthCount = 0;
+        mStartTime=0;
+        mLastLineIndex=0;
+        mFirstChangedIndex=0;
+        setLine(0, x, y, 0, startTime, direction);
+        mDirectionChanged =true;
+    }
+
+
+    /**
+     * Make new arrays that can hold the given number of lines.
+     */
+    private void allocate(int capacity){
+        mStartX = new double[capacity];
+        mStartY = new double[capacity];
+        mLength = new double[capacity];
+        mEndTime = new long[capacity];
+        mDirection = new byte[capacity];
+    }
+
+
+    /**
+     * Make sure that the arrays can hold the given number of lines, doubling their size if
+     * they can not.
+     */
+    private void ensureCapacity(int numLines){
+        if(numLines <= mStartX.length)
+            return;
+        int capacity = Math.max(numLines, mStartX.length * 2);
+        mStartX = Arrays.copyOf(mStartX, capacity);
+        mStartY = Arrays.copyOf(mStartY, capacity);
+        mLength = Arrays.copyOf(mLength, capacity);
+        mEndTime = Arrays.copyOf(mEndTime, capacity);
+        mDirection = Arrays.copyOf(mDirection, capacity);
+    }
+
+
+    private void setLine(int index, double x, double y, double length, long endTime,
+                         Compass direction){
+        mStartX[index] = x;
+        mStartY[index] = y;
+        mLength[index] = length;
+        mEndTime[index] = endTime;
+        mDirection[index] = (byte) direction.ordinal();
+    }
+
+
+    /**
+     * Changes the length and endTime of the last line in the path.
+     *
+     * @param newLineLength The new length of the last line of the Path. The path will not change
+     *                      if this value is less than zero.
+     * @param endTime in milliseconds when the path was at the last point on the line. The path
+     *                    will not change if the endTime is before the start time of the line
+     */
+    public void movePath(double newLineLength, long endTime){
+        //check if distance is positive
+        if(newLineLength<0){
+            EngineLog.e(TAG, "error updating the current position, distance is negative ");
+            return ;
+        }
+
+        //check if time increased
+        if(endTime < mEndTime[mLastLineIndex]) {
+            EngineLog.e(TAG, "error updating the current position,  the time did not increase. "
+                    + endTime + ", is less than " + mEndTime[mLastLineIndex]);
+            return ;
+        }
+
+        mDirectionChanged =false;
+        changeLineLength(mLastLineIndex, newLineLength, endTime);
+    }
+
+
+    /**
+     * Changes the length and end time of a line. The area that the line grew into is added to the
+     * growth of the path. If the line got shorter the occupancy grid is invalidated.
+     *
+     * @param index the index of the line to change
+     * @param newLength the new length of the line
+     * @param endTime the new end time of the line
+     */
+    private void changeLineLength(int index, double newLength, long endTime){
+        double oldLength = mLength[index];
+        mLength[index] = newLength;
+        mEndTime[index] = endTime;
+        if(newLength < oldLength){
+            if(mOccupancy != null)
+                mOccupancy.invalidate();
+            return;
+        }
+
+        double half = DEFAULT_THICKNESS / 2;
+        double x = mStartX[index];
+        double y = mStartY[index];
+        switch (DIRECTIONS[mDirection[index]]){
+            case EAST:
+                grow(x + oldLength + half, y - half, x + newLength + half, y + half);
+                break;
+            case WEST:
+                grow(x - newLength - half, y - half, x - oldLength - half, y + half);
+                break;
+            case SOUTH:
+                grow(x - half, y + oldLength + half, x + half, y + newLength + half);
+                break;
+            case NORTH:
+                grow(x - half, y - newLength - half, x + half, y - oldLength - half);
+                break;
+        }
+    }
+
+
+    /**
+     * Add an area to the growth of the path. If too many areas have been added since the last
+     * commit, the area is merged with the most recent one.
+     */
+    private void grow(double left, double bottom, double right, double top){
+        if(right <= left || top <= bottom)
+            return;
+
+        if(mGrowthCount == MAX_GROWTH_AREAS){
+            int last = (mGrowthCount - 1) * 4;
+            mGrowth[last] = Math.min(mGrowth[last], left);
+            mGrowth[last + 1] = Math.min(mGrowth[last + 1], bottom);
+            mGrowth[last + 2] = Math.max(mGrowth[last + 2], right);
+            mGrowth[last + 3] = Math.max(mGrowth[last + 3], top);
+            return;
+        }
+        int index = mGrowthCount * 4;
+        mGrowth[index] = left;
+        mGrowth[index + 1] = bottom;
+        mGrowth[index + 2] = right;
+        mGrowth[index + 3] = top;
+        mGrowthCount++;
+    }
+
+
+    /**
+     * Determine if an area that the path grew into since the last call to
+     * {@link #commitGrowth()} overlaps the interior of a rectangle.
+     *
+     * @param rect the rectangle to test
+     * @return true if the growth of the path overlaps the rectangle, false otherwise
+     */
+    public boolean grewInto(Grid.GridObject rect){
+        return !Double.isNaN(firstGrowth(rect.getLeft(), rect.getBottom(), rect.getRight(),
+                rect.getTop(), Compass.EAST));
+    }
+
+
+    /**
+     * Find the first area that the path grew into since the last call to {@link #commitGrowth()}
+     * that a rectangle runs into when moving in the given direction.
+     *
+     * @param left the x coordinate of the left side of the rectangle
+     * @param bottom the y coordinate of the bottom side of the rectangle
+     * @param right the x coordinate of the right side of the rectangle
+     * @param top the y coordinate of the top side of the rectangle
+     * @param direction the direction the rectangle is moving in
+     * @return the coordinate of the nearest edge of the growth that faces against the
+     *          direction, clamped to the rectangle. NaN if the growth does not overlap.
+     */
+    public double firstGrowth(double left, double bottom, double right, double top,
+                              Compass direction){
+        double first = Double.NaN;
+        double edge;
+        for(int i = 0; i < mGrowthCount * 4; i += 4){
+            if(mGrowth[i] >= right || left >= mGrowth[i + 2] ||
+                    mGrowth[i + 1] >= top || bottom >= mGrowth[i + 3])
+                continue;
+
+            switch (direction){
+                case EAST:
+                    edge = Math.max(left, mGrowth[i]);
+                    if(Double.isNaN(first) || edge < first)
+                        first = edge;
+                    break;
+                case WEST:
+                    edge = Math.min(right, mGrowth[i + 2]);
+                    if(Double.isNaN(first) || edge > first)
+                        first = edge;
+                    break;
+                case SOUTH:
+                    edge = Math.max(bottom, mGrowth[i + 1]);
+                    if(Double.isNaN(first) || edge < first)
+                        first = edge;
+                    break;
+                case NORTH:
+                    edge = Math.min(top, mGrowth[i + 3]);
+                    if(Double.isNaN(first) || edge > first)
+                        first = edge;
+                    break;
+            }
+        }
+        return first;
+    }
+
+
+    /**
+     * Expand a rectangle so that it covers every area that the path grew into since the last call
+     * to {@link #commitGrowth()}.
+     *
+     * @param bounds holds the left, bottom, right, and top of the rectangle, in that order
+     * @param index the position of the left side of the rectangle in bounds
+     */
+    public void expandByGrowth(double[] bounds, int index){
+        for(int i = 0; i < mGrowthCount * 4; i += 4){
+            bounds[index] = Math.min(bounds[index], mGrowth[i]);
+            bounds[index + 1] = Math.min(bounds[index + 1], mGrowth[i + 1]);
+            bounds[index + 2] = Math.max(bounds[index + 2], mGrowth[i + 2]);
+            bounds[index + 3] = Math.max(bounds[index + 3], mGrowth[i + 3]);
+        }
+    }
+
+
+    /**
+     * Mark the areas that the path grew into on the occupancy grid and forget them. Growth after
+     * this call will be tracked by {@link #firstGrowth(double, double, double, double, Compass)}.
+     */
+    public void commitGrowth(){
+        if(mOccupancy != null){
+            for(int i = 0; i < mGrowthCount * 4; i += 4)
+                mOccupancy.fill(mGrowth[i], mGrowth[i + 1], mGrowth[i + 2], mGrowth[i + 3]);
+        }
+        mGrowthCount = 0;
+    }
+
+
+    /**
+     * Set the bitmap that the path marks as it grows. Every line already on the path is marked.
+     *
+     * @param occupancy the bitmap to mark, null to stop marking
+     */
+    public void setOccupancyGrid(OccupancyGrid occupancy){
+        mOccupancy = occupancy;
+        fillOccupancyGrid();
+    }
+
+
+    /**
+     * Mark every line of the path on the occupancy grid, including any growth that has not been
+     * committed yet. The growth is forgotten.
+     */
+    public void fillOccupancyGrid(){
+        mGrowthCount = 0;
+        if(mOccupancy == null)
+            return;
+        for(int i = 0; i <= mLastLineIndex; i++)
+            mOccupancy.fill(left(i), bottom(i), right(i), top(i));
+    }
+
+
+    /**
+     * Makes a new line with zero length at the last point on the last line with a new direction.
+     * The start and end time of the new line is the endTime of the last line. The direction will
+     * not change if the path would have changed directions twice without moving.
+     *
+     * @param newDirection the new direction of the path. This direction must not be parallel to the
+     *                     current last line or the direction will not change.
+     */
+    public void changePathDirection(Compass newDirection){
+        if(mDirectionChanged){
+            EngineLog.e(TAG, "error changing direction: cannot change the direction twice in a row without moving");
+            return ;
+        }
+        mDirectionChanged =true;
+        int previous = mLastLineIndex;
+
+        if(! Compass.isPerpendicular(DIRECTIONS[mDirection[previous]], newDirection) ){
+            EngineLog.e(TAG, "error changing direction: directions are not perpendicular");
+            return ;
+        }
+
+        ensureCapacity(previous + 2);
+        mLastLineIndex++;
+        setLine(mLastLineIndex, endX(previous), endY(previous), 0, mEndTime[previous],
+                newDirection);
+        grow(left(mLastLineIndex), bottom(mLastLineIndex), right(mLastLineIndex),
+                top(mLastLineIndex));
+    }
+
+
+    /**
+     * Bends the last line at the specified position. Imagine you arm is
+     * a line and want to bend at the wrist. this method will bend the arm at the
+     * wrist 90 degrees, resulting in two lines.
+     *
+     * @param newDirection The new direction of the path. This direction must not be parallel to the
+     *                     current last line or false will be returned.
+     * @param bendTime The time in milliseconds when the line should have bended. If this time is
+     *                less than the start time of the last line, false is returned.
+     * @param bendLength The position on the current line when the direction should have changed. If
+     *              this is less than zero, false if returned.
+     * @return true if the parameters were proper, false otherwise.
+     */
+    public boolean bendLastLine(Compass newDirection, long bendTime, double bendLength){
+        long endTime = mEndTime[mLastLineIndex];
+        double oldLineLength=mLength[mLastLineIndex];
+        long startTime = getLineStartTime(mLastLineIndex + 1);
+        double excessDistance = oldLineLength-bendLength;
+
+        EngineLog.d(TAG,"bendLastLine should not be called, dir = " + newDirection + ", t = " + bendTime +
+                ", l = " + bendLength);
+
+        EngineLog.d(TAG,"bendLastLine should not be called, endTime = " + endTime + ", oldLineLength = " +
+                oldLineLength + ", startTIme = " + startTime + ", excessDistance = " + excessDistance);
+
+        if( !Compass.isPerpendicular( newDirection, DIRECTIONS[mDirection[mLastLineIndex]] ) ){
+            EngineLog.d(TAG, "error in bendLastLine: direction are not perpendicular");
+            return false;
+        }
+        if( bendTime < startTime || bendTime > endTime ){
+            if(bendTime<startTime)
+            EngineLog.d(TAG, "error in bendLastLine: you are attempting to change the " +
+                    "direction before the line was created, bendTime = " + bendTime + "< " + startTime );
+            if(bendTime>endTime)
+                EngineLog.d(TAG, "error in bendLastLine: you are attempting to change the " +
+                        "direction in future, bendTime = " + bendTime + "> " + endTime );
+            return false;
+        }
+        if(bendLength <= 0 || bendLength > oldLineLength) {
+            EngineLog.d(TAG, "error in bendLastLine: bendLength is less or greater than the current line");
+            return false;
+        }
+
+        changeLineLength(mLastLineIndex, bendLength, bendTime);
+        changePathDirection(newDirection);
+        if(excessDistance>0)
+            movePath(excessDistance, endTime);
+        return true;
+    }
+
+
+    /**
+     * Moves the end line and changes the direction.
+     *
+     * @param newDirection The new direction of the path. This direction must not be parallel to the
+     *                     current last line or false will be returned.
+     * @param endTime The time in milliseconds when last line turns If this time is
+     *                less than the start time of the last line, false is returned.
+     * @param length the length of the last line before it changes directions. If
+     *              this is less than zero, false if returned.
+     * @return true if the parameters were proper, false otherwise.
+     */
+    public boolean moveAndChangeDirection(Compass newDirection, long endTime, double length){
+        long startTime = getLineStartTime(mLastLineIndex + 1);
+
+        if( !Compass.isPerpendicular( newDirection, DIRECTIONS[mDirection[mLastLineIndex]] ) ){
+            EngineLog.d(TAG, "error in moveAndChangeDirection: direction are not perpendicular");
+            return false;
+        }
+        if( endTime < startTime  ){
+            EngineLog.d(TAG, "error in moveAndChangeDirection: you are attempting to change the " +
+                    "direction before the line was created, bendTime = " + endTime + "< " + startTime );
+            return false;
+        }
+        if(length <= 0 ) {
+            EngineLog.d(TAG, "error in moveAndChangeDirection: length is less or greater than the current line");
+            return false;
+        }
+
+        changeLineLength(mLastLineIndex, length, endTime);
+        changePathDirection(newDirection);
+        mDirectionChanged =true;
+        return true;
+    }
+
+
+    /**
+     * @return the number of lines in the path
+     */
+    public int getNumLines(){
+        return mLastLineIndex+1;
+    }
+
+
+    /**
+     * get the start time of the specified line
+     * @param lineNumber the number of the line in the path
+     * @return the starttime of the Grid line specified, -1 if line number does not exist.
+     */
+    public long getLineStartTime(int lineNumber){
+        if(lineNumber < 1 || lineNumber > mLastLineIndex+1)
+            return -1;
+        if(lineNumber==1)
+            return mStartTime;
+        return mEndTime[lineNumber-2];
+    }
+
+
+    /**
+     * The accessors below take the number of a line in the path, starting at 1. They do not
+     * allocate and do not check that the line exists.
+     *
+     * @param lineNumber the number of the line in the path
+     * @return the time in milliseconds when the path was at the last point on the line
+     */
+    public long getLineEndTime(int lineNumber){return mEndTime[lineNumber-1];}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the direction of the line
+     */
+    public Compass getLineDirection(int lineNumber){return DIRECTIONS[mDirection[lineNumber-1]];}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the length of the line
+     */
+    public double getLineLength(int lineNumber){return mLength[lineNumber-1];}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the x coordinate of the first point on the line
+     */
+    public double getLineStartX(int lineNumber){return mStartX[lineNumber-1];}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the y coordinate of the first point on the line
+     */
+    public double getLineStartY(int lineNumber){return mStartY[lineNumber-1];}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the x coordinate of the last point on the line
+     */
+    public double getLineEndX(int lineNumber){return endX(lineNumber-1);}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the y coordinate of the last point on the line
+     */
+    public double getLineEndY(int lineNumber){return endY(lineNumber-1);}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the x coordinate of the left side of the line including its thickness
+     */
+    public double getLineLeft(int lineNumber){return left(lineNumber-1);}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the y coordinate of the bottom side of the line including its thickness
+     */
+    public double getLineBottom(int lineNumber){return bottom(lineNumber-1);}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the x coordinate of the right side of the line including its thickness
+     */
+    public double getLineRight(int lineNumber){return right(lineNumber-1);}
+
+
+    /**
+     * @param lineNumber the number of the line in the path
+     * @return the y coordinate of the top side of the line including its thickness
+     */
+    public double getLineTop(int lineNumber){return top(lineNumber-1);}
+
+
+    /**
+     * Determines if a line and a rectangle overlap, the same way as
+     * {@link Grid#overlap(Grid.GridObject, Grid.GridObject)}.
+     *
+     * @param lineNumber the number of the line in the path
+     * @param rect the rectangle to test
+     * @return true if the line overlaps the rectangle, false otherwise
+     */
+    public boolean lineOverlaps(int lineNumber, Grid.GridObject rect){
+        int index = lineNumber - 1;
+        if (left(index) > rect.getRight() || rect.getLeft() > right(index))
+            return false;
+        return !(top(index) < rect.getBottom() || rect.getTop() < bottom(index));
+    }
+
+
+    /**
+     * @return the thickness of the lines on the path
+     */
+    public double getThickness(){
+        return DEFAULT_THICKNESS;
+    }
+
+
+    /**
+     * @return the x coordinate of the last point on the path
+     */
+    public double getLastX(){
+        return endX(mLastLineIndex);
+    }
+
+
+    /**
+     * @return the y coordinate of the last point on the path
+     */
+    public double getLastY(){
+        return endY(mLastLineIndex);
+    }
+
+
+    /**
+     * @return the coordinate of the last point on the path
+     */
+    public Point getLastPoint(){
+        return new Point(getLastX(), getLastY());
+    }
+
+
+    /**
+     * Copies the last point on the path without creating a new point.
+     *
+     * @param out the point that the last point is written into
+     */
+    public void getLastPoint(Point out){
+        out.setPosition(getLastX(), getLastY());
+    }
+
+
+    private double endX(int index){
+        return Compass.moveX(mStartX[index], mLength[index], DIRECTIONS[mDirection[index]]);
+    }
+
+
+    private double endY(int index){
+        return Compass.moveY(mStartY[index], mLength[index], DIRECTIONS[mDirection[index]]);
+    }
+
+
+    private double left(int index){
+        return Math.min(mStartX[index], endX(index)) - DEFAULT_THICKNESS / 2;
+    }
+
+
+    private double bottom(int index){
+        return Math.min(mStartY[index], endY(index)) - DEFAULT_THICKNESS / 2;
+    }
+
+
+    private double right(int index){
+        return Math.max(mStartX[index], endX(index)) + DEFAULT_THICKNESS / 2;
+    }
+
+
+    private double top(int index){
+        return Math.max(mStartY[index], endY(index)) + DEFAULT_THICKNESS / 2;
+    }
+
+
+    /**
+     * Save the state of the LinePath onto a bundle.
+     *
+     * @param bundle the bundle to save the state onto
+     */
+    public void saveState(StateBundle bundle, String id) {
+        bundle.putInt(LAST_INDEX_KEY + id,mLastLineIndex);
+        bundle.putBoolean(DIRECTION_CHANGED_KEY + id, mDirectionChanged);
+        bundle.putLong(START_TIME_KEY + id, mStartTime);
+        String lineId;
+        for(int i = 0; i <= mLastLineIndex;i++){
+            lineId=id+"-Line_"+i;
+            bundle.putDouble(X_KEY + lineId, mStartX[i]);
+            bundle.putDouble(Y_KEY + lineId, mStartY[i]);
+            bundle.putDouble(LENGTH_KEY + lineId, mLength[i]);
+            bundle.putLong(END_TIME_KEY + lineId, mEndTime[i]);
+            bundle.putInt(DIRECTION_KEY + lineId, mDirection[i]);
+        }
+    }
+
+
+    /**
+     * Restore the previous state of the LinePath from a bundle.
+     *
+     * @param bundle the bundle that has the previous state saved
+     */
+    public void restoreState(StateBundle bundle, String id){
+        mLastLineIndex = bundle.getInt(LAST_INDEX_KEY + id, 0);
+        mDirectionChanged = bundle.getBoolean(DIRECTION_CHANGED_KEY + id, false);
+        mStartTime = bundle.getLong(START_TIME_KEY + id, 0);
+        mFirstChangedIndex = 0;
+
+        allocate(Math.max(INITIAL_CAPACITY, mLastLineIndex + 1));
+
+        String lineId;
+        for(int i = 0; i <= mLastLineIndex;i++){
+            lineId=id+"-Line_"+i;
+            mStartX[i] = bundle.getDouble(X_KEY + lineId, 0);
+            mStartY[i] = bundle.getDouble(Y_KEY + lineId, 0);
+            mLength[i] = bundle.getDouble(LENGTH_KEY + lineId, 0);
+            mEndTime[i] = bundle.getLong(END_TIME_KEY + lineId, 0);
+            mDirection[i] = (byte) bundle.getInt(DIRECTION_KEY + lineId, 0);
+        }
+        mGrowthCount = 0;
+        if(mOccupancy != null)
+            mOccupancy.invalidate();
+    }
+
+
+    /**
+     * Save the parts of the path that can change while it is simulated. Lines before the last
+     * line never change once the path has turned away from them, so only the last line is saved.
+     * Growth that was not committed is not saved.
+     *
+     * @param snapshot the snapshot to save the path into
+     */
+    public void saveSnapshot(Snapshot snapshot){
+        snapshot.mLastLineIndex = mLastLineIndex;
+        snapshot.mDirectionChanged = mDirectionChanged;
+        snapshot.mStartX = mStartX[mLastLineIndex];
+        snapshot.mStartY = mStartY[mLastLineIndex];
+        snapshot.mLength = mLength[mLastLineIndex];
+        snapshot.mEndTime = mEndTime[mLastLineIndex];
+        snapshot.mDirection = mDirection[mLastLineIndex];
+    }
+
+
+    /**
+     * Put the path back to how it was when a snapshot was saved. The lines before the last line
+     * of the snapshot must not have changed since then. The area the path grew into after the
+     * snapshot, the part of its last line past the saved length and every line added since, is
+     * unmarked on the occupancy grid. Other paths may still cover part of that area, so once every
+     * path is restored each of them must call {@link #refillOccupancyGrid()}.
+     *
+     * @param snapshot a snapshot saved by this path
+     */
+    public void restoreSnapshot(Snapshot snapshot){
+        if(mOccupancy != null)
+            unmarkSince(snapshot);
+        mLastLineIndex = snapshot.mLastLineIndex;
+        mFirstChangedIndex = Math.min(mFirstChangedIndex, mLastLineIndex);
+        mDirectionChanged = snapshot.mDirectionChanged;
+        mStartX[mLastLineIndex] = snapshot.mStartX;
+        mStartY[mLastLineIndex] = snapshot.mStartY;
+        mLength[mLastLineIndex] = snapshot.mLength;
+        mEndTime[mLastLineIndex] = snapshot.mEndTime;
+        mDirection[mLastLineIndex] = snapshot.mDirection;
+        mGrowthCount = 0;
+    }
+
+
+    /**
+     * Unmark the area that the path covers now but did not cover when the snapshot was saved.
+     * Growth that was not committed was never marked, so it is left alone.
+     */
+    private void unmarkSince(Snapshot snapshot){
+        int index = snapshot.mLastLineIndex;
+        if(index > mLastLineIndex){
+            mOccupancy.invalidate();
+            return;
+        }
+
+        //the line may have been cut short by a crash after the snapshot
+        double shorter = Math.min(snapshot.mLength, mLength[index]);
+        double longer = Math.max(snapshot.mLength, mLength[index]);
+        double half = DEFAULT_THICKNESS / 2;
+        double x = mStartX[index];
+        double y = mStartY[index];
+        switch (DIRECTIONS[mDirection[index]]){
+            case EAST:
+                mOccupancy.unmark(x + shorter + half, y - half, x + longer + half, y + half);
+                break;
+            case WEST:
+                mOccupancy.unmark(x - longer - half, y - half, x - shorter - half, y + half);
+                break;
+            case SOUTH:
+                mOccupancy.unmark(x - half, y + shorter + half, x + half, y + longer + half);
+                break;
+            case NORTH:
+                mOccupancy.unmark(x - half, y - longer - half, x + half, y - shorter - half);
+                break;
+        }
+        for(int i = index + 1; i <= mLastLineIndex; i++)
+            mOccupancy.unmark(left(i), bottom(i), right(i), top(i));
+    }
+
+
+    /**
+     * Mark the lines of the path again where they cover cells that were unmarked when paths were
+     * restored, see {@link OccupancyGrid#refillUnmarked(double, double, double, double)}.
+     */
+    public void refillOccupancyGrid(){
+        if(mOccupancy == null)
+            return;
+        for(int i = 0; i <= mLastLineIndex; i++)
+            mOccupancy.refillUnmarked(left(i), bottom(i), right(i), top(i));
+    }
+
+
+    /**
+     * @return the number of the first line that may have changed since {@link #clearChanges()}
+     *         was last called. The lines before it are the same as they were then.
+     */
+    public int getFirstChangedLine(){return mFirstChangedIndex + 1;}
+
+
+    /**
+     * Start tracking the lines that change from now on. The last line changes whenever the path
+     * moves, so it always counts as changed. Lines before it only change when the path is
+     * restored.
+     */
+    public void clearChanges(){
+        mFirstChangedIndex = mLastLineIndex;
+    }
+
+
+    /**
+     * Make this path the same as another path by copying the lines of the source starting at the
+     * given line. The lines before it must already be the same as those of the source, see
+     * {@link #getFirstChangedLine()}. Nothing is allocated unless the source has more lines than
+     * this path ever had. The growth and occupancy grid of this path are not changed.
+     *
+     * @param source the path to copy
+     * @param fromLine the number of the first line to copy, 1 to copy every line
+     */
+    public void copyFrom(LinePath source, int fromLine){
+        int last = source.mLastLineIndex;
+        int from = Math.max(0, Math.min(fromLine - 1, last));
+        int count = last - from + 1;
+
+        ensureCapacity(last + 1);
+        System.arraycopy(source.mStartX, from, mStartX, from, count);
+        System.arraycopy(source.mStartY, from, mStartY, from, count);
+        System.arraycopy(source.mLength, from, mLength, from, count);
+        System.arraycopy(source.mEndTime, from, mEndTime, from, count);
+        System.arraycopy(source.mDirection, from, mDirection, from, count);
+        mLastLineIndex = last;
+        mDirectionChanged = source.mDirectionChanged;
+        mStartTime = source.mStartTime;
+        mFirstChangedIndex = Math.min(mFirstChangedIndex, from);
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mLastLineIndex", mLastLineIndex );
+        description.addMember("mDirectionChanged", mDirectionChanged);
+        description.addMember("mStartTime", mStartTime);
+
+        for(int i = 0; i <= mLastLineIndex; i ++) {
+            description.addMember("line[" + i + "]", "(" + mStartX[i] + ", " + mStartY[i] + ") " +
+                    DIRECTIONS[mDirection[i]] + " " + mLength[i] + " until " + mEndTime[i]);
+        }
+
+        return description.getString();
+    }
+
+
+    /**
+     * The last line of a path and whether it just changed directions, see
+     * {@link #saveSnapshot(Snapshot)}. Snapshots are made once and saved into many times.
+     */
+    public static final class Snapshot {
+        private int mLastLineIndex;
+        private boolean mDirectionChanged;
+        private double mStartX;
+        private double mStartY;
+        private double mLength;
+        private long mEndTime;
+        private byte mDirection;
+    }
+}
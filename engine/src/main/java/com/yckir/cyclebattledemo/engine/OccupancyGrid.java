@@ -0,0 +1,384 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * A bitmap that records which parts of a {@link Grid} are covered by a cycle path. Each tile of
+ * the grid is divided into square cells and every cell is a single bit, packed 64 cells to a
+ * long. Paths mark the cells they cover as they grow, so determining if an area is occupied only
+ * depends on the size of the area and not on how long the paths are.
+ * <p>
+ * If a path gets shorter the bitmap is invalidated and must be cleared and refilled by the owner.
+ * When the owner knows the area a path no longer covers, that area can be unmarked instead with
+ * {@link #unmark(double, double, double, double)}. Cells are shared between paths that are close
+ * to each other, so the unmarked areas are remembered until every path refilled its part of them
+ * with {@link #refillUnmarked(double, double, double, double)}.
+ */
+public class OccupancyGrid {
+    public  static final String     TAG                     =   "OCCUPANCY_GRID";
+    public  static final int        DEFAULT_CELLS_PER_TILE  =   20;
+    private static final int        MAX_UNMARKED_AREAS      =   16;
+
+    private final int mColumns;
+    private final int mRows;
+    private final int mWordsPerRow;
+    private final double mCellsPerLength;
+    private final long[] mCells;
+    private boolean mInvalid;
+
+    /**
+     * left, bottom, right, and top of each area that was unmarked since
+     * {@link #forgetUnmarked()} was last called, along the edges of the cells
+     */
+    private final double[] mUnmarked;
+    private int mUnmarkedCount;
+
+
+    /**
+     * Creates an empty bitmap that covers the grid.
+     *
+     * @param grid the grid that the bitmap covers
+     * @param cellsPerTile the number of cells along each side of a tile
+     */
+    public OccupancyGrid(Grid grid, int cellsPerTile){
+        if( cellsPerTile <= 0 )
+            throw new IllegalArgumentException("cellsPerTile must be positive");
+        mColumns = grid.getNumTilesX() * cellsPerTile;
+        mRows = grid.getNumTilesY() * cellsPerTile;
+        mWordsPerRow = (mColumns + 63) >>> 6;
+        mCellsPerLength = (double) cellsPerTile / grid.getTileLength();
+        mCells = new long[mWordsPerRow * mRows];
+        mInvalid = false;
+        mUnmarked = new double[MAX_UNMARKED_AREAS * 4];
+        mUnmarkedCount = 0;
+    }
+
+
+    /**
+     * Unmark every cell.
+     */
+    public void clear(){
+        for( int i = 0; i < mCells.length; i++ )
+            mCells[i] = 0;
+        mInvalid = false;
+        mUnmarkedCount = 0;
+    }
+
+
+    /**
+     * Mark every cell that overlaps the interior of the rectangle. Cells that only touch the
+     * edges of the rectangle are not marked. Parts of the rectangle outside of the grid are
+     * ignored.
+     *
+     * @param left the x coordinate of the left side of the rectangle
+     * @param bottom the y coordinate of the bottom side of the rectangle
+     * @param right the x coordinate of the right side of the rectangle
+     * @param top the y coordinate of the top side of the rectangle
+     */
+    public void fill(double left, double bottom, double right, double top){
+        if( right <= left || top <= bottom )
+            return;
+        int firstColumn = firstCell(left);
+        int lastColumn = lastCell(right, mColumns);
+        int firstRow = firstCell(bottom);
+        int lastRow = lastCell(top, mRows);
+        if( firstColumn > lastColumn || firstRow > lastRow )
+            return;
+
+        int firstWord = firstColumn >>> 6;
+        int lastWord = lastColumn >>> 6;
+        for( int row = firstRow; row <= lastRow; row++ ){
+            int rowStart = row * mWordsPerRow;
+            for( int word = firstWord; word <= lastWord; word++ ){
+                mCells[rowStart + word] |= wordMask(word, firstColumn, lastColumn);
+            }
+        }
+    }
+
+
+    /**
+     * Unmark every cell that overlaps the interior of the rectangle, like
+     * {@link #fill(double, double, double, double)} marks them. The area of the unmarked cells is
+     * remembered, if too many areas are unmarked before they are forgotten the area is merged with
+     * the most recent one.
+     *
+     * @param left the x coordinate of the left side of the rectangle
+     * @param bottom the y coordinate of the bottom side of the rectangle
+     * @param right the x coordinate of the right side of the rectangle
+     * @param top the y coordinate of the top side of the rectangle
+     */
+    public void unmark(double left, double bottom, double right, double top){
+        if( right <= left || top <= bottom )
+            return;
+        int firstColumn = firstCell(left);
+        int lastColumn = lastCell(right, mColumns);
+        int firstRow = firstCell(bottom);
+        int lastRow = lastCell(top, mRows);
+        if( firstColumn > lastColumn || firstRow > lastRow )
+            return;
+
+        int firstWord = firstColumn >>> 6;
+        int lastWord = lastColumn >>> 6;
+        for( int row = firstRow; row <= lastRow; row++ ){
+            int rowStart = row * mWordsPerRow;
+            for( int word = firstWord; word <= lastWord; word++ ){
+                mCells[rowStart + word] &= ~wordMask(word, firstColumn, lastColumn);
+            }
+        }
+
+        //a path that overlaps any of these cells overlaps the area inside their edges
+        double cellLength = getCellLength();
+        left = firstColumn * cellLength;
+        bottom = firstRow * cellLength;
+        right = (lastColumn + 1) * cellLength;
+        top = (lastRow + 1) * cellLength;
+        if( mUnmarkedCount == MAX_UNMARKED_AREAS ){
+            int last = (mUnmarkedCount - 1) * 4;
+            mUnmarked[last] = Math.min(mUnmarked[last], left);
+            mUnmarked[last + 1] = Math.min(mUnmarked[last + 1], bottom);
+            mUnmarked[last + 2] = Math.max(mUnmarked[last + 2], right);
+            mUnmarked[last + 3] = Math.max(mUnmarked[last + 3], top);
+            return;
+        }
+        int index = mUnmarkedCount * 4;
+        mUnmarked[index] = left;
+        mUnmarked[index + 1] = bottom;
+        mUnmarked[index + 2] = right;
+        mUnmarked[index + 3] = top;
+        mUnmarkedCount++;
+    }
+
+
+    /**
+     * Mark the cells that overlap the interior of the rectangle, but only inside of the areas that
+     * were unmarked since {@link #forgetUnmarked()} was last called. Refilling the bounds of every
+     * line of every path marks the unmarked cells that are still covered, while only the unmarked
+     * areas are filled.
+     *
+     * @param left the x coordinate of the left side of the rectangle
+     * @param bottom the y coordinate of the bottom side of the rectangle
+     * @param right the x coordinate of the right side of the rectangle
+     * @param top the y coordinate of the top side of the rectangle
+     */
+    public void refillUnmarked(double left, double bottom, double right, double top){
+        for( int i = 0; i < mUnmarkedCount * 4; i += 4 ){
+            fill(Math.max(left, mUnmarked[i]), Math.max(bottom, mUnmarked[i + 1]),
+                    Math.min(right, mUnmarked[i + 2]), Math.min(top, mUnmarked[i + 3]));
+        }
+    }
+
+
+    /**
+     * Forget the unmarked areas, once every path refilled them.
+     */
+    public void forgetUnmarked(){
+        mUnmarkedCount = 0;
+    }
+
+
+    /**
+     * @return the number of areas that were unmarked since {@link #forgetUnmarked()} was last
+     *         called
+     */
+    public int getUnmarkedCount(){return mUnmarkedCount;}
+
+
+    /**
+     * Determine if any cell that overlaps the interior of the rectangle is marked. Cells that
+     * only touch the edges of the rectangle are not checked. Parts of the rectangle outside of
+     * the grid are ignored.
+     *
+     * @param left the x coordinate of the left side of the rectangle
+     * @param bottom the y coordinate of the bottom side of the rectangle
+     * @param right the x coordinate of the right side of the rectangle
+     * @param top the y coordinate of the top side of the rectangle
+     * @return true if at least one cell is marked, false otherwise
+     */
+    public boolean isOccupied(double left, double bottom, double right, double top){
+        if( right <= left || top <= bottom )
+            return false;
+        int firstColumn = firstCell(left);
+        int lastColumn = lastCell(right, mColumns);
+        int firstRow = firstCell(bottom);
+        int lastRow = lastCell(top, mRows);
+        if( firstColumn > lastColumn || firstRow > lastRow )
+            return false;
+
+        int firstWord = firstColumn >>> 6;
+        int lastWord = lastColumn >>> 6;
+        for( int row = firstRow; row <= lastRow; row++ ){
+            int rowStart = row * mWordsPerRow;
+            for( int word = firstWord; word <= lastWord; word++ ){
+                if( (mCells[rowStart + word] & wordMask(word, firstColumn, lastColumn)) != 0 )
+                    return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Find the first marked cell that a rectangle runs into when its area is scanned in the given
+     * direction. Only cells that overlap the interior of the rectangle are checked.
+     *
+     * @param left the x coordinate of the left side of the rectangle
+     * @param bottom the y coordinate of the bottom side of the rectangle
+     * @param right the x coordinate of the right side of the rectangle
+     * @param top the y coordinate of the top side of the rectangle
+     * @param direction the direction the area is scanned in
+     * @return the coordinate of the edge of the first marked cell that faces against the
+     *         direction, clamped to the rectangle. NaN if no cell is marked.
+     */
+    public double firstOccupied(double left, double bottom, double right, double top,
+                                Compass direction){
+        if( right <= left || top <= bottom )
+            return Double.NaN;
+        int firstColumn = firstCell(left);
+        int lastColumn = lastCell(right, mColumns);
+        int firstRow = firstCell(bottom);
+        int lastRow = lastCell(top, mRows);
+        if( firstColumn > lastColumn || firstRow > lastRow )
+            return Double.NaN;
+
+        double cellLength = getCellLength();
+        switch (direction){
+            case EAST:
+                for( int column = firstColumn; column <= lastColumn; column++ ) {
+                    if( columnOccupied(column, firstRow, lastRow) )
+                        return Math.max(left, column * cellLength);
+                }
+                break;
+            case WEST:
+                for( int column = lastColumn; column >= firstColumn; column-- ) {
+                    if( columnOccupied(column, firstRow, lastRow) )
+                        return Math.min(right, (column + 1) * cellLength);
+                }
+                break;
+            case SOUTH:
+                for( int row = firstRow; row <= lastRow; row++ ) {
+                    if( rowOccupied(row, firstColumn, lastColumn) )
+                        return Math.max(bottom, row * cellLength);
+                }
+                break;
+            case NORTH:
+                for( int row = lastRow; row >= firstRow; row-- ) {
+                    if( rowOccupied(row, firstColumn, lastColumn) )
+                        return Math.min(top, (row + 1) * cellLength);
+                }
+                break;
+        }
+        return Double.NaN;
+    }
+
+
+    /**
+     * @return true if any cell of the column between the first and last row is marked
+     */
+    private boolean columnOccupied(int column, int firstRow, int lastRow){
+        int word = column >>> 6;
+        long bit = 1L << column;
+        for( int row = firstRow; row <= lastRow; row++ ){
+            if( (mCells[row * mWordsPerRow + word] & bit) != 0 )
+                return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * @return true if any cell of the row between the first and last column is marked
+     */
+    private boolean rowOccupied(int row, int firstColumn, int lastColumn){
+        int rowStart = row * mWordsPerRow;
+        for( int word = firstColumn >>> 6; word <= lastColumn >>> 6; word++ ){
+            if( (mCells[rowStart + word] & wordMask(word, firstColumn, lastColumn)) != 0 )
+                return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return true if the cell is marked, false if it is not marked or is outside of the grid
+     */
+    public boolean isOccupied(int column, int row){
+        if( column < 0 || column >= mColumns || row < 0 || row >= mRows )
+            return false;
+        return (mCells[row * mWordsPerRow + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+
+    /**
+     * Mark the bitmap as no longer matching the paths it was filled from.
+     */
+    public void invalidate(){
+        mInvalid = true;
+    }
+
+
+    /**
+     * @return true if the bitmap needs to be cleared and refilled, false otherwise
+     */
+    public boolean isInvalid(){return mInvalid;}
+
+
+    /**
+     * @return the number of cells in the x direction
+     */
+    public int getColumns(){return mColumns;}
+
+
+    /**
+     * @return the number of cells in the y direction
+     */
+    public int getRows(){return mRows;}
+
+
+    /**
+     * @return the length of the side of a cell
+     */
+    public double getCellLength(){return 1 / mCellsPerLength;}
+
+
+    /**
+     * @return the first cell whose far edge is past the coordinate, clamped to the grid
+     */
+    private int firstCell(double coordinate){
+        double cell = Math.floor(coordinate * mCellsPerLength);
+        return cell < 0 ? 0 : (int) Math.min(cell, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * @return the last cell whose near edge is before the coordinate, clamped to the grid
+     */
+    private int lastCell(double coordinate, int numCells){
+        double cell = Math.ceil(coordinate * mCellsPerLength) - 1;
+        return cell >= numCells ? numCells - 1 : (int) Math.max(cell, -1);
+    }
+
+
+    /**
+     * @return the bits of the word that are between the first and last column
+     */
+    private static long wordMask(int word, int firstColumn, int lastColumn){
+        long mask = -1L;
+        if( word == firstColumn >>> 6 )
+            mask &= -1L << firstColumn;
+        if( word == lastColumn >>> 6 )
+            mask &= -1L >>> (63 - (lastColumn & 63));
+        return mask;
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mColumns", mColumns);
+        description.addMember("mRows", mRows);
+        description.addMember("mCellsPerLength", mCellsPerLength);
+        description.addMember("mInvalid", mInvalid);
+        description.addMember("mUnmarkedCount", mUnmarkedCount);
+        return description.getString();
+    }
+}
@@ -0,0 +1,155 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes packed ARGB pixels, as drawn by {@link RasterRenderer}, as an 8 bit RGB PNG image. It
+ * only uses plain Java so it works off the device. Alpha is dropped since every frame is opaque.
+ * <p>
+ * An encoder keeps its buffers and {@link Deflater} between images, so it should only be used
+ * by one thread at a time. Call {@link #release()} when it is no longer needed.
+ */
+public class PngEncoder {
+    public  static final String     TAG                     =   "PNG_ENCODER";
+    private static final byte[]     SIGNATURE               =
+            {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int        BIT_DEPTH               =   8;
+    private static final int        COLOR_TYPE_RGB          =   2;
+    private static final int        BYTES_PER_PIXEL         =   3;
+    private static final int        FILTER_NONE             =   0;
+    private static final int        FILTER_UP               =   2;
+
+    private final Deflater mDeflater;
+    private final CRC32 mCrc;
+    private final ByteArrayOutputStream mImageData;
+    private byte[] mRow;
+    private byte[] mPreviousRow;
+    private byte[] mFilteredRow;
+
+
+    /**
+     * @param compressionLevel the level given to {@link Deflater}, from
+     *                         {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public PngEncoder(int compressionLevel){
+        mDeflater = new Deflater(compressionLevel);
+        mCrc = new CRC32();
+        mImageData = new ByteArrayOutputStream();
+    }
+
+
+    /**
+     * Encode an image.
+     *
+     * @param pixels packed ARGB pixels in rows from the top
+     * @param width the width of the image in pixels
+     * @param height the height of the image in pixels
+     * @param out where the PNG file is written, it is not closed
+     * @throws IOException if out could not be written
+     */
+    public void encode(int[] pixels, int width, int height, OutputStream out) throws IOException {
+        if( width <= 0 || height <= 0 || pixels.length < width * height )
+            throw new IllegalArgumentException("pixels do not fit a " + width + "x" + height + " image");
+
+        int rowLength = width * BYTES_PER_PIXEL;
+        if( mRow == null || mRow.length != rowLength ){
+            mRow = new byte[rowLength];
+            mPreviousRow = new byte[rowLength];
+            mFilteredRow = new byte[rowLength];
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(BIT_DEPTH);
+        headerData.writeByte(COLOR_TYPE_RGB);
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+        writeChunk(data, "IHDR", header.toByteArray(), header.size());
+
+        mImageData.reset();
+        mDeflater.reset();
+        DeflaterOutputStream deflated = new DeflaterOutputStream(mImageData, mDeflater);
+        for( int y = 0; y < height; y++ ){
+            writeRow(deflated, pixels, y * width, width, y == 0);
+        }
+        deflated.finish();
+        writeChunk(data, "IDAT", mImageData.toByteArray(), mImageData.size());
+
+        writeChunk(data, "IEND", new byte[0], 0);
+        data.flush();
+    }
+
+
+    /**
+     * Write one row with its filter byte. Rows after the first use the up filter, which turns the
+     * vertical lines and trails of a frame into runs of zeros that deflate well.
+     */
+    private void writeRow(OutputStream out, int[] pixels, int offset, int width, boolean first)
+            throws IOException {
+        byte[] swap = mPreviousRow;
+        mPreviousRow = mRow;
+        mRow = swap;
+
+        for( int x = 0, i = 0; x < width; x++ ){
+            int pixel = pixels[offset + x];
+            mRow[i++] = (byte) (pixel >> 16);
+            mRow[i++] = (byte) (pixel >> 8);
+            mRow[i++] = (byte) pixel;
+        }
+
+        if( first ){
+            out.write(FILTER_NONE);
+            out.write(mRow);
+            return;
+        }
+        for( int i = 0; i < mRow.length; i++ )
+            mFilteredRow[i] = (byte) (mRow[i] - mPreviousRow[i]);
+        out.write(FILTER_UP);
+        out.write(mFilteredRow);
+    }
+
+
+    /**
+     * Write a chunk, its length, type, data, and the CRC of the type and data.
+     */
+    private void writeChunk(DataOutputStream out, String type, byte[] chunkData, int length)
+            throws IOException {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        mCrc.reset();
+        mCrc.update(typeBytes);
+        mCrc.update(chunkData, 0, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(chunkData, 0, length);
+        out.writeInt((int) mCrc.getValue());
+    }
+
+
+    /**
+     * Free the native memory of the deflater, the encoder can not be used afterwards.
+     */
+    public void release(){
+        mDeflater.end();
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("rowLength", mRow == null ? 0 : mRow.length);
+        return description.getString();
+    }
+}
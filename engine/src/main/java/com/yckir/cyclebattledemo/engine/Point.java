@@ -1,6 +1,4 @@
-package com.yckir.cyclebattledemo.utility;
-
-import android.util.Log;
+package com.yckir.cyclebattledemo.engine;
 
 /**
  * A coordinate that lies on an x-y plane.
@@ -138,7 +136,7 @@ public class Point {
         double x2 = p2.getPositionX();
         double y1 = p1.getPositionY();
         double y2 = p2.getPositionY();
-        Log.v(TAG, "p1: " + (int) x1 + ", " + (int) y1 + ",  p2: " + (int) x2 + ", " + (int) y2 + ", ");
+        EngineLog.v(TAG, "p1: " + (int) x1 + ", " + (int) y1 + ",  p2: " + (int) x2 + ", " + (int) y2 + ", ");
     }
 
 
@@ -0,0 +1,105 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Renderer} that draws into an int array in memory, one packed ARGB pixel per int in
+ * rows from the top. It only uses plain Java, so frames can be drawn off the device, for example
+ * in tests or when exporting a replay. Colors are written as they are, nothing is blended.
+ * <p>
+ * Cycles are drawn as a gray rectangle with the color of their path inside it.
+ */
+public class RasterRenderer implements Renderer {
+    public  static final String     TAG                     =   "RASTER_RENDERER";
+    public  static final int        CYCLE_BORDER_COLOR      =   0xFF888888;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int[] mPixels;
+
+
+    /**
+     * @param width the width of the frame in pixels
+     * @param height the height of the frame in pixels
+     */
+    public RasterRenderer(int width, int height){
+        if( width <= 0 || height <= 0 )
+            throw new IllegalArgumentException("width and height must be positive");
+        mWidth = width;
+        mHeight = height;
+        mPixels = new int[width * height];
+    }
+
+
+    @Override
+    public void clear(int color){
+        Arrays.fill(mPixels, color);
+    }
+
+
+    @Override
+    public void fillRect(int left, int top, int right, int bottom, int color){
+        left = Math.max(left, 0);
+        top = Math.max(top, 0);
+        right = Math.min(right, mWidth);
+        bottom = Math.min(bottom, mHeight);
+        if( left >= right )
+            return;
+
+        for( int y = top; y < bottom; y++ )
+            Arrays.fill(mPixels, y * mWidth + left, y * mWidth + right, color);
+    }
+
+
+    @Override
+    public void drawLines(float[] lines, int count, int color){
+        for( int i = 0; i + 3 < count; i += 4 ){
+            int x0 = (int) lines[i];
+            int y0 = (int) lines[i + 1];
+            int x1 = (int) lines[i + 2];
+            int y1 = (int) lines[i + 3];
+            fillRect(Math.min(x0, x1), Math.min(y0, y1),
+                    Math.max(x0, x1) + 1, Math.max(y0, y1) + 1, color);
+        }
+    }
+
+
+    @Override
+    public void drawCycle(Cycle cycle, Compass direction, int left, int top, int right, int bottom){
+        int insetX = (right - left) / 10;
+        int insetY = (bottom - top) / 10;
+        fillRect(left, top, right, bottom, CYCLE_BORDER_COLOR);
+        fillRect(left + insetX, top + insetY, right - insetX, bottom - insetY,
+                GameRenderer.getPathColor(cycle.getId()));
+    }
+
+
+    /**
+     * @return the color of a pixel
+     */
+    public int getPixel(int x, int y){
+        return mPixels[y * mWidth + x];
+    }
+
+
+    /**
+     * @return the pixels of the frame, one int per pixel in rows from the top. This is the
+     *         array that is drawn into, not a copy.
+     */
+    public int[] getPixels(){return mPixels;}
+
+
+    public int getWidth(){return mWidth;}
+
+
+    public int getHeight(){return mHeight;}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mWidth", mWidth);
+        description.addMember("mHeight", mHeight);
+        return description.getString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Something that frames of a game can be drawn onto, see {@link GameRenderer}. Coordinates are
+ * pixels measured from the top left corner of the animation frame and colors are packed ARGB
+ * ints, the same format as android.graphics.Color. On Android this is backed by a Canvas.
+ */
+public interface Renderer {
+
+    /**
+     * Fill the whole frame with a color.
+     */
+    void clear(int color);
+
+    /**
+     * Fill a rectangle with a color. The right and bottom edges are not included.
+     */
+    void fillRect(int left, int top, int right, int bottom, int color);
+
+    /**
+     * Draw one pixel wide horizontal and vertical lines. Each line is four values in the array,
+     * the x and y of its start followed by the x and y of its end. Both ends are included.
+     *
+     * @param lines the start and end points of the lines
+     * @param count the number of values in lines that are used
+     * @param color the color of every line
+     */
+    void drawLines(float[] lines, int count, int color);
+
+    /**
+     * Draw a cycle so that it fills a rectangle. How a cycle looks is up to the renderer.
+     *
+     * @param cycle the cycle that is drawn
+     * @param direction the direction the cycle is drawn facing, this is not the direction of the
+     *                  cycle when it is drawn as it was before a turn
+     */
+    void drawCycle(Cycle cycle, Compass direction, int left, int top, int right, int bottom);
+}
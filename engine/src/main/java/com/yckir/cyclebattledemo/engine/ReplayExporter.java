@@ -0,0 +1,221 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Turns the recorded direction changes of a game, see {@link GameEngine#getReplay()}, into a
+ * sequence of PNG images without a device. The game is simulated again tick by tick on the
+ * calling thread, and every Nth tick, plus the tick the game ended on, is drawn with a
+ * {@link RasterRenderer}. Encoding the images is the slow part, so it is spread over a pool of
+ * threads while the simulation moves on.
+ * <p>
+ * Each frame is copied into one of a fixed number of pixel buffers before it is handed to the
+ * pool. When every buffer is waiting to be encoded, the simulation blocks until one is free, so
+ * memory use does not grow with the length of the game.
+ * <p>
+ * The simulation is the same as the live game, so the images show exactly what was played as
+ * long as the grid size, number of cycles, and speed match the recorded game.
+ */
+public class ReplayExporter {
+    public  static final String     TAG                     =   "REPLAY_EXPORTER";
+    public  static final String     FILE_EXTENSION          =   ".png";
+
+    //stop a game that never ends after ten minutes of game time
+    private static final long       MAX_GAME_TIME           =   10 * 60 * 1000;
+    private static final int        BUFFERS_PER_THREAD      =   2;
+
+    private final int mNumTilesX;
+    private final int mNumTilesY;
+    private final int mNumCycles;
+    private final int mSpeed;
+    private final int mTileLength;
+    private final int mTickInterval;
+    private final int mNumThreads;
+
+
+    /**
+     * @param numTilesX the number of tiles in the x direction of the recorded game
+     * @param numTilesY the number of tiles in the y direction of the recorded game
+     * @param numCycles the number of cycles in the recorded game
+     * @param speed the speed of the cycles in the recorded game
+     * @param tileLength the length of a tile in the images in pixels
+     * @param tickInterval an image is drawn every tickInterval ticks
+     * @param numThreads the number of threads that encode images
+     */
+    public ReplayExporter(int numTilesX, int numTilesY, int numCycles, int speed, int tileLength,
+                          int tickInterval, int numThreads){
+        if( tileLength <= 0 || tickInterval <= 0 || numThreads <= 0 )
+            throw new IllegalArgumentException("tileLength, tickInterval and numThreads must be positive");
+        mNumTilesX = numTilesX;
+        mNumTilesY = numTilesY;
+        mNumCycles = numCycles;
+        mSpeed = speed;
+        mTileLength = tileLength;
+        mTickInterval = tickInterval;
+        mNumThreads = numThreads;
+    }
+
+
+    /**
+     * Simulate a recorded game and write its images. Images are named with the prefix followed by
+     * the image number padded to five digits, starting at zero.
+     *
+     * @param replay the direction changes of the game in the order they were made
+     * @param directory the directory the images are written to, it must exist
+     * @param prefix the start of the name of each image
+     * @return the number of images that were written
+     * @throws IOException if an image could not be written
+     * @throws InterruptedException if the thread was interrupted while waiting for the encoders
+     */
+    public int export(ArrayList<GameEngine.DirectionChangeRequest> replay, File directory,
+                      String prefix) throws IOException, InterruptedException {
+        Grid grid = new Grid(mNumTilesX, mNumTilesY, GameEngine.GAME_GRID_TILE_LENGTH);
+        GameEngine engine = new GameEngine(grid, mNumCycles, mSpeed);
+        TickScheduler scheduler = engine.getScheduler();
+        ScreenTransform transform = new ScreenTransform(mTileLength, grid.getTileLength(), 0, 0);
+        GameRenderer gameRenderer = new GameRenderer(grid, transform);
+        RasterRenderer raster = new RasterRenderer(mNumTilesX * mTileLength, mNumTilesY * mTileLength);
+        int numPixels = raster.getPixels().length;
+
+        int numBuffers = mNumThreads * BUFFERS_PER_THREAD;
+        ArrayBlockingQueue<int[]> freeBuffers = new ArrayBlockingQueue<>(numBuffers);
+        for( int i = 0; i < numBuffers; i++ )
+            freeBuffers.add(new int[numPixels]);
+        ArrayBlockingQueue<PngEncoder> encoders = new ArrayBlockingQueue<>(mNumThreads);
+        for( int i = 0; i < mNumThreads; i++ )
+            encoders.add(new PngEncoder(Deflater.BEST_SPEED));
+
+        ArrayList<Future<Void>> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(mNumThreads);
+        try {
+            engine.setRunning(true);
+            int nextRequest = 0;
+            long tick = 0;
+            long time = 0;
+            while( true ){
+                if( tick % mTickInterval == 0 || !engine.isRunning() ){
+                    gameRenderer.drawFull(raster, engine.getCycles());
+                    int[] buffer = freeBuffers.take();
+                    System.arraycopy(raster.getPixels(), 0, buffer, 0, numPixels);
+                    File file = new File(directory,
+                            String.format(Locale.US, "%s%05d%s", prefix, results.size(), FILE_EXTENSION));
+                    results.add(pool.submit(new EncodeTask(buffer, raster.getWidth(),
+                            raster.getHeight(), file, freeBuffers, encoders)));
+                }
+                if( !engine.isRunning() || time >= MAX_GAME_TIME )
+                    break;
+
+                //the recorded times are tick times, so each request is made on the tick it was
+                //applied on
+                time = scheduler.nextTick();
+                tick = scheduler.getTick();
+                while( nextRequest < replay.size() && replay.get(nextRequest).getTime() <= time ){
+                    GameEngine.DirectionChangeRequest request = replay.get(nextRequest);
+                    engine.requestDirectionChange(request.getCycleNum(), request.getDirection(),
+                            request.getTime());
+                    nextRequest++;
+                }
+                engine.step(time);
+            }
+
+            for( int i = 0; i < results.size(); i++ )
+                waitFor(results.get(i));
+        }
+        finally {
+            pool.shutdownNow();
+            pool.awaitTermination(MAX_GAME_TIME, TimeUnit.MILLISECONDS);
+            PngEncoder encoder;
+            while( (encoder = encoders.poll()) != null )
+                encoder.release();
+        }
+        EngineLog.v(TAG, "exported " + results.size() + " images of " + scheduler.getTick() + " ticks");
+        return results.size();
+    }
+
+
+    /**
+     * Wait for an image to be written and pass on its exception if it failed.
+     */
+    private static void waitFor(Future<Void> result) throws IOException, InterruptedException {
+        try {
+            result.get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if( cause instanceof IOException )
+                throw (IOException) cause;
+            if( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mNumTilesX", mNumTilesX);
+        description.addMember("mNumTilesY", mNumTilesY);
+        description.addMember("mNumCycles", mNumCycles);
+        description.addMember("mSpeed", mSpeed);
+        description.addMember("mTileLength", mTileLength);
+        description.addMember("mTickInterval", mTickInterval);
+        description.addMember("mNumThreads", mNumThreads);
+        return description.getString();
+    }
+
+
+    /**
+     * Writes one image with an encoder from the shared queue, then gives its pixel buffer back.
+     * There are as many encoders as threads, so taking one never waits.
+     */
+    private static class EncodeTask implements Callable<Void> {
+        private final int[] mPixels;
+        private final int mWidth;
+        private final int mHeight;
+        private final File mFile;
+        private final ArrayBlockingQueue<int[]> mFreeBuffers;
+        private final ArrayBlockingQueue<PngEncoder> mEncoders;
+
+        EncodeTask(int[] pixels, int width, int height, File file,
+                   ArrayBlockingQueue<int[]> freeBuffers, ArrayBlockingQueue<PngEncoder> encoders){
+            mPixels = pixels;
+            mWidth = width;
+            mHeight = height;
+            mFile = file;
+            mFreeBuffers = freeBuffers;
+            mEncoders = encoders;
+        }
+
+        @Override
+        public Void call() throws IOException, InterruptedException {
+            PngEncoder encoder = mEncoders.take();
+            OutputStream out = null;
+            try {
+                out = new BufferedOutputStream(new FileOutputStream(mFile));
+                encoder.encode(mPixels, mWidth, mHeight, out);
+            }
+            finally {
+                if( out != null )
+                    out.close();
+                mEncoders.add(encoder);
+                mFreeBuffers.add(mPixels);
+            }
+            return null;
+        }
+    }
+}
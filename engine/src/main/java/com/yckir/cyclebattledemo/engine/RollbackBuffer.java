@@ -0,0 +1,262 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the state of the game after each of its most recent steps, and the direction changes
+ * that were applied since the oldest of them. A direction change that arrives after its time has
+ * already been simulated can then be applied exactly: the game is rewound to the newest step
+ * before the direction change with {@link #rewind(long, Cycle[])}, and the steps that were undone
+ * are simulated again with every remembered direction change, including collision detection.
+ * <p>
+ * Only what can change during a step is saved, see {@link Cycle.Snapshot}, so saving a step is
+ * cheap. The snapshots are made once and reused, so saving never allocates. The remembered
+ * direction changes are kept in order of their time, and the array they are kept in only grows
+ * when more of them are made within the buffered steps than ever before.
+ */
+public class RollbackBuffer {
+    public  static final String     TAG                     =   "ROLLBACK_BUFFER";
+    public  static final long       NO_TIME                 =   -1;
+    private static final int        INITIAL_REQUESTS        =   16;
+
+    private final int mNumCycles;
+    private final int mCapacity;
+
+    /**
+     * the saved steps, the newest is at mNewest and the older ones come before it
+     */
+    private final Cycle.Snapshot[][] mSnapshots;
+    private final long[] mTimes;
+    private final int[] mRemainingCycles;
+    private int mNewest;
+    private int mSize;
+
+    /**
+     * the times of the steps that were undone by the last rewind, oldest first
+     */
+    private final long[] mUndoneTimes;
+    private int mNumUndone;
+
+    /**
+     * direction change requests, packed with {@link GameEngine.DirectionChangeRequest#pack()},
+     * that are newer than the oldest step. Requests with the same time are kept in the order
+     * they were added.
+     */
+    private long[] mRequests;
+    private int mNumRequests;
+
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param numCycles the number of cycles in the game
+     * @param capacity the number of steps that are remembered, at least two
+     */
+    public RollbackBuffer(int numCycles, int capacity){
+        if( capacity < 2 )
+            throw new IllegalArgumentException("capacity must be at least two: " + capacity);
+        mNumCycles = numCycles;
+        mCapacity = capacity;
+        mSnapshots = new Cycle.Snapshot[capacity][numCycles];
+        for( int i = 0; i < capacity; i++ ){
+            for( int j = 0; j < numCycles; j++ )
+                mSnapshots[i][j] = new Cycle.Snapshot();
+        }
+        mTimes = new long[capacity];
+        mRemainingCycles = new int[capacity];
+        mUndoneTimes = new long[capacity];
+        mRequests = new long[INITIAL_REQUESTS];
+        clear();
+    }
+
+
+    /**
+     * Forget every step and direction change.
+     */
+    public void clear(){
+        mNewest = mCapacity - 1;
+        mSize = 0;
+        mNumUndone = 0;
+        mNumRequests = 0;
+    }
+
+
+    /**
+     * @return the slot of a step, 0 is the newest step
+     */
+    private int slot(int age){
+        return (mNewest - age + mCapacity) % mCapacity;
+    }
+
+
+    /**
+     * Save the state of the game after a step. If the buffer is full the oldest step is
+     * forgotten, along with the direction changes that can no longer be simulated again.
+     *
+     * @param time the time in milliseconds of the step, later than the previous step
+     * @param cycles the cycles of the game
+     * @param remainingCycles the number of cycles that have not crashed
+     */
+    public void save(long time, Cycle[] cycles, int remainingCycles){
+        mNewest = (mNewest + 1) % mCapacity;
+        if( mSize < mCapacity )
+            mSize++;
+
+        mTimes[mNewest] = time;
+        mRemainingCycles[mNewest] = remainingCycles;
+        Cycle.Snapshot[] snapshots = mSnapshots[mNewest];
+        for( int i = 0; i < mNumCycles; i++ )
+            cycles[i].saveSnapshot(snapshots[i]);
+
+        if( mSize == mCapacity )
+            forgetRequests(mTimes[slot(mSize - 1)]);
+    }
+
+
+    /**
+     * Forget the direction changes that are at or before the given time.
+     */
+    private void forgetRequests(long time){
+        int forgotten = 0;
+        while( forgotten < mNumRequests &&
+                GameEngine.DirectionChangeRequest.getTime(mRequests[forgotten]) <= time )
+            forgotten++;
+        if( forgotten == 0 )
+            return;
+        mNumRequests -= forgotten;
+        System.arraycopy(mRequests, forgotten, mRequests, 0, mNumRequests);
+    }
+
+
+    /**
+     * @return the time in milliseconds of the earliest step that can be simulated again, which
+     *          is the step after the oldest saved step. {@link #NO_TIME} if less than two steps
+     *          are saved.
+     */
+    public long getEarliestTime(){
+        if( mSize < 2 )
+            return NO_TIME;
+        return mTimes[slot(mSize - 2)];
+    }
+
+
+    /**
+     * Put the cycles back to how they were after the newest step before the given time. The
+     * steps after it are forgotten, their times can be read with {@link #getUndoneTime(int)}. The
+     * area the paths grew into since that step is unmarked on their occupancy grid, see
+     * {@link LinePath#restoreSnapshot(LinePath.Snapshot)}.
+     *
+     * @param time the time in milliseconds that must be simulated again
+     * @param cycles the cycles of the game
+     * @return the number of steps that were undone, -1 if no step before the time is saved
+     */
+    public int rewind(long time, Cycle[] cycles){
+        int age = 0;
+        while( age < mSize && mTimes[slot(age)] >= time )
+            age++;
+        if( age == mSize )
+            return -1;
+
+        for( int i = 0; i < age; i++ )
+            mUndoneTimes[i] = mTimes[slot(age - 1 - i)];
+        mNumUndone = age;
+        mNewest = slot(age);
+        mSize -= age;
+
+        Cycle.Snapshot[] snapshots = mSnapshots[mNewest];
+        for( int i = 0; i < mNumCycles; i++ )
+            cycles[i].restoreSnapshot(snapshots[i]);
+        return age;
+    }
+
+
+    /**
+     * @param index the index of the undone step, 0 is the oldest
+     * @return the time in milliseconds of a step that was undone by the last rewind
+     */
+    public long getUndoneTime(int index){return mUndoneTimes[index];}
+
+
+    /**
+     * @return the number of steps that were undone by the last rewind
+     */
+    public int getNumUndone(){return mNumUndone;}
+
+
+    /**
+     * @return the time in milliseconds of the newest saved step
+     */
+    public long getTime(){return mTimes[mNewest];}
+
+
+    /**
+     * @return the number of cycles that had not crashed after the newest saved step
+     */
+    public int getRemainingCycles(){return mRemainingCycles[mNewest];}
+
+
+    /**
+     * @return the number of saved steps
+     */
+    public int size(){return mSize;}
+
+
+    /**
+     * @return the number of cycles whose state is saved
+     */
+    public int getNumCycles(){return mNumCycles;}
+
+
+    /**
+     * @return the number of steps that can be saved
+     */
+    public int getCapacity(){return mCapacity;}
+
+
+    /**
+     * Remember a direction change so that it is applied again when the steps after it are
+     * simulated again. It is placed after the direction changes with the same or an earlier time.
+     *
+     * @param request the packed request
+     */
+    public void addRequest(long request){
+        if( mNumRequests == mRequests.length )
+            mRequests = Arrays.copyOf(mRequests, mRequests.length * 2);
+
+        long time = GameEngine.DirectionChangeRequest.getTime(request);
+        int index = mNumRequests;
+        while( index > 0 && GameEngine.DirectionChangeRequest.getTime(mRequests[index - 1]) > time ){
+            mRequests[index] = mRequests[index - 1];
+            index--;
+        }
+        mRequests[index] = request;
+        mNumRequests++;
+    }
+
+
+    /**
+     * @return the number of remembered direction changes
+     */
+    public int getNumRequests(){return mNumRequests;}
+
+
+    /**
+     * @param index the index of the direction change, in order of their time
+     * @return a remembered direction change, packed
+     */
+    public long getRequest(int index){return mRequests[index];}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mCapacity", mCapacity);
+        description.addMember("mSize", mSize);
+        description.addMember("mNumRequests", mNumRequests);
+        if( mSize > 0 ) {
+            description.addMember("oldest", mTimes[slot(mSize - 1)]);
+            description.addMember("newest", mTimes[mNewest]);
+        }
+        return description.getString();
+    }
+}
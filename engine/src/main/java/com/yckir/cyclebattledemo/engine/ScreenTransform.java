@@ -0,0 +1,91 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Maps coordinates on a {@link Grid} to pixels on an animation frame. The scale and padding are
+ * computed once when the frame size is known, so drawing only needs a multiply and an add per
+ * coordinate. A transform can not be changed, a new one is made whenever the frame size changes.
+ */
+public final class ScreenTransform {
+    public static final String TAG = "SCREEN_TRANSFORM";
+
+    private final int mTileLength;
+    private final double mScale;
+    private final int mPaddingX;
+    private final int mPaddingY;
+
+
+    /**
+     * @param screenTileLength the length of a grid tile on the animation frame in pixels
+     * @param gridTileLength the length of a grid tile on the grid
+     * @param paddingX the spacing between the left edge of the animation frame and the grid
+     * @param paddingY the spacing between the top edge of the animation frame and the grid
+     */
+    public ScreenTransform(int screenTileLength, int gridTileLength, int paddingX, int paddingY){
+        mTileLength = screenTileLength;
+        mScale = (double) screenTileLength / gridTileLength;
+        mPaddingX = paddingX;
+        mPaddingY = paddingY;
+    }
+
+
+    /**
+     * @param length a length measured on the grid
+     * @return the length in pixels on the animation frame
+     */
+    public double scale(double length){
+        return length * mScale;
+    }
+
+
+    /**
+     * @param x an x coordinate on the grid
+     * @return the x coordinate in pixels, relative to the left edge of the animation frame
+     */
+    public int toFrameX(double x){
+        return mPaddingX + (int) (x * mScale);
+    }
+
+
+    /**
+     * @param y a y coordinate on the grid
+     * @return the y coordinate in pixels, relative to the top edge of the animation frame
+     */
+    public int toFrameY(double y){
+        return mPaddingY + (int) (y * mScale);
+    }
+
+
+    /**
+     * @return the length of a grid tile on the animation frame in pixels
+     */
+    public int getTileLength(){return mTileLength;}
+
+
+    /**
+     * @return the number of pixels per unit of length on the grid
+     */
+    public double getScale(){return mScale;}
+
+
+    /**
+     * @return the spacing between the left edge of the animation frame and the grid
+     */
+    public int getPaddingX(){return mPaddingX;}
+
+
+    /**
+     * @return the spacing between the top edge of the animation frame and the grid
+     */
+    public int getPaddingY(){return mPaddingY;}
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mTileLength", mTileLength);
+        description.addMember("mScale", mScale);
+        description.addMember("mPaddingX", mPaddingX);
+        description.addMember("mPaddingY", mPaddingY);
+        return description.getString();
+    }
+}
@@ -0,0 +1,125 @@
+package com.yckir.cyclebattledemo.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands {@link FrameSnapshot}s from the thread that simulates a game to the thread that draws it,
+ * for exactly one writer and one reader. Three snapshots are made up front: the writer owns one,
+ * the reader owns one, and the newest published snapshot is kept between them. Publishing swaps
+ * the snapshot of the writer with the one in between, and taking the newest snapshot swaps it
+ * with the snapshot of the reader, each with a single atomic operation. Neither side ever waits
+ * for the other or allocates. A snapshot that was published but not taken before the next one is
+ * simply written over.
+ * <p>
+ * The paths of a snapshot are only copied from where they changed since that snapshot was last
+ * written, see {@link LinePath#getFirstChangedLine()}. Because the changes are tracked for each
+ * of the three snapshots, a path that the reader skipped over is still complete.
+ */
+public class SnapshotBuffer {
+    public  static final String     TAG                     =   "SNAPSHOT_BUFFER";
+    private static final int        NUM_SNAPSHOTS           =   3;
+    private static final int        INDEX_MASK              =   3;
+    private static final int        FRESH                   =   4;
+
+    private final FrameSnapshot[] mSnapshots;
+
+    /**
+     * the index of the snapshot in between the writer and the reader, with {@link #FRESH} set if
+     * it was published after the reader last took a snapshot
+     */
+    private final AtomicInteger mMiddle;
+
+    /**
+     * only used by the writer: the snapshot being written, the number of the last published
+     * snapshot, and for each snapshot and cycle the first line of the path that must be copied
+     * when the snapshot is next written
+     */
+    private int mBack;
+    private long mSequence;
+    private final int[][] mCopyFrom;
+
+    /**
+     * only used by the reader: the snapshot being read
+     */
+    private int mFront;
+
+
+    /**
+     * Creates a buffer whose snapshots are empty until the first one is published.
+     */
+    public SnapshotBuffer(){
+        mSnapshots = new FrameSnapshot[NUM_SNAPSHOTS];
+        mCopyFrom = new int[NUM_SNAPSHOTS][];
+        for( int i = 0; i < NUM_SNAPSHOTS; i++ ) {
+            mSnapshots[i] = new FrameSnapshot();
+            mCopyFrom[i] = new int[0];
+        }
+        mFront = 0;
+        mMiddle = new AtomicInteger(1);
+        mBack = 2;
+        mSequence = 0;
+    }
+
+
+    /**
+     * Copy the engine into a snapshot and make it the newest snapshot. Only the writer may call
+     * this, and it must be the thread that changes the engine.
+     *
+     * @param engine the game
+     */
+    public void publish(GameEngine engine){
+        Cycle[] cycles = engine.getCycles();
+        for( int s = 0; s < NUM_SNAPSHOTS; s++ ){
+            if( mCopyFrom[s].length != cycles.length ) {
+                mCopyFrom[s] = new int[cycles.length];
+                Arrays.fill(mCopyFrom[s], 1);
+            }
+        }
+
+        //every snapshot has to copy again what changed since any of them was written
+        for( int i = 0; i < cycles.length; i++ ){
+            LinePath path = cycles[i].getPath();
+            int changed = path.getFirstChangedLine();
+            path.clearChanges();
+            for( int s = 0; s < NUM_SNAPSHOTS; s++ )
+                mCopyFrom[s][i] = Math.min(mCopyFrom[s][i], changed);
+        }
+
+        FrameSnapshot snapshot = mSnapshots[mBack];
+        int[] copyFrom = mCopyFrom[mBack];
+        if( snapshot.match(cycles) )
+            Arrays.fill(copyFrom, 1);
+        mSequence++;
+        snapshot.write(engine, copyFrom, mSequence);
+
+        //the last line keeps growing, it is always counted as changed
+        for( int i = 0; i < cycles.length; i++ )
+            copyFrom[i] = cycles[i].getPath().getNumLines();
+
+        mBack = mMiddle.getAndSet(mBack | FRESH) & INDEX_MASK;
+    }
+
+
+    /**
+     * Take the newest published snapshot. The snapshot may be read until the next call, after
+     * which it can be written over. Only the reader may call this.
+     *
+     * @return the newest snapshot, the same snapshot as the previous call if nothing newer was
+     *         published. An empty snapshot if nothing was published yet.
+     */
+    public FrameSnapshot acquire(){
+        if( (mMiddle.get() & FRESH) != 0 )
+            mFront = mMiddle.getAndSet(mFront) & INDEX_MASK;
+        return mSnapshots[mFront];
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mSequence", mSequence);
+        description.addMember("mMiddle", mMiddle.get());
+        return description.getString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Key value storage that the engine saves its state onto. On Android this is backed by a Bundle.
+ */
+public interface StateBundle {
+
+    void putInt(String key, int value);
+
+    void putLong(String key, long value);
+
+    void putDouble(String key, double value);
+
+    void putBoolean(String key, boolean value);
+
+    void putString(String key, String value);
+
+    int getInt(String key, int defaultValue);
+
+    long getLong(String key, long defaultValue);
+
+    double getDouble(String key, double defaultValue);
+
+    boolean getBoolean(String key, boolean defaultValue);
+
+    /**
+     * @return the string for the key, null if it does not exist
+     */
+    String getString(String key);
+}
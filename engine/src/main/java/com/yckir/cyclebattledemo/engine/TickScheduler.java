@@ -0,0 +1,238 @@
+package com.yckir.cyclebattledemo.engine;
+
+/**
+ * Converts the elapsed time of a game into a whole number of fixed length ticks. The game is only
+ * ever simulated on tick boundaries, so the results of a game do not depend on how often or how
+ * regularly the scheduler is advanced.
+ * <p>
+ * Elapsed time is collected in an accumulator and one tick is released for every tick length of
+ * accumulated time. If the scheduler falls too far behind, at most {@link #getMaxCatchUpTicks()}
+ * ticks are released at once and the rest of the backlog is dropped. Dropped time is treated like
+ * a pause, it is subtracted from any elapsed time given to {@link #toTickTime(long)}.
+ */
+public class TickScheduler {
+    public  static final String     TAG                         =   "TICK_SCHEDULER";
+    public  static final int        DEFAULT_TICK_RATE           =   120;
+    public  static final int        DEFAULT_MAX_CATCH_UP_TICKS  =   12;
+    private static final String     TICK_KEY                    =   TAG + ":TICK";
+    private static final String     ACCUMULATOR_KEY             =   TAG + ":ACCUMULATOR";
+    private static final String     LAST_TIME_KEY               =   TAG + ":LAST_TIME";
+    private static final String     DROPPED_KEY                 =   TAG + ":DROPPED";
+
+    // The accumulator is measured in milliseconds multiplied by the tick rate so that ticks whose
+    // length is not a whole number of milliseconds can be counted without any rounding.
+    private static final long       UNITS_PER_TICK              =   1000;
+
+    private final int mTickRate;
+    private final int mMaxCatchUpTicks;
+
+    /**
+     * the number of ticks that have been released
+     */
+    private long mTick;
+
+    /**
+     * elapsed time that has not yet been released as a tick
+     */
+    private long mAccumulator;
+
+    /**
+     * the elapsed time given to the most recent call to advance
+     */
+    private long mLastTime;
+
+    /**
+     * time that was dropped because the scheduler fell too far behind, in accumulator units
+     */
+    private long mDroppedUnits;
+
+    /**
+     * time that was dropped because the scheduler fell too far behind, in milliseconds. This is
+     * read by the thread that makes direction change requests.
+     */
+    private volatile long mDroppedTime;
+
+
+    /**
+     * Creates a scheduler that runs at {@link #DEFAULT_TICK_RATE} ticks per second.
+     */
+    public TickScheduler(){
+        this(DEFAULT_TICK_RATE, DEFAULT_MAX_CATCH_UP_TICKS);
+    }
+
+
+    /**
+     * @param tickRate the number of ticks per second
+     * @param maxCatchUpTicks the maximum number of ticks that can be released by a single call
+     *                        to {@link #advance(long)}
+     */
+    public TickScheduler(int tickRate, int maxCatchUpTicks){
+        if( tickRate <= 0 || maxCatchUpTicks <= 0 )
+            throw new IllegalArgumentException("tickRate and maxCatchUpTicks must be positive");
+        mTickRate = tickRate;
+        mMaxCatchUpTicks = maxCatchUpTicks;
+        reset();
+    }
+
+
+    /**
+     * Set the scheduler back to tick zero with no accumulated or dropped time.
+     */
+    public void reset(){
+        mTick = 0;
+        mAccumulator = 0;
+        mLastTime = 0;
+        mDroppedUnits = 0;
+        mDroppedTime = 0;
+    }
+
+
+    /**
+     * Add the time since the last call to the accumulator and determine how many ticks are due.
+     * Each due tick must be consumed by calling {@link #nextTick()}.
+     *
+     * @param elapsedTime the time in milliseconds since the game started, not counting pauses
+     * @return the number of ticks that are due, never more than {@link #getMaxCatchUpTicks()}
+     */
+    public int advance(long elapsedTime){
+        if( elapsedTime > mLastTime ) {
+            mAccumulator += (elapsedTime - mLastTime) * mTickRate;
+            mLastTime = elapsedTime;
+        }
+
+        long due = mAccumulator / UNITS_PER_TICK;
+        if( due > mMaxCatchUpTicks ){
+            long dropped = due - mMaxCatchUpTicks;
+            EngineLog.d(TAG, "dropping " + dropped + " ticks");
+            mAccumulator -= dropped * UNITS_PER_TICK;
+            mDroppedUnits += dropped * UNITS_PER_TICK;
+            mDroppedTime = mDroppedUnits / mTickRate;
+            due = mMaxCatchUpTicks;
+        }
+        return (int) due;
+    }
+
+
+    /**
+     * Release the next tick.
+     *
+     * @return the time in milliseconds of the released tick
+     */
+    public long nextTick(){
+        mAccumulator -= UNITS_PER_TICK;
+        mTick++;
+        return getTickTime(mTick);
+    }
+
+
+    /**
+     * @param tick a tick number
+     * @return the time in milliseconds of the tick
+     */
+    public long getTickTime(long tick){
+        return tick * UNITS_PER_TICK / mTickRate;
+    }
+
+
+    /**
+     * Quantize an elapsed time to the first tick at or after it. Time that was dropped while
+     * catching up is removed first.
+     *
+     * @param elapsedTime the time in milliseconds since the game started, not counting pauses
+     * @return the time in milliseconds of the first tick that is not before elapsedTime
+     */
+    public long toTickTime(long elapsedTime){
+        long time = elapsedTime - mDroppedTime;
+        if( time <= 0 )
+            return 0;
+        long tick = (time * mTickRate + UNITS_PER_TICK - 1) / UNITS_PER_TICK;
+        return getTickTime(tick);
+    }
+
+
+    /**
+     * @return the number of ticks that have been released
+     */
+    public long getTick(){return mTick;}
+
+
+    /**
+     * @return the time in milliseconds of the most recently released tick
+     */
+    public long getTime(){return getTickTime(mTick);}
+
+
+    /**
+     * @return the time in milliseconds that was given to {@link #advance(long)} but not yet
+     *         released as a tick, between zero and the length of a tick
+     */
+    public double getPendingTime(){
+        return Math.max(0, (double) mAccumulator / mTickRate);
+    }
+
+
+    /**
+     * @return the length of a tick in milliseconds
+     */
+    public double getTickLength(){
+        return (double) UNITS_PER_TICK / mTickRate;
+    }
+
+
+    /**
+     * @return the number of ticks per second
+     */
+    public int getTickRate(){return mTickRate;}
+
+
+    /**
+     * @return the maximum number of ticks released by a single call to {@link #advance(long)}
+     */
+    public int getMaxCatchUpTicks(){return mMaxCatchUpTicks;}
+
+
+    /**
+     * @return the time in milliseconds that was dropped because the scheduler fell behind
+     */
+    public long getDroppedTime(){return mDroppedTime;}
+
+
+    /**
+     * Save the state of the scheduler onto a bundle.
+     *
+     * @param bundle the bundle to save the state onto
+     */
+    public void saveState(StateBundle bundle){
+        bundle.putLong(TICK_KEY, mTick);
+        bundle.putLong(ACCUMULATOR_KEY, mAccumulator);
+        bundle.putLong(LAST_TIME_KEY, mLastTime);
+        bundle.putLong(DROPPED_KEY, mDroppedUnits);
+    }
+
+
+    /**
+     * Restore the previous state of the scheduler from a bundle.
+     *
+     * @param bundle the bundle that has the previous state saved
+     */
+    public void restoreState(StateBundle bundle){
+        mTick = bundle.getLong(TICK_KEY, 0);
+        mAccumulator = bundle.getLong(ACCUMULATOR_KEY, 0);
+        mLastTime = bundle.getLong(LAST_TIME_KEY, 0);
+        mDroppedUnits = bundle.getLong(DROPPED_KEY, 0);
+        mDroppedTime = mDroppedUnits / mTickRate;
+    }
+
+
+    @Override
+    public String toString() {
+        ClassStateString description = new ClassStateString(TAG);
+        description.addMember("mTickRate", mTickRate);
+        description.addMember("mMaxCatchUpTicks", mMaxCatchUpTicks);
+        description.addMember("mTick", mTick);
+        description.addMember("mAccumulator", mAccumulator);
+        description.addMember("mLastTime", mLastTime);
+        description.addMember("mDroppedTime", mDroppedTime);
+        return description.getString();
+    }
+}
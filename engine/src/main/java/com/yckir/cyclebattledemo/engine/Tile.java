@@ -1,4 +1,4 @@
-package com.yckir.cyclebattledemo.utility;
+package com.yckir.cyclebattledemo.engine;
 
 /**
  * A square tile with a length that cant be changed once initialized.
@@ -35,7 +35,20 @@ public class Tile<N> {
      * @return valueA measured in tileB units
      */
     public static double convert(Tile<Integer> tileA, Tile<Integer> tileB, double valueA){
-        return valueA * tileB.getLength() / tileA.getLength();
+        return convert(tileA.getLength().intValue(), tileB.getLength().intValue(), valueA);
+    }
+
+
+    /**
+     * Converts a value that is measured in tile1 units, into tile2 units.
+     *
+     * @param lengthA the length of the tile the value is measured currently with
+     * @param lengthB the length of the tile you want the value to be represented in.
+     * @param valueA a number measured in lengthA units
+     * @return valueA measured in lengthB units
+     */
+    public static double convert(int lengthA, int lengthB, double valueA){
+        return valueA * lengthB / lengthA;
     }
 
 
@@ -48,9 +61,26 @@ public class Tile<N> {
      * @return given point measured in tileB units
      */
     public static Point convert(Tile<Integer> tileA, Tile<Integer> tileB, Point point){
-        double x = (point.getPositionX() * tileB.getLength() / tileA.getLength());
-        double y = (point.getPositionY() * tileB.getLength() / tileA.getLength());
-        return new Point(x,y);
+        Point out = new Point(0, 0);
+        convert(tileA, tileB, point, out);
+        return out;
+    }
+
+
+    /**
+     * Converts a point that is measured in tile1 units, into tile2 units without creating a new
+     * point. The point and the out point may be the same.
+     *
+     * @param tileA a unit of measure, the value is measured currently with this
+     * @param tileB the unit of measure you want the value to be represented in.
+     * @param point a point measured in tileA units
+     * @param out the point that the given point measured in tileB units is written into
+     */
+    public static void convert(Tile<Integer> tileA, Tile<Integer> tileB, Point point, Point out){
+        int lengthA = tileA.getLength();
+        int lengthB = tileB.getLength();
+        out.setPosition(convert(lengthA, lengthB, point.getPositionX()),
+                convert(lengthA, lengthB, point.getPositionY()));
     }
 
 
@@ -0,0 +1,44 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BroadPhaseTest {
+
+    @Test
+    public void testOnlyNearbyCyclesAreCandidates() throws Exception {
+        Cycle[] cycles = {
+                new Cycle(5, 1, 0.25, 0.5, 0, 3),
+                new Cycle(1, 1, 0.25, 0.5, 1, 3),
+                new Cycle(5.2, 1.2, 0.25, 0.5, 2, 3)};
+        BroadPhase broadPhase = new BroadPhase(cycles.length);
+        broadPhase.update(cycles);
+
+        assertEquals(1, broadPhase.getNumPairs());
+        assertEquals(1, broadPhase.getNumCandidates(0));
+        assertEquals(2, broadPhase.getCandidate(0, 0));
+        assertEquals(0, broadPhase.getNumCandidates(1));
+        assertEquals(0, broadPhase.getCandidate(2, 0));
+    }
+
+
+    @Test
+    public void testGrowthIsCovered() throws Exception {
+        Cycle[] cycles = {
+                new Cycle(1, 5, 0.25, 0.5, 2, 10),
+                new Cycle(3, 1, 0.25, 0.5, 0, 3),
+                new Cycle(2, 5.3, 0.25, 0.5, 0, 3)};
+        BroadPhase broadPhase = new BroadPhase(cycles.length);
+        broadPhase.update(cycles);
+        assertEquals(0, broadPhase.getNumPairs());
+
+        //the east bound cycle moves past the third cycle in one step, the path it left behind
+        //still overlaps the third cycle
+        cycles[0].move(200);
+        broadPhase.update(cycles);
+        assertEquals(1, broadPhase.getNumPairs());
+        assertEquals(2, broadPhase.getCandidate(0, 0));
+        assertEquals(0, broadPhase.getCandidate(2, 0));
+    }
+}
@@ -0,0 +1,153 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the frame loop of a scripted match headless and checks that it does not allocate once it
+ * has warmed up. Each frame advances the game and draws all of it, which is more work than the
+ * app does on a frame. Direction changes are made between the measured parts of a frame, since in
+ * the app they come from the ui thread and not from the thread that runs the frames.
+ * <p>
+ * In the app most turns arrive after their time was simulated, so the game is rolled back and
+ * simulated again. Matches are played both with turns that are on time and with turns that are
+ * {@link #LATE_TURN_DELAY} late.
+ */
+public class FrameAllocationTest {
+    private static final int FRAME_TIME = 16;
+    private static final int TURN_INTERVAL = 2000;
+    private static final int WARM_UP_MATCHES = 8;
+    private static final int MAX_MATCH_TIME = 60000;
+    private static final int TILE_LENGTH = 10;
+    private static final int LATE_TURN_DELAY = 100;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private long mThreadId;
+    private int mFrames;
+    private int mTurns;
+
+
+    private long allocatedBytes(){
+        return mThreadBean.getThreadAllocatedBytes(mThreadId);
+    }
+
+
+    /**
+     * @return the number of bytes that measuring allocates by itself
+     */
+    private long measureOverhead(){
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long before = allocatedBytes();
+            long after = allocatedBytes();
+            overhead = Math.min(overhead, after - before);
+        }
+        return overhead;
+    }
+
+
+    /**
+     * @return the direction after a quarter turn, clockwise or counterclockwise
+     */
+    private static Compass turn(Compass direction, boolean clockwise){
+        switch (direction) {
+            case NORTH:
+                return clockwise ? Compass.EAST : Compass.WEST;
+            case EAST:
+                return clockwise ? Compass.SOUTH : Compass.NORTH;
+            case SOUTH:
+                return clockwise ? Compass.WEST : Compass.EAST;
+            default:
+                return clockwise ? Compass.NORTH : Compass.SOUTH;
+        }
+    }
+
+
+    /**
+     * Play a scripted match to the end, one frame at a time.
+     *
+     * @param turnDelay how long before the time of the frame the turns are made for
+     * @return the number of bytes allocated by the frames that did not report a crash
+     */
+    private long playMatch(int turnDelay){
+        //the cycles zigzag with few enough turns that no path has to grow
+        GameEngine engine = new GameEngine(60, 60, 4, GameEngine.DEFAULT_SPEED);
+        Grid grid = engine.getGrid();
+        GameRenderer gameRenderer = new GameRenderer(grid,
+                new ScreenTransform(TILE_LENGTH, grid.getTileLength(), 0, 0));
+        RasterRenderer raster = new RasterRenderer(grid.getNumTilesX() * TILE_LENGTH,
+                grid.getNumTilesY() * TILE_LENGTH);
+        Cycle[] cycles = engine.getCycles();
+        engine.setRunning(true);
+
+        long overhead = measureOverhead();
+        long allocated = 0;
+        long time = 0;
+        mFrames = 0;
+        mTurns = 0;
+        while (engine.isRunning() && time < MAX_MATCH_TIME) {
+            time += FRAME_TIME;
+            if (time % TURN_INTERVAL < FRAME_TIME) {
+                for (int i = 0; i < cycles.length; i++)
+                    engine.requestDirectionChange(i, turn(cycles[i].getDirection(), mTurns % 2 == 0),
+                            time - turnDelay);
+                mTurns++;
+            }
+
+            long before = allocatedBytes();
+            int events = engine.advance(time);
+            gameRenderer.drawFull(raster, cycles);
+            long bytes = allocatedBytes() - before - overhead;
+
+            //a crash is logged
+            if ((events & GameEngine.CRASH_EVENT) == 0) {
+                allocated += bytes;
+                mFrames++;
+            }
+        }
+        return allocated;
+    }
+
+
+    /**
+     * Measure the allocations of this thread, or skip the test if they can not be measured. The
+     * matches are warmed up with turns that are on time and turns that are late, so that the
+     * classes are loaded and the hot code is compiled for both.
+     */
+    private void warmUp(){
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARM_UP_MATCHES; i++) {
+            playMatch(0);
+            playMatch(LATE_TURN_DELAY);
+        }
+    }
+
+
+    @Test
+    public void testSteadyStateFramesDoNotAllocate() throws Exception {
+        warmUp();
+        long allocated = playMatch(0);
+        assertTrue(mFrames > 500);
+        assertTrue(mTurns > 2);
+        assertEquals("bytes allocated by " + mFrames + " frames", 0, allocated);
+    }
+
+
+    @Test
+    public void testRolledBackFramesDoNotAllocate() throws Exception {
+        warmUp();
+        long allocated = playMatch(LATE_TURN_DELAY);
+        assertTrue(mFrames > 500);
+        assertTrue(mTurns > 2);
+        assertEquals("bytes allocated by " + mFrames + " frames with late turns", 0, allocated);
+    }
+}
@@ -0,0 +1,125 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameInterpolatorTest {
+    private static final double DELTA = 1e-9;
+    private static final int FRAME_TIME = 8;
+
+
+    /**
+     * Advance a game in frames, like the app does, so that no ticks are dropped.
+     */
+    private static void play(GameEngine engine, long from, long to){
+        for (long time = from + FRAME_TIME; time < to; time += FRAME_TIME)
+            engine.advance(time);
+        engine.advance(to);
+    }
+
+
+    @Test
+    public void testInterpolatesOneTickBehind() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+        play(engine, 0, 504);
+        TickScheduler scheduler = engine.getScheduler();
+        //500ms is 60 ticks, 4ms are left over
+        assertEquals(60, scheduler.getTick());
+        assertEquals(4, scheduler.getPendingTime(), DELTA);
+
+        FrameInterpolator interpolator = new FrameInterpolator();
+        interpolator.update(engine);
+
+        Cycle cycle = engine.getCycles()[0];
+        LinePath path = cycle.getPath();
+        double behind = (scheduler.getTickLength() - 4) / 1000 * cycle.getSpeed();
+        assertEquals(1, interpolator.getHeadLine(0));
+        assertEquals(path.getLineLength(1) - behind, interpolator.getHeadLength(0), DELTA);
+        assertEquals(0, interpolator.getExtension(0), DELTA);
+        assertEquals(cycle.getDirection(), interpolator.getDirection(0));
+
+        //the cycle keeps its size and is moved back along its path
+        assertEquals(cycle.getLeft(), interpolator.getLeft(0), DELTA);
+        assertEquals(cycle.getRight(), interpolator.getRight(0), DELTA);
+        assertEquals(cycle.getTop() - cycle.getBottom(),
+                interpolator.getTop(0) - interpolator.getBottom(0), DELTA);
+        assertEquals(behind, Math.abs(cycle.getBottom() - interpolator.getBottom(0)), DELTA);
+    }
+
+
+    @Test
+    public void testTurnIsDrawnOnOldLine() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+        play(engine, 0, 500);
+        Compass before = engine.getCycles()[0].getDirection();
+        engine.requestDirectionChange(0, Compass.EAST, 501);
+        //the turn is made on the next tick, at 508ms
+        play(engine, 500, 509);
+        Cycle cycle = engine.getCycles()[0];
+        assertEquals(Compass.EAST, cycle.getDirection());
+        assertEquals(2, cycle.getPath().getNumLines());
+
+        FrameInterpolator interpolator = new FrameInterpolator();
+        interpolator.update(engine);
+        assertEquals(1, interpolator.getHeadLine(0));
+        assertEquals(before, interpolator.getDirection(0));
+        //the old direction is vertical, so the cycle is taller than it is wide
+        assertTrue(interpolator.getTop(0) - interpolator.getBottom(0) >
+                interpolator.getRight(0) - interpolator.getLeft(0));
+    }
+
+
+    @Test
+    public void testExtrapolation() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+        play(engine, 0, 504);
+
+        FrameInterpolator interpolator = new FrameInterpolator();
+        interpolator.setExtrapolation(true, 10);
+        interpolator.update(engine);
+
+        Cycle cycle = engine.getCycles()[0];
+        double ahead = (4 + 10) / 1000.0 * cycle.getSpeed();
+        assertEquals(cycle.getPath().getLineLength(1), interpolator.getHeadLength(0), DELTA);
+        assertEquals(ahead, interpolator.getExtension(0), DELTA);
+        assertEquals(ahead, Math.abs(cycle.getBottom() - interpolator.getBottom(0)), DELTA);
+
+        //a crashed cycle stays where it stopped
+        cycle.crashed(504);
+        interpolator.update(engine);
+        assertEquals(0, interpolator.getExtension(0), DELTA);
+        assertEquals(cycle.getBottom(), interpolator.getBottom(0), DELTA);
+    }
+
+
+    @Test
+    public void testRendererDrawsInterpolatedCycles() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+        play(engine, 0, 504);
+
+        FrameInterpolator interpolator = new FrameInterpolator();
+        interpolator.setExtrapolation(true, 100);
+        interpolator.update(engine);
+
+        ScreenTransform transform = new ScreenTransform(40, engine.getGrid().getTileLength(), 0, 0);
+        GameRenderer gameRenderer = new GameRenderer(engine.getGrid(), transform);
+        gameRenderer.setInterpolator(interpolator);
+        RasterRenderer raster = new RasterRenderer(11 * 40, 11 * 40);
+        gameRenderer.drawFull(raster, engine.getCycles());
+
+        //the extension of the path fills the gap between the path and the cycle
+        Cycle cycle = engine.getCycles()[0];
+        int[] bounds = new int[4];
+        gameRenderer.getCycleBounds(0, cycle, bounds);
+        int x = transform.toFrameX(cycle.getX());
+        int y = transform.toFrameY(cycle.getPath().getLastY() +
+                interpolator.getExtension(0) / 2 * (cycle.getDirection() == Compass.SOUTH ? 1 : -1));
+        assertEquals(GameRenderer.getPathColor(0), raster.getPixel(x, y));
+        assertTrue(y >= bounds[1] && y < bounds[3]);
+    }
+}
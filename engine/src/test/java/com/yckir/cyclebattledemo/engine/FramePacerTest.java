@@ -0,0 +1,96 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FramePacerTest {
+
+    /**
+     * @return the number of refreshes out of numRefreshes that the pacer accepted
+     */
+    private int countFrames(FramePacer pacer, float refreshRate, int numRefreshes){
+        long interval = (long) (FramePacer.NANOS_PER_SECOND / refreshRate);
+        int frames = 0;
+        for(int i = 0; i < numRefreshes; i++){
+            if(pacer.shouldDraw(i * interval))
+                frames++;
+        }
+        return frames;
+    }
+
+
+    @Test
+    public void testCapsDivideRefreshRate() throws Exception {
+        assertEquals(120, countFrames(new FramePacer(60, 30, false), 60, 240));
+        assertEquals(240, countFrames(new FramePacer(60, 60, false), 60, 240));
+        assertEquals(240, countFrames(new FramePacer(60, FramePacer.NATIVE_FRAME_RATE, false), 60, 240));
+        assertEquals(240, countFrames(new FramePacer(60, 120, false), 60, 240));
+        assertEquals(60, countFrames(new FramePacer(120, 30, false), 120, 240));
+    }
+
+
+    @Test
+    public void testCapThatDoesNotDivideRefreshRate() throws Exception {
+        //90 frames per second on a 120Hz display is three out of every four refreshes
+        int frames = countFrames(new FramePacer(120, 90, false), 120, 1200);
+        assertEquals(900, frames, 2);
+    }
+
+
+    @Test
+    public void testLowPowerLimitsFrameRate() throws Exception {
+        FramePacer pacer = new FramePacer(120, 120, true);
+        assertEquals(FramePacer.LOW_POWER_FRAME_RATE, pacer.getFrameRate());
+        assertEquals(40, countFrames(pacer, 120, 160));
+        assertEquals(120, pacer.getSkippedRefreshes());
+    }
+
+
+    @Test
+    public void testNextFrameTimeWithoutRefreshes() throws Exception {
+        FramePacer pacer = new FramePacer(60, 30, false);
+        long interval = pacer.getFrameInterval();
+
+        assertEquals(0, pacer.getNextFrameTime(0));
+        assertEquals(interval, pacer.getNextFrameTime(5));
+        assertEquals(interval * 2, pacer.getNextFrameTime(interval + 5));
+
+        //a late frame starts now and the following frames are spaced from it
+        long late = interval * 10;
+        assertEquals(late, pacer.getNextFrameTime(late));
+        assertEquals(late + interval, pacer.getNextFrameTime(late + 1));
+    }
+
+
+    @Test
+    public void testFrameStats() throws Exception {
+        long ms = 1000000;
+        FrameStats stats = new FrameStats(16 * ms);
+        assertEquals(0, stats.getNumFrames());
+
+        stats.recordFrame(0);
+        stats.recordFrame(16 * ms);
+        stats.recordFrame(32 * ms);
+        stats.recordFrame(64 * ms);
+
+        assertEquals(4, stats.getNumFrames());
+        assertEquals(1, stats.getNumLateFrames());
+        assertEquals(16 * ms, stats.getMinInterval());
+        assertEquals(32 * ms, stats.getMaxInterval());
+        assertEquals(64.0 / 3 * ms, stats.getMeanInterval(), 1);
+        assertEquals(Math.sqrt(256.0 / 3) * ms, stats.getIntervalDeviation(), 1);
+
+        //the time spent paused is not an interval
+        stats.pause();
+        stats.recordFrame(1000 * ms);
+        stats.recordFrame(1016 * ms);
+        assertEquals(6, stats.getNumFrames());
+        assertEquals(32 * ms, stats.getMaxInterval());
+        assertEquals(1, stats.getNumLateFrames());
+
+        stats.reset();
+        assertEquals(0, stats.getNumFrames());
+        assertEquals(0, stats.getMinInterval());
+    }
+}
@@ -0,0 +1,279 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class GameEngineTest {
+
+    @Test
+    public void testHeadOnCollisionEndsGame() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+
+        long time = 0;
+        int events = GameEngine.NO_EVENT;
+        while (engine.isRunning() && time < 10000) {
+            time++;
+            events |= engine.step(time);
+        }
+
+        assertFalse(engine.isRunning());
+        assertTrue((events & GameEngine.CRASH_EVENT) != 0);
+        assertTrue(engine.getCycles()[0].hasCrashed());
+        assertTrue(engine.getCycles()[1].hasCrashed());
+        assertEquals(engine.getCycles()[0].getCrashTime(), engine.getCycles()[1].getCrashTime());
+    }
+
+    @Test
+    public void testTurnAvoidsCollision() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+
+        for (long time = 1; time <= 500; time++)
+            engine.step(time);
+
+        engine.requestDirectionChange(0, Compass.EAST, 500);
+        assertEquals(GameEngine.TURN_EVENT, engine.step(501));
+        assertEquals(Compass.EAST, engine.getCycles()[0].getDirection());
+
+        for (long time = 502; time <= 600; time++)
+            engine.step(time);
+
+        engine.requestDirectionChange(1, Compass.WEST, 600);
+
+        //red leaves the grid on the east side before green leaves on the west side
+        long time = 600;
+        while (engine.isRunning() && time < 10000) {
+            time++;
+            engine.step(time);
+        }
+
+        assertFalse(engine.isRunning());
+        assertTrue(engine.getCycles()[0].hasCrashed());
+        assertFalse(engine.getCycles()[1].hasCrashed());
+        assertEquals(1, engine.getCycles()[1].getPlace());
+        assertEquals(2, engine.getReplay().size());
+    }
+
+    @Test
+    public void testCrashIntoPath() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+
+        for (long time = 1; time <= 600; time++)
+            engine.step(time);
+
+        //green turns in front of red, red runs into the path green leaves behind
+        engine.requestDirectionChange(1, Compass.WEST, 600);
+        long time = 600;
+        while (engine.isRunning() && time < 10000) {
+            time++;
+            engine.step(time);
+        }
+
+        Cycle red = engine.getCycles()[0];
+        Cycle green = engine.getCycles()[1];
+        assertTrue(red.hasCrashed());
+        assertFalse(green.hasCrashed());
+        //red's front reaches the bottom of green's path at y = 7.9 after 2050ms
+        assertEquals(2050, red.getCrashTime(), 5);
+    }
+
+
+    @Test
+    public void testFastCycleCanNotJumpOverPath() throws Exception {
+        //at 10 ticks per second a cycle moving 30 tiles per second jumps 3 tiles every tick
+        TickScheduler scheduler = new TickScheduler(10, 100);
+        GameEngine engine = new GameEngine(new Grid(61, 31, 1), 2, 30, scheduler);
+        engine.setRunning(true);
+
+        engine.advance(200);
+        engine.requestDirectionChange(1, Compass.WEST, 200);
+        while (engine.isRunning() && scheduler.getTime() < 10000) {
+            engine.advance(scheduler.getTime() + 100);
+        }
+
+        //green turns at y = 23.75, red's front reaches the path at y = 23.7 after 732ms
+        Cycle red = engine.getCycles()[0];
+        assertTrue(red.hasCrashed());
+        assertFalse(engine.getCycles()[1].hasCrashed());
+        assertEquals(732, red.getCrashTime(), 5);
+    }
+
+
+    @Test
+    public void testResultsDoNotDependOnFrameRate() throws Exception {
+        GameEngine slow = new GameEngine(11, 11, 2, 3);
+        GameEngine fast = new GameEngine(11, 11, 2, 3);
+        playWithTurns(slow, 33);
+        playWithTurns(fast, 7);
+
+        for(int i = 0; i < 2; i++) {
+            Cycle a = slow.getCycles()[i];
+            Cycle b = fast.getCycles()[i];
+            assertEquals(a.getCrashTime(), b.getCrashTime());
+            assertEquals(a.getPlace(), b.getPlace());
+            assertEquals(a.getX(), b.getX(), 0);
+            assertEquals(a.getY(), b.getY(), 0);
+        }
+        assertEquals(slow.getScheduler().getTick(), fast.getScheduler().getTick());
+    }
+
+
+    /**
+     * Plays a game where the red cycle turns east at 500ms and the green cycle turns west at
+     * 603ms, advancing the engine every frameLength milliseconds.
+     */
+    private static void playWithTurns(GameEngine engine, int frameLength){
+        engine.setRunning(true);
+        boolean redTurned = false;
+        boolean greenTurned = false;
+        long time = 0;
+        while (engine.isRunning() && time < 10000) {
+            time += frameLength;
+            if( !redTurned && time >= 500 ){
+                engine.requestDirectionChange(0, Compass.EAST, 500);
+                redTurned = true;
+            }
+            if( !greenTurned && time >= 603 ){
+                engine.requestDirectionChange(1, Compass.WEST, 603);
+                greenTurned = true;
+            }
+            engine.advance(time);
+        }
+    }
+
+
+    /**
+     * Starts a game on a 21 by 21 grid where red turns east at 100ms and yellow turns north at
+     * 1000ms. Without any other turns red crashes into the east side of the grid at 3433ms.
+     */
+    private static GameEngine startThreeCycleGame(){
+        GameEngine engine = new GameEngine(new Grid(21, 21, 1), 3, 3);
+        engine.setRunning(true);
+        play(engine, 8, 96);
+        engine.requestDirectionChange(0, Compass.EAST, 100);
+        play(engine, 104, 1000);
+        engine.requestDirectionChange(2, Compass.NORTH, 1000);
+        return engine;
+    }
+
+
+    /**
+     * Advance the engine in 8ms frames until the end time or until the game ends.
+     */
+    private static void play(GameEngine engine, long startTime, long endTime){
+        for (long time = startTime; time <= endTime && engine.isRunning(); time += 8)
+            engine.advance(time);
+    }
+
+
+    private static void assertSameGame(GameEngine expected, GameEngine actual){
+        assertEquals(expected.isRunning(), actual.isRunning());
+        assertEquals(expected.getRemainingCycles(), actual.getRemainingCycles());
+        for (int i = 0; i < expected.getNumCycles(); i++) {
+            Cycle a = expected.getCycles()[i];
+            Cycle b = actual.getCycles()[i];
+            assertEquals(a.hasCrashed(), b.hasCrashed());
+            assertEquals(a.getCrashTime(), b.getCrashTime());
+            assertEquals(a.getPlace(), b.getPlace());
+            assertEquals(a.getDirection(), b.getDirection());
+            assertEquals(a.getX(), b.getX(), 0);
+            assertEquals(a.getY(), b.getY(), 0);
+            assertEquals(a.getPath().getNumLines(), b.getPath().getNumLines());
+        }
+    }
+
+
+    @Test
+    public void testLateTurnUndoesCrash() throws Exception {
+        GameEngine onTime = startThreeCycleGame();
+        GameEngine late = startThreeCycleGame();
+
+        play(onTime, 1008, 3392);
+        onTime.requestDirectionChange(0, Compass.SOUTH, 3400);
+        play(onTime, 3400, 3504);
+        assertFalse(onTime.getCycles()[0].hasCrashed());
+
+        //the turn arrives after red has already crashed
+        play(late, 1008, 3496);
+        assertTrue(late.getCycles()[0].hasCrashed());
+        assertEquals(2, late.getRemainingCycles());
+        late.requestDirectionChange(0, Compass.SOUTH, 3400);
+        int events = late.advance(3504);
+        assertTrue((events & GameEngine.TURN_EVENT) != 0);
+        assertSameGame(onTime, late);
+        assertEquals(3, late.getRemainingCycles());
+
+        play(onTime, 3512, 20000);
+        play(late, 3512, 20000);
+        assertFalse(late.isRunning());
+        assertSameGame(onTime, late);
+        assertEquals(1, late.getCycles()[0].getPlace());
+    }
+
+
+    @Test
+    public void testTurnOlderThanRollbackWindowIsMovedUp() throws Exception {
+        GameEngine engine = startThreeCycleGame();
+        play(engine, 1008, 3000);
+
+        //the turn is applied on the oldest tick that can be simulated again
+        engine.requestDirectionChange(0, Compass.SOUTH, 2000);
+        engine.advance(3016);
+        ArrayList<GameEngine.DirectionChangeRequest> replay = engine.getReplay();
+        assertEquals(3, replay.size());
+        assertEquals(Compass.SOUTH, engine.getCycles()[0].getDirection());
+
+        long turnTime = replay.get(2).getTime();
+        assertEquals(3016 - GameEngine.ROLLBACK_WINDOW, turnTime, 10);
+        assertEquals(turnTime, engine.getScheduler().toTickTime(turnTime));
+        LinePath path = engine.getCycles()[0].getPath();
+        assertEquals(turnTime, path.getLineStartTime(path.getNumLines()));
+    }
+
+
+    @Test
+    public void testStepDoesNothingWhenNotRunning() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        double y = engine.getCycles()[0].getY();
+
+        assertEquals(GameEngine.NO_EVENT, engine.step(1000));
+        assertEquals(y, engine.getCycles()[0].getY(), 0);
+    }
+
+    @Test
+    public void testManyCyclesSpawnApart() throws Exception {
+        GameEngine engine = new GameEngine(15, 15, 16, 3);
+        Cycle[] cycles = engine.getCycles();
+        assertEquals(16, cycles.length);
+
+        Grid grid = engine.getGrid();
+        for (int i = 0; i < cycles.length; i++) {
+            assertFalse(grid.OutOfBounds(cycles[i]));
+            for (int j = i + 1; j < cycles.length; j++)
+                assertFalse(Grid.overlap(cycles[i], cycles[j]));
+        }
+        assertEquals(Compass.SOUTH, cycles[4].getDirection());
+        assertEquals(Compass.WEST, cycles[15].getDirection());
+
+        engine.setRunning(true);
+        long time = 0;
+        while (engine.isRunning() && time < 20000) {
+            time++;
+            engine.step(time);
+        }
+
+        assertFalse(engine.isRunning());
+        int winners = 0;
+        for (Cycle cycle : cycles) {
+            if (!cycle.hasCrashed())
+                winners++;
+            assertTrue(cycle.getPlace() >= 1 && cycle.getPlace() <= 16);
+        }
+        assertTrue(winners <= 1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameRendererTest {
+    private static final int TILE_LENGTH = 20;
+    private static final int PADDING = 5;
+
+    private RasterRenderer drawGame(GameEngine engine){
+        Grid grid = engine.getGrid();
+        ScreenTransform transform =
+                new ScreenTransform(TILE_LENGTH, grid.getTileLength(), PADDING, PADDING);
+        GameRenderer gameRenderer = new GameRenderer(grid, transform);
+        RasterRenderer raster = new RasterRenderer(
+                grid.getNumTilesX() * TILE_LENGTH + PADDING * 2,
+                grid.getNumTilesY() * TILE_LENGTH + PADDING * 2);
+        gameRenderer.drawFull(raster, engine.getCycles());
+        return raster;
+    }
+
+
+    @Test
+    public void testBackgroundAndGrid() throws Exception {
+        RasterRenderer raster = drawGame(new GameEngine(6, 6, 2, 3));
+
+        assertEquals(GameRenderer.BACKGROUND_COLOR, raster.getPixel(0, 0));
+        assertEquals(GameRenderer.BACKGROUND_COLOR, raster.getPixel(PADDING - 1, PADDING + 10));
+        //each tile has a line on both of its edges
+        assertEquals(GameRenderer.GRID_COLOR, raster.getPixel(PADDING, PADDING + 10));
+        assertEquals(GameRenderer.GRID_COLOR,
+                raster.getPixel(PADDING + TILE_LENGTH - 1, PADDING + 10));
+        assertEquals(GameRenderer.GRID_COLOR,
+                raster.getPixel(PADDING + TILE_LENGTH, PADDING + 10));
+        assertEquals(GameRenderer.BACKGROUND_COLOR, raster.getPixel(PADDING + 10, PADDING + 10));
+    }
+
+
+    @Test
+    public void testCyclesAndPaths() throws Exception {
+        GameEngine engine = new GameEngine(6, 6, 2, 3);
+        engine.setRunning(true);
+        for (long time = 1; time <= 300; time++)
+            engine.step(time);
+
+        RasterRenderer raster = drawGame(engine);
+        ScreenTransform transform = new ScreenTransform(TILE_LENGTH,
+                engine.getGrid().getTileLength(), PADDING, PADDING);
+
+        Cycle[] cycles = engine.getCycles();
+        for (int i = 0; i < cycles.length; i++) {
+            int color = GameRenderer.getPathColor(cycles[i].getId());
+            int centerX = transform.toFrameX(cycles[i].getX());
+            int centerY = transform.toFrameY(cycles[i].getY());
+            assertEquals(color, raster.getPixel(centerX, centerY));
+            assertEquals(RasterRenderer.CYCLE_BORDER_COLOR,
+                    raster.getPixel(transform.toFrameX(cycles[i].getLeft()),
+                            transform.toFrameY(cycles[i].getBottom())));
+
+            //the start of the path is no longer under the cycle
+            LinePath path = cycles[i].getPath();
+            assertEquals(color, raster.getPixel(transform.toFrameX(path.getLineStartX(1)),
+                    transform.toFrameY(path.getLineStartY(1))));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InputLatencyTrackerTest {
+    private static final long MILLI = 1000000;
+
+
+    @Test
+    public void testPercentilesAreWithinOneSixteenth() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        //1ms to 100ms
+        for (long i = 1; i <= 100; i++)
+            histogram.record(i * MILLI);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(MILLI, histogram.getMin());
+        assertEquals(100 * MILLI, histogram.getMax());
+        assertEquals(50.5 * MILLI, histogram.getMean(), 1);
+        assertEquals(50 * MILLI, histogram.getPercentile(50), 50 * MILLI / 16);
+        assertEquals(99 * MILLI, histogram.getPercentile(99), 99 * MILLI / 16);
+        assertTrue(histogram.getPercentile(50) >= 50 * MILLI);
+        assertEquals(100 * MILLI, histogram.getPercentile(100));
+        assertEquals(MILLI, histogram.getPercentile(0), MILLI / 16);
+    }
+
+
+    @Test
+    public void testStagesOfATracedTurn() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        InputLatencyTracker tracker = new InputLatencyTracker();
+        engine.setLatencyTracker(tracker);
+        engine.setRunning(true);
+        FrameInterpolator interpolator = new FrameInterpolator();
+
+        for (long time = 8; time <= 500; time += 8)
+            engine.advance(time);
+
+        long now = System.nanoTime();
+        engine.requestDirectionChange(0, Compass.EAST, 501, now - 20 * MILLI, now - 5 * MILLI);
+        assertEquals(1, tracker.getHistogram(InputLatencyTracker.STAGE_RECOGNIZE).getCount());
+        assertEquals(15 * MILLI, tracker.getHistogram(InputLatencyTracker.STAGE_RECOGNIZE).getMax());
+        assertEquals(1, tracker.getHistogram(InputLatencyTracker.STAGE_ENQUEUE).getCount());
+
+        //the turn is applied on the tick at 508ms
+        engine.advance(510);
+        interpolator.update(engine);
+        assertEquals(Compass.EAST, engine.getCycles()[0].getDirection());
+        assertEquals(1, tracker.getHistogram(InputLatencyTracker.STAGE_APPLY).getCount());
+
+        //the frame is drawn one tick behind, so it does not show the turn yet
+        tracker.framePosted(interpolator.getDisplayTime(), System.nanoTime());
+        assertEquals(0, tracker.getHistogram(InputLatencyTracker.STAGE_TOTAL).getCount());
+
+        engine.advance(518);
+        interpolator.update(engine);
+        long postTime = System.nanoTime();
+        tracker.framePosted(interpolator.getDisplayTime(), postTime);
+        LatencyHistogram total = tracker.getHistogram(InputLatencyTracker.STAGE_TOTAL);
+        assertEquals(1, total.getCount());
+        assertEquals(postTime - (now - 20 * MILLI), total.getMax());
+        assertEquals(1, tracker.getHistogram(InputLatencyTracker.STAGE_DISPLAY).getCount());
+
+        //untraced requests are not counted
+        engine.requestDirectionChange(1, Compass.WEST, 600);
+        engine.advance(610);
+        assertEquals(1, tracker.getHistogram(InputLatencyTracker.STAGE_APPLY).getCount());
+
+        StringBuilder report = new StringBuilder();
+        tracker.writeReport(report);
+        String[] lines = report.toString().split("\n");
+        assertEquals(InputLatencyTracker.NUM_STAGES + 1, lines.length);
+        assertTrue(lines[InputLatencyTracker.STAGE_TOTAL + 1].startsWith("total,1,"));
+    }
+}
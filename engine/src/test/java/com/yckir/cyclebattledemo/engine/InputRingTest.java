@@ -0,0 +1,132 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InputRingTest {
+
+    @Test
+    public void testEventsWrapAroundInOrder() throws Exception {
+        InputRing ring = new InputRing(3, InputRing.OverflowPolicy.DROP_NEWEST);
+        assertEquals(4, ring.getCapacity());
+        assertEquals(InputRing.EMPTY, ring.poll());
+
+        long next = 0;
+        for (long event = 0; event < 10; event++) {
+            assertTrue(ring.offer(event));
+            if (event % 2 == 1) {
+                assertEquals(next, ring.peek());
+                assertEquals(next++, ring.poll());
+                assertEquals(next++, ring.poll());
+            }
+        }
+        assertTrue(ring.isEmpty());
+        assertEquals(10, ring.getNumOffered());
+        assertEquals(0, ring.getNumDropped());
+        assertEquals(2, ring.getMaxSize());
+    }
+
+
+    @Test
+    public void testOverflowDropsNewest() throws Exception {
+        InputRing ring = new InputRing(4, InputRing.OverflowPolicy.DROP_NEWEST);
+        for (long event = 0; event < 6; event++)
+            ring.offer(event);
+
+        assertEquals(4, ring.size());
+        assertEquals(6, ring.getNumOffered());
+        assertEquals(2, ring.getNumDropped());
+        for (long event = 0; event < 4; event++)
+            assertEquals(event, ring.poll());
+        assertEquals(InputRing.EMPTY, ring.poll());
+    }
+
+
+    @Test
+    public void testOverflowDropsOldest() throws Exception {
+        InputRing ring = new InputRing(4, InputRing.OverflowPolicy.DROP_OLDEST);
+        for (long event = 0; event < 6; event++)
+            assertTrue(ring.offer(event));
+
+        assertEquals(4, ring.size());
+        assertEquals(2, ring.getNumDropped());
+        for (long event = 2; event < 6; event++)
+            assertEquals(event, ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+
+    @Test
+    public void testConcurrentProducerKeepsOrder() throws Exception {
+        final int numEvents = 50000;
+        final InputRing ring = new InputRing(16, InputRing.OverflowPolicy.DROP_NEWEST);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long event = 0; event < numEvents; event++) {
+                    while (!ring.offer(event))
+                        Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        long expected = 0;
+        while (expected < numEvents) {
+            long event = ring.poll();
+            if (event == InputRing.EMPTY) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(expected, event);
+            expected++;
+        }
+        producer.join();
+        assertEquals(numEvents, ring.getNumOffered() - ring.getNumDropped());
+        assertTrue(ring.getMaxSize() <= ring.getCapacity());
+    }
+
+
+    @Test
+    public void testRecorderCanBeReadWhileWritten() throws Exception {
+        final int numEvents = 5000;
+        final InputRecorder recorder = new InputRecorder();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long event = 0; event < numEvents; event++)
+                    recorder.append(event * 3);
+            }
+        });
+        writer.start();
+
+        while (recorder.size() < numEvents) {
+            int size = recorder.size();
+            for (int i = 0; i < size; i++)
+                assertEquals(i * 3L, recorder.get(i));
+        }
+        writer.join();
+        assertEquals((numEvents - 1) * 3L, recorder.get(numEvents - 1));
+    }
+
+
+    @Test
+    public void testBurstOfRequestsIsDroppedNotThrown() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+        InputRing ring = engine.getDirectionChanges();
+        for (int i = 0; i <= ring.getCapacity(); i++)
+            engine.requestDirectionChange(i % 2, i % 4 < 2 ? Compass.EAST : Compass.WEST, 100);
+
+        assertEquals(1, ring.getNumDropped());
+        engine.step(100);
+        assertTrue(ring.isEmpty());
+        assertEquals(ring.getCapacity(), engine.getReplay().size());
+
+        GameEngine.DirectionChangeRequest first = engine.getReplay().get(0);
+        assertEquals(0, first.getCycleNum());
+        assertEquals(Compass.EAST, first.getDirection());
+        assertEquals(engine.getScheduler().toTickTime(100), first.getTime());
+    }
+}
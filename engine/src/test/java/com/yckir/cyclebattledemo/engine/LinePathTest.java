@@ -0,0 +1,118 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LinePathTest {
+
+    @Test
+    public void testGrowthOnlyCoversNewArea() throws Exception {
+        LinePath path = new LinePath(1, 1, 0, Compass.EAST);
+        path.movePath(2, 100);
+        path.commitGrowth();
+        path.movePath(3, 150);
+
+        //the path now covers x = 0.95 to 4.05, only 3.05 to 4.05 is new
+        assertTrue(path.grewInto(new GridRectangle(3.5, 1, 0.2, 0.2)));
+        assertFalse(path.grewInto(new GridRectangle(2.5, 1, 0.2, 0.2)));
+        assertFalse(path.grewInto(new GridRectangle(3.5, 2, 0.2, 0.2)));
+        assertEquals(3.05, path.firstGrowth(2.5, 0.9, 4.5, 1.1, Compass.EAST), 1e-9);
+        assertEquals(4.05, path.firstGrowth(2.5, 0.9, 4.5, 1.1, Compass.WEST), 1e-9);
+
+        path.commitGrowth();
+        assertFalse(path.grewInto(new GridRectangle(3.5, 1, 0.2, 0.2)));
+    }
+
+
+    @Test
+    public void testOccupancyFollowsPath() throws Exception {
+        OccupancyGrid occupancy = new OccupancyGrid(new Grid(10, 10, 1), 10);
+        LinePath path = new LinePath(1, 1, 0, Compass.EAST);
+        path.setOccupancyGrid(occupancy);
+
+        path.movePath(2, 100);
+        assertFalse(occupancy.isOccupied(2.9, 0.9, 3.0, 1.1));
+        path.commitGrowth();
+        assertTrue(occupancy.isOccupied(2.9, 0.9, 3.0, 1.1));
+        assertFalse(occupancy.isOccupied(3.1, 0.9, 3.2, 1.1));
+
+        assertTrue(path.moveAndChangeDirection(Compass.SOUTH, 150, 3));
+        path.movePath(1, 200);
+        path.commitGrowth();
+        assertTrue(occupancy.isOccupied(4.0, 1.9, 4.0 + 0.01, 2.0));
+        assertFalse(occupancy.isInvalid());
+    }
+
+
+    @Test
+    public void testRestoredPathsLeaveTheSameOccupancyAsRebuilding() throws Exception {
+        Grid grid = new Grid(10, 10, 1);
+        OccupancyGrid occupancy = new OccupancyGrid(grid, 10);
+        LinePath path = new LinePath(1, 2, 0, Compass.EAST);
+        LinePath other = new LinePath(3.02, 1, 0, Compass.SOUTH);
+        path.setOccupancyGrid(occupancy);
+        other.setOccupancyGrid(occupancy);
+
+        path.movePath(1.5, 100);
+        other.movePath(4, 100);
+        path.commitGrowth();
+        other.commitGrowth();
+        LinePath.Snapshot snapshot = new LinePath.Snapshot();
+        path.saveSnapshot(snapshot);
+
+        //the path grows past the other one, turns, and grows again
+        path.movePath(3, 200);
+        assertTrue(path.moveAndChangeDirection(Compass.NORTH, 250, 4));
+        path.movePath(1, 300);
+        path.commitGrowth();
+
+        path.restoreSnapshot(snapshot);
+        assertFalse(occupancy.isInvalid());
+        path.refillOccupancyGrid();
+        other.refillOccupancyGrid();
+        occupancy.forgetUnmarked();
+
+        OccupancyGrid rebuilt = new OccupancyGrid(grid, 10);
+        path.setOccupancyGrid(rebuilt);
+        other.setOccupancyGrid(rebuilt);
+        for (int column = 0; column < occupancy.getColumns(); column++) {
+            for (int row = 0; row < occupancy.getRows(); row++)
+                assertEquals(rebuilt.isOccupied(column, row), occupancy.isOccupied(column, row));
+        }
+        assertEquals(1, path.getNumLines());
+        assertTrue(occupancy.isOccupied(25, 20));
+        assertFalse(occupancy.isOccupied(26, 20));
+    }
+
+
+    @Test
+    public void testLinesAreReadByIndex() throws Exception {
+        LinePath path = new LinePath(1, 1, 0, Compass.EAST);
+        long time = 0;
+        //zig zag past the initial capacity of the path
+        for(int i = 0; i < 40; i++){
+            path.movePath(0.5, time + 50);
+            time += 100;
+            assertTrue(path.moveAndChangeDirection(i % 2 == 0 ? Compass.SOUTH : Compass.EAST,
+                    time, 1));
+        }
+        path.movePath(0.5, time + 50);
+
+        assertEquals(41, path.getNumLines());
+        assertEquals(Compass.EAST, path.getLineDirection(1));
+        assertEquals(Compass.SOUTH, path.getLineDirection(2));
+        assertEquals(100, path.getLineEndTime(1));
+        assertEquals(100, path.getLineStartTime(2));
+        assertEquals(2, path.getLineStartX(2), 1e-9);
+        assertEquals(2, path.getLineEndY(2), 1e-9);
+        assertEquals(1.95, path.getLineLeft(2), 1e-9);
+        assertEquals(2.05, path.getLineTop(2), 1e-9);
+
+        assertEquals(Compass.EAST, path.getLineDirection(41));
+        assertEquals(21.5, path.getLastX(), 1e-9);
+        assertEquals(21, path.getLastY(), 1e-9);
+        assertTrue(path.lineOverlaps(41, new GridRectangle(21.2, 21, 0.2, 0.2)));
+        assertFalse(path.lineOverlaps(40, new GridRectangle(21.2, 21, 0.2, 0.2)));
+    }
+}
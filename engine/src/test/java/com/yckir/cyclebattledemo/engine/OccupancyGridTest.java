@@ -0,0 +1,92 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OccupancyGridTest {
+
+    @Test
+    public void testFillMarksOverlappingCells() throws Exception {
+        OccupancyGrid occupancy = new OccupancyGrid(new Grid(10, 10, 1), 10);
+
+        occupancy.fill(2.05, 3.0, 2.25, 3.1);
+
+        assertFalse(occupancy.isOccupied(19, 30));
+        assertTrue(occupancy.isOccupied(20, 30));
+        assertTrue(occupancy.isOccupied(22, 30));
+        assertFalse(occupancy.isOccupied(23, 30));
+        assertFalse(occupancy.isOccupied(20, 31));
+    }
+
+
+    @Test
+    public void testUnmarkedCellsAreOnlyRefilledWhereCovered() throws Exception {
+        OccupancyGrid occupancy = new OccupancyGrid(new Grid(10, 10, 1), 10);
+        occupancy.fill(1.0, 1.0, 3.0, 1.1);
+
+        //the cell at 2.0 to 2.1 is unmarked even though the area only touches part of it
+        occupancy.unmark(2.05, 1.0, 3.0, 1.1);
+        assertTrue(occupancy.isOccupied(19, 10));
+        assertFalse(occupancy.isOccupied(20, 10));
+        assertFalse(occupancy.isOccupied(29, 10));
+        assertEquals(1, occupancy.getUnmarkedCount());
+
+        //a line that still covers part of the area is only marked inside of it
+        occupancy.refillUnmarked(1.0, 1.0, 2.05, 1.1);
+        occupancy.refillUnmarked(5.0, 5.0, 6.0, 6.0);
+        assertTrue(occupancy.isOccupied(20, 10));
+        assertFalse(occupancy.isOccupied(21, 10));
+        assertFalse(occupancy.isOccupied(50, 50));
+
+        occupancy.forgetUnmarked();
+        occupancy.refillUnmarked(1.0, 1.0, 3.0, 1.1);
+        assertFalse(occupancy.isOccupied(21, 10));
+    }
+
+
+    @Test
+    public void testEdgesDoNotOverlap() throws Exception {
+        OccupancyGrid occupancy = new OccupancyGrid(new Grid(10, 10, 1), 10);
+
+        occupancy.fill(1.0, 1.0, 2.0, 2.0);
+
+        assertTrue(occupancy.isOccupied(1.5, 1.5, 2.5, 2.5));
+        assertFalse(occupancy.isOccupied(2.0, 1.0, 3.0, 2.0));
+        assertFalse(occupancy.isOccupied(1.0, 2.0, 2.0, 3.0));
+    }
+
+
+    @Test
+    public void testRowsWiderThanOneWord() throws Exception {
+        OccupancyGrid occupancy = new OccupancyGrid(new Grid(10, 10, 1), 20);
+
+        occupancy.fill(3.0, 0, 7.0, 0.05);
+
+        assertFalse(occupancy.isOccupied(59, 0));
+        assertTrue(occupancy.isOccupied(60, 0));
+        assertTrue(occupancy.isOccupied(63, 0));
+        assertTrue(occupancy.isOccupied(64, 0));
+        assertTrue(occupancy.isOccupied(139, 0));
+        assertFalse(occupancy.isOccupied(140, 0));
+        assertTrue(occupancy.isOccupied(6.9, 0, 8, 1));
+        assertFalse(occupancy.isOccupied(7.0, 0, 8, 1));
+    }
+
+
+    @Test
+    public void testOutOfBoundsIsIgnored() throws Exception {
+        OccupancyGrid occupancy = new OccupancyGrid(new Grid(5, 5, 1), 10);
+
+        occupancy.fill(-1, -1, 0.1, 0.1);
+        occupancy.fill(4.9, 4.9, 6, 6);
+
+        assertTrue(occupancy.isOccupied(0, 0));
+        assertTrue(occupancy.isOccupied(49, 49));
+        assertFalse(occupancy.isOccupied(50, 49));
+        assertFalse(occupancy.isOccupied(5, 5, 6, 6));
+
+        occupancy.clear();
+        assertFalse(occupancy.isOccupied(0, 0));
+    }
+}
@@ -0,0 +1,85 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.zip.Deflater;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class ReplayExporterTest {
+    private static final int TILE_LENGTH = 8;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+
+    @Test
+    public void testExportMatchesLiveGame() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+        long time = 0;
+        while (engine.isRunning() && time < 10000) {
+            time++;
+            if (time == 500)
+                engine.requestDirectionChange(0, Compass.EAST, time);
+            if (time == 600)
+                engine.requestDirectionChange(1, Compass.WEST, time);
+            engine.advance(time);
+        }
+        assertFalse(engine.isRunning());
+        long ticks = engine.getScheduler().getTick();
+
+        ReplayExporter exporter = new ReplayExporter(11, 11, 2, 3, TILE_LENGTH, 60, 3);
+        File directory = mFolder.getRoot();
+        int numImages = exporter.export(engine.getReplay(), directory, "replay_");
+
+        //tick 0, every 60th tick, and the last tick
+        assertEquals(ticks / 60 + 2, numImages);
+        assertEquals(numImages, directory.listFiles().length);
+
+        RasterRenderer expected = new RasterRenderer(11 * TILE_LENGTH, 11 * TILE_LENGTH);
+        new GameRenderer(engine.getGrid(),
+                new ScreenTransform(TILE_LENGTH, engine.getGrid().getTileLength(), 0, 0))
+                .drawFull(expected, engine.getCycles());
+
+        BufferedImage last = ImageIO.read(new File(directory,
+                String.format("replay_%05d%s", numImages - 1, ReplayExporter.FILE_EXTENSION)));
+        assertEquals(expected.getWidth(), last.getWidth());
+        assertEquals(expected.getHeight(), last.getHeight());
+        for (int y = 0; y < last.getHeight(); y++) {
+            for (int x = 0; x < last.getWidth(); x++)
+                assertEquals(expected.getPixel(x, y), last.getRGB(x, y));
+        }
+    }
+
+
+    @Test
+    public void testEncodedImageDecodes() throws Exception {
+        RasterRenderer raster = new RasterRenderer(7, 5);
+        raster.clear(0xFF102030);
+        raster.fillRect(2, 1, 5, 4, 0xFFFF8000);
+
+        File file = mFolder.newFile("image.png");
+        PngEncoder encoder = new PngEncoder(Deflater.DEFAULT_COMPRESSION);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            encoder.encode(raster.getPixels(), 7, 5, out);
+        } finally {
+            out.close();
+            encoder.release();
+        }
+
+        BufferedImage image = ImageIO.read(file);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++)
+                assertEquals(raster.getPixel(x, y), image.getRGB(x, y));
+        }
+    }
+}
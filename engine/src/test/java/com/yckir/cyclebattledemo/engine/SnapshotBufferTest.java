@@ -0,0 +1,100 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SnapshotBufferTest {
+
+
+    private static void assertSameCycles(GameEngine engine, FrameSnapshot snapshot){
+        assertEquals(engine.getScheduler().getTime(), snapshot.getTime());
+        Cycle[] cycles = engine.getCycles();
+        Cycle[] copies = snapshot.getCycles();
+        assertEquals(cycles.length, copies.length);
+        for (int i = 0; i < cycles.length; i++) {
+            assertEquals(cycles[i].getId(), copies[i].getId());
+            assertEquals(cycles[i].getX(), copies[i].getX(), 0);
+            assertEquals(cycles[i].getY(), copies[i].getY(), 0);
+            assertEquals(cycles[i].getDirection(), copies[i].getDirection());
+            assertEquals(cycles[i].hasCrashed(), copies[i].hasCrashed());
+
+            LinePath path = cycles[i].getPath();
+            LinePath copy = copies[i].getPath();
+            assertEquals(path.getNumLines(), copy.getNumLines());
+            for (int line = 1; line <= path.getNumLines(); line++) {
+                assertEquals(path.getLineStartX(line), copy.getLineStartX(line), 0);
+                assertEquals(path.getLineStartY(line), copy.getLineStartY(line), 0);
+                assertEquals(path.getLineLength(line), copy.getLineLength(line), 0);
+                assertEquals(path.getLineDirection(line), copy.getLineDirection(line));
+                assertEquals(path.getLineEndTime(line), copy.getLineEndTime(line));
+            }
+        }
+    }
+
+
+    @Test
+    public void testSkippedSnapshotsHaveCompletePaths() throws Exception {
+        GameEngine engine = new GameEngine(11, 11, 2, 3);
+        engine.setRunning(true);
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        assertEquals(0, buffer.acquire().getCycles().length);
+
+        for (long time = 8; time <= 2000 && engine.isRunning(); time += 8) {
+            //both turns arrive late, so the paths are rolled back and bent
+            if (time == 600) {
+                engine.requestDirectionChange(0, Compass.EAST, 500);
+                engine.requestDirectionChange(1, Compass.WEST, 550);
+            }
+            engine.advance(time);
+            buffer.publish(engine);
+            if (time % 200 == 0)
+                assertSameCycles(engine, buffer.acquire());
+        }
+        assertTrue(engine.getCycles()[0].getPath().getNumLines() > 1);
+        assertSameCycles(engine, buffer.acquire());
+
+        //a new match replaces the cycles, every line is copied again
+        engine.setRunning(false);
+        engine.newGame();
+        buffer.publish(engine);
+        assertSameCycles(engine, buffer.acquire());
+    }
+
+
+    @Test
+    public void testReaderOnlySeesWholeSnapshots() throws Exception {
+        final GameEngine engine = new GameEngine(21, 21, 4, 3);
+        engine.setRunning(true);
+        final SnapshotBuffer buffer = new SnapshotBuffer();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long time = 1; engine.isRunning() && time < 60000; time++) {
+                    engine.advance(time);
+                    buffer.publish(engine);
+                }
+            }
+        });
+        writer.start();
+
+        long sequence = 0;
+        while (writer.isAlive()) {
+            FrameSnapshot snapshot = buffer.acquire();
+            assertTrue(snapshot.getSequence() >= sequence);
+            sequence = snapshot.getSequence();
+
+            //every cycle that is still moving was moved to the time of the snapshot
+            Cycle[] cycles = snapshot.getCycles();
+            for (int i = 0; i < cycles.length; i++) {
+                LinePath path = cycles[i].getPath();
+                if (!cycles[i].hasCrashed())
+                    assertEquals(snapshot.getTime(), path.getLineEndTime(path.getNumLines()));
+            }
+        }
+        writer.join();
+        assertFalse(engine.isRunning());
+        assertFalse(buffer.acquire().isRunning());
+        assertSameCycles(engine, buffer.acquire());
+    }
+}
@@ -0,0 +1,54 @@
+package com.yckir.cyclebattledemo.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TickSchedulerTest {
+
+    @Test
+    public void testAdvanceReleasesWholeTicks() throws Exception {
+        TickScheduler scheduler = new TickScheduler(120, 12);
+
+        //one tick is 8.33 ms
+        assertEquals(0, scheduler.advance(8));
+        assertEquals(1, scheduler.advance(9));
+        assertEquals(8, scheduler.nextTick());
+        assertEquals(0, scheduler.advance(9));
+
+        //leftover time is kept in the accumulator
+        assertEquals(2, scheduler.advance(25));
+        assertEquals(16, scheduler.nextTick());
+        assertEquals(25, scheduler.nextTick());
+        assertEquals(3, scheduler.getTick());
+    }
+
+
+    @Test
+    public void testCatchUpLimitDropsTime() throws Exception {
+        TickScheduler scheduler = new TickScheduler(100, 5);
+
+        assertEquals(5, scheduler.advance(100));
+        for(int i = 0; i < 5; i++)
+            scheduler.nextTick();
+
+        assertEquals(50, scheduler.getTime());
+        assertEquals(50, scheduler.getDroppedTime());
+        assertEquals(0, scheduler.advance(100));
+
+        //dropped time is removed before quantizing
+        assertEquals(60, scheduler.toTickTime(105));
+    }
+
+
+    @Test
+    public void testToTickTimeRoundsUp() throws Exception {
+        TickScheduler scheduler = new TickScheduler(120, 12);
+
+        assertEquals(0, scheduler.toTickTime(0));
+        assertEquals(8, scheduler.toTickTime(1));
+        assertEquals(8, scheduler.toTickTime(8));
+        assertEquals(16, scheduler.toTickTime(9));
+        assertEquals(500, scheduler.toTickTime(500));
+    }
+}